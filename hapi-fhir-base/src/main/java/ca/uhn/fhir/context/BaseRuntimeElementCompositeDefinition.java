@@ -37,6 +37,7 @@ import ca.uhn.fhir.model.base.composite.BaseResourceReferenceDt;
 import ca.uhn.fhir.model.primitive.BoundCodeDt;
 import ca.uhn.fhir.parser.DataFormatException;
 import ca.uhn.fhir.util.ReflectionUtil;
+import ca.uhn.fhir.util.TerserPath;
 import org.hl7.fhir.instance.model.api.IAnyResource;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseBackboneElement;
@@ -64,11 +65,16 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.TreeMap;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public abstract class BaseRuntimeElementCompositeDefinition<T extends IBase> extends BaseRuntimeElementDefinition<T> {
 
+	/**
+	 * The maximum number of compiled terser paths cached by {@link #getTerserPath(String)} for each definition
+	 */
+	public static final int MAX_CACHED_TERSER_PATHS = 1000;
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(BaseRuntimeElementCompositeDefinition.class);
 	private final FhirContext myContext;
 	private Map<String, Integer> forcedOrder = null;
@@ -78,6 +84,7 @@ public abstract class BaseRuntimeElementCompositeDefinition<T extends IBase> ext
 	private Map<String, BaseRuntimeChildDefinition> myNameToChild = new HashMap<>();
 	private List<ScannedField> myScannedFields = new ArrayList<>();
 	private volatile SealingStateEnum mySealed = SealingStateEnum.NOT_SEALED;
+	private final Map<String, TerserPath> myTerserPaths = new ConcurrentHashMap<>();
 
 	@SuppressWarnings("unchecked")
 	public BaseRuntimeElementCompositeDefinition(String theName, Class<? extends T> theImplementingClass, boolean theStandardType, FhirContext theContext, Map<Class<? extends IBase>, BaseRuntimeElementDefinition<?>> theClassToElementDefinitions) {
@@ -154,6 +161,23 @@ public abstract class BaseRuntimeElementCompositeDefinition<T extends IBase> ext
 		return retVal;
 	}
 
+	/**
+	 * Returns the given {@link ca.uhn.fhir.util.FhirTerser} path compiled for elements of this type.
+	 * Compiled paths are cached, up to {@link #MAX_CACHED_TERSER_PATHS} paths per definition.
+	 *
+	 * @since 6.8.0
+	 */
+	public TerserPath getTerserPath(String thePath) {
+		TerserPath retVal = myTerserPaths.get(thePath);
+		if (retVal == null) {
+			retVal = TerserPath.compile(myContext, this, thePath);
+			if (myTerserPaths.size() < MAX_CACHED_TERSER_PATHS) {
+				myTerserPaths.put(thePath, retVal);
+			}
+		}
+		return retVal;
+	}
+
 	@Override
 	public List<BaseRuntimeChildDefinition> getChildren() {
 		validateSealed();
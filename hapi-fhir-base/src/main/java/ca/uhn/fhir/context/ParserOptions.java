@@ -42,6 +42,7 @@ public class ParserOptions {
 	private Set<String> myDontStripVersionsFromReferencesAtPaths = Collections.emptySet();
 	private boolean myOverrideResourceIdWithBundleEntryFullUrl = true;
 	private boolean myAutoContainReferenceTargetsWithNoId = true;
+	private boolean myUseStreamingJsonParser = false;
 
 	/**
 	 * If set to {@literal true} (which is the default), contained resources may be specified by
@@ -205,4 +206,43 @@ public class ParserOptions {
 		return this;
 	}
 
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser builds resources directly from the
+	 * stream of JSON tokens it reads, instead of first reading the whole document into a tree. This uses
+	 * considerably less memory when parsing large resources such as Bundles. Small parts of the document which
+	 * need to be looked at out of order (extensions, <code>_element</code> properties, and resources whose
+	 * <code>resourceType</code> isn't the first property) are still read into a tree, so the parsed resources
+	 * are the same either way.
+	 * <p>
+	 * The one difference is that a property name which appears twice in the same JSON object is parsed twice
+	 * (meaning that it is reported to the parser error handler if the element doesn't repeat), whereas the
+	 * tree based parser only keeps the last value.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isUseStreamingJsonParser() {
+		return myUseStreamingJsonParser;
+	}
+
+	/**
+	 * If set to <code>true</code> (default is <code>false</code>), the JSON parser builds resources directly from the
+	 * stream of JSON tokens it reads, instead of first reading the whole document into a tree. This uses
+	 * considerably less memory when parsing large resources such as Bundles. Small parts of the document which
+	 * need to be looked at out of order (extensions, <code>_element</code> properties, and resources whose
+	 * <code>resourceType</code> isn't the first property) are still read into a tree, so the parsed resources
+	 * are the same either way.
+	 * <p>
+	 * The one difference is that a property name which appears twice in the same JSON object is parsed twice
+	 * (meaning that it is reported to the parser error handler if the element doesn't repeat), whereas the
+	 * tree based parser only keeps the last value.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public ParserOptions setUseStreamingJsonParser(boolean theUseStreamingJsonParser) {
+		myUseStreamingJsonParser = theUseStreamingJsonParser;
+		return this;
+	}
+
 }
@@ -49,6 +49,7 @@ import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
+import java.util.EnumMap;
 import java.util.EnumSet;
 import java.util.HashMap;
 import java.util.IdentityHashMap;
@@ -67,7 +68,12 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	private final ListMultimap<POINTCUT, BaseInvoker> myAnonymousInvokers = ArrayListMultimap.create();
 	private final Object myRegistryMutex = new Object();
 	private final Class<POINTCUT> myPointcutType;
-	private volatile EnumSet<POINTCUT> myRegisteredPointcuts;
+	/**
+	 * Immutable snapshot of the sorted invokers for each pointcut which has at least one
+	 * hook registered. This is replaced (never modified) whenever the registry changes, so
+	 * that hooks can be invoked without acquiring {@link #myRegistryMutex}.
+	 */
+	private volatile Map<POINTCUT, List<BaseInvoker>> myInvokersByPointcut;
 	private String myName;
 	private boolean myWarnOnInterceptorWithNoHooks = true;
 
@@ -87,7 +93,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 		super();
 		myName = theName;
 		myPointcutType = thePointcutType;
-		rebuildRegisteredPointcutSet();
+		rebuildInvokerSnapshot();
 	}
 
 	/**
@@ -116,7 +122,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 				myInterceptors.add(theInterceptor);
 			}
 
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot();
 		}
 	}
 
@@ -176,7 +182,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 				}
 			}
 
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot();
 		}
 	}
 
@@ -200,17 +206,31 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			myInterceptors.add(theInterceptor);
 			sortByOrderAnnotation(myInterceptors);
 
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot();
 
 			return true;
 		}
 	}
 
-	private void rebuildRegisteredPointcutSet() {
+	/**
+	 * Must be called while holding {@link #myRegistryMutex} after any change to the
+	 * registered invokers
+	 */
+	private void rebuildInvokerSnapshot() {
 		EnumSet<POINTCUT> registeredPointcuts = EnumSet.noneOf(myPointcutType);
 		registeredPointcuts.addAll(myAnonymousInvokers.keySet());
 		registeredPointcuts.addAll(myGlobalInvokers.keySet());
-		myRegisteredPointcuts = registeredPointcuts;
+
+		EnumMap<POINTCUT, List<BaseInvoker>> invokersByPointcut = new EnumMap<>(myPointcutType);
+		for (POINTCUT nextPointcut : registeredPointcuts) {
+			List<BaseInvoker> globalInvokers = myGlobalInvokers.get(nextPointcut);
+			List<BaseInvoker> anonymousInvokers = myAnonymousInvokers.get(nextPointcut);
+			List<BaseInvoker> invokers = union(globalInvokers, anonymousInvokers);
+			if (!invokers.isEmpty()) {
+				invokersByPointcut.put(nextPointcut, List.copyOf(invokers));
+			}
+		}
+		myInvokersByPointcut = Collections.unmodifiableMap(invokersByPointcut);
 	}
 
 	private boolean isInterceptorAlreadyRegistered(Object theInterceptor) {
@@ -228,7 +248,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 			boolean removed = myInterceptors.removeIf(t -> t == theInterceptor);
 			removed |= myGlobalInvokers.entries().removeIf(t -> t.getValue().getInterceptor() == theInterceptor);
 			removed |= myAnonymousInvokers.entries().removeIf(t -> t.getValue().getInterceptor() == theInterceptor);
-			rebuildRegisteredPointcutSet();
+			rebuildInvokerSnapshot();
 			return removed;
 		}
 	}
@@ -258,7 +278,7 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 	@Override
 	public boolean hasHooks(POINTCUT thePointcut) {
-		return myRegisteredPointcuts.contains(thePointcut);
+		return myInvokersByPointcut.containsKey(thePointcut);
 	}
 
 	@Override
@@ -271,8 +291,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 	}
 
 	private Object doCallHooks(POINTCUT thePointcut, HookParams theParams, Object theRetVal) {
-		// use new list for loop to avoid ConcurrentModificationException in case invoker gets added while looping
-		List<BaseInvoker> invokers = new ArrayList<>(getInvokersForPointcut(thePointcut));
+		// The snapshot is immutable, so invokers can be added or removed while we're looping
+		List<BaseInvoker> invokers = getInvokersForPointcut(thePointcut);
+		if (invokers.isEmpty()) {
+			return theRetVal;
+		}
 
 		/*
 		 * Call each hook in order
@@ -308,19 +331,11 @@ public abstract class BaseInterceptorService<POINTCUT extends Enum<POINTCUT> & I
 
 	/**
 	 * Returns an ordered list of invokers for the given pointcut. Note that
-	 * a new and stable list is returned to.. do whatever you want with it.
+	 * the returned list is an immutable snapshot which will not change even if
+	 * interceptors are registered or unregistered while it is being used.
 	 */
 	private List<BaseInvoker> getInvokersForPointcut(POINTCUT thePointcut) {
-		List<BaseInvoker> invokers;
-
-		synchronized (myRegistryMutex) {
-			List<BaseInvoker> globalInvokers = myGlobalInvokers.get(thePointcut);
-			List<BaseInvoker> anonymousInvokers = myAnonymousInvokers.get(thePointcut);
-			List<BaseInvoker> threadLocalInvokers = null;
-			invokers = union(globalInvokers, anonymousInvokers, threadLocalInvokers);
-		}
-
-		return invokers;
+		return myInvokersByPointcut.getOrDefault(thePointcut, Collections.emptyList());
 	}
 
 	/**
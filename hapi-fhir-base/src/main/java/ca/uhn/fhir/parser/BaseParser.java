@@ -30,6 +30,7 @@ import ca.uhn.fhir.context.FhirVersionEnum;
 import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
 import ca.uhn.fhir.context.RuntimeChildContainedResources;
 import ca.uhn.fhir.context.RuntimeChildNarrativeDefinition;
+import ca.uhn.fhir.context.RuntimeChildResourceBlockDefinition;
 import ca.uhn.fhir.context.RuntimeResourceDefinition;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.model.api.IIdentifiableElement;
@@ -64,6 +65,8 @@ import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.StringReader;
 import java.io.Writer;
@@ -262,6 +265,16 @@ public abstract class BaseParser implements IParser {
 
 	protected abstract void doEncodeResourceToWriter(IBaseResource theResource, Writer theWriter, EncodeContext theEncodeContext) throws IOException, DataFormatException;
 
+	/**
+	 * Encodes a resource as UTF-8 bytes. The default implementation wraps the stream in a {@link Writer},
+	 * parsers which can produce bytes directly should override this.
+	 */
+	protected void doEncodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream, EncodeContext theEncodeContext) throws IOException, DataFormatException {
+		Writer writer = new OutputStreamWriter(theOutputStream, Charsets.UTF_8);
+		doEncodeResourceToWriter(theResource, writer, theEncodeContext);
+		writer.flush();
+	}
+
 	protected void doEncodeToWriter(IBase theElement, Writer theWriter, EncodeContext theEncodeContext) throws IOException, DataFormatException {
 		throw new InternalErrorException(Msg.code(2363) + "This parser does not support encoding non-resource values");
 	}
@@ -286,6 +299,17 @@ public abstract class BaseParser implements IParser {
 	}
 
 
+	@Override
+	public final void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		Validate.notNull(theResource, "theResource can not be null");
+		Validate.notNull(theOutputStream, "theOutputStream can not be null");
+
+		EncodeContext encodeContext = new EncodeContext();
+		pushResourcePath(theResource, encodeContext);
+		doEncodeResourceToOutputStream(theResource, theOutputStream, encodeContext);
+		encodeContext.popPath();
+	}
+
 	@Override
 	public String encodeToString(IBase theElement) throws DataFormatException {
 		Writer stringWriter = new StringBuilderWriter();
@@ -315,6 +339,12 @@ public abstract class BaseParser implements IParser {
 		Validate.notNull(theWriter, "theWriter can not be null");
 		Validate.notNull(theEncodeContext, "theEncodeContext can not be null");
 
+		pushResourcePath(theResource, theEncodeContext);
+		doEncodeResourceToWriter(theResource, theWriter, theEncodeContext);
+		theEncodeContext.popPath();
+	}
+
+	private void pushResourcePath(IBaseResource theResource, EncodeContext theEncodeContext) {
 		if (myContext.getVersion().getVersion() == FhirVersionEnum.R4B && theResource.getStructureFhirVersionEnum() == FhirVersionEnum.R5) {
 			// TODO: remove once we've bumped the core lib version
 		} else if (theResource.getStructureFhirVersionEnum() != myContext.getVersion().getVersion()) {
@@ -323,10 +353,6 @@ public abstract class BaseParser implements IParser {
 
 		String resourceName = myContext.getElementDefinition(theResource.getClass()).getName();
 		theEncodeContext.pushPath(resourceName, true);
-
-		doEncodeResourceToWriter(theResource, theWriter, theEncodeContext);
-
-		theEncodeContext.popPath();
 	}
 
 	protected void encodeToWriter(IBase theElement, Writer theWriter, EncodeContext theEncodeContext) throws IOException {
@@ -643,11 +669,21 @@ public abstract class BaseParser implements IParser {
 		// Actually do the parse
 		T retVal = doParseResource(theResourceType, theReader);
 
-		RuntimeResourceDefinition def = myContext.getResourceDefinition(retVal);
+		overrideResourceIdsWithBundleEntryFullUrls(retVal);
+
+		return retVal;
+	}
+
+	/**
+	 * If the parsed resource is a Bundle, applies {@link #isOverrideResourceIdWithBundleEntryFullUrl()}
+	 * to its entries
+	 */
+	protected void overrideResourceIdsWithBundleEntryFullUrls(IBaseResource theResource) {
+		RuntimeResourceDefinition def = myContext.getResourceDefinition(theResource);
 		if ("Bundle".equals(def.getName())) {
 
 			if (isOverrideResourceIdWithBundleEntryFullUrl()) {
-				BundleUtil.processEntries(myContext, (IBaseBundle) retVal, t -> {
+				BundleUtil.processEntries(myContext, (IBaseBundle) theResource, t -> {
 					String fullUrl = t.getFullUrl();
 					if (fullUrl != null) {
 						IBaseResource resource = t.getResource();
@@ -681,8 +717,6 @@ public abstract class BaseParser implements IParser {
 			}
 
 		}
-
-		return retVal;
 	}
 
 	@SuppressWarnings("cast")
@@ -759,6 +793,14 @@ public abstract class BaseParser implements IParser {
 			}
 		}
 
+		/*
+		 * Backbone elements are never references, so there is nothing to replace. This
+		 * also avoids walking large lists (which aren't necessarily random access) twice.
+		 */
+		if (theMetaChildUncast instanceof RuntimeChildResourceBlockDefinition) {
+			return theValues;
+		}
+
 		@SuppressWarnings("unchecked")
 		List<IBase> retVal = (List<IBase>) theValues;
 
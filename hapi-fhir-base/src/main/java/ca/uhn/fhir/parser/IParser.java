@@ -31,8 +31,11 @@ import org.hl7.fhir.instance.model.api.IIdType;
 
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.Collection;
 import java.util.List;
 import java.util.Set;
@@ -65,6 +68,23 @@ public interface IParser {
 	 */
 	void encodeResourceToWriter(IBaseResource theResource, Writer theWriter) throws IOException, DataFormatException;
 
+	/**
+	 * Encodes a resource using the parser's given encoding format, writing it to a stream as UTF-8 encoded
+	 * bytes. The stream is flushed but not closed. This avoids the intermediate character buffers (and, compared to
+	 * {@link #encodeResourceToString(IBaseResource)}, the intermediate String) which are needed when the
+	 * destination is ultimately a byte stream such as an HTTP response or a file.
+	 *
+	 * @param theResource     The resource to encode. Must not be null.
+	 * @param theOutputStream The stream to write to.
+	 * @throws DataFormatException If any invalid elements within the contents to be encoded prevent successful encoding.
+	 * @since 6.8.0
+	 */
+	default void encodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream) throws IOException, DataFormatException {
+		Writer writer = new OutputStreamWriter(theOutputStream, StandardCharsets.UTF_8);
+		encodeResourceToWriter(theResource, writer);
+		writer.flush();
+	}
+
 	/**
 	 * Encodes any FHIR element to a string.
 	 * If a {@link IBaseResource resource object} is passed in, the resource will be encoded using standard FHIR
@@ -72,6 +72,7 @@ import org.hl7.fhir.instance.model.api.INarrative;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Reader;
 import java.io.Writer;
 import java.math.BigDecimal;
@@ -192,6 +193,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return jsonStructure.getJsonLikeWriter(theWriter);
 	}
 
+	private BaseJsonLikeWriter createJsonWriter(OutputStream theOutputStream) throws IOException {
+		return new JacksonStructure().getJsonLikeWriter(theOutputStream);
+	}
+
 	public void doEncodeResourceToJsonLikeWriter(IBaseResource theResource, BaseJsonLikeWriter theEventWriter, EncodeContext theEncodeContext) throws IOException {
 		if (myPrettyPrint) {
 			theEventWriter.setPrettyPrint(myPrettyPrint);
@@ -210,6 +215,18 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		eventWriter.close();
 	}
 
+	/**
+	 * Writes UTF-8 directly using Jackson's byte generator. The output is byte-identical to the UTF-8
+	 * encoding of {@link #encodeResourceToString(IBaseResource)}, including for characters outside the
+	 * Basic Multilingual Plane.
+	 */
+	@Override
+	protected void doEncodeResourceToOutputStream(IBaseResource theResource, OutputStream theOutputStream, EncodeContext theEncodeContext) throws IOException {
+		BaseJsonLikeWriter eventWriter = createJsonWriter(theOutputStream);
+		doEncodeResourceToJsonLikeWriter(theResource, eventWriter, theEncodeContext);
+		eventWriter.close();
+	}
+
 	@Override
 	protected void doEncodeToWriter(IBase theElement, Writer theWriter, EncodeContext theEncodeContext) throws IOException, DataFormatException {
 		BaseJsonLikeWriter eventWriter = createJsonWriter(theWriter);
@@ -221,6 +238,10 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 	@Override
 	public <T extends IBaseResource> T doParseResource(Class<T> theResourceType, Reader theReader) {
+		if (getContext().getParserOptions().isUseStreamingJsonParser()) {
+			return JsonStreamReader.parseResource(this, theResourceType, theReader);
+		}
+
 		JsonLikeStructure jsonStructure = new JacksonStructure();
 		jsonStructure.load(theReader);
 
@@ -946,8 +967,8 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return EncodingEnum.JSON;
 	}
 
-	private BaseJsonLikeArray grabJsonArray(BaseJsonLikeObject theObject, String nextName, String thePosition) {
-		BaseJsonLikeValue object = theObject.get(nextName);
+	BaseJsonLikeArray grabJsonArray(BaseJsonLikeValue theValue, String thePosition) {
+		BaseJsonLikeValue object = theValue;
 		if (object == null || object.isNull()) {
 			return null;
 		}
@@ -957,7 +978,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return object.getAsArray();
 	}
 
-	private void parseAlternates(BaseJsonLikeValue theAlternateVal, ParserState<?> theState, String theElementName, String theAlternateName) {
+	void parseAlternates(BaseJsonLikeValue theAlternateVal, ParserState<?> theState, String theElementName, String theAlternateName) {
 		if (theAlternateVal == null || theAlternateVal.isNull()) {
 			return;
 		}
@@ -1005,7 +1026,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private void parseChildren(BaseJsonLikeObject theObject, ParserState<?> theState) {
+	void parseChildren(BaseJsonLikeObject theObject, ParserState<?> theState) {
 		int allUnderscoreNames = 0;
 		int handledUnderscoreNames = 0;
 
@@ -1016,11 +1037,11 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 					continue;
 				}
 			} else if ("extension".equals(nextName)) {
-				BaseJsonLikeArray array = grabJsonArray(theObject, nextName, "extension");
+				BaseJsonLikeArray array = grabJsonArray(theObject.get(nextName), "extension");
 				parseExtension(theState, array, false);
 				continue;
 			} else if ("modifierExtension".equals(nextName)) {
-				BaseJsonLikeArray array = grabJsonArray(theObject, nextName, "modifierExtension");
+				BaseJsonLikeArray array = grabJsonArray(theObject.get(nextName), "modifierExtension");
 				parseExtension(theState, array, true);
 				continue;
 			} else if (nextName.equals("fhir_comments")) {
@@ -1112,20 +1133,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 
 			theState.enteringNewElement(null, theName);
 			parseAlternates(theAlternateVal, theState, theAlternateName, theAlternateName);
-			BaseJsonLikeObject nextObject = theJsonVal.getAsObject();
-			boolean preResource = false;
-			if (theState.isPreResource()) {
-				BaseJsonLikeValue resType = nextObject.get("resourceType");
-				if (resType == null || !resType.isString()) {
-					throw new DataFormatException(Msg.code(1843) + "Missing required element 'resourceType' from JSON resource object, unable to parse");
-				}
-				theState.enteringNewElement(null, resType.getAsString());
-				preResource = true;
-			}
-			parseChildren(nextObject, theState);
-			if (preResource) {
-				theState.endingElement();
-			}
+			parseObject(theJsonVal.getAsObject(), theState);
 			theState.endingElement();
 		} else if (theJsonVal.isNull()) {
 			theState.enteringNewElement(null, theName);
@@ -1141,7 +1149,27 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
+	/**
+	 * Parses the object for an element which has just been entered. If the element is a resource,
+	 * this also enters the element for the resource type given in the object.
+	 */
+	void parseObject(BaseJsonLikeObject theObject, ParserState<?> theState) {
+		boolean preResource = false;
+		if (theState.isPreResource()) {
+			BaseJsonLikeValue resType = theObject.get("resourceType");
+			if (resType == null || !resType.isString()) {
+				throw new DataFormatException(Msg.code(1843) + "Missing required element 'resourceType' from JSON resource object, unable to parse");
+			}
+			theState.enteringNewElement(null, resType.getAsString());
+			preResource = true;
+		}
+		parseChildren(theObject, theState);
+		if (preResource) {
+			theState.endingElement();
+		}
+	}
+
+	void parseExtension(ParserState<?> theState, BaseJsonLikeArray theValues, boolean theIsModifier) {
 		int allUnderscoreNames = 0;
 		int handledUnderscoreNames = 0;
 
@@ -1216,7 +1244,7 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		}
 	}
 
-	private void parseFhirComments(BaseJsonLikeValue theObject, ParserState<?> theState) {
+	void parseFhirComments(BaseJsonLikeValue theObject, ParserState<?> theState) {
 		if (isSupportsFhirComment()) {
 			if (theObject.isArray()) {
 				BaseJsonLikeArray comments = theObject.getAsArray();
@@ -1299,6 +1327,28 @@ public class JsonParser extends BaseParser implements IJsonLikeParser {
 		return retVal;
 	}
 
+	/**
+	 * Parses a resource directly from a stream of Jackson tokens. The tokens may come from any format
+	 * which shares JSON's data model, such as the binary Smile format, so content stored that way can
+	 * be parsed without first converting it back into JSON text. The Jackson parser must not have read
+	 * any tokens yet, and is not closed by this method.
+	 *
+	 * @param theResourceType The resource type to use, or <code>null</code> to use the type given in the content
+	 * @param theJsonParser   The Jackson parser to read tokens from
+	 * @since 6.8.0
+	 */
+	public <T extends IBaseResource> T parseResource(Class<T> theResourceType, com.fasterxml.jackson.core.JsonParser theJsonParser) throws DataFormatException {
+		if (theResourceType != null) {
+			getContext().getResourceDefinition(theResourceType);
+		}
+
+		T retVal = JsonStreamReader.parseResource(this, theResourceType, theJsonParser);
+
+		overrideResourceIdsWithBundleEntryFullUrls(retVal);
+
+		return retVal;
+	}
+
 	@Override
 	public IBaseResource parseResource(JsonLikeStructure theJsonLikeStructure) throws DataFormatException {
 		return parseResource(null, theJsonLikeStructure);
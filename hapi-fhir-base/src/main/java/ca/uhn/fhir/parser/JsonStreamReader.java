@@ -0,0 +1,389 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.json.BaseJsonLikeObject;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ScalarType;
+import ca.uhn.fhir.parser.json.BaseJsonLikeValue.ValueType;
+import ca.uhn.fhir.parser.json.jackson.JacksonStructure;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.NullNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Parses a FHIR JSON resource directly from a stream of JSON tokens, instead of first reading the
+ * whole document into a tree the way {@link JsonParser} otherwise does. The parsed resource is
+ * the same in both cases:
+ * <ul>
+ *    <li>Extensions, <code>_name</code> properties and <code>fhir_comments</code> are small, so they are
+ *    read into trees and then handled by the tree based code in {@link JsonParser}.</li>
+ *    <li>A <code>_name</code> property which comes before its <code>name</code> property is held until
+ *    <code>name</code> is parsed. One which comes after it is added by re-entering the element that was
+ *    created for <code>name</code>.</li>
+ *    <li>A resource whose <code>resourceType</code> isn't its first property is read into a tree, since
+ *    none of its other properties can be parsed before the resource type is known.</li>
+ * </ul>
+ *
+ * @see ca.uhn.fhir.context.ParserOptions#setUseStreamingJsonParser(boolean)
+ */
+final class JsonStreamReader {
+
+	/**
+	 * Handle used for properties in an {@link ObjectProperties} which aren't child elements
+	 */
+	private static final Object NOT_AN_ELEMENT = new Object();
+
+	private final JsonParser myParser;
+	private final com.fasterxml.jackson.core.JsonParser myTokens;
+
+	private JsonStreamReader(JsonParser theParser, com.fasterxml.jackson.core.JsonParser theTokens) {
+		myParser = theParser;
+		myTokens = theTokens;
+	}
+
+	private <T extends IBaseResource> T parseResource(Class<T> theResourceType) throws IOException {
+		JsonToken firstToken = myTokens.nextToken();
+		if (firstToken != JsonToken.START_OBJECT) {
+			throw new DataFormatException(Msg.code(2383) + "Content does not appear to be a FHIR JSON object, first token was: " + firstToken);
+		}
+
+		if (myTokens.nextToken() == JsonToken.FIELD_NAME && "resourceType".equals(myTokens.getCurrentName())) {
+			if (myTokens.nextToken() == JsonToken.VALUE_STRING && isNotBlank(myTokens.getText())) {
+				ParserState<T> state = ParserState.getPreResourceInstance(myParser, theResourceType, myParser.getContext(), true, myParser.getErrorHandler());
+				state.enteringNewElement(null, myTokens.getText());
+				parseProperties(state, true);
+				state.endingElement();
+				state.endingElement();
+				JacksonStructure.verifyNoTrailingTokens(myTokens);
+				return state.getObject();
+			}
+		}
+
+		JacksonStructure structure = new JacksonStructure();
+		structure.setNativeObject(readRemainingProperties());
+		JacksonStructure.verifyNoTrailingTokens(myTokens);
+		return myParser.doParseResource(theResourceType, structure);
+	}
+
+	/**
+	 * Parses the remaining properties of the object the parser is in as the children of the current
+	 * element, in the same way as {@link JsonParser#parseChildren(BaseJsonLikeObject, ParserState)}
+	 */
+	private void parseProperties(ParserState<?> theState, boolean theResourceTypeRead) throws IOException {
+		ObjectProperties properties = new ObjectProperties();
+		if (theResourceTypeRead) {
+			properties.add("resourceType", NOT_AN_ELEMENT);
+		}
+
+		while (myTokens.nextToken() == JsonToken.FIELD_NAME) {
+			String name = myTokens.getCurrentName();
+			myTokens.nextToken();
+
+			if ("resourceType".equals(name)) {
+				if (theState.isToplevelResourceElement()) {
+					myTokens.skipChildren();
+					properties.add(name, NOT_AN_ELEMENT);
+					continue;
+				}
+			} else if ("extension".equals(name)) {
+				myParser.parseExtension(theState, myParser.grabJsonArray(readValue(), "extension"), false);
+				properties.add(name, NOT_AN_ELEMENT);
+				continue;
+			} else if ("modifierExtension".equals(name)) {
+				myParser.parseExtension(theState, myParser.grabJsonArray(readValue(), "modifierExtension"), true);
+				properties.add(name, NOT_AN_ELEMENT);
+				continue;
+			} else if ("fhir_comments".equals(name)) {
+				myParser.parseFhirComments(readValue(), theState);
+				properties.add(name, NOT_AN_ELEMENT);
+				continue;
+			} else if (name.charAt(0) == '_') {
+				JsonNode alternate = readTree();
+				properties.addAlternate(name, alternate);
+				parseLateAlternate(theState, properties.getElementHandle(name.substring(1)), alternate, name);
+				continue;
+			}
+
+			String alternateName = '_' + name;
+			Object handle = parseValue(theState, name, properties.getAlternate(alternateName), alternateName, false);
+			properties.add(name, handle);
+		}
+
+		properties.parseAlternatesWithoutElement(theState);
+	}
+
+	/**
+	 * Parses the value the parser is positioned at as a child element, in the same way as
+	 * {@link JsonParser#parseChildren(ParserState, String, BaseJsonLikeValue, BaseJsonLikeValue, String, boolean)}
+	 *
+	 * @return The handle for re-entering the element, or a list of handles if the value is an array
+	 */
+	private Object parseValue(ParserState<?> theState, String theName, JsonNode theAlternate, String theAlternateName, boolean theInArray) throws IOException {
+		JsonToken token = myTokens.currentToken();
+
+		if (token == JsonToken.START_ARRAY) {
+			checkIdIsString(theName, ValueType.ARRAY, null);
+
+			JsonNode alternate = theAlternate;
+			if (alternate != null && !alternate.isArray()) {
+				myParser.getErrorHandler().incorrectJsonType(null, theAlternateName, ValueType.ARRAY, null, JacksonStructure.toJsonLikeValue(alternate).getJsonType(), null);
+				alternate = null;
+			}
+
+			List<Object> retVal = new ArrayList<>();
+			for (int i = 0; myTokens.nextToken() != JsonToken.END_ARRAY; i++) {
+				JsonNode nextAlternate = alternate != null ? alternate.get(i) : null;
+				retVal.add(parseValue(theState, theName, nextAlternate, theAlternateName, true));
+			}
+			return retVal;
+		}
+
+		if (token == JsonToken.START_OBJECT) {
+			checkIdIsString(theName, ValueType.OBJECT, null);
+			if (!theInArray && theState.elementIsRepeating(theName)) {
+				myParser.getErrorHandler().incorrectJsonType(null, theName, ValueType.ARRAY, null, ValueType.OBJECT, null);
+			}
+
+			Object retVal = theState.enteringNewElementReenterable(theName);
+			myParser.parseAlternates(JacksonStructure.toJsonLikeValue(theAlternate), theState, theAlternateName, theAlternateName);
+			if (theState.isPreResource()) {
+				parseResourceProperties(theState);
+			} else {
+				parseProperties(theState, false);
+			}
+			theState.endingElement();
+			return retVal;
+		}
+
+		BaseJsonLikeValue value = readValue();
+		if (!value.isString()) {
+			checkIdIsString(theName, value.getJsonType(), value.getDataType());
+		}
+
+		Object retVal = theState.enteringNewElementReenterable(theName);
+		if (!value.isNull()) {
+			theState.attributeValue("value", value.getAsString());
+		}
+		myParser.parseAlternates(JacksonStructure.toJsonLikeValue(theAlternate), theState, theAlternateName, theAlternateName);
+		theState.endingElement();
+		return retVal;
+	}
+
+	/**
+	 * Parses the properties of a resource object, whose element has just been entered
+	 */
+	private void parseResourceProperties(ParserState<?> theState) throws IOException {
+		if (myTokens.nextToken() == JsonToken.FIELD_NAME && "resourceType".equals(myTokens.getCurrentName())) {
+			if (myTokens.nextToken() == JsonToken.VALUE_STRING) {
+				theState.enteringNewElement(null, myTokens.getText());
+				parseProperties(theState, true);
+				theState.endingElement();
+				return;
+			}
+		}
+
+		BaseJsonLikeObject object = JacksonStructure.toJsonLikeValue(readRemainingProperties()).getAsObject();
+		myParser.parseObject(object, theState);
+	}
+
+	/**
+	 * Adds a <code>_name</code> property to the elements that were parsed earlier for <code>name</code>
+	 *
+	 * @param theHandle The handle returned by {@link #parseValue(ParserState, String, JsonNode, String, boolean)}
+	 *                  for <code>name</code>, or <code>null</code> if there is nothing to add the property to
+	 */
+	private void parseLateAlternate(ParserState<?> theState, Object theHandle, JsonNode theAlternate, String theAlternateName) {
+		if (theHandle instanceof List) {
+			if (!theAlternate.isArray()) {
+				myParser.getErrorHandler().incorrectJsonType(null, theAlternateName, ValueType.ARRAY, null, JacksonStructure.toJsonLikeValue(theAlternate).getJsonType(), null);
+				return;
+			}
+			List<?> handles = (List<?>) theHandle;
+			for (int i = 0; i < handles.size() && i < theAlternate.size(); i++) {
+				parseLateAlternate(theState, handles.get(i), theAlternate.get(i), theAlternateName);
+			}
+		} else if (theHandle != null) {
+			theState.reenteringElement(theHandle);
+			myParser.parseAlternates(JacksonStructure.toJsonLikeValue(theAlternate), theState, theAlternateName, theAlternateName);
+			theState.endingElement();
+		}
+	}
+
+	private void checkIdIsString(String theName, ValueType theJsonType, ScalarType theDataType) {
+		if (theName.equals("id")) {
+			myParser.getErrorHandler().incorrectJsonType(null, "id", ValueType.SCALAR, ScalarType.STRING, theJsonType, theDataType);
+		}
+	}
+
+	/**
+	 * Reads the value the parser is positioned at into a tree
+	 */
+	private BaseJsonLikeValue readValue() throws IOException {
+		return JacksonStructure.toJsonLikeValue(readTree());
+	}
+
+	private JsonNode readTree() throws IOException {
+		JsonNode retVal = myTokens.readValueAsTree();
+		return retVal != null ? retVal : NullNode.getInstance();
+	}
+
+	/**
+	 * Reads the rest of the object the parser is in into a tree. The parser may be positioned at a
+	 * property name, at the value of a property, or at the end of the object.
+	 */
+	private ObjectNode readRemainingProperties() throws IOException {
+		ObjectNode retVal = (ObjectNode) myTokens.getCodec().createObjectNode();
+		JsonToken token = myTokens.currentToken();
+		if (token != JsonToken.FIELD_NAME && token != JsonToken.END_OBJECT) {
+			retVal.set(myTokens.getCurrentName(), readTree());
+			token = myTokens.nextToken();
+		}
+		while (token == JsonToken.FIELD_NAME) {
+			String name = myTokens.getCurrentName();
+			myTokens.nextToken();
+			retVal.set(name, readTree());
+			token = myTokens.nextToken();
+		}
+		return retVal;
+	}
+
+	/**
+	 * Parses a resource from JSON content
+	 */
+	static <T extends IBaseResource> T parseResource(JsonParser theParser, Class<T> theResourceType, Reader theReader) {
+		try (com.fasterxml.jackson.core.JsonParser tokens = JacksonStructure.createStreamingParser(theReader)) {
+			return new JsonStreamReader(theParser, tokens).parseResource(theResourceType);
+		} catch (IOException e) {
+			throw JacksonStructure.toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * Parses a resource from a parser which hasn't read any tokens yet. The parser is not closed.
+	 */
+	static <T extends IBaseResource> T parseResource(JsonParser theParser, Class<T> theResourceType, com.fasterxml.jackson.core.JsonParser theTokens) {
+		try {
+			return new JsonStreamReader(theParser, JacksonStructure.prepareStreamingParser(theTokens)).parseResource(theResourceType);
+		} catch (IOException e) {
+			throw JacksonStructure.toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * The properties of an object which have been parsed so far
+	 */
+	private class ObjectProperties {
+
+		/**
+		 * Names and handles of the properties, in pairs
+		 */
+		private final List<Object> myNamesAndHandles = new ArrayList<>();
+		private Map<String, JsonNode> myAlternates;
+
+		void add(String theName, Object theHandle) {
+			myNamesAndHandles.add(theName);
+			myNamesAndHandles.add(theHandle);
+		}
+
+		void addAlternate(String theAlternateName, JsonNode theAlternate) {
+			if (myAlternates == null) {
+				myAlternates = new LinkedHashMap<>();
+			}
+			myAlternates.put(theAlternateName, theAlternate);
+		}
+
+		JsonNode getAlternate(String theAlternateName) {
+			return myAlternates != null ? myAlternates.get(theAlternateName) : null;
+		}
+
+		/**
+		 * Returns the handle of the child element with the given name, or <code>null</code> if there is none
+		 */
+		Object getElementHandle(String theName) {
+			for (int i = myNamesAndHandles.size() - 2; i >= 0; i -= 2) {
+				if (theName.equals(myNamesAndHandles.get(i))) {
+					Object handle = myNamesAndHandles.get(i + 1);
+					return handle != NOT_AN_ELEMENT ? handle : null;
+				}
+			}
+			return null;
+		}
+
+		private boolean hasProperty(String theName) {
+			return myNamesAndHandles.contains(theName) || (myAlternates != null && myAlternates.containsKey(theName));
+		}
+
+		private boolean isElement(int theIndex) {
+			return myNamesAndHandles.get(theIndex + 1) != NOT_AN_ELEMENT && myNamesAndHandles.indexOf(myNamesAndHandles.get(theIndex)) == theIndex;
+		}
+
+		/**
+		 * Parses the <code>_name</code> properties which have no <code>name</code> property, once the whole object
+		 * has been read. This is the same as the end of {@link JsonParser#parseChildren(BaseJsonLikeObject, ParserState)}.
+		 */
+		void parseAlternatesWithoutElement(ParserState<?> theState) {
+			if (myAlternates == null) {
+				return;
+			}
+
+			int handledUnderscoreNames = 0;
+			for (int i = 0; i < myNamesAndHandles.size(); i += 2) {
+				if (isElement(i) && myAlternates.containsKey("_" + myNamesAndHandles.get(i))) {
+					handledUnderscoreNames++;
+				}
+			}
+			if (myAlternates.size() <= handledUnderscoreNames) {
+				return;
+			}
+
+			for (Map.Entry<String, JsonNode> next : myAlternates.entrySet()) {
+				String alternateName = next.getKey();
+				if (alternateName.length() > 1) {
+					BaseJsonLikeValue nextValue = JacksonStructure.toJsonLikeValue(next.getValue());
+					if (nextValue.isObject()) {
+						String nextName = alternateName.substring(1);
+						if (!hasProperty(nextName)) {
+							theState.enteringNewElement(null, nextName);
+							myParser.parseAlternates(nextValue, theState, alternateName, alternateName);
+							theState.endingElement();
+						}
+					} else {
+						myParser.getErrorHandler().incorrectJsonType(null, alternateName, ValueType.OBJECT, null, nextValue.getJsonType(), null);
+					}
+				}
+			}
+		}
+
+	}
+
+}
@@ -136,6 +136,32 @@ class ParserState<T> {
 		myState.enteringNewElement(theNamespaceUri, theName);
 	}
 
+	/**
+	 * Like {@link #enteringNewElement(String, String)}, but returns a handle which can be passed to
+	 * {@link #reenteringElement(Object)} after the element has ended in order to add more content to it.
+	 * This is used by the streaming JSON parser when a <code>_name</code> property doesn't directly
+	 * follow the <code>name</code> property it belongs to.
+	 *
+	 * @return The handle, or <code>null</code> if the element can't be re-entered because it is a
+	 * resource or because it is being ignored
+	 */
+	Object enteringNewElementReenterable(String theName) throws DataFormatException {
+		BaseState parent = myState;
+		myState.enteringNewElement(null, theName);
+		if (myState == parent || myState instanceof ParserState<?>.SwallowChildrenWholeState || myState.isPreResource()) {
+			return null;
+		}
+		return myState;
+	}
+
+	/**
+	 * Re-enters an element which was entered using {@link #enteringNewElementReenterable(String)} and has
+	 * since ended. The caller must call {@link #endingElement()} once it is done adding content.
+	 */
+	void reenteringElement(Object theHandle) {
+		push((BaseState) theHandle);
+	}
+
 	void enteringNewElementExtension(StartElement theElem, String theUrlAttr, boolean theIsModifier, final String baseServerUrl) {
 		myState.enteringNewElementExtension(theElem, theUrlAttr, theIsModifier, baseServerUrl);
 	}
@@ -28,16 +28,20 @@ import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
 import ca.uhn.fhir.parser.json.JsonLikeStructure;
 import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
 import com.fasterxml.jackson.databind.json.JsonMapper;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.DecimalNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.databind.util.ClassUtil;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.PushbackReader;
 import java.io.Reader;
 import java.io.Writer;
@@ -79,41 +83,111 @@ public class JacksonStructure implements JsonLikeStructure {
 	@Override
 	public void load(Reader theReader, boolean allowArray) throws DataFormatException {
 		PushbackReader pbr = new PushbackReader(theReader);
-		int nextInt;
 		try {
-			while (true) {
-				nextInt = pbr.read();
-				if (nextInt == -1) {
-					throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
-				}
-				if (nextInt == '{') {
-					pbr.unread(nextInt);
-					break;
-				}
-				if (Character.isWhitespace(nextInt)) {
-					continue;
-				}
-				if (allowArray) {
-					if (nextInt == '[') {
-						pbr.unread(nextInt);
-						break;
-					}
-					throw new DataFormatException(Msg.code(1858) + "Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{' or '[')");
-				}
-				throw new DataFormatException(Msg.code(1859) + "Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{')");
-			}
-
+			int nextInt = readToFirstContentCharacter(pbr, allowArray);
 			if (nextInt == '{') {
 				setNativeObject((ObjectNode) OBJECT_MAPPER.readTree(pbr));
 			} else {
 				setNativeArray((ArrayNode) OBJECT_MAPPER.readTree(pbr));
 			}
 		} catch (Exception e) {
-			if (e.getMessage().startsWith("Unexpected char 39")) {
-				throw new DataFormatException(Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + e.getMessage() + " - " +
-					"This may indicate that single quotes are being used as JSON escapes where double quotes are required", e);
+			throw toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * Creates a streaming parser for content which must be a JSON object, using the same settings
+	 * that {@link #load(Reader)} uses to read the content into a tree. Exceptions thrown by the
+	 * returned parser can be converted using {@link #toDataFormatException(Exception)}.
+	 *
+	 * @since 6.8.0
+	 */
+	public static JsonParser createStreamingParser(Reader theReader) throws DataFormatException {
+		PushbackReader pbr = new PushbackReader(theReader);
+		try {
+			readToFirstContentCharacter(pbr, false);
+			return prepareStreamingParser(OBJECT_MAPPER.getFactory().createParser(pbr));
+		} catch (Exception e) {
+			throw toDataFormatException(e);
+		}
+	}
+
+	/**
+	 * Configures a parser which was created elsewhere, e.g. for a binary format with the same data
+	 * model as JSON, so that it reads values in the same way as one returned by
+	 * {@link #createStreamingParser(Reader)}
+	 *
+	 * @since 6.8.0
+	 */
+	public static JsonParser prepareStreamingParser(JsonParser theParser) {
+		// Values within the content are read individually, so only the end of the content is checked for trailing tokens
+		theParser.setCodec(OBJECT_MAPPER.reader().without(DeserializationFeature.FAIL_ON_TRAILING_TOKENS));
+		return theParser;
+	}
+
+	/**
+	 * Fails if there is any content left in a streaming parser after the value that has just been read,
+	 * in the same way that {@link #load(Reader)} does
+	 *
+	 * @since 6.8.0
+	 */
+	public static void verifyNoTrailingTokens(JsonParser theParser) throws IOException {
+		JsonToken trailingToken = theParser.nextToken();
+		if (trailingToken != null) {
+			throw MismatchedInputException.from(theParser, JsonNode.class, String.format(
+				"Trailing token (of type %s) found after value (bound as %s): not allowed as per `DeserializationFeature.FAIL_ON_TRAILING_TOKENS`",
+				trailingToken, ClassUtil.nameOf(JsonNode.class)));
+		}
+	}
+
+	/**
+	 * Converts an exception thrown while reading JSON content into the exception {@link #load(Reader)} throws
+	 *
+	 * @since 6.8.0
+	 */
+	public static DataFormatException toDataFormatException(Exception theException) {
+		if (theException.getMessage().startsWith("Unexpected char 39")) {
+			return new DataFormatException(Msg.code(1860) + "Failed to parse JSON encoded FHIR content: " + theException.getMessage() + " - " +
+				"This may indicate that single quotes are being used as JSON escapes where double quotes are required", theException);
+		}
+		return new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + theException.getMessage(), theException);
+	}
+
+	/**
+	 * Returns a JSON-like view of a node which has been read on its own, e.g. a value read from a
+	 * parser created by {@link #createStreamingParser(Reader)}
+	 *
+	 * @param theNode The node, may be <code>null</code>
+	 * @since 6.8.0
+	 */
+	public static BaseJsonLikeValue toJsonLikeValue(JsonNode theNode) {
+		if (theNode == null) {
+			return null;
+		}
+		return new JacksonJsonValue(theNode);
+	}
+
+	private static int readToFirstContentCharacter(PushbackReader theReader, boolean theAllowArray) throws IOException {
+		while (true) {
+			int nextInt = theReader.read();
+			if (nextInt == -1) {
+				throw new DataFormatException(Msg.code(1857) + "Did not find any content to parse");
+			}
+			if (nextInt == '{') {
+				theReader.unread(nextInt);
+				return nextInt;
 			}
-			throw new DataFormatException(Msg.code(1861) + "Failed to parse JSON encoded FHIR content: " + e.getMessage(), e);
+			if (Character.isWhitespace(nextInt)) {
+				continue;
+			}
+			if (theAllowArray) {
+				if (nextInt == '[') {
+					theReader.unread(nextInt);
+					return nextInt;
+				}
+				throw new DataFormatException(Msg.code(1858) + "Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{' or '[')");
+			}
+			throw new DataFormatException(Msg.code(1859) + "Content does not appear to be FHIR JSON, first non-whitespace character was: '" + (char) nextInt + "' (must be '{')");
 		}
 	}
 
@@ -126,6 +200,20 @@ public class JacksonStructure implements JsonLikeStructure {
 		return jacksonWriter;
 	}
 
+	/**
+	 * Returns a writer which writes UTF-8 encoded bytes directly to the given stream. Closing the
+	 * writer flushes the stream but does not close it.
+	 *
+	 * @since 6.8.0
+	 */
+	public BaseJsonLikeWriter getJsonLikeWriter(OutputStream theOutputStream) throws IOException {
+		if (null == jacksonWriter) {
+			jacksonWriter = new JacksonWriter(OBJECT_MAPPER.getFactory(), theOutputStream);
+		}
+
+		return jacksonWriter;
+	}
+
 	@Override
 	public BaseJsonLikeWriter getJsonLikeWriter() {
 		if (null == jacksonWriter) {
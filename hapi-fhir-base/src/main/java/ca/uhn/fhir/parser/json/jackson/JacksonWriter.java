@@ -20,13 +20,16 @@
 package ca.uhn.fhir.parser.json.jackson;
 
 import ca.uhn.fhir.parser.json.BaseJsonLikeWriter;
+import com.fasterxml.jackson.core.JsonEncoding;
 import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
 import com.fasterxml.jackson.core.util.DefaultIndenter;
 import com.fasterxml.jackson.core.util.DefaultPrettyPrinter;
 import com.fasterxml.jackson.core.util.Separators;
 
 import java.io.IOException;
+import java.io.OutputStream;
 import java.io.Writer;
 import java.math.BigDecimal;
 import java.math.BigInteger;
@@ -34,12 +37,24 @@ import java.math.BigInteger;
 public class JacksonWriter extends BaseJsonLikeWriter {
 
 	private JsonGenerator myJsonGenerator;
+	private boolean myWritingBytes;
 
 	public JacksonWriter(JsonFactory theJsonFactory, Writer theWriter) throws IOException {
 		myJsonGenerator = theJsonFactory.createGenerator(theWriter);
 		setWriter(theWriter);
 	}
 
+	/**
+	 * Constructor for a writer which writes UTF-8 encoded bytes directly to a stream. The
+	 * output is byte-for-byte the same as when writing to a UTF-8 encoded {@link Writer}.
+	 *
+	 * @since 6.8.0
+	 */
+	public JacksonWriter(JsonFactory theJsonFactory, OutputStream theOutputStream) throws IOException {
+		myJsonGenerator = theJsonFactory.createGenerator(theOutputStream, JsonEncoding.UTF8);
+		myWritingBytes = true;
+	}
+
 	public JacksonWriter() {
 	}
 
@@ -107,7 +122,11 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 
 	@Override
 	public BaseJsonLikeWriter write(String value) throws IOException {
-		myJsonGenerator.writeObject(value);
+		if (needsRawSurrogatePairs(value)) {
+			writeStringWithRawSurrogatePairs(value);
+		} else {
+			myJsonGenerator.writeObject(value);
+		}
 		return this;
 	}
 
@@ -155,7 +174,12 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 
 	@Override
 	public BaseJsonLikeWriter write(String name, String value) throws IOException {
-		myJsonGenerator.writeObjectField(name, value);
+		if (needsRawSurrogatePairs(value)) {
+			myJsonGenerator.writeFieldName(name);
+			writeStringWithRawSurrogatePairs(value);
+		} else {
+			myJsonGenerator.writeObjectField(name, value);
+		}
 		return this;
 	}
 
@@ -212,4 +236,36 @@ public class JacksonWriter extends BaseJsonLikeWriter {
 		myJsonGenerator.writeEndObject();
 		return this;
 	}
+
+	/**
+	 * Jackson's byte based generator escapes characters outside of the BMP as a pair of
+	 * <code>&#92;uXXXX</code> escapes, whereas the character based generator writes them
+	 * as-is (so they end up as a single 4-byte UTF-8 sequence). Strings containing such
+	 * characters are escaped here and written raw instead, since raw output encodes
+	 * surrogate pairs the same way a UTF-8 {@link Writer} would.
+	 */
+	private boolean needsRawSurrogatePairs(String theValue) {
+		if (!myWritingBytes || theValue == null) {
+			return false;
+		}
+		boolean retVal = false;
+		for (int i = 0; i < theValue.length(); i++) {
+			char next = theValue.charAt(i);
+			if (Character.isHighSurrogate(next) && i + 1 < theValue.length() && Character.isLowSurrogate(theValue.charAt(i + 1))) {
+				retVal = true;
+				i++;
+			} else if (Character.isSurrogate(next)) {
+				// Unpaired surrogates can't be written raw, so leave these to Jackson
+				return false;
+			}
+		}
+		return retVal;
+	}
+
+	private void writeStringWithRawSurrogatePairs(String theValue) throws IOException {
+		char[] quoted = JsonStringEncoder.getInstance().quoteAsString(theValue);
+		StringBuilder b = new StringBuilder(quoted.length + 2);
+		b.append('"').append(quoted).append('"');
+		myJsonGenerator.writeRawValue(b.toString());
+	}
 }
@@ -326,13 +326,7 @@ public class FhirTerser {
 
 		BaseRuntimeElementCompositeDefinition<?> currentDef = (BaseRuntimeElementCompositeDefinition<?>) def;
 
-		List<String> parts = parsePath(currentDef, thePath);
-
-		List<T> retVal = getValues(currentDef, theTarget, parts, theWantedType);
-		if (retVal.isEmpty()) {
-			return null;
-		}
-		return retVal.get(0);
+		return currentDef.getTerserPath(thePath).getSingleValueOrNull(theTarget, theWantedType);
 	}
 
 	public Optional<String> getSinglePrimitiveValue(IBase theTarget, String thePath) {
@@ -347,10 +341,6 @@ public class FhirTerser {
 		return Optional.ofNullable(getSingleValueOrNull(theTarget, thePath, theWantedType));
 	}
 
-	private <T extends IBase> List<T> getValues(BaseRuntimeElementCompositeDefinition<?> theCurrentDef, IBase theCurrentObj, List<String> theSubList, Class<T> theWantedClass) {
-		return getValues(theCurrentDef, theCurrentObj, theSubList, theWantedClass, false, false);
-	}
-
 	@SuppressWarnings("unchecked")
 	private <T extends IBase> List<T> getValues(BaseRuntimeElementCompositeDefinition<?> theCurrentDef, IBase theCurrentObj, List<String> theSubList, Class<T> theWantedClass, boolean theCreate, boolean theAddExtension) {
 		if (theSubList.isEmpty()) {
@@ -641,8 +631,7 @@ public class FhirTerser {
 	 */
 	public <T extends IBase> List<T> getValues(IBase theElement, String thePath, Class<T> theWantedClass) {
 		BaseRuntimeElementCompositeDefinition<?> def = (BaseRuntimeElementCompositeDefinition<?>) myContext.getElementDefinition(theElement.getClass());
-		List<String> parts = parsePath(def, thePath);
-		return getValues(def, theElement, parts, theWantedClass);
+		return def.getTerserPath(thePath).getValues(theElement, theWantedClass);
 	}
 
 	/**
@@ -657,9 +646,7 @@ public class FhirTerser {
 	 * @return A list of values of type <code>theWantedClass</code>.
 	 */
 	public <T extends IBase> List<T> getValues(IBase theElement, String thePath, Class<T> theWantedClass, boolean theCreate) {
-		BaseRuntimeElementCompositeDefinition<?> def = (BaseRuntimeElementCompositeDefinition<?>) myContext.getElementDefinition(theElement.getClass());
-		List<String> parts = parsePath(def, thePath);
-		return getValues(def, theElement, parts, theWantedClass, theCreate, false);
+		return getValues(theElement, thePath, theWantedClass, theCreate, false);
 	}
 
 	/**
@@ -676,47 +663,16 @@ public class FhirTerser {
 	 */
 	public <T extends IBase> List<T> getValues(IBase theElement, String thePath, Class<T> theWantedClass, boolean theCreate, boolean theAddExtension) {
 		BaseRuntimeElementCompositeDefinition<?> def = (BaseRuntimeElementCompositeDefinition<?>) myContext.getElementDefinition(theElement.getClass());
+		if (!theCreate && !theAddExtension) {
+			// Read-only access goes through the compiled path cache
+			return def.getTerserPath(thePath).getValues(theElement, theWantedClass);
+		}
 		List<String> parts = parsePath(def, thePath);
 		return getValues(def, theElement, parts, theWantedClass, theCreate, theAddExtension);
 	}
 
 	private List<String> parsePath(BaseRuntimeElementCompositeDefinition<?> theElementDef, String thePath) {
-		List<String> parts = new ArrayList<>();
-
-		int currentStart = 0;
-		boolean inSingleQuote = false;
-		for (int i = 0; i < thePath.length(); i++) {
-			switch (thePath.charAt(i)) {
-				case '\'':
-					inSingleQuote = !inSingleQuote;
-					break;
-				case '.':
-					if (!inSingleQuote) {
-						parts.add(thePath.substring(currentStart, i));
-						currentStart = i + 1;
-					}
-					break;
-			}
-		}
-
-		parts.add(thePath.substring(currentStart));
-
-		String firstPart = parts.get(0);
-		if (Character.isUpperCase(firstPart.charAt(0)) && theElementDef instanceof RuntimeResourceDefinition) {
-			if (firstPart.equals(theElementDef.getName())) {
-				parts = parts.subList(1, parts.size());
-			} else {
-				parts = Collections.emptyList();
-				return parts;
-			}
-		} else if (firstPart.equals(theElementDef.getName())) {
-			parts = parts.subList(1, parts.size());
-		}
-
-		if (parts.size() < 1) {
-			throw new ConfigurationException(Msg.code(1792) + "Invalid path: " + thePath);
-		}
-		return parts;
+		return TerserPath.parsePath(theElementDef, thePath);
 	}
 
 	/**
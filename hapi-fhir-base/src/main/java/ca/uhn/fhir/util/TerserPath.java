@@ -0,0 +1,396 @@
+/*-
+ * #%L
+ * HAPI FHIR - Core Library
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.util;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.ConfigurationException;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.FhirVersionEnum;
+import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.model.api.ExtensionDt;
+import ca.uhn.fhir.model.api.ISupportsUndeclaredExtensions;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
+import org.hl7.fhir.instance.model.api.IBaseHasModifierExtensions;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A {@link FhirTerser} path which has been parsed once for a given element definition, so that it
+ * can be evaluated repeatedly without splitting the path or looking up child definitions by name.
+ * The child definitions are resolved the first time each step of the path is evaluated, and are
+ * then reused for as long as the elements at that step have the same type.
+ * <p>
+ * A compiled path returns the same values as the equivalent {@link FhirTerser#getValues(IBase, String, Class)}
+ * call, which uses a cache of compiled paths itself. Compiling a path explicitly avoids the cache lookup,
+ * which is useful for paths that are evaluated very often, e.g. in a loop over many resources:
+ * </p>
+ * <pre>
+ * TerserPath path = TerserPath.compile(ctx, Patient.class, "Patient.name.family");
+ * for (Patient next : patients) {
+ *    List&lt;IPrimitiveType&gt; families = path.getValues(next, IPrimitiveType.class);
+ * }
+ * </pre>
+ * <p>
+ * Compiled paths are thread safe. Only reading values is supported; elements can't be created
+ * using a compiled path.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public final class TerserPath {
+
+	private final FhirContext myContext;
+	private final BaseRuntimeElementCompositeDefinition<?> myDefinition;
+	private final String myPath;
+	private final Step[] mySteps;
+
+	private TerserPath(FhirContext theContext, BaseRuntimeElementCompositeDefinition<?> theDefinition, String thePath, List<String> theParts) {
+		myContext = theContext;
+		myDefinition = theDefinition;
+		myPath = thePath;
+
+		boolean dstu2 = theContext.getVersion().getVersion().isOlderThan(FhirVersionEnum.DSTU3);
+		mySteps = new Step[theParts.size()];
+		for (int i = 0; i < mySteps.length; i++) {
+			String name = theParts.get(i);
+			boolean last = i == mySteps.length - 1;
+			if (name.startsWith("extension('")) {
+				mySteps[i] = new ExtensionStep(extractExtensionUrl(name, "extension('"), false, dstu2, last);
+			} else if (name.startsWith("modifierExtension('")) {
+				mySteps[i] = new ExtensionStep(extractExtensionUrl(name, "modifierExtension('"), true, dstu2, last);
+			} else {
+				mySteps[i] = new ChildStep(name, last);
+			}
+		}
+	}
+
+	/**
+	 * Returns the path this was compiled from
+	 */
+	public String getPath() {
+		return myPath;
+	}
+
+	/**
+	 * Returns the definition of the elements this path can be evaluated against
+	 */
+	public BaseRuntimeElementCompositeDefinition<?> getDefinition() {
+		return myDefinition;
+	}
+
+	/**
+	 * Returns the values at this path in the given element
+	 *
+	 * @param theElement The element to be accessed, which must be of the type this path was compiled for
+	 */
+	@Nonnull
+	public List<IBase> getValues(@Nonnull IBase theElement) {
+		return getValues(theElement, IBase.class);
+	}
+
+	/**
+	 * Returns the values at this path in the given element which are of the given type
+	 *
+	 * @param theElement     The element to be accessed, which must be of the type this path was compiled for
+	 * @param theWantedClass The desired class to be returned in a list
+	 */
+	@SuppressWarnings("unchecked")
+	@Nonnull
+	public <T extends IBase> List<T> getValues(@Nonnull IBase theElement, Class<T> theWantedClass) {
+		validateElement(theElement);
+		if (mySteps.length == 0) {
+			return Collections.emptyList();
+		}
+
+		Class<T> wantedClass = theWantedClass != null ? theWantedClass : (Class<T>) IBase.class;
+		List<T> retVal = new ArrayList<>();
+		collect(0, theElement, wantedClass, retVal);
+		return retVal;
+	}
+
+	/**
+	 * Returns the first value at this path in the given element which is of the given type, or
+	 * <code>null</code> if there is none
+	 *
+	 * @param theElement     The element to be accessed, which must be of the type this path was compiled for
+	 * @param theWantedClass The desired class to be returned
+	 */
+	@Nullable
+	public <T extends IBase> T getSingleValueOrNull(@Nonnull IBase theElement, @Nonnull Class<T> theWantedClass) {
+		List<T> values = getValues(theElement, theWantedClass);
+		if (values.isEmpty()) {
+			return null;
+		}
+		return values.get(0);
+	}
+
+	private void validateElement(IBase theElement) {
+		Validate.notNull(theElement, "theElement must not be null");
+		if (!myDefinition.getImplementingClass().isAssignableFrom(theElement.getClass())) {
+			throw new IllegalArgumentException(Msg.code(2381) + "Path " + myPath + " was compiled for " + myDefinition.getName() + " and can not be applied to " + theElement.getClass().getName());
+		}
+	}
+
+	private <T extends IBase> void collect(int theStepIndex, IBase theElement, Class<T> theWantedClass, List<T> theValues) {
+		mySteps[theStepIndex].apply(this, theStepIndex, theElement, theWantedClass, theValues);
+	}
+
+	/**
+	 * Compiles a path for elements of the given type
+	 *
+	 * @param theContext     The FHIR context
+	 * @param theElementType The type of the elements the path will be evaluated against, which must be a composite type
+	 * @param thePath        The path, e.g. <code>Patient.name.family</code> or <code>name.family</code>
+	 */
+	@Nonnull
+	public static TerserPath compile(@Nonnull FhirContext theContext, @Nonnull Class<? extends IBase> theElementType, @Nonnull String thePath) {
+		BaseRuntimeElementDefinition<?> definition = theContext.getElementDefinition(theElementType);
+		if (!(definition instanceof BaseRuntimeElementCompositeDefinition)) {
+			throw new IllegalArgumentException(Msg.code(2382) + "Type is not a composite type: " + theElementType.getName());
+		}
+		return compile(theContext, (BaseRuntimeElementCompositeDefinition<?>) definition, thePath);
+	}
+
+	/**
+	 * Compiles a path for elements with the given definition
+	 *
+	 * @param theContext    The FHIR context
+	 * @param theDefinition The definition of the elements the path will be evaluated against
+	 * @param thePath       The path, e.g. <code>Patient.name.family</code> or <code>name.family</code>
+	 */
+	@Nonnull
+	public static TerserPath compile(@Nonnull FhirContext theContext, @Nonnull BaseRuntimeElementCompositeDefinition<?> theDefinition, @Nonnull String thePath) {
+		Validate.notNull(theContext, "theContext must not be null");
+		Validate.notNull(theDefinition, "theDefinition must not be null");
+		Validate.notBlank(thePath, "thePath must not be empty");
+		return new TerserPath(theContext, theDefinition, thePath, parsePath(theDefinition, thePath));
+	}
+
+	/**
+	 * Splits a terser path into its parts, leaving out the leading element name if there is one
+	 */
+	static List<String> parsePath(BaseRuntimeElementCompositeDefinition<?> theElementDef, String thePath) {
+		List<String> parts = new ArrayList<>();
+
+		int currentStart = 0;
+		boolean inSingleQuote = false;
+		for (int i = 0; i < thePath.length(); i++) {
+			switch (thePath.charAt(i)) {
+				case '\'':
+					inSingleQuote = !inSingleQuote;
+					break;
+				case '.':
+					if (!inSingleQuote) {
+						parts.add(thePath.substring(currentStart, i));
+						currentStart = i + 1;
+					}
+					break;
+			}
+		}
+
+		parts.add(thePath.substring(currentStart));
+
+		String firstPart = parts.get(0);
+		if (Character.isUpperCase(firstPart.charAt(0)) && theElementDef instanceof RuntimeResourceDefinition) {
+			if (firstPart.equals(theElementDef.getName())) {
+				parts = parts.subList(1, parts.size());
+			} else {
+				parts = Collections.emptyList();
+				return parts;
+			}
+		} else if (firstPart.equals(theElementDef.getName())) {
+			parts = parts.subList(1, parts.size());
+		}
+
+		if (parts.size() < 1) {
+			throw new ConfigurationException(Msg.code(1792) + "Invalid path: " + thePath);
+		}
+		return parts;
+	}
+
+	private static String extractExtensionUrl(String theName, String thePrefix) {
+		String retVal = theName.substring(thePrefix.length());
+		int endIndex = retVal.indexOf('\'');
+		if (endIndex != -1) {
+			retVal = retVal.substring(0, endIndex);
+		}
+		return retVal;
+	}
+
+	private abstract static class Step {
+
+		private final boolean myLast;
+
+		Step(boolean theLast) {
+			myLast = theLast;
+		}
+
+		abstract <T extends IBase> void apply(TerserPath thePath, int theStepIndex, IBase theElement, Class<T> theWantedClass, List<T> theValues);
+
+		/**
+		 * Adds the value to the results if this is the last step, or evaluates the rest of the path against it otherwise
+		 */
+		@SuppressWarnings("unchecked")
+		<T extends IBase> void emit(TerserPath thePath, int theStepIndex, IBase theValue, Class<T> theWantedClass, List<T> theValues) {
+			if (myLast) {
+				theValues.add((T) theValue);
+			} else {
+				thePath.collect(theStepIndex + 1, theValue, theWantedClass, theValues);
+			}
+		}
+
+		boolean isLast() {
+			return myLast;
+		}
+	}
+
+	private static class ChildStep extends Step {
+
+		private final String myName;
+		private final boolean myChoiceWildcard;
+		private volatile ResolvedChild myResolvedChild;
+
+		ChildStep(String theName, boolean theLast) {
+			super(theLast);
+			myName = theName;
+			myChoiceWildcard = theName.endsWith("[x]");
+		}
+
+		@Override
+		<T extends IBase> void apply(TerserPath thePath, int theStepIndex, IBase theElement, Class<T> theWantedClass, List<T> theValues) {
+			BaseRuntimeChildDefinition child = resolveChild(thePath.myContext, theElement);
+			List<? extends IBase> values = child.getAccessor().getValues(theElement);
+			if (values.isEmpty()) {
+				return;
+			}
+
+			boolean filterChoice = isLast() && !myChoiceWildcard && child instanceof RuntimeChildChoiceDefinition;
+			for (IBase next : values) {
+				if (next == null) {
+					continue;
+				}
+				if (isLast()) {
+					if (filterChoice && !myName.equals(child.getChildNameByDatatype(next.getClass()))) {
+						continue;
+					}
+					if (!theWantedClass.isAssignableFrom(next.getClass())) {
+						continue;
+					}
+				}
+				emit(thePath, theStepIndex, next, theWantedClass, theValues);
+			}
+		}
+
+		/**
+		 * The child definition is cached for the most recently seen element type, which is almost
+		 * always the only one
+		 */
+		private BaseRuntimeChildDefinition resolveChild(FhirContext theContext, IBase theElement) {
+			Class<? extends IBase> elementType = theElement.getClass();
+			ResolvedChild resolvedChild = myResolvedChild;
+			if (resolvedChild == null || resolvedChild.myElementType != elementType) {
+				BaseRuntimeElementCompositeDefinition<?> definition = (BaseRuntimeElementCompositeDefinition<?>) theContext.getElementDefinition(elementType);
+				resolvedChild = new ResolvedChild(elementType, definition.getChildByNameOrThrowDataFormatException(myName));
+				myResolvedChild = resolvedChild;
+			}
+			return resolvedChild.myChild;
+		}
+	}
+
+	private static class ResolvedChild {
+
+		private final Class<? extends IBase> myElementType;
+		private final BaseRuntimeChildDefinition myChild;
+
+		ResolvedChild(Class<? extends IBase> theElementType, BaseRuntimeChildDefinition theChild) {
+			myElementType = theElementType;
+			myChild = theChild;
+		}
+	}
+
+	/**
+	 * Extensions are filtered by the wanted class at every step, as {@link FhirTerser} has always done
+	 */
+	private static class ExtensionStep extends Step {
+
+		private final String myUrl;
+		private final boolean myModifier;
+		private final boolean myDstu2;
+
+		ExtensionStep(String theUrl, boolean theModifier, boolean theDstu2, boolean theLast) {
+			super(theLast);
+			myUrl = theUrl;
+			myModifier = theModifier;
+			myDstu2 = theDstu2;
+		}
+
+		@Override
+		<T extends IBase> void apply(TerserPath thePath, int theStepIndex, IBase theElement, Class<T> theWantedClass, List<T> theValues) {
+			if (myDstu2) {
+				if (theElement instanceof ISupportsUndeclaredExtensions) {
+					ISupportsUndeclaredExtensions element = (ISupportsUndeclaredExtensions) theElement;
+					List<ExtensionDt> extensions = myModifier ? element.getUndeclaredModifierExtensions() : element.getUndeclaredExtensions();
+					for (ExtensionDt next : extensions) {
+						if (myUrl.equals(next.getUrl()) && theWantedClass.isAssignableFrom(next.getClass())) {
+							emit(thePath, theStepIndex, next, theWantedClass, theValues);
+						}
+					}
+				} else if (theElement instanceof IBaseExtension) {
+					for (Object next : ((IBaseExtension<?, ?>) theElement).getExtension()) {
+						if (theWantedClass.isAssignableFrom(next.getClass())) {
+							emit(thePath, theStepIndex, (IBase) next, theWantedClass, theValues);
+						}
+					}
+				}
+				return;
+			}
+
+			List<? extends IBaseExtension<?, ?>> extensions;
+			if (myModifier) {
+				if (!(theElement instanceof IBaseHasModifierExtensions)) {
+					return;
+				}
+				extensions = ((IBaseHasModifierExtensions) theElement).getModifierExtension();
+			} else {
+				if (!(theElement instanceof IBaseHasExtensions)) {
+					return;
+				}
+				extensions = ((IBaseHasExtensions) theElement).getExtension();
+			}
+			for (IBaseExtension<?, ?> next : extensions) {
+				if (myUrl.equals(next.getUrl()) && theWantedClass.isAssignableFrom(next.getClass())) {
+					emit(thePath, theStepIndex, next, theWantedClass, theValues);
+				}
+			}
+		}
+	}
+
+}
@@ -284,6 +284,34 @@ public class InterceptorServiceTest {
 		assertSame("B", interceptor1.myLastString1);
 	}
 
+	@Test
+	public void testRegisterInterceptorWhileInvokingHooks() {
+		InterceptorService svc = new InterceptorService();
+
+		MyTestInterceptorTwo interceptor1 = new MyTestInterceptorTwo();
+		class RegisteringInterceptor {
+			@Hook(Pointcut.TEST_RB)
+			public void testRb(String theString0, String theString1) {
+				myInvocations.add("RegisteringInterceptor.testRb");
+				svc.registerInterceptor(interceptor1);
+			}
+		}
+		svc.registerInterceptor(new RegisteringInterceptor());
+		assertFalse(svc.hasHooks(Pointcut.TEST_RO));
+
+		// The interceptor registered by the hook is not invoked until the next call
+		assertTrue(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+		assertThat(myInvocations, contains("RegisteringInterceptor.testRb"));
+
+		myInvocations.clear();
+		assertTrue(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+		assertThat(myInvocations, contains("RegisteringInterceptor.testRb", "MyTestInterceptorTwo.testRb"));
+
+		svc.unregisterAllInterceptors();
+		assertFalse(svc.hasHooks(Pointcut.TEST_RB));
+		assertTrue(svc.callHooks(Pointcut.TEST_RB, new HookParams("A", "B")));
+	}
+
 	@Test
 	public void testInvokeUsingSupplierArg() {
 		InterceptorService svc = new InterceptorService();
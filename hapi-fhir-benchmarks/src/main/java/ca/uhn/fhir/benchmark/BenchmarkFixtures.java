@@ -0,0 +1,131 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Identifier;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+
+import java.util.Date;
+
+/**
+ * Builds the R4 resources used as fixtures by the benchmarks in this module. The
+ * resources are built deterministically so that results are comparable between runs.
+ */
+public class BenchmarkFixtures {
+
+	public static final String LOINC_SYSTEM = "http://loinc.org";
+	public static final String OBSERVATION_CATEGORY_SYSTEM = "http://terminology.hl7.org/CodeSystem/observation-category";
+	public static final String VITAL_SIGNS_PANEL_CODE = "85353-1";
+
+	private static final String[] COMPONENT_CODES = {"8867-4", "8310-5", "9279-1", "8302-2", "29463-7", "39156-5", "59408-5", "8480-6", "8462-4", "3141-9"};
+	private static final String[] FAMILY_NAMES = {"Smith", "Jones", "Williams", "Brown", "Taylor", "Davies", "Evans", "Thomas", "Roberts", "Johnson"};
+
+	/**
+	 * Non instantiable
+	 */
+	private BenchmarkFixtures() {
+		super();
+	}
+
+	/**
+	 * Creates a Patient with the given number of identifiers (using a mix of identifier
+	 * systems and types) along with a typical set of demographics
+	 */
+	public static Patient newPatient(int theIndex, int theIdentifierCount) {
+		Patient retVal = new Patient();
+		retVal.setId("Patient/P" + theIndex);
+		retVal.setActive(true);
+		for (int i = 0; i < theIdentifierCount; i++) {
+			Identifier identifier = retVal.addIdentifier();
+			identifier.setSystem("http://example.org/identifier-system-" + (i % 5));
+			identifier.setValue("ID-" + theIndex + "-" + i);
+			identifier.getType().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/v2-0203").setCode(i % 2 == 0 ? "MR" : "SS");
+		}
+		retVal.addName().setFamily(FAMILY_NAMES[theIndex % FAMILY_NAMES.length]).addGiven("Given" + theIndex).addGiven("Middle");
+		retVal.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-01" + (theIndex % 100));
+		retVal.addTelecom().setSystem(ContactPoint.ContactPointSystem.EMAIL).setValue("patient" + theIndex + "@example.org");
+		retVal.setGender(theIndex % 2 == 0 ? Enumerations.AdministrativeGender.FEMALE : Enumerations.AdministrativeGender.MALE);
+		retVal.getBirthDateElement().setValueAsString("19" + (50 + theIndex % 50) + "-0" + (1 + theIndex % 9) + "-1" + (theIndex % 10));
+		retVal.addAddress().addLine(theIndex + " Main Street").setCity("Toronto").setState("ON").setPostalCode("M5G 2C4").setCountry("CA");
+		return retVal;
+	}
+
+	/**
+	 * Creates a vital signs panel Observation with the given number of components, each of which
+	 * has a LOINC coded code and a quantity value
+	 */
+	public static Observation newObservation(int theIndex, String thePatientId, int theComponentCount) {
+		Observation retVal = new Observation();
+		retVal.setId("Observation/O" + theIndex);
+		retVal.setStatus(Observation.ObservationStatus.FINAL);
+		retVal.addCategory().addCoding().setSystem(OBSERVATION_CATEGORY_SYSTEM).setCode("vital-signs").setDisplay("Vital Signs");
+		retVal.getCode().addCoding().setSystem(LOINC_SYSTEM).setCode(VITAL_SIGNS_PANEL_CODE).setDisplay("Vital signs panel");
+		retVal.getCode().setText("Vital signs");
+		retVal.setSubject(new Reference(thePatientId));
+		retVal.setEffective(new DateTimeType(new Date(1577836800000L + theIndex * 3600000L)));
+		for (int i = 0; i < theComponentCount; i++) {
+			Observation.ObservationComponentComponent component = retVal.addComponent();
+			String code = COMPONENT_CODES[i % COMPONENT_CODES.length];
+			CodeableConcept componentCode = component.getCode();
+			componentCode.addCoding().setSystem(LOINC_SYSTEM).setCode(code).setDisplay("Component " + code);
+			componentCode.addCoding().setSystem("http://example.org/local-codes").setCode("LOCAL-" + i);
+			component.setValue(new Quantity().setValue(50 + (theIndex + i) % 100).setUnit("mm[Hg]").setSystem("http://unitsofmeasure.org").setCode("mm[Hg]"));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Creates a searchset Bundle containing the given number of patients, each followed by
+	 * the given number of observations for that patient
+	 */
+	public static Bundle newSearchBundle(int thePatientCount, int theObservationsPerPatient, int theComponentsPerObservation) {
+		Bundle retVal = new Bundle();
+		retVal.setType(Bundle.BundleType.SEARCHSET);
+		retVal.setTotal(thePatientCount * (1 + theObservationsPerPatient));
+		retVal.addLink().setRelation("self").setUrl("http://example.org/fhir/Patient?_revinclude=Observation:subject");
+
+		int observationIndex = 0;
+		for (int i = 0; i < thePatientCount; i++) {
+			Patient patient = newPatient(i, 5);
+			retVal.addEntry()
+				.setFullUrl("http://example.org/fhir/" + patient.getId())
+				.setResource(patient)
+				.getSearch().setMode(Bundle.SearchEntryMode.MATCH);
+
+			for (int j = 0; j < theObservationsPerPatient; j++) {
+				Observation observation = newObservation(observationIndex++, patient.getId(), theComponentsPerObservation);
+				retVal.addEntry()
+					.setFullUrl("http://example.org/fhir/" + observation.getId())
+					.setResource(observation)
+					.getSearch().setMode(Bundle.SearchEntryMode.INCLUDE);
+			}
+		}
+		return retVal;
+	}
+
+}
@@ -0,0 +1,48 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.jpa.test.config.TestR4Config;
+import org.apache.commons.dbcp2.BasicDataSource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import javax.sql.DataSource;
+
+/**
+ * JPA server configuration used by {@link JpaSearchBenchmark}. This is the configuration
+ * used by the R4 JPA test suite, backed by an in-memory H2 database but without the
+ * query capturing and validating datasource proxies which would otherwise distort the
+ * measurements.
+ */
+@Configuration
+public class BenchmarkR4Config extends TestR4Config {
+
+	@Override
+	@Bean
+	public DataSource dataSource() {
+		BasicDataSource retVal = new BasicDataSource();
+		setConnectionProperties(retVal);
+		retVal.setUrl("jdbc:h2:mem:benchmark_r4");
+		retVal.setMaxTotal(10);
+		return retVal;
+	}
+
+}
@@ -0,0 +1,68 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.util.VersionUtil;
+import org.openjdk.jmh.Main;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.options.ChainedOptionsBuilder;
+import org.openjdk.jmh.runner.options.CommandLineOptions;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Locale;
+
+/**
+ * Entry point for running the benchmarks in this module. This accepts the same arguments as the
+ * standard JMH runner, but if no result file is specified the results are written in JSON format
+ * to <code>target/hapi-fhir-benchmarks-[version].json</code> so that the results from different
+ * releases can be compared.
+ */
+public class BenchmarkRunner {
+
+	public static void main(String[] theArgs) throws Exception {
+		CommandLineOptions commandLineOptions = new CommandLineOptions(theArgs);
+		if (commandLineOptions.shouldHelp()
+			|| commandLineOptions.shouldList()
+			|| commandLineOptions.shouldListWithParams()
+			|| commandLineOptions.shouldListProfilers()
+			|| commandLineOptions.shouldListResultFormats()) {
+			Main.main(theArgs);
+			return;
+		}
+
+		ChainedOptionsBuilder options = new OptionsBuilder().parent(commandLineOptions);
+
+		ResultFormatType resultFormat = ResultFormatType.JSON;
+		if (commandLineOptions.getResultFormat().hasValue()) {
+			resultFormat = commandLineOptions.getResultFormat().get();
+		} else {
+			options.resultFormat(resultFormat);
+		}
+
+		if (!commandLineOptions.getResult().hasValue()) {
+			String extension = resultFormat.name().toLowerCase(Locale.ROOT);
+			options.result("target/hapi-fhir-benchmarks-" + VersionUtil.getVersion() + "." + extension);
+		}
+
+		new Runner(options.build()).run();
+	}
+
+}
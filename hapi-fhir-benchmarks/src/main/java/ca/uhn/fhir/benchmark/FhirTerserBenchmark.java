@@ -0,0 +1,99 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.util.FhirTerser;
+import ca.uhn.fhir.util.TerserPath;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for {@link FhirTerser#getValues(IBase, String)} and for the same paths
+ * evaluated using a {@link TerserPath} compiled in advance
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class FhirTerserBenchmark {
+
+	private FhirTerser myTerser;
+	private Observation myObservation;
+	private Patient myPatient;
+	private Bundle myBundle;
+	private TerserPath myObservationComponentCodingsPath;
+	private TerserPath myPatientIdentifierValuesPath;
+
+	@Setup
+	public void setup() {
+		FhirContext fhirContext = FhirContext.forR4();
+		myTerser = fhirContext.newTerser();
+		myObservationComponentCodingsPath = TerserPath.compile(fhirContext, Observation.class, "Observation.component.code.coding.code");
+		myPatientIdentifierValuesPath = TerserPath.compile(fhirContext, Patient.class, "Patient.identifier.value");
+		myObservation = BenchmarkFixtures.newObservation(0, "Patient/P0", 50);
+		myPatient = BenchmarkFixtures.newPatient(0, 50);
+		myBundle = BenchmarkFixtures.newSearchBundle(100, 5, 8);
+	}
+
+	@Benchmark
+	public List<IBase> observationComponentCodings() {
+		return myTerser.getValues(myObservation, "Observation.component.code.coding.code");
+	}
+
+	@Benchmark
+	public List<IBase> patientIdentifierValues() {
+		return myTerser.getValues(myPatient, "Patient.identifier.value");
+	}
+
+	@Benchmark
+	public List<IBaseResource> bundleEntryResources() {
+		return myTerser.getValues(myBundle, "Bundle.entry.resource", IBaseResource.class);
+	}
+
+	@Benchmark
+	public List<IBase> observationComponentCodingsCompiled() {
+		return myObservationComponentCodingsPath.getValues(myObservation);
+	}
+
+	@Benchmark
+	public List<IBase> patientIdentifierValuesCompiled() {
+		return myPatientIdentifierValuesPath.getValues(myPatient);
+	}
+
+}
@@ -0,0 +1,174 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
+import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.config.HibernatePropertiesProvider;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.search.builder.predicate.TokenPredicateBuilder;
+import ca.uhn.fhir.jpa.search.builder.sql.GeneratedSql;
+import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryBuilder;
+import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.SortOrderEnum;
+import ca.uhn.fhir.rest.api.SortSpec;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+import ca.uhn.fhir.rest.param.DateParam;
+import ca.uhn.fhir.rest.param.DateRangeParam;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.ReferenceParam;
+import ca.uhn.fhir.rest.param.TokenParam;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.context.annotation.AnnotationConfigApplicationContext;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for search SQL generation and for searches executed against a JPA server
+ * backed by an in-memory H2 database. The database is populated with {@value #PATIENT_COUNT}
+ * patients, each having {@value #OBSERVATIONS_PER_PATIENT} observations, when the benchmark
+ * starts.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class JpaSearchBenchmark {
+
+	public static final int PATIENT_COUNT = 200;
+	public static final int OBSERVATIONS_PER_PATIENT = 5;
+
+	private AnnotationConfigApplicationContext myApplicationContext;
+	private FhirContext myFhirContext;
+	private JpaStorageSettings myStorageSettings;
+	private PartitionSettings myPartitionSettings;
+	private SqlObjectFactory mySqlObjectFactory;
+	private HibernatePropertiesProvider myDialectProvider;
+	private RuntimeSearchParam myCodeSearchParam;
+	private RuntimeSearchParam myCategorySearchParam;
+	private IFhirResourceDao<Observation> myObservationDao;
+	private SystemRequestDetails myRequestDetails;
+
+	@Setup
+	public void setup() {
+		myApplicationContext = new AnnotationConfigApplicationContext(BenchmarkR4Config.class);
+		myFhirContext = myApplicationContext.getBean(FhirContext.class);
+		myStorageSettings = myApplicationContext.getBean(JpaStorageSettings.class);
+		myPartitionSettings = myApplicationContext.getBean(PartitionSettings.class);
+		mySqlObjectFactory = myApplicationContext.getBean(SqlObjectFactory.class);
+		myDialectProvider = myApplicationContext.getBean(HibernatePropertiesProvider.class);
+
+		ISearchParamRegistry searchParamRegistry = myApplicationContext.getBean(ISearchParamRegistry.class);
+		myCodeSearchParam = searchParamRegistry.getActiveSearchParam("Observation", Observation.SP_CODE);
+		myCategorySearchParam = searchParamRegistry.getActiveSearchParam("Observation", Observation.SP_CATEGORY);
+
+		DaoRegistry daoRegistry = myApplicationContext.getBean(DaoRegistry.class);
+		IFhirResourceDao<Patient> patientDao = daoRegistry.getResourceDao(Patient.class);
+		myObservationDao = daoRegistry.getResourceDao(Observation.class);
+		myRequestDetails = new SystemRequestDetails();
+
+		int observationIndex = 0;
+		for (int i = 0; i < PATIENT_COUNT; i++) {
+			Patient patient = BenchmarkFixtures.newPatient(i, 5);
+			patientDao.update(patient, myRequestDetails);
+			for (int j = 0; j < OBSERVATIONS_PER_PATIENT; j++) {
+				Observation observation = BenchmarkFixtures.newObservation(observationIndex++, patient.getIdElement().toUnqualifiedVersionless().getValue(), 8);
+				observation.setId((String) null);
+				myObservationDao.create(observation, myRequestDetails);
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		myApplicationContext.close();
+	}
+
+	/**
+	 * Generates (but does not execute) the SQL for a search on two token parameters and
+	 * a last updated range, sorted by last updated
+	 */
+	@Benchmark
+	public GeneratedSql generateSql() {
+		RequestPartitionId requestPartitionId = RequestPartitionId.allPartitions();
+		SearchQueryBuilder builder = new SearchQueryBuilder(myFhirContext, myStorageSettings, myPartitionSettings, requestPartitionId, "Observation", mySqlObjectFactory, myDialectProvider, false);
+
+		TokenPredicateBuilder codeBuilder = builder.addTokenPredicateBuilder(null);
+		builder.addPredicate(codeBuilder.createPredicateToken(List.of(new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, BenchmarkFixtures.VITAL_SIGNS_PANEL_CODE)), "Observation", null, myCodeSearchParam, requestPartitionId));
+
+		TokenPredicateBuilder categoryBuilder = builder.addTokenPredicateBuilder(codeBuilder.getResourceIdColumn());
+		builder.addPredicate(categoryBuilder.createPredicateToken(List.of(new TokenParam(BenchmarkFixtures.OBSERVATION_CATEGORY_SYSTEM, "vital-signs")), "Observation", null, myCategorySearchParam, requestPartitionId));
+
+		builder.addPredicate(builder.addPredicateLastUpdated(new DateRangeParam(new DateParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, "2020-01-01"))));
+		builder.addSortDate(builder.getOrCreateResourceTablePredicateBuilder().getColumnLastUpdated(), false);
+
+		return builder.generate(null, 50);
+	}
+
+	/**
+	 * Searches for the IDs of the observations for a single patient with a given code
+	 */
+	@Benchmark
+	public List<IResourcePersistentId> searchForIdsByPatientAndCode() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.add(Observation.SP_SUBJECT, new ReferenceParam("Patient/P" + (PATIENT_COUNT / 2)));
+		map.add(Observation.SP_CODE, new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, BenchmarkFixtures.VITAL_SIGNS_PANEL_CODE));
+		return myObservationDao.searchForIds(map, myRequestDetails);
+	}
+
+	/**
+	 * Searches for observations with a given code, sorted by date, and loads the first
+	 * page of results
+	 */
+	@Benchmark
+	public List<IBaseResource> searchAndLoadFirstPage() {
+		SearchParameterMap map = SearchParameterMap.newSynchronous();
+		map.add(Observation.SP_CODE, new TokenParam(BenchmarkFixtures.LOINC_SYSTEM, BenchmarkFixtures.VITAL_SIGNS_PANEL_CODE));
+		map.setSort(new SortSpec(Observation.SP_DATE, SortOrderEnum.DESC));
+		map.setCount(50);
+		IBundleProvider outcome = myObservationDao.search(map, myRequestDetails);
+		return outcome.getResources(0, 50);
+	}
+
+}
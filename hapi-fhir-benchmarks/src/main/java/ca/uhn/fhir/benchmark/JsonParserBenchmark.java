@@ -0,0 +1,100 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.r4.model.Bundle;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for parsing and encoding resources using the JSON parser
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class JsonParserBenchmark {
+
+	/**
+	 * The number of patients in the Bundle. Each patient is followed by 5 observations.
+	 */
+	@Param({"10", "100"})
+	public int myPatientCount;
+
+	/**
+	 * Whether resources are parsed directly from the JSON tokens, or first read into a tree
+	 */
+	@Param({"true", "false"})
+	public boolean myUseStreamingParser;
+
+	private FhirContext myFhirContext;
+	private Bundle myBundle;
+	private String myBundleJson;
+	private String myObservationJson;
+	private String myPatientJson;
+
+	@Setup
+	public void setup() {
+		myFhirContext = FhirContext.forR4();
+		myFhirContext.getParserOptions().setUseStreamingJsonParser(myUseStreamingParser);
+
+		myBundle = BenchmarkFixtures.newSearchBundle(myPatientCount, 5, 8);
+		myBundleJson = myFhirContext.newJsonParser().encodeResourceToString(myBundle);
+		myObservationJson = myFhirContext.newJsonParser().encodeResourceToString(BenchmarkFixtures.newObservation(0, "Patient/P0", 50));
+		myPatientJson = myFhirContext.newJsonParser().encodeResourceToString(BenchmarkFixtures.newPatient(0, 50));
+	}
+
+	@Benchmark
+	public Bundle parseBundle() {
+		return myFhirContext.newJsonParser().parseResource(Bundle.class, myBundleJson);
+	}
+
+	@Benchmark
+	public String encodeBundle() {
+		return myFhirContext.newJsonParser().encodeResourceToString(myBundle);
+	}
+
+	@Benchmark
+	public Observation parseObservationWithManyComponents() {
+		return myFhirContext.newJsonParser().parseResource(Observation.class, myObservationJson);
+	}
+
+	@Benchmark
+	public Patient parsePatientWithManyIdentifiers() {
+		return myFhirContext.newJsonParser().parseResource(Patient.class, myPatientJson);
+	}
+
+}
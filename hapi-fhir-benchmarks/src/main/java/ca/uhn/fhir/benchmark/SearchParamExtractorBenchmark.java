@@ -0,0 +1,112 @@
+/*-
+ * #%L
+ * HAPI FHIR - Benchmarks
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.benchmark;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.BaseResourceIndexedSearchParam;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.extractor.BaseSearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.ISearchParamExtractor;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorR4;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks for the search parameter extraction performed whenever a resource is indexed
+ * (see {@link BaseSearchParamExtractor#extractSearchParamTokens})
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchParamExtractorBenchmark {
+
+	/**
+	 * Whether simple search parameter paths are compiled instead of being evaluated using FHIRPath
+	 */
+	@Param({"true", "false"})
+	public boolean myPathCompilation;
+
+	private SearchParamExtractorR4 myExtractor;
+	private Observation myObservation;
+	private Patient myPatient;
+
+	@Setup
+	public void setup() {
+		FhirContext fhirContext = FhirContext.forR4();
+		FhirContextSearchParamRegistry searchParamRegistry = new FhirContextSearchParamRegistry(fhirContext);
+		StorageSettings storageSettings = new StorageSettings();
+		storageSettings.setSearchParamPathCompilationEnabled(myPathCompilation);
+		myExtractor = new SearchParamExtractorR4(storageSettings, new PartitionSettings(), fhirContext, searchParamRegistry);
+
+		myObservation = BenchmarkFixtures.newObservation(0, "Patient/P0", 50);
+		myPatient = BenchmarkFixtures.newPatient(0, 50);
+	}
+
+	@Benchmark
+	public Set<BaseResourceIndexedSearchParam> extractObservationTokens() {
+		return myExtractor.extractSearchParamTokens(myObservation);
+	}
+
+	@Benchmark
+	public Set<BaseResourceIndexedSearchParam> extractPatientTokens() {
+		return myExtractor.extractSearchParamTokens(myPatient);
+	}
+
+	@Benchmark
+	public ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamString> extractPatientStrings() {
+		return myExtractor.extractSearchParamStrings(myPatient);
+	}
+
+	/**
+	 * Extracts every non-reference search parameter type, the way a resource is indexed when it
+	 * is stored, so that all of the paths share a single traversal when path compilation is enabled
+	 */
+	@Benchmark
+	public int extractObservationAll() {
+		return myExtractor.withSharedTraversal(myObservation, () -> myExtractor.extractSearchParamStrings(myObservation).size()
+			+ myExtractor.extractSearchParamTokens(myObservation).size()
+			+ myExtractor.extractSearchParamDates(myObservation).size()
+			+ myExtractor.extractSearchParamQuantity(myObservation).size()
+			+ myExtractor.extractSearchParamUri(myObservation).size()
+			+ myExtractor.extractSearchParamNumber(myObservation).size()
+			+ myExtractor.extractSearchParamComposites(myObservation).size());
+	}
+
+}
@@ -55,6 +55,8 @@ import ca.uhn.fhir.jpa.dao.ISearchBuilder;
 import ca.uhn.fhir.jpa.dao.JpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.MatchResourceUrlService;
 import ca.uhn.fhir.jpa.dao.ObservationLastNIndexPersistSvc;
+import ca.uhn.fhir.jpa.dao.ParsedResourceCache;
+import ca.uhn.fhir.jpa.dao.ResourceParsingExecutor;
 import ca.uhn.fhir.jpa.dao.SearchBuilderFactory;
 import ca.uhn.fhir.jpa.dao.TransactionProcessor;
 import ca.uhn.fhir.jpa.dao.data.IResourceSearchUrlDao;
@@ -70,6 +72,7 @@ import ca.uhn.fhir.jpa.dao.index.DaoSearchParamSynchronizer;
 import ca.uhn.fhir.jpa.dao.index.IdHelperService;
 import ca.uhn.fhir.jpa.dao.index.SearchParamWithInlineReferencesExtractor;
 import ca.uhn.fhir.jpa.dao.mdm.JpaMdmLinkImplFactory;
+import ca.uhn.fhir.jpa.dao.mdm.MdmBlockingKeyDaoJpaImpl;
 import ca.uhn.fhir.jpa.dao.mdm.MdmLinkDaoJpaImpl;
 import ca.uhn.fhir.jpa.dao.tx.HapiTransactionService;
 import ca.uhn.fhir.jpa.dao.validation.SearchParameterDaoValidator;
@@ -138,9 +141,9 @@ import ca.uhn.fhir.jpa.search.builder.sql.SearchQueryExecutor;
 import ca.uhn.fhir.jpa.search.builder.sql.SqlObjectFactory;
 import ca.uhn.fhir.jpa.search.builder.tasks.SearchTask;
 import ca.uhn.fhir.jpa.search.cache.DatabaseSearchCacheSvcImpl;
-import ca.uhn.fhir.jpa.search.cache.DatabaseSearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.cache.ISearchCacheSvc;
 import ca.uhn.fhir.jpa.search.cache.ISearchResultCacheSvc;
+import ca.uhn.fhir.jpa.search.cache.MemorySearchResultCacheSvcImpl;
 import ca.uhn.fhir.jpa.search.elastic.IndexNamePrefixLayoutStrategy;
 import ca.uhn.fhir.jpa.search.reindex.IInstanceReindexService;
 import ca.uhn.fhir.jpa.search.reindex.IResourceReindexingSvc;
@@ -165,10 +168,12 @@ import ca.uhn.fhir.jpa.term.api.ITermReadSvc;
 import ca.uhn.fhir.jpa.term.api.ITermReindexingSvc;
 import ca.uhn.fhir.jpa.term.config.TermCodeSystemConfig;
 import ca.uhn.fhir.jpa.util.JpaHapiTransactionService;
+import ca.uhn.fhir.jpa.util.IMemoryCacheInvalidationBus;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.PersistenceContextProvider;
 import ca.uhn.fhir.jpa.validation.ResourceLoaderImpl;
 import ca.uhn.fhir.jpa.validation.ValidationSettings;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
 import ca.uhn.fhir.mdm.dao.IMdmLinkDao;
 import ca.uhn.fhir.mdm.dao.IMdmLinkImplFactory;
 import ca.uhn.fhir.mdm.svc.MdmLinkExpandSvc;
@@ -293,6 +298,16 @@ public class JpaConfig {
 		return new ValueSetOperationProvider();
 	}
 
+	@Bean
+	public ParsedResourceCache parsedResourceCache(JpaStorageSettings theStorageSettings) {
+		return new ParsedResourceCache(theStorageSettings);
+	}
+
+	@Bean
+	public ResourceParsingExecutor resourceParsingExecutor(JpaStorageSettings theStorageSettings) {
+		return new ResourceParsingExecutor(theStorageSettings);
+	}
+
 	@Bean
 	public IJpaStorageResourceParser jpaStorageResourceParser() {
 		return new JpaStorageResourceParser();
@@ -319,8 +334,10 @@ public class JpaConfig {
 	}
 
 	@Bean
-	public MemoryCacheService memoryCacheService(JpaStorageSettings theStorageSettings) {
-		return new MemoryCacheService(theStorageSettings);
+	public MemoryCacheService memoryCacheService(JpaStorageSettings theStorageSettings, @Autowired(required = false) IMemoryCacheInvalidationBus theInvalidationBus) {
+		MemoryCacheService retVal = new MemoryCacheService(theStorageSettings);
+		retVal.setInvalidationBus(theInvalidationBus);
+		return retVal;
 	}
 
 	@Bean
@@ -351,7 +368,7 @@ public class JpaConfig {
 
 	@Bean
 	public ISearchResultCacheSvc searchResultCacheSvc() {
-		return new DatabaseSearchResultCacheSvcImpl();
+		return new MemorySearchResultCacheSvcImpl();
 	}
 
 	@Bean
@@ -819,6 +836,11 @@ public class JpaConfig {
 		return new JpaMdmLinkImplFactory();
 	}
 
+	@Bean
+	public IMdmBlockingKeyDao<JpaPid> mdmBlockingKeyDao() {
+		return new MdmBlockingKeyDaoJpaImpl();
+	}
+
 	@Bean
 	@Scope("prototype")
 	public PersistenceContextProvider persistenceContextProvider(){
@@ -602,6 +602,11 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 						resourceBinary = null;
 						encoding = ResourceEncodingEnum.JSON;
 						hashCode = sha256.hashUnencodedChars(encodedResource);
+					} else if (isWriteThroughToExternallyStoredResource(encodedResource)) {
+						resourceText = writeThroughToExternallyStoredResource(encodedResource);
+						resourceBinary = null;
+						encoding = ResourceEncodingEnum.ESR;
+						hashCode = sha256.hashUnencodedChars(encodedResource);
 					} else {
 						resourceText = null;
 						resourceBinary = getResourceBinary(encoding, encodedResource);
@@ -701,6 +706,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceBinary = GZipUtil.compress(encodedResource);
 				break;
+			case SMILE:
+				resourceBinary = SmileUtil.fromJson(encodedResource);
+				break;
 			default:
 			case DEL:
 			case ESR:
@@ -991,6 +999,11 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			entity.setIndexStatus(INDEX_STATUS_INDEXED);
 			changed = populateResourceIntoEntity(theTransactionDetails, theRequest, theResource, entity, true);
 
+			// Any cached match URL could point to the resource we just deleted
+			if (myStorageSettings.isMatchUrlCacheEnabled()) {
+				myMemoryCacheService.invalidateAfterCommit(MemoryCacheService.CacheEnum.MATCH_URL);
+			}
+
 		} else {
 
 			// CREATE or UPDATE
@@ -1248,6 +1261,8 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 
 			if (getStorageSettings().getInlineResourceTextBelowSize() > 0 && encodedResourceString.length() < getStorageSettings().getInlineResourceTextBelowSize()) {
 				populateEncodedResource(encodedResource, encodedResourceString, null, ResourceEncodingEnum.JSON);
+			} else if (isWriteThroughToExternallyStoredResource(encodedResourceString)) {
+				populateEncodedResource(encodedResource, writeThroughToExternallyStoredResource(encodedResourceString), null, ResourceEncodingEnum.ESR);
 			} else {
 				populateEncodedResource(encodedResource, null, resourceBinary, encoding);
 			}
@@ -1266,6 +1281,22 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 		return historyEntity;
 	}
 
+	private boolean isWriteThroughToExternallyStoredResource(String theEncodedResource) {
+		return myStorageSettings.getExternallyStoredResourceWriteThroughProviderId() != null
+			&& theEncodedResource.length() >= myStorageSettings.getExternallyStoredResourceWriteThroughMinimumSize();
+	}
+
+	/**
+	 * Stores the resource body with the configured write-through provider
+	 *
+	 * @return The resource text to store in the database, i.e. the provider ID and the address of the body
+	 */
+	private String writeThroughToExternallyStoredResource(String theEncodedResource) {
+		String providerId = myStorageSettings.getExternallyStoredResourceWriteThroughProviderId();
+		String location = myExternallyStoredResourceServiceRegistry.getProvider(providerId).storeResource(theEncodedResource);
+		return providerId + ":" + location;
+	}
+
 	private void populateEncodedResource(EncodedResource encodedResource, String encodedResourceString, byte[] theResourceBinary, ResourceEncodingEnum theEncoding) {
 		encodedResource.setResourceText(encodedResourceString);
 		encodedResource.setResourceBinary(theResourceBinary);
@@ -1665,6 +1696,9 @@ public abstract class BaseHapiFhirDao<T extends IBaseResource> extends BaseStora
 			case JSONC:
 				resourceText = GZipUtil.decompress(theResourceBytes);
 				break;
+			case SMILE:
+				resourceText = SmileUtil.toJson(theResourceBytes);
+				break;
 			case DEL:
 			case ESR:
 				break;
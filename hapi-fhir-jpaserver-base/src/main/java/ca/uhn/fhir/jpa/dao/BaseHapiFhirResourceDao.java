@@ -1454,16 +1454,22 @@ public abstract class BaseHapiFhirResourceDao<T extends IBaseResource> extends B
 
 	private void reindexOptimizeStorageHistoryEntity(ResourceTable entity, ResourceHistoryTable historyEntity) {
 		boolean changed = false;
-		if (historyEntity.getEncoding() == ResourceEncodingEnum.JSONC || historyEntity.getEncoding() == ResourceEncodingEnum.JSON) {
+		ResourceEncodingEnum encoding = historyEntity.getEncoding();
+		if (encoding == ResourceEncodingEnum.JSONC || encoding == ResourceEncodingEnum.JSON || encoding == ResourceEncodingEnum.SMILE) {
 			byte[] resourceBytes = historyEntity.getResource();
 			if (resourceBytes != null) {
-				String resourceText = decodeResource(resourceBytes, historyEntity.getEncoding());
+				String resourceText = decodeResource(resourceBytes, encoding);
 				if (myStorageSettings.getInlineResourceTextBelowSize() > 0 && resourceText.length() < myStorageSettings.getInlineResourceTextBelowSize()) {
 					ourLog.debug("Storing text of resource {} version {} as inline VARCHAR", entity.getResourceId(), historyEntity.getVersion());
 					historyEntity.setResourceTextVc(resourceText);
 					historyEntity.setResource(null);
 					historyEntity.setEncoding(ResourceEncodingEnum.JSON);
 					changed = true;
+				} else if (myStorageSettings.getResourceEncoding() == ResourceEncodingEnum.SMILE && encoding != ResourceEncodingEnum.SMILE) {
+					ourLog.debug("Storing resource {} version {} as Smile", entity.getResourceId(), historyEntity.getVersion());
+					historyEntity.setResource(SmileUtil.fromJson(resourceText));
+					historyEntity.setEncoding(ResourceEncodingEnum.SMILE);
+					changed = true;
 				}
 			}
 		}
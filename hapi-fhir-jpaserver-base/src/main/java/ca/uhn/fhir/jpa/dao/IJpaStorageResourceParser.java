@@ -19,13 +19,16 @@
  */
 package ca.uhn.fhir.jpa.dao;
 
+import ca.uhn.fhir.jpa.entity.ResourceSearchView;
 import ca.uhn.fhir.jpa.model.entity.BaseTag;
 import ca.uhn.fhir.jpa.model.entity.IBaseResourceEntity;
 import ca.uhn.fhir.jpa.model.entity.ResourceTag;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Map;
 
 public interface IJpaStorageResourceParser extends IStorageResourceParser {
 
@@ -35,6 +38,27 @@ public interface IJpaStorageResourceParser extends IStorageResourceParser {
 	 */
 	<R extends IBaseResource> R toResource(Class<R> theResourceType, IBaseResourceEntity theEntity, Collection<ResourceTag> theTagList, boolean theForHistoryOperation);
 
+	/**
+	 * Same as {@link #toResource(Class, IBaseResourceEntity, Collection, boolean)}, but if the entity is stored
+	 * with an externally stored resource provider, the resource is taken from the given map if it is there
+	 * instead of being fetched from the provider. The resource is removed from the map when it is used.
+	 *
+	 * @param theFetchedExternallyStoredResources Resources returned by {@link #fetchExternallyStoredResources(Collection)}, may be <code>null</code>
+	 * @since 6.8.0
+	 */
+	<R extends IBaseResource> R toResource(Class<R> theResourceType, IBaseResourceEntity theEntity, Collection<ResourceTag> theTagList, boolean theForHistoryOperation, @Nullable Map<String, IBaseResource> theFetchedExternallyStoredResources);
+
+	/**
+	 * Fetches the resources for all of the given entities which are stored with an externally stored resource
+	 * provider, using a single batch fetch per provider. This is used to load a page of search results
+	 * without a round trip to the provider for each result.
+	 *
+	 * @return The fetched resources, to be passed to {@link #toResource(Class, IBaseResourceEntity, Collection, boolean, Map)}
+	 * @since 6.8.0
+	 */
+	@Nonnull
+	Map<String, IBaseResource> fetchExternallyStoredResources(Collection<ResourceSearchView> theEntities);
+
 	/**
 	 * Populate the metadata (Resource.meta.*) from a storage entity and other related
 	 * objects pulled from the database
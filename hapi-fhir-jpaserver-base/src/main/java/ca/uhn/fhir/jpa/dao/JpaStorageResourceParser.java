@@ -28,6 +28,7 @@ import ca.uhn.fhir.jpa.api.dao.IDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceHistoryTableDao;
 import ca.uhn.fhir.jpa.entity.PartitionEntity;
 import ca.uhn.fhir.jpa.entity.ResourceSearchView;
+import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceAddress;
 import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceServiceRegistry;
 import ca.uhn.fhir.jpa.esr.IExternallyStoredResourceService;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
@@ -65,12 +66,17 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.dao.BaseHapiFhirDao.decodeResource;
 import static java.util.Objects.nonNull;
@@ -91,6 +97,8 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 	private IPartitionLookupSvc myPartitionLookupSvc;
 	@Autowired
 	private ExternallyStoredResourceServiceRegistry myExternallyStoredResourceServiceRegistry;
+	@Autowired(required = false)
+	private ParsedResourceCache myParsedResourceCache;
 
 	@Override
 	public IBaseResource toResource(IBasePersistedResource theEntity, boolean theForHistoryOperation) {
@@ -101,6 +109,43 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 
 	@Override
 	public <R extends IBaseResource> R toResource(Class<R> theResourceType, IBaseResourceEntity theEntity, Collection<ResourceTag> theTagList, boolean theForHistoryOperation) {
+		return toResource(theResourceType, theEntity, theTagList, theForHistoryOperation, null);
+	}
+
+	@Nonnull
+	@Override
+	public Map<String, IBaseResource> fetchExternallyStoredResources(Collection<ResourceSearchView> theEntities) {
+		if (!myExternallyStoredResourceServiceRegistry.hasProviders()) {
+			return Collections.emptyMap();
+		}
+
+		Map<String, List<ExternallyStoredResourceAddress>> providerIdToAddresses = new HashMap<>();
+		for (ResourceSearchView next : theEntities) {
+			if (next.getEncoding() == ResourceEncodingEnum.ESR && next.getDeleted() == null) {
+				String resourceText = decodedResourceText(next.getResource(), next.getResourceTextVc(), next.getEncoding());
+				ExternallyStoredResourceAddress address = parseExternallyStoredResourceAddress(resourceText);
+				providerIdToAddresses.computeIfAbsent(address.getProviderId(), t -> new ArrayList<>()).add(address);
+			}
+		}
+
+		// Entries are removed as they are used, possibly from several threads
+		Map<String, IBaseResource> retVal = new ConcurrentHashMap<>();
+		for (Map.Entry<String, List<ExternallyStoredResourceAddress>> nextEntry : providerIdToAddresses.entrySet()) {
+			String providerId = nextEntry.getKey();
+			List<String> locations = nextEntry.getValue().stream().map(ExternallyStoredResourceAddress::getLocation).distinct().collect(Collectors.toList());
+			IExternallyStoredResourceService provider = myExternallyStoredResourceServiceRegistry.getProvider(providerId);
+			Map<String, IBaseResource> fetched = provider.fetchResources(locations);
+			fetched.forEach((location, resource) -> {
+				if (resource != null) {
+					retVal.put(providerId + ":" + location, resource);
+				}
+			});
+		}
+		return retVal;
+	}
+
+	@Override
+	public <R extends IBaseResource> R toResource(Class<R> theResourceType, IBaseResourceEntity theEntity, Collection<ResourceTag> theTagList, boolean theForHistoryOperation, @Nullable Map<String, IBaseResource> theFetchedExternallyStoredResources) {
 
 		// 1. get resource, it's encoding and the tags if any
 		byte[] resourceBytes;
@@ -201,22 +246,26 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 			return null;
 		}
 
-		// 2. get The text
-		String decodedResourceText = decodedResourceText(resourceBytes, resourceText, resourceEncoding);
-
-		// 3. Use the appropriate custom type if one is specified in the context
+		// 2. Use the appropriate custom type if one is specified in the context
 		Class<R> resourceType = determineTypeToParse(theResourceType, tagList);
 
-		// 4. parse the text to FHIR
-		R retVal = parseResource(theEntity, resourceEncoding, decodedResourceText, resourceType);
+		// 3. decode and parse the stored body to FHIR (cache hits skip both steps)
+		R retVal;
+		if (myParsedResourceCache != null && (resourceEncoding == ResourceEncodingEnum.JSON || resourceEncoding == ResourceEncodingEnum.JSONC || resourceEncoding == ResourceEncodingEnum.SMILE)) {
+			FhirContext context = getContext(theEntity.getFhirVersion());
+			byte[] storedBytes = resourceText == null ? resourceBytes : null;
+			retVal = myParsedResourceCache.getOrParse(context, theEntity.getResourceId(), version, resourceType, resourceText, storedBytes, () -> decodeAndParseResource(theEntity, resourceEncoding, resourceBytes, resourceText, resourceType, null));
+		} else {
+			retVal = decodeAndParseResource(theEntity, resourceEncoding, resourceBytes, resourceText, resourceType, theFetchedExternallyStoredResources);
+		}
 
-		// 5. fill MetaData
+		// 4. fill MetaData
 		retVal = populateResourceMetadata(theEntity, theForHistoryOperation, tagList, version, retVal);
 
-		// 6. Handle source (provenance)
+		// 5. Handle source (provenance)
 		MetaUtil.populateResourceSource(myFhirContext, provenanceSourceUri, provenanceRequestId, retVal);
 
-		// 7. Add partition information
+		// 6. Add partition information
 		populateResourcePartitionInformation(theEntity, retVal);
 
 		return retVal;
@@ -234,26 +283,41 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		}
 	}
 
+	private <R extends IBaseResource> R decodeAndParseResource(IBaseResourceEntity theEntity, ResourceEncodingEnum theResourceEncoding, byte[] theResourceBytes, String theResourceText, Class<R> theResourceType, @Nullable Map<String, IBaseResource> theFetchedExternallyStoredResources) {
+		// Smile is parsed straight from the bytes instead of being decoded to text first
+		boolean parseSmile = theResourceEncoding == ResourceEncodingEnum.SMILE && theResourceText == null;
+		String decodedResourceText = parseSmile ? null : decodedResourceText(theResourceBytes, theResourceText, theResourceEncoding);
+		byte[] smileBytes = parseSmile ? theResourceBytes : null;
+		return parseResource(theEntity, theResourceEncoding, decodedResourceText, smileBytes, theResourceType, theFetchedExternallyStoredResources);
+	}
+
 	@SuppressWarnings("unchecked")
-	private <R extends IBaseResource> R parseResource(IBaseResourceEntity theEntity, ResourceEncodingEnum theResourceEncoding, String theDecodedResourceText, Class<R> theResourceType) {
+	private <R extends IBaseResource> R parseResource(IBaseResourceEntity theEntity, ResourceEncodingEnum theResourceEncoding, String theDecodedResourceText, @Nullable byte[] theSmileBytes, Class<R> theResourceType, @Nullable Map<String, IBaseResource> theFetchedExternallyStoredResources) {
 		R retVal;
 		if (theResourceEncoding == ResourceEncodingEnum.ESR) {
 
-			int colonIndex = theDecodedResourceText.indexOf(':');
-			Validate.isTrue(colonIndex > 0, "Invalid ESR address: %s", theDecodedResourceText);
-			String providerId = theDecodedResourceText.substring(0, colonIndex);
-			String address = theDecodedResourceText.substring(colonIndex + 1);
-			Validate.notBlank(providerId, "No provider ID in ESR address: %s", theDecodedResourceText);
-			Validate.notBlank(address, "No address in ESR address: %s", theDecodedResourceText);
-			IExternallyStoredResourceService provider = myExternallyStoredResourceServiceRegistry.getProvider(providerId);
-			retVal = (R) provider.fetchResource(address);
+			// Each fetched resource can only be used once, since the caller may modify it. If
+			// several rows share a body, the later ones fetch it again.
+			retVal = null;
+			if (theFetchedExternallyStoredResources != null) {
+				retVal = (R) theFetchedExternallyStoredResources.remove(theDecodedResourceText);
+			}
+			if (retVal == null) {
+				ExternallyStoredResourceAddress address = parseExternallyStoredResourceAddress(theDecodedResourceText);
+				IExternallyStoredResourceService provider = myExternallyStoredResourceServiceRegistry.getProvider(address.getProviderId());
+				retVal = (R) provider.fetchResource(address.getLocation());
+			}
 
 		} else if (theResourceEncoding != ResourceEncodingEnum.DEL) {
 
-			IParser parser = new TolerantJsonParser(getContext(theEntity.getFhirVersion()), LENIENT_ERROR_HANDLER, theEntity.getId());
+			TolerantJsonParser parser = new TolerantJsonParser(getContext(theEntity.getFhirVersion()), LENIENT_ERROR_HANDLER, theEntity.getId());
 
 			try {
-				retVal = parser.parseResource(theResourceType, theDecodedResourceText);
+				if (theSmileBytes != null) {
+					retVal = SmileUtil.parseResource(parser, theResourceType, theSmileBytes);
+				} else {
+					retVal = parser.parseResource(theResourceType, theDecodedResourceText);
+				}
 			} catch (Exception e) {
 				StringBuilder b = new StringBuilder();
 				b.append("Failed to parse database resource[");
@@ -486,6 +550,16 @@ public class JpaStorageResourceParser implements IJpaStorageResourceParser {
 		return FhirContext.forCached(theVersion);
 	}
 
+	private static ExternallyStoredResourceAddress parseExternallyStoredResourceAddress(String theDecodedResourceText) {
+		int colonIndex = theDecodedResourceText.indexOf(':');
+		Validate.isTrue(colonIndex > 0, "Invalid ESR address: %s", theDecodedResourceText);
+		String providerId = theDecodedResourceText.substring(0, colonIndex);
+		String address = theDecodedResourceText.substring(colonIndex + 1);
+		Validate.notBlank(providerId, "No provider ID in ESR address: %s", theDecodedResourceText);
+		Validate.notBlank(address, "No address in ESR address: %s", theDecodedResourceText);
+		return new ExternallyStoredResourceAddress(providerId, address);
+	}
+
 	private static String decodedResourceText(byte[] resourceBytes, String resourceText, ResourceEncodingEnum resourceEncoding) {
 		String decodedResourceText;
 		if (resourceText != null) {
@@ -0,0 +1,296 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import com.google.common.hash.HashCode;
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IDomainResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Cache of parsed resource bodies, keyed by resource PID, version and the resource class
+ * the body was parsed into. This is used by {@link JpaStorageResourceParser} so that
+ * repeated loads of the same resource version (e.g. the same resources appearing in many
+ * search result pages) do not have to decode and parse the stored body again.
+ * <p>
+ * Only the resource body as it was parsed from the stored content is cached. Resource metadata
+ * (version, last updated, tags, source and partition) is always populated from the entity
+ * by the caller after the resource has been retrieved from this cache. Cached instances are
+ * never handed out: every hit returns a fresh copy, so callers are free to modify the
+ * returned resource.
+ * </p>
+ * <p>
+ * The cache is disabled unless {@link JpaStorageSettings#getParsedResourceCacheMaximumBytes()}
+ * is set to a value greater than zero.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class ParsedResourceCache {
+	private static final Logger ourLog = LoggerFactory.getLogger(ParsedResourceCache.class);
+	private static final long EXPIRE_AFTER_WRITE_MILLIS = TimeUnit.MINUTES.toMillis(10);
+	/**
+	 * Approximate number of heap bytes used by a parsed resource per character of its JSON
+	 * text. Strings in the model take two bytes per character, and every element adds an
+	 * object (plus its extension and id fields) on top of that, so a parsed resource is
+	 * typically several times larger than the text it was parsed from.
+	 */
+	static final int PARSED_BYTES_PER_TEXT_CHAR = 4;
+
+	private final JpaStorageSettings myStorageSettings;
+	private final AtomicLong myHitCount = new AtomicLong();
+	private final AtomicLong myMissCount = new AtomicLong();
+	private volatile Cache<Key, Entry> myCache;
+	private volatile long myCacheMaximumBytes;
+
+	/**
+	 * Constructor
+	 */
+	public ParsedResourceCache(@Nonnull JpaStorageSettings theStorageSettings) {
+		Validate.notNull(theStorageSettings, "theStorageSettings must not be null");
+		myStorageSettings = theStorageSettings;
+	}
+
+	/**
+	 * Returns a resource parsed from the given stored content, using a cached copy of a previous
+	 * parse of the same resource version if one is available. The stored content is passed
+	 * exactly as it was read from the database (i.e. before any decompression), so that a cache
+	 * hit does not need to decode it. Exactly one of <code>theStoredText</code> and
+	 * <code>theStoredBytes</code> is expected to be non-null.
+	 *
+	 * @param theFhirContext    The context to use when copying the cached resource
+	 * @param theResourcePid    The resource PID
+	 * @param theVersion        The resource version
+	 * @param theResourceType   The resource class to parse into
+	 * @param theStoredText     The stored resource text, if the resource is stored inline as text
+	 * @param theStoredBytes    The stored resource bytes, if the resource is stored as a binary
+	 * @param theParser         Invoked to decode and parse the resource if there is no cached copy
+	 */
+	@SuppressWarnings("unchecked")
+	public <R extends IBaseResource> R getOrParse(FhirContext theFhirContext, Long theResourcePid, long theVersion, Class<R> theResourceType, @Nullable String theStoredText, @Nullable byte[] theStoredBytes, Supplier<R> theParser) {
+		Cache<Key, Entry> cache = getCacheOrNull();
+		if (cache == null || theResourcePid == null || (theStoredText == null && theStoredBytes == null)) {
+			return theParser.get();
+		}
+
+		Key key = new Key(theResourcePid, theVersion, theResourceType);
+		Entry entry = cache.getIfPresent(key);
+
+		/*
+		 * Resource bodies can be rewritten in place without a version change (e.g. history
+		 * rewrites, or a reindex which optimizes storage), so a cached entry is only used if
+		 * it was parsed from identical stored content
+		 */
+		HashCode digest = digest(theStoredText, theStoredBytes);
+		if (entry != null && entry.matches(digest)) {
+			myHitCount.incrementAndGet();
+			R retVal = (R) theFhirContext.getResourceDefinition(theResourceType).newInstance();
+			theFhirContext.newTerser().cloneInto(entry.getResource(), retVal, false);
+			return retVal;
+		}
+
+		myMissCount.incrementAndGet();
+		R retVal = theParser.get();
+		if (isCacheable(retVal)) {
+			R copy = (R) theFhirContext.getResourceDefinition(theResourceType).newInstance();
+			theFhirContext.newTerser().cloneInto(retVal, copy, false);
+			cache.put(key, new Entry(copy, digest, estimateWeight(theStoredText, theStoredBytes)));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Removes all entries from the cache
+	 */
+	public void invalidateAll() {
+		Cache<Key, Entry> cache = myCache;
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+	}
+
+	/**
+	 * Returns the number of lookups that were satisfied from the cache
+	 */
+	public long getHitCount() {
+		return myHitCount.get();
+	}
+
+	/**
+	 * Returns the number of lookups that required the resource text to be parsed
+	 */
+	public long getMissCount() {
+		return myMissCount.get();
+	}
+
+	@Nullable
+	private Cache<Key, Entry> getCacheOrNull() {
+		long maximumBytes = myStorageSettings.getParsedResourceCacheMaximumBytes();
+		if (maximumBytes <= 0) {
+			if (myCache != null) {
+				synchronized (this) {
+					myCache = null;
+					myCacheMaximumBytes = 0;
+				}
+			}
+			return null;
+		}
+
+		Cache<Key, Entry> cache = myCache;
+		if (cache == null || myCacheMaximumBytes != maximumBytes) {
+			synchronized (this) {
+				cache = myCache;
+				if (cache == null || myCacheMaximumBytes != maximumBytes) {
+					ourLog.info("Initializing parsed resource cache with a maximum size of {} bytes", maximumBytes);
+					cache = CacheFactory.buildWeighted(EXPIRE_AFTER_WRITE_MILLIS, maximumBytes, (Key theKey, Entry theEntry) -> theEntry.getWeight());
+					myCacheMaximumBytes = maximumBytes;
+					myCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * Resources with contained resources are not cached, since copying the resource does
+	 * not preserve the links between references and the contained resources they point to.
+	 * DSTU2 style resources keep some metadata outside of their model elements, so they
+	 * are not cached either.
+	 */
+	private static boolean isCacheable(IBaseResource theResource) {
+		if (!(theResource instanceof IAnyResource)) {
+			return false;
+		}
+		if (theResource instanceof IDomainResource) {
+			return ((IDomainResource) theResource).getContained().isEmpty();
+		}
+		return true;
+	}
+
+	private static class Key {
+		private final long myResourcePid;
+		private final long myVersion;
+		private final Class<?> myResourceType;
+		private final int myHashCode;
+
+		Key(long theResourcePid, long theVersion, Class<?> theResourceType) {
+			myResourcePid = theResourcePid;
+			myVersion = theVersion;
+			myResourceType = theResourceType;
+			myHashCode = Objects.hash(theResourcePid, theVersion, theResourceType);
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (this == theO) {
+				return true;
+			}
+			if (!(theO instanceof Key)) {
+				return false;
+			}
+			Key that = (Key) theO;
+			return myResourcePid == that.myResourcePid && myVersion == that.myVersion && myResourceType.equals(that.myResourceType);
+		}
+
+		@Override
+		public int hashCode() {
+			return myHashCode;
+		}
+	}
+
+	private static HashCode digest(@Nullable String theStoredText, @Nullable byte[] theStoredBytes) {
+		HashFunction sha256 = Hashing.sha256();
+		if (theStoredText != null) {
+			return sha256.hashUnencodedChars(theStoredText);
+		}
+		return sha256.hashBytes(theStoredBytes);
+	}
+
+	/**
+	 * Estimates the heap used by a resource parsed from the given stored content, as the
+	 * length of the decoded text multiplied by {@link #PARSED_BYTES_PER_TEXT_CHAR}. Compressed
+	 * (JSONC) bodies are weighed by the uncompressed size recorded in the GZIP trailer rather
+	 * than by their stored size, which can be many times smaller than the text they hold.
+	 */
+	static int estimateWeight(@Nullable String theStoredText, @Nullable byte[] theStoredBytes) {
+		long decodedLength;
+		if (theStoredText != null) {
+			decodedLength = theStoredText.length();
+		} else if (isGzip(theStoredBytes)) {
+			int len = theStoredBytes.length;
+			decodedLength = (theStoredBytes[len - 4] & 0xFFL)
+				| (theStoredBytes[len - 3] & 0xFFL) << 8
+				| (theStoredBytes[len - 2] & 0xFFL) << 16
+				| (theStoredBytes[len - 1] & 0xFFL) << 24;
+		} else {
+			decodedLength = theStoredBytes.length;
+		}
+		long weight = decodedLength * PARSED_BYTES_PER_TEXT_CHAR;
+		return (int) Math.max(1, Math.min(Integer.MAX_VALUE, weight));
+	}
+
+	/**
+	 * A GZIP stream starts with the magic bytes 0x1f 0x8b and ends with an 8 byte trailer
+	 * whose last 4 bytes hold the uncompressed length (modulo 2^32), little endian
+	 */
+	private static boolean isGzip(byte[] theBytes) {
+		return theBytes.length >= 18 && theBytes[0] == (byte) 0x1f && theBytes[1] == (byte) 0x8b;
+	}
+
+	private static class Entry {
+		private final IBaseResource myResource;
+		private final HashCode myDigest;
+		private final int myWeight;
+
+		Entry(IBaseResource theResource, HashCode theDigest, int theWeight) {
+			myResource = theResource;
+			myDigest = theDigest;
+			myWeight = theWeight;
+		}
+
+		IBaseResource getResource() {
+			return myResource;
+		}
+
+		int getWeight() {
+			return myWeight;
+		}
+
+		boolean matches(HashCode theDigest) {
+			return myDigest.equals(theDigest);
+		}
+	}
+}
@@ -0,0 +1,240 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import org.apache.commons.lang3.Validate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.IntSupplier;
+
+/**
+ * Decodes and parses batches of stored resources (e.g. a page of search results) using a
+ * shared thread pool, so that large pages and <code>$everything</code> requests are not
+ * limited to the speed of parsing on a single request thread. The calling thread always
+ * processes a share of the work itself, and results are returned in input order. The same
+ * mechanism is also used for other CPU bound per-resource work, such as extracting search
+ * parameter indexes for the resources in a transaction.
+ * <p>
+ * Parallel parsing is disabled unless the configured thread count (by default
+ * {@link JpaStorageSettings#getSearchResultParsingThreadCount()}) is set to a value
+ * greater than <code>1</code>. The function passed to
+ * {@link #parseAll(List, Function)} is invoked on pool threads, so it must not
+ * access any state bound to the calling thread (e.g. lazy loaded entity associations).
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class ResourceParsingExecutor {
+	private static final Logger ourLog = LoggerFactory.getLogger(ResourceParsingExecutor.class);
+
+	/**
+	 * Batches smaller than this are always parsed on the calling thread since the
+	 * cost of handing off work outweighs the benefit
+	 */
+	static final int MINIMUM_PARALLEL_BATCH_SIZE = 16;
+
+	private final IntSupplier myThreadCountSupplier;
+	private final String myThreadNamePrefix;
+	private volatile Pool myPool;
+
+	/**
+	 * Constructor
+	 */
+	public ResourceParsingExecutor(@Nonnull JpaStorageSettings theStorageSettings) {
+		this(Validate.notNull(theStorageSettings, "theStorageSettings must not be null")::getSearchResultParsingThreadCount, "resource-parsing-");
+	}
+
+	/**
+	 * Constructor
+	 *
+	 * @param theThreadCountSupplier Supplies the number of threads to use. This is checked on every invocation, so it may be backed by a setting that changes at runtime.
+	 * @param theThreadNamePrefix    The name prefix for threads in the pool
+	 */
+	public ResourceParsingExecutor(@Nonnull IntSupplier theThreadCountSupplier, @Nonnull String theThreadNamePrefix) {
+		Validate.notNull(theThreadCountSupplier, "theThreadCountSupplier must not be null");
+		Validate.notBlank(theThreadNamePrefix, "theThreadNamePrefix must not be blank");
+		myThreadCountSupplier = theThreadCountSupplier;
+		myThreadNamePrefix = theThreadNamePrefix;
+	}
+
+	/**
+	 * Applies the given parsing function to every input and returns the results in the same
+	 * order as the inputs. Results may be <code>null</code> if the function returns <code>null</code>.
+	 */
+	public <T, R> List<R> parseAll(List<T> theInputs, Function<T, R> theParser) {
+		int threadCount = myThreadCountSupplier.getAsInt();
+		if (threadCount <= 1 || theInputs.size() < MINIMUM_PARALLEL_BATCH_SIZE) {
+			return parseRange(theInputs, 0, theInputs.size(), theParser);
+		}
+
+		Pool pool = acquirePool(threadCount);
+		try {
+			return parseAll(pool.myExecutor, threadCount, theInputs, theParser);
+		} finally {
+			pool.release();
+		}
+	}
+
+	private <T, R> List<R> parseAll(ThreadPoolTaskExecutor theExecutor, int theThreadCount, List<T> theInputs, Function<T, R> theParser) {
+		int chunkSize = (theInputs.size() + theThreadCount - 1) / theThreadCount;
+
+		// The first chunk is parsed on the calling thread while the others are parsed by the pool
+		List<Future<List<R>>> futures = new ArrayList<>(theThreadCount - 1);
+		for (int from = chunkSize; from < theInputs.size(); from += chunkSize) {
+			int start = from;
+			int end = Math.min(from + chunkSize, theInputs.size());
+			futures.add(theExecutor.submit(() -> parseRange(theInputs, start, end, theParser)));
+		}
+
+		List<R> retVal = new ArrayList<>(theInputs.size());
+		try {
+			retVal.addAll(parseRange(theInputs, 0, Math.min(chunkSize, theInputs.size()), theParser));
+			for (Future<List<R>> next : futures) {
+				retVal.addAll(next.get());
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(Msg.code(2369) + "Interrupted while parsing resources", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException(Msg.code(2370) + "Failed to parse resources: " + e.getCause(), e.getCause());
+		} finally {
+			futures.forEach(t -> t.cancel(false));
+		}
+
+		return retVal;
+	}
+
+	@PreDestroy
+	public synchronized void stop() {
+		Pool pool = myPool;
+		myPool = null;
+		if (pool != null) {
+			pool.retire();
+		}
+	}
+
+	/**
+	 * Returns a pool with the given thread count which is guaranteed not to be shut down
+	 * until {@link Pool#release()} is called
+	 */
+	private Pool acquirePool(int theThreadCount) {
+		while (true) {
+			Pool pool = getPool(theThreadCount);
+			if (pool.acquire()) {
+				return pool;
+			}
+		}
+	}
+
+	private Pool getPool(int theThreadCount) {
+		Pool pool = myPool;
+		if (pool == null || pool.myThreadCount != theThreadCount) {
+			synchronized (this) {
+				pool = myPool;
+				if (pool == null || pool.myThreadCount != theThreadCount) {
+					ourLog.info("Starting {} thread pool with {} threads", myThreadNamePrefix, theThreadCount);
+					Pool previous = pool;
+					pool = new Pool(theThreadCount, ThreadPoolUtil.newThreadPool(theThreadCount, theThreadCount, myThreadNamePrefix, theThreadCount * 4));
+					myPool = pool;
+
+					// The previous pool is shut down once the callers which are still using it are done
+					if (previous != null) {
+						previous.retire();
+					}
+				}
+			}
+		}
+		return pool;
+	}
+
+	private static <T, R> List<R> parseRange(List<T> theInputs, int theFrom, int theTo, Function<T, R> theParser) {
+		List<R> retVal = new ArrayList<>(theTo - theFrom);
+		for (int i = theFrom; i < theTo; i++) {
+			retVal.add(theParser.apply(theInputs.get(i)));
+		}
+		return retVal;
+	}
+
+	/**
+	 * A thread pool along with a count of the callers currently using it. A pool which has
+	 * been replaced (e.g. because the thread count changed) is only shut down once it has no
+	 * more users, so that it never receives tasks after it has been shut down.
+	 */
+	private static class Pool {
+		private final int myThreadCount;
+		private final ThreadPoolTaskExecutor myExecutor;
+		private final AtomicInteger myUserCount = new AtomicInteger();
+		private final AtomicBoolean myShutDown = new AtomicBoolean();
+		private volatile boolean myRetired;
+
+		Pool(int theThreadCount, ThreadPoolTaskExecutor theExecutor) {
+			myThreadCount = theThreadCount;
+			myExecutor = theExecutor;
+		}
+
+		boolean acquire() {
+			myUserCount.incrementAndGet();
+			if (myRetired) {
+				release();
+				return false;
+			}
+			return true;
+		}
+
+		void release() {
+			if (myUserCount.decrementAndGet() == 0 && myRetired) {
+				shutDown();
+			}
+		}
+
+		void retire() {
+			myRetired = true;
+			if (myUserCount.get() == 0) {
+				shutDown();
+			}
+		}
+
+		private void shutDown() {
+			if (myShutDown.compareAndSet(false, true)) {
+				// Lets any queued or running tasks complete instead of interrupting them
+				myExecutor.getThreadPoolExecutor().shutdown();
+			}
+		}
+	}
+
+}
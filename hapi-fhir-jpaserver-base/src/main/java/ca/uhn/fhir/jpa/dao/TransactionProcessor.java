@@ -34,6 +34,7 @@ import ca.uhn.fhir.jpa.model.entity.StorageSettings;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.api.IQueryParameterType;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
@@ -56,6 +57,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
 import javax.annotation.Nullable;
+import javax.annotation.PreDestroy;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
 import javax.persistence.PersistenceContextType;
@@ -104,6 +106,9 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 	private MatchUrlService myMatchUrlService;
 	@Autowired
 	private IRequestPartitionHelperSvc myRequestPartitionSvc;
+	@Autowired
+	private SearchParamExtractorService mySearchParamExtractorService;
+	private final ResourceParsingExecutor myIndexingExecutor = new ResourceParsingExecutor(() -> myStorageSettings.getTransactionIndexingThreadCount(), "transaction-indexing-");
 
 
 	public void setEntityManagerForUnitTest(EntityManager theEntityManager) {
@@ -424,6 +429,43 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		return hashToSearch;
 	}
 
+	/**
+	 * If {@link JpaStorageSettings#getTransactionIndexingThreadCount() parallel transaction indexing}
+	 * is enabled, this method extracts the non-reference search parameter indexes for all of the
+	 * given resources using a pool of threads. The results are picked up by the
+	 * {@link SearchParamExtractorService} when each resource is subsequently indexed on the
+	 * transaction thread.
+	 */
+	@Override
+	protected void preIndexResources(RequestDetails theRequest, TransactionDetails theTransactionDetails, List<IBaseResource> theResources) {
+		if (myStorageSettings.getTransactionIndexingThreadCount() <= 1) {
+			return;
+		}
+
+		StopWatch sw = new StopWatch();
+		List<SearchParamExtractorService.PreExtractedSearchIndexParameters> preExtractedParams = myIndexingExecutor.parseAll(theResources, t -> {
+			try {
+				return mySearchParamExtractorService.preExtractSearchIndexParameters(t);
+			} catch (RuntimeException e) {
+				// The resource will be indexed on the transaction thread instead, where any failure is reported as usual
+				ourLog.debug("Failed to pre-extract search parameters for resource {}: {}", t.getIdElement().getValue(), e.toString());
+				return null;
+			}
+		});
+
+		for (int i = 0; i < theResources.size(); i++) {
+			if (preExtractedParams.get(i) != null) {
+				SearchParamExtractorService.addPreExtractedSearchIndexParameters(theTransactionDetails, theResources.get(i), preExtractedParams.get(i));
+			}
+		}
+		ourLog.debug("Pre-extracted search parameters for {} resources in {}", theResources.size(), sw);
+	}
+
+	@PreDestroy
+	public void stop() {
+		myIndexingExecutor.stop();
+	}
+
 	@Override
 	protected void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome) {
 		try {
@@ -466,6 +508,11 @@ public class TransactionProcessor extends BaseTransactionProcessor {
 		myApplicationContext = theAppCtx;
 	}
 
+	@VisibleForTesting
+	public void setSearchParamExtractorServiceForUnitTest(SearchParamExtractorService theSearchParamExtractorService) {
+		mySearchParamExtractorService = theSearchParamExtractorService;
+	}
+
 	private static class MatchUrlToResolve {
 
 		private final String myRequestUrl;
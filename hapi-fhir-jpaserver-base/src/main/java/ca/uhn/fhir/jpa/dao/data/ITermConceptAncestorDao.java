@@ -0,0 +1,62 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.data;
+
+import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermConceptAncestor;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+
+public interface ITermConceptAncestorDao extends JpaRepository<TermConceptAncestor, Long>, IHapiFhirJpaRepository {
+
+	@Query("SELECT COUNT(t) FROM TermConceptAncestor t WHERE t.myAncestorPid = :ancestor_pid AND t.myDescendantPid = :descendant_pid")
+	long countByAncestorAndDescendant(@Param("ancestor_pid") Long theAncestorPid, @Param("descendant_pid") Long theDescendantPid);
+
+	@Query("SELECT DISTINCT c FROM TermConcept c " +
+		"LEFT JOIN FETCH c.myDesignations d " +
+		"WHERE c.myId IN (SELECT t.myDescendantPid FROM TermConceptAncestor t WHERE t.myAncestorPid = :ancestor_pid)")
+	Collection<TermConcept> fetchDescendantConceptsAndDesignations(@Param("ancestor_pid") Long theAncestorPid);
+
+	@Query("SELECT c FROM TermConcept c " +
+		"WHERE c.myId IN (SELECT t.myDescendantPid FROM TermConceptAncestor t WHERE t.myAncestorPid = :ancestor_pid)")
+	List<TermConcept> fetchDescendantConcepts(@Param("ancestor_pid") Long theAncestorPid);
+
+	@Query("SELECT c FROM TermConcept c " +
+		"WHERE c.myId IN (SELECT t.myAncestorPid FROM TermConceptAncestor t WHERE t.myDescendantPid = :descendant_pid)")
+	List<TermConcept> fetchAncestorConcepts(@Param("descendant_pid") Long theDescendantPid);
+
+	@Modifying
+	@Query("DELETE FROM TermConceptAncestor WHERE myDescendantPid = :descendant_pid")
+	int deleteByDescendant(@Param("descendant_pid") Long theDescendantPid);
+
+	@Modifying
+	@Query("DELETE FROM TermConceptAncestor WHERE myAncestorPid = :pid OR myDescendantPid = :pid")
+	int deleteByConcept(@Param("pid") Long theConceptPid);
+
+	@Modifying
+	@Query("DELETE FROM TermConceptAncestor WHERE myCodeSystemVersionPid = :cs_pid")
+	int deleteByCodeSystemVersion(@Param("cs_pid") Long thePid);
+
+}
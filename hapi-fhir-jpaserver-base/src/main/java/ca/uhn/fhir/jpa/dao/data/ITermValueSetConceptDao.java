@@ -59,6 +59,13 @@ public interface ITermValueSetConceptDao extends JpaRepository<TermValueSetConce
 	@Query("SELECT vsc.myId FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid ORDER BY vsc.myId")
 	List<Long> findIdsByTermValueSetId(@Param("pid") Long theValueSetId);
 
+	/**
+	 * Returns the PID, system, system version, code and display of each concept,
+	 * ordered by PID and starting after the given PID
+	 */
+	@Query("SELECT vsc.myId, vsc.mySystem, vsc.mySystemVer, vsc.myCode, vsc.myDisplay FROM TermValueSetConcept vsc WHERE vsc.myValueSetPid = :pid AND vsc.myId > :after_pid ORDER BY vsc.myId")
+	List<Object[]> findCodesByTermValueSetId(Pageable thePage, @Param("pid") Long theValueSetId, @Param("after_pid") Long theAfterPid);
+
 	@Query("UPDATE TermValueSetConcept vsc SET vsc.myOrder = :order WHERE vsc.myId = :pid")
 	@Modifying
 	void updateOrderById(@Param("pid") Long theId, @Param("order") int theOrder);
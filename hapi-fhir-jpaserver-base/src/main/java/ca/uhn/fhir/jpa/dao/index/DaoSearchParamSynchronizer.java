@@ -32,6 +32,7 @@ import javax.persistence.PersistenceContextType;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 
 @Service
@@ -79,19 +80,36 @@ public class DaoSearchParamSynchronizer {
 
 		List<T> paramsToRemove = subtract(theExistingParams, newParams);
 		List<T> paramsToAdd = subtract(newParams, theExistingParams);
-		tryToReuseIndexEntities(paramsToRemove, paramsToAdd);
+		List<T> paramsToUpdate = tryToReuseIndexEntities(paramsToRemove, paramsToAdd);
 
 		for (T next : paramsToRemove) {
 			myEntityManager.remove(next);
 			theEntity.getParamsQuantity().remove(next);
 			theEntity.getParamsQuantityNormalized().remove(next);
 		}
-		for (T next : paramsToAdd) {
+		for (T next : paramsToUpdate) {
 			myEntityManager.merge(next);
 		}
 
+		/*
+		 * Brand new rows are persisted rather than merged. Merging a transient
+		 * entity makes Hibernate copy it into a new managed instance, whereas
+		 * persisting it simply queues the INSERT. Because all of the rows for a
+		 * given index table are queued together here, Hibernate can send them to
+		 * the database as a single JDBC batch when the session is flushed (see
+		 * hibernate.jdbc.batch_size and hibernate.order_inserts in
+		 * HapiFhirLocalContainerEntityManagerFactoryBean).
+		 */
+		for (T next : paramsToAdd) {
+			if (next.getId() == null) {
+				myEntityManager.persist(next);
+			} else {
+				myEntityManager.merge(next);
+			}
+		}
+
 		// TODO:  are there any unintended consequences to fixing this bug?
-		theAddRemoveCount.addToAddCount(paramsToAdd.size());
+		theAddRemoveCount.addToAddCount(paramsToUpdate.size() + paramsToAdd.size());
 		theAddRemoveCount.addToRemoveCount(paramsToRemove.size());
 	}
 
@@ -103,17 +121,19 @@ public class DaoSearchParamSynchronizer {
 	 * "one delete + one insert" with "one update"
 	 *
 	 * @param theIndexesToRemove The rows that would be removed
-	 * @param theIndexesToAdd    The rows that would be added
+	 * @param theIndexesToAdd    The rows that would be added. Any rows that are satisfied by reusing an existing row are removed from this list.
+	 * @return The existing rows that have been repurposed and need to be updated
 	 */
-	private <T extends BaseResourceIndex> void tryToReuseIndexEntities(List<T> theIndexesToRemove, List<T> theIndexesToAdd) {
-		for (int addIndex = 0; addIndex < theIndexesToAdd.size(); addIndex++) {
+	private <T extends BaseResourceIndex> List<T> tryToReuseIndexEntities(List<T> theIndexesToRemove, List<T> theIndexesToAdd) {
+		List<T> retVal = new ArrayList<>();
+		for (Iterator<T> iter = theIndexesToAdd.iterator(); iter.hasNext(); ) {
 
 			// If there are no more rows to remove, there's nothing we can reuse
 			if (theIndexesToRemove.isEmpty()) {
 				break;
 			}
 
-			T targetEntity = theIndexesToAdd.get(addIndex);
+			T targetEntity = iter.next();
 			if (targetEntity.getId() != null) {
 				continue;
 			}
@@ -121,8 +141,10 @@ public class DaoSearchParamSynchronizer {
 			// Take a row we were going to remove, and repurpose its ID
 			T entityToReuse = theIndexesToRemove.remove(theIndexesToRemove.size() - 1);
 			entityToReuse.copyMutableValuesFrom(targetEntity);
-			theIndexesToAdd.set(addIndex, entityToReuse);
+			iter.remove();
+			retVal.add(entityToReuse);
 		}
+		return retVal;
 	}
 
 
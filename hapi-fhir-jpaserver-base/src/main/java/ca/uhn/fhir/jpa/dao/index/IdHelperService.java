@@ -34,6 +34,7 @@ import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ForcedId;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.search.builder.SearchBuilder;
+import ca.uhn.fhir.jpa.util.InFlightLookupTracker;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import ca.uhn.fhir.jpa.util.QueryChunker;
 import ca.uhn.fhir.model.primitive.IdDt;
@@ -53,6 +54,7 @@ import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.IdType;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nonnull;
@@ -98,11 +100,23 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * The former involves an extra database join that the latter does not require, so selecting the
  * right method here is important.
  * </p>
+ * <p>
+ * When several threads concurrently need to resolve the same client assigned IDs, only one of them
+ * queries the database and the others reuse the PIDs it found (see {@link InFlightLookupTracker}). If
+ * {@link JpaStorageSettings#setClientAssignedIdNegativeCacheEnabled(boolean) enabled}, IDs which are
+ * known not to exist are cached too. Neither of these is ever used for IDs that were created by the
+ * current database transaction, since those are not visible to any other transaction yet.
+ * </p>
  */
 @Service
 public class IdHelperService implements IIdHelperService<JpaPid> {
 	public static final Predicate[] EMPTY_PREDICATE_ARRAY = new Predicate[0];
 	public static final String RESOURCE_PID = "RESOURCE_PID";
+	/**
+	 * How long to wait for a concurrent lookup of the same forced IDs before looking them up ourselves
+	 */
+	private static final long IN_FLIGHT_LOOKUP_TIMEOUT_MILLIS = 5000;
+	private static final String CREATED_FORCED_IDS_RESOURCE_KEY = IdHelperService.class.getName() + "_CREATED_FORCED_IDS";
 	@Autowired
 	protected IForcedIdDao myForcedIdDao;
 	@Autowired
@@ -118,6 +132,7 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 	@Autowired
 	private PartitionSettings myPartitionSettings;
 	private boolean myDontCheckActiveTransactionForUnitTest;
+	private final InFlightLookupTracker<String, Long> myInFlightForcedIdLookups = new InFlightLookupTracker<>(IN_FLIGHT_LOOKUP_TIMEOUT_MILLIS);
 
 	@VisibleForTesting
 	void setDontCheckActiveTransactionForUnitTest(boolean theDontCheckActiveTransactionForUnitTest) {
@@ -336,15 +351,70 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 					continue;
 				}
 
+				if (nextId.hasResourceType() && isForcedIdKnownToBeMissing(nextId.getResourceType(), nextId.getIdPart())) {
+					continue;
+				}
+
 				idsToCheck.add(nextId);
 			}
-			new QueryChunker<IIdType>().chunk(idsToCheck, SearchBuilder.getMaximumPageSize() / 2, ids -> doResolvePersistentIds(theRequestPartitionId, ids, retVal));
+			resolveForcedIds(theRequestPartitionId, idsToCheck, retVal);
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Resolves forced IDs against the database. IDs which are also being resolved by other threads
+	 * right now are not queried again, we just wait for the other thread's outcome instead.
+	 */
+	private void resolveForcedIds(RequestPartitionId theRequestPartitionId, Collection<IIdType> theIds, List<JpaPid> theOutputListToPopulate) {
+		if (theIds.isEmpty()) {
+			return;
+		}
+
+		// IDs without a type can match any type, and IDs we created ourselves aren't visible to other
+		// transactions, so we can't share the outcome of either of these with anyone else
+		List<IIdType> unshareableIds = new ArrayList<>();
+		Map<String, IIdType> shareableIds = new HashMap<>();
+		for (IIdType next : theIds) {
+			if (next.hasResourceType() && !isForcedIdCreatedInCurrentTransaction(next.getResourceType(), next.getIdPart())) {
+				shareableIds.put(toForcedIdToPidKey(theRequestPartitionId, next.getResourceType(), next.getIdPart()), next);
+			} else {
+				unshareableIds.add(next);
+			}
 		}
 
+		resolveForcedIdsInChunks(theRequestPartitionId, unshareableIds, theOutputListToPopulate);
+
+		Map<String, Long> pidsFromOtherThreads = myInFlightForcedIdLookups.lookup(shareableIds.keySet(), keys -> {
+			List<IIdType> ids = keys.stream().map(shareableIds::get).collect(Collectors.toList());
+			return resolveForcedIdsInChunks(theRequestPartitionId, ids, theOutputListToPopulate);
+		});
+		pidsFromOtherThreads.forEach((key, pid) -> {
+			IIdType id = shareableIds.get(key);
+			JpaPid jpaPid = JpaPid.fromId(pid);
+			populateAssociatedResourceId(id.getResourceType(), id.getIdPart(), jpaPid);
+			theOutputListToPopulate.add(jpaPid);
+		});
+	}
+
+	private Map<String, Long> resolveForcedIdsInChunks(RequestPartitionId theRequestPartitionId, Collection<IIdType> theIds, List<JpaPid> theOutputListToPopulate) {
+		Map<String, Long> retVal = new HashMap<>();
+		new QueryChunker<IIdType>().chunk(theIds, SearchBuilder.getMaximumPageSize() / 2, ids -> doResolvePersistentIds(theRequestPartitionId, ids, theOutputListToPopulate, retVal));
 		return retVal;
 	}
 
-	private void doResolvePersistentIds(RequestPartitionId theRequestPartitionId, List<IIdType> theIds, List<JpaPid> theOutputListToPopulate) {
+	/**
+	 * @param thePidsToPopulate Will be populated with the PID of every (typed) ID which was found and exactly matches
+	 *                          the requested ID, keyed by {@link #toForcedIdToPidKey(RequestPartitionId, String, String)}
+	 */
+	private void doResolvePersistentIds(RequestPartitionId theRequestPartitionId, List<IIdType> theIds, List<JpaPid> theOutputListToPopulate, Map<String, Long> thePidsToPopulate) {
+		Map<String, Long> evictionCounters = getNotFoundEvictionCounters(theIds
+			.stream()
+			.filter(IIdType::hasResourceType)
+			.map(t -> t.getResourceType() + "/" + t.getIdPart())
+			.collect(Collectors.toList()));
+
 		CriteriaBuilder cb = myEntityManager.getCriteriaBuilder();
 		CriteriaQuery<Tuple> criteriaQuery = cb.createTupleQuery();
 		Root<ForcedId> from = criteriaQuery.from(ForcedId.class);
@@ -382,18 +452,47 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 
 		TypedQuery<Tuple> query = myEntityManager.createQuery(criteriaQuery);
 		List<Tuple> results = query.getResultList();
+		Set<String> requestedKeys = new HashSet<>(theIds.size());
+		boolean ambiguous = false;
+		for (IIdType next : theIds) {
+			if (next.hasResourceType()) {
+				requestedKeys.add(toForcedIdToPidKey(theRequestPartitionId, next.getResourceType(), next.getIdPart()));
+			} else {
+				ambiguous = true;
+			}
+		}
+
 		for (Tuple nextId : results) {
 			// Check if the nextId has a resource ID. It may have a null resource ID if a commit is still pending.
 			Long resourceId = nextId.get(0, Long.class);
 			String resourceType = nextId.get(1, String.class);
 			String forcedId = nextId.get(2, String.class);
+			String key = toForcedIdToPidKey(theRequestPartitionId, resourceType, forcedId);
 			if (resourceId != null) {
 				JpaPid jpaPid = JpaPid.fromId(resourceId);
 				populateAssociatedResourceId(resourceType, forcedId, jpaPid);
 				theOutputListToPopulate.add(jpaPid);
 
-				String key = toForcedIdToPidKey(theRequestPartitionId, resourceType, forcedId);
 				myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key, jpaPid);
+				if (requestedKeys.remove(key)) {
+					thePidsToPopulate.put(key, resourceId);
+					continue;
+				}
+			}
+			ambiguous = true;
+		}
+
+		/*
+		 * If every row we got back is an exact match for one of the IDs we asked for, then the
+		 * IDs without a row definitely don't exist. Otherwise (e.g. when the database compares
+		 * IDs case-insensitively) we can't be sure of that.
+		 */
+		if (!ambiguous) {
+			for (IIdType next : theIds) {
+				String key = toForcedIdToPidKey(theRequestPartitionId, next.getResourceType(), next.getIdPart());
+				if (requestedKeys.contains(key)) {
+					recordForcedIdMissing(next.getResourceType(), next.getIdPart(), evictionCounters);
+				}
 			}
 		}
 	}
@@ -424,6 +523,66 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 		return Optional.empty();
 	}
 
+	private boolean isNotFoundCacheEnabled() {
+		return myStorageSettings.isClientAssignedIdNegativeCacheEnabled() && !myPartitionSettings.isPartitioningEnabled();
+	}
+
+	/**
+	 * Returns <code>true</code> if a previous lookup of the given forced ID found that it
+	 * does not exist (and it hasn't been created since)
+	 */
+	private boolean isForcedIdKnownToBeMissing(String theResourceType, String theForcedId) {
+		if (!isNotFoundCacheEnabled() || isForcedIdCreatedInCurrentTransaction(theResourceType, theForcedId)) {
+			return false;
+		}
+		String key = theResourceType + "/" + theForcedId;
+		return myMemoryCacheService.getIfPresent(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, key) != null;
+	}
+
+	/**
+	 * The eviction counters need to be captured before querying the database, so that a
+	 * resource which is created in the meantime never leaves a stale not-found entry behind
+	 */
+	private Map<String, Long> getNotFoundEvictionCounters(Collection<String> theTypeAndIdKeys) {
+		if (!isNotFoundCacheEnabled()) {
+			return Collections.emptyMap();
+		}
+		Map<String, Long> retVal = new HashMap<>(theTypeAndIdKeys.size());
+		for (String next : theTypeAndIdKeys) {
+			retVal.put(next, myMemoryCacheService.getEvictionCounter(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, next));
+		}
+		return retVal;
+	}
+
+	private void recordForcedIdMissing(String theResourceType, String theForcedId, Map<String, Long> theEvictionCounters) {
+		String key = theResourceType + "/" + theForcedId;
+		Long evictionCounter = theEvictionCounters.get(key);
+		if (evictionCounter != null && !isForcedIdCreatedInCurrentTransaction(theResourceType, theForcedId)) {
+			// This doesn't wait for a commit, since lookups of missing IDs usually end in a rollback.
+			// That's safe because we only ever see IDs committed by others, or created by ourselves
+			// (which we exclude above), and the eviction counter protects against concurrent creation.
+			myMemoryCacheService.putUnlessEvicted(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, key, Boolean.TRUE, evictionCounter);
+		}
+	}
+
+	private boolean isForcedIdCreatedInCurrentTransaction(String theResourceType, String theForcedId) {
+		CreatedForcedIds createdForcedIds = (CreatedForcedIds) TransactionSynchronizationManager.getResource(CREATED_FORCED_IDS_RESOURCE_KEY);
+		return createdForcedIds != null && createdForcedIds.contains(theResourceType + "/" + theForcedId);
+	}
+
+	private void recordForcedIdCreatedInCurrentTransaction(String theResourceType, String theForcedId) {
+		if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+			return;
+		}
+		CreatedForcedIds createdForcedIds = (CreatedForcedIds) TransactionSynchronizationManager.getResource(CREATED_FORCED_IDS_RESOURCE_KEY);
+		if (createdForcedIds == null) {
+			createdForcedIds = new CreatedForcedIds();
+			TransactionSynchronizationManager.bindResource(CREATED_FORCED_IDS_RESOURCE_KEY, createdForcedIds);
+			TransactionSynchronizationManager.registerSynchronization(createdForcedIds);
+		}
+		createdForcedIds.add(theResourceType + "/" + theForcedId);
+	}
+
 	private void populateAssociatedResourceId(String nextResourceType, String forcedId, JpaPid jpaPid) {
 		IIdType resourceId = myFhirCtx.getVersion().newIdType();
 		resourceId.setValue(nextResourceType + "/" + forcedId);
@@ -515,10 +674,21 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 				}
 			}
 
+			for (Iterator<String> forcedIdIterator = nextIds.iterator(); forcedIdIterator.hasNext(); ) {
+				if (isForcedIdKnownToBeMissing(nextResourceType, forcedIdIterator.next())) {
+					forcedIdIterator.remove();
+				}
+			}
+
 			if (nextIds.size() > 0) {
 				Collection<Object[]> views;
 				assert isNotBlank(nextResourceType);
 
+				Map<String, Long> evictionCounters = Collections.emptyMap();
+				if (!theExcludeDeleted) {
+					evictionCounters = getNotFoundEvictionCounters(nextIds.stream().map(t -> nextResourceType + "/" + t).collect(Collectors.toList()));
+				}
+
 				if (requestPartitionId.isAllPartitions()) {
 					views = myForcedIdDao.findAndResolveByForcedIdWithNoType(nextResourceType, nextIds, theExcludeDeleted);
 				} else {
@@ -531,11 +701,13 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 					}
 				}
 
+				Set<String> foundForcedIds = new HashSet<>();
 				for (Object[] next : views) {
 					String resourceType = (String) next[0];
 					Long resourcePid = (Long) next[1];
 					String forcedId = (String) next[2];
 					Date deletedAt = (Date) next[3];
+					foundForcedIds.add(forcedId);
 
 					JpaResourceLookup lookup = new JpaResourceLookup(resourceType, resourcePid, deletedAt);
 					if (!retVal.containsKey(forcedId)) {
@@ -548,6 +720,15 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 						myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.RESOURCE_LOOKUP, key, lookup);
 					}
 				}
+
+				// Only trust the IDs which didn't come back if every row that did was an exact match
+				if (!evictionCounters.isEmpty() && nextIds.containsAll(foundForcedIds)) {
+					for (String nextForcedId : nextIds) {
+						if (!foundForcedIds.contains(nextForcedId)) {
+							recordForcedIdMissing(nextResourceType, nextForcedId, evictionCounters);
+						}
+					}
+				}
 			}
 
 		}
@@ -668,6 +849,11 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.of(theResourceType + "/" + theForcedId));
 			String key = toForcedIdToPidKey(theRequestPartitionId, theResourceType, theForcedId);
 			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_TO_PID, key, theJpaPid);
+
+			recordForcedIdCreatedInCurrentTransaction(theResourceType, theForcedId);
+			if (isNotFoundCacheEnabled()) {
+				myMemoryCacheService.evictAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, theResourceType + "/" + theForcedId);
+			}
 		} else {
 			myMemoryCacheService.putAfterCommit(MemoryCacheService.CacheEnum.PID_TO_FORCED_ID, theJpaPid.getId(), Optional.empty());
 		}
@@ -782,4 +968,38 @@ public class IdHelperService implements IIdHelperService<JpaPid> {
 	public JpaPid newPidFromStringIdAndResourceName(String thePid, String theResourceName) {
 		return JpaPid.fromIdAndResourceType(Long.parseLong(thePid), theResourceName);
 	}
+
+	/**
+	 * Tracks the forced IDs created by the current database transaction. This is bound to
+	 * the transaction (and unbound while it is suspended) the same way that Spring binds
+	 * other transactional resources.
+	 */
+	private static class CreatedForcedIds implements TransactionSynchronization {
+
+		private final Set<String> myTypeAndIds = new HashSet<>();
+
+		void add(String theTypeAndId) {
+			myTypeAndIds.add(theTypeAndId);
+		}
+
+		boolean contains(String theTypeAndId) {
+			return myTypeAndIds.contains(theTypeAndId);
+		}
+
+		@Override
+		public void suspend() {
+			TransactionSynchronizationManager.unbindResourceIfPossible(CREATED_FORCED_IDS_RESOURCE_KEY);
+		}
+
+		@Override
+		public void resume() {
+			TransactionSynchronizationManager.bindResource(CREATED_FORCED_IDS_RESOURCE_KEY, this);
+		}
+
+		@Override
+		public void afterCompletion(int theStatus) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(CREATED_FORCED_IDS_RESOURCE_KEY);
+		}
+
+	}
 }
@@ -0,0 +1,90 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao.mdm;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.dao.data.IMdmBlockingKeyJpaRepository;
+import ca.uhn.fhir.jpa.entity.MdmBlockingKey;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.model.MdmBlockingKeyHash;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+public class MdmBlockingKeyDaoJpaImpl implements IMdmBlockingKeyDao<JpaPid> {
+
+	/**
+	 * The number of candidate PIDs fetched per query
+	 */
+	static final int PAGE_SIZE = 500;
+
+	@Autowired
+	private IMdmBlockingKeyJpaRepository myMdmBlockingKeyRepository;
+
+	@Override
+	public void updateBlockingKeys(JpaPid theResourcePid, Set<MdmBlockingKeyHash> theKeys) {
+		Long resourcePid = theResourcePid.getId();
+		Set<MdmBlockingKeyHash> existingKeys = myMdmBlockingKeyRepository
+			.findByResourcePid(resourcePid)
+			.stream()
+			.map(t -> MdmBlockingKeyHash.of(t.getParamHash(), t.getKeyHash()))
+			.collect(Collectors.toSet());
+		if (existingKeys.equals(theKeys)) {
+			return;
+		}
+
+		if (!existingKeys.isEmpty()) {
+			myMdmBlockingKeyRepository.deleteByResourcePid(resourcePid);
+		}
+		List<MdmBlockingKey> entities = theKeys
+			.stream()
+			.map(t -> new MdmBlockingKey(resourcePid, t.getParamHash(), t.getKeyHash()))
+			.collect(Collectors.toList());
+		myMdmBlockingKeyRepository.saveAll(entities);
+	}
+
+	@Nonnull
+	@Override
+	public List<JpaPid> findCandidatePids(Collection<Long> theKeyHashes, int theParamCount, @Nullable RequestPartitionId theRequestPartitionId, int theMaxCount) {
+		boolean allPartitions = theRequestPartitionId == null || theRequestPartitionId.isAllPartitions() || !theRequestPartitionId.hasPartitionIds();
+
+		List<JpaPid> retVal = new ArrayList<>();
+		for (int page = 0; retVal.size() < theMaxCount; page++) {
+			List<Object[]> rows = myMdmBlockingKeyRepository.findCandidatePidsAndPartitionIds(theKeyHashes, theParamCount, PageRequest.of(page, PAGE_SIZE));
+			for (Object[] next : rows) {
+				if (retVal.size() < theMaxCount && (allPartitions || theRequestPartitionId.hasPartitionId((Integer) next[1]))) {
+					retVal.add(JpaPid.fromId((Long) next[0]));
+				}
+			}
+			if (rows.size() < PAGE_SIZE) {
+				break;
+			}
+		}
+		return retVal;
+	}
+}
@@ -23,6 +23,7 @@ import ca.uhn.fhir.jpa.api.svc.IDeleteExpungeSvc;
 import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.util.MemoryCacheService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -37,11 +38,13 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 	private final EntityManager myEntityManager;
 	private final DeleteExpungeSqlBuilder myDeleteExpungeSqlBuilder;
 	private final IFulltextSearchSvc myFullTextSearchSvc;
+	private final MemoryCacheService myMemoryCacheService;
 
-	public DeleteExpungeSvcImpl(EntityManager theEntityManager, DeleteExpungeSqlBuilder theDeleteExpungeSqlBuilder, @Autowired(required = false) IFulltextSearchSvc theFullTextSearchSvc) {
+	public DeleteExpungeSvcImpl(EntityManager theEntityManager, DeleteExpungeSqlBuilder theDeleteExpungeSqlBuilder, @Autowired(required = false) IFulltextSearchSvc theFullTextSearchSvc, MemoryCacheService theMemoryCacheService) {
 		myEntityManager = theEntityManager;
 		myDeleteExpungeSqlBuilder = theDeleteExpungeSqlBuilder;
 		myFullTextSearchSvc = theFullTextSearchSvc;
+		myMemoryCacheService = theMemoryCacheService;
 	}
 
 	@Override
@@ -58,6 +61,9 @@ public class DeleteExpungeSvcImpl implements IDeleteExpungeSvc<JpaPid> {
 
 		ourLog.info("{} records deleted", totalDeleted);
 		clearHibernateSearchIndex(theJpaPids);
+
+		// The deleted IDs may be cached, so as with a regular expunge, clear the caches once this commits
+		myMemoryCacheService.invalidateAllCachesAfterCommit();
 		
 		// TODO KHS instead of logging progress, produce result chunks that get aggregated into a delete expunge report
 		return sqlResult.getRecordCount();
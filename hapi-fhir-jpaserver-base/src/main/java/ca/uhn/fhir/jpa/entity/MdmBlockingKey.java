@@ -0,0 +1,117 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * A blocking key for an MDM source resource. Every value that a resource has for a search parameter
+ * in one of the MDM <code>candidateSearchParams</code> gets a key (and a second key holding the
+ * phonetic encoding of the value if one is configured), so that MDM candidates can be found with a
+ * single indexed lookup instead of a search.
+ * <p>
+ * {@link #getParamHash() The parameter hash} identifies the resource type, candidate search parameter
+ * set and search parameter that a key belongs to, and {@link #getKeyHash() the key hash} adds
+ * the value. A resource is a candidate for a given set if it shares at least one key for every
+ * search parameter in that set which the incoming resource has a value for.
+ * </p>
+ * <p>
+ * Note that this table deliberately has no foreign keys. Rows for deleted resources are ignored
+ * when candidates are looked up, and are replaced whenever MDM processes the resource again.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+@Entity
+@Table(name = "MPI_BLOCKING_KEY", indexes = {
+	@Index(name = "IDX_MPI_BLOCKING_KEY", columnList = "KEY_HASH,PARAM_HASH,RES_ID"),
+	@Index(name = "IDX_MPI_BLOCKING_RES", columnList = "RES_ID")
+})
+public class MdmBlockingKey implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id()
+	@SequenceGenerator(name = "SEQ_MPI_BLOCKING_KEY", sequenceName = "SEQ_MPI_BLOCKING_KEY")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_MPI_BLOCKING_KEY")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "RES_ID", nullable = false, updatable = false)
+	private Long myResourcePid;
+
+	@Column(name = "PARAM_HASH", nullable = false, updatable = false)
+	private Long myParamHash;
+
+	@Column(name = "KEY_HASH", nullable = false, updatable = false)
+	private Long myKeyHash;
+
+	/**
+	 * Constructor
+	 */
+	public MdmBlockingKey() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MdmBlockingKey(Long theResourcePid, Long theParamHash, Long theKeyHash) {
+		myResourcePid = theResourcePid;
+		myParamHash = theParamHash;
+		myKeyHash = theKeyHash;
+	}
+
+	public Long getId() {
+		return myId;
+	}
+
+	public Long getResourcePid() {
+		return myResourcePid;
+	}
+
+	public Long getParamHash() {
+		return myParamHash;
+	}
+
+	public Long getKeyHash() {
+		return myKeyHash;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("pid", myId)
+			.append("resourcePid", myResourcePid)
+			.append("paramHash", myParamHash)
+			.append("keyHash", myKeyHash)
+			.toString();
+	}
+}
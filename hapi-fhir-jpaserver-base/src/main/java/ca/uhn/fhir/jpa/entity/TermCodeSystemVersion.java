@@ -99,6 +99,13 @@ public class TermCodeSystemVersion implements Serializable {
 	@Column(name = "CS_DISPLAY", nullable = true, updatable = true, length = MAX_VERSION_LENGTH)
 	private String myCodeSystemDisplayName;
 
+	/**
+	 * If set, {@link TermConceptAncestor} rows are stored for every concept in this version.
+	 * This is nullable because versions stored before HAPI FHIR 6.8.0 don't have them.
+	 */
+	@Column(name = "ANCESTORS_INDEXED", nullable = true)
+	private Boolean myAncestorsIndexed;
+
 	/**
 	 * Constructor
 	 */
@@ -190,6 +197,24 @@ public class TermCodeSystemVersion implements Serializable {
 		myCodeSystemDisplayName = theCodeSystemDisplayName;
 	}
 
+	/**
+	 * Returns <code>true</code> if {@link TermConceptAncestor} rows are stored for every concept
+	 * in this version, meaning that they can be used to query the concept hierarchy.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isAncestorsIndexed() {
+		return Boolean.TRUE.equals(myAncestorsIndexed);
+	}
+
+	/**
+	 * @since 6.8.0
+	 */
+	public TermCodeSystemVersion setAncestorsIndexed(boolean theAncestorsIndexed) {
+		myAncestorsIndexed = theAncestorsIndexed;
+		return this;
+	}
+
 	public TermConcept addConcept() {
 		TermConcept concept = new TermConcept();
 		concept.setCodeSystemVersion(this);
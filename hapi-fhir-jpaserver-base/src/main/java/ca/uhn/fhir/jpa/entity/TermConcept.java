@@ -389,15 +389,22 @@ public class TermConcept implements Serializable {
 	@PrePersist
 	public void prePersist() {
 		if (myParentPids == null) {
-			Set<Long> parentPids = new HashSet<>();
-			TermConcept entity = this;
-			parentPids(entity, parentPids);
-			entity.setParentPids(parentPids);
-
-			ourLog.trace("Code {}/{} has parents {}", entity.getId(), entity.getCode(), entity.getParentPidsAsString());
+			recalculateParentPids();
 		}
 	}
 
+	/**
+	 * Recalculates the PIDs of all ancestors of this concept by walking its parent links
+	 */
+	public void recalculateParentPids() {
+		Set<Long> parentPids = new HashSet<>();
+		TermConcept entity = this;
+		parentPids(entity, parentPids);
+		entity.setParentPids(parentPids);
+
+		ourLog.trace("Code {}/{} has parents {}", entity.getId(), entity.getCode(), entity.getParentPidsAsString());
+	}
+
 	private void setParentPids(Set<Long> theParentPids) {
 		StringBuilder b = new StringBuilder();
 		for (Long next : theParentPids) {
@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.entity;
+
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.Index;
+import javax.persistence.SequenceGenerator;
+import javax.persistence.Table;
+import java.io.Serializable;
+
+/**
+ * One row in the transitive closure of the concept hierarchy of a code system version, i.e. a
+ * pair of concepts where {@link #getAncestorPid() the ancestor} is a parent, grandparent, etc.
+ * of {@link #getDescendantPid() the descendant}. A concept is not its own ancestor.
+ * <p>
+ * These rows are derived from {@link TermConcept#getParentPidsAsString()} and are only stored for
+ * code system versions where {@link TermCodeSystemVersion#isAncestorsIndexed()} is set. They
+ * allow subsumption tests and subtree expansions to be performed with a single indexed query
+ * instead of walking the hierarchy one level at a time.
+ * </p>
+ * <p>
+ * Note that this table deliberately has no foreign keys, since it can get very large and is
+ * always deleted along with the concepts it refers to.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+@Entity
+@Table(name = "TRM_CONCEPT_ANCESTOR", indexes = {
+	@Index(name = "IDX_CONCEPT_ANC_ANC_DESC", columnList = "ANCESTOR_PID,DESCENDANT_PID"),
+	@Index(name = "IDX_CONCEPT_ANC_DESC_ANC", columnList = "DESCENDANT_PID,ANCESTOR_PID"),
+	@Index(name = "IDX_CONCEPT_ANC_CS", columnList = "CODESYSTEM_PID")
+})
+public class TermConceptAncestor implements Serializable {
+	private static final long serialVersionUID = 1L;
+
+	@Id()
+	@SequenceGenerator(name = "SEQ_CONCEPT_ANC_PID", sequenceName = "SEQ_CONCEPT_ANC_PID")
+	@GeneratedValue(strategy = GenerationType.AUTO, generator = "SEQ_CONCEPT_ANC_PID")
+	@Column(name = "PID")
+	private Long myId;
+
+	@Column(name = "CODESYSTEM_PID", nullable = false, updatable = false)
+	private Long myCodeSystemVersionPid;
+
+	@Column(name = "ANCESTOR_PID", nullable = false, updatable = false)
+	private Long myAncestorPid;
+
+	@Column(name = "DESCENDANT_PID", nullable = false, updatable = false)
+	private Long myDescendantPid;
+
+	/**
+	 * Constructor
+	 */
+	public TermConceptAncestor() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 */
+	public TermConceptAncestor(Long theCodeSystemVersionPid, Long theAncestorPid, Long theDescendantPid) {
+		myCodeSystemVersionPid = theCodeSystemVersionPid;
+		myAncestorPid = theAncestorPid;
+		myDescendantPid = theDescendantPid;
+	}
+
+	public Long getId() {
+		return myId;
+	}
+
+	public Long getCodeSystemVersionPid() {
+		return myCodeSystemVersionPid;
+	}
+
+	public Long getAncestorPid() {
+		return myAncestorPid;
+	}
+
+	public Long getDescendantPid() {
+		return myDescendantPid;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("pid", myId)
+			.append("csvPid", myCodeSystemVersionPid)
+			.append("ancestorPid", myAncestorPid)
+			.append("descendantPid", myDescendantPid)
+			.toString();
+	}
+}
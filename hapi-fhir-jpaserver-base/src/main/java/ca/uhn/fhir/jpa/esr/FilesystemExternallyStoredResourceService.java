@@ -0,0 +1,223 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.esr;
+
+import ca.uhn.fhir.context.ConfigurationException;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.dao.TolerantJsonParser;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import com.fasterxml.jackson.databind.util.ByteBufferBackedInputStream;
+import com.google.common.hash.Hashing;
+import com.google.common.util.concurrent.Striped;
+import org.apache.commons.io.FileUtils;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.annotation.Nonnull;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.regex.Pattern;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An externally stored resource provider which stores resource bodies as gzipped JSON files in a
+ * directory on the local filesystem (or on a mounted network or object store filesystem). The files
+ * are content addressed: the address of a body is the SHA-256 hash of its JSON, so identical bodies
+ * are only stored once and stored files never change. This provider supports
+ * {@link #storeResource(String) storing resources}, so it can be used as the
+ * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setExternallyStoredResourceWriteThroughProviderId(String) write-through provider}.
+ * <p>
+ * Since a body may be shared by several resource versions, files are never deleted by this provider,
+ * including when resources are expunged or when the transaction storing a resource is rolled back.
+ * Unreferenced files need to be removed by an external process if this is a concern.
+ * </p>
+ * <p>
+ * If a {@link #setReadCacheMaximumBytes(long) read cache size} is set, the compressed contents of
+ * recently read files are kept in direct (off-heap) buffers, so that frequently read resources don't
+ * need to be read from disk again without adding to the heap.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class FilesystemExternallyStoredResourceService implements IExternallyStoredResourceService {
+
+	private static final Logger ourLog = LoggerFactory.getLogger(FilesystemExternallyStoredResourceService.class);
+	private static final Pattern VALID_ADDRESS_PATTERN = Pattern.compile("^[0-9a-f]{64}$");
+	private static final String TEMP_DIRECTORY = "tmp";
+	private static final String EXTENSION = ".json.gz";
+	private final String myId;
+	private final Path myBasePath;
+	private final FhirContext myFhirContext;
+	private final Striped<Lock> myContentLocks = Striped.lock(64);
+	private volatile Cache<String, ByteBuffer> myReadCache;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theId          The provider ID
+	 * @param theBasePath    The directory to store the resource bodies in. It will be created if it doesn't exist.
+	 * @param theFhirContext The FHIR context to parse the resource bodies with
+	 */
+	public FilesystemExternallyStoredResourceService(@Nonnull String theId, @Nonnull String theBasePath, @Nonnull FhirContext theFhirContext) {
+		Validate.notBlank(theId, "theId must not be blank");
+		Validate.notBlank(theBasePath, "theBasePath must not be blank");
+		Validate.notNull(theFhirContext, "theFhirContext must not be null");
+		myId = theId;
+		myBasePath = Path.of(theBasePath);
+		myFhirContext = theFhirContext;
+
+		ourLog.info("Starting externally stored resource provider {} with base path: {}", theId, myBasePath);
+		mkdir(myBasePath.resolve(TEMP_DIRECTORY));
+	}
+
+	/**
+	 * If set to a positive number, the compressed contents of recently read files are kept in direct
+	 * (off-heap) buffers up to the given total number of bytes. Default is 0, meaning that files
+	 * are read from disk every time.
+	 */
+	public void setReadCacheMaximumBytes(long theReadCacheMaximumBytes) {
+		Validate.isTrue(theReadCacheMaximumBytes >= 0, "theReadCacheMaximumBytes must be >= 0");
+		if (theReadCacheMaximumBytes > 0) {
+			myReadCache = CacheFactory.buildWeighted(TimeUnit.HOURS.toMillis(1), theReadCacheMaximumBytes, (String theKey, ByteBuffer theValue) -> theValue.capacity());
+		} else {
+			myReadCache = null;
+		}
+	}
+
+	@Override
+	public String getId() {
+		return myId;
+	}
+
+	/**
+	 * Writes the body to a temporary file, and moves it into place unless a file with the same
+	 * contents already exists
+	 */
+	@Override
+	public String storeResource(String theEncodedResource) {
+		String hash = Hashing.sha256().hashString(theEncodedResource, StandardCharsets.UTF_8).toString();
+		Path file = getFilename(hash);
+		if (Files.exists(file)) {
+			ourLog.debug("Resource body {} already exists", hash);
+			return hash;
+		}
+
+		Lock lock = myContentLocks.get(hash);
+		lock.lock();
+		try {
+			if (Files.exists(file)) {
+				return hash;
+			}
+
+			Path tempFile = Files.createTempFile(myBasePath.resolve(TEMP_DIRECTORY), "esr", ".tmp");
+			try {
+				try (OutputStream outputStream = new GZIPOutputStream(Files.newOutputStream(tempFile))) {
+					try (Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8)) {
+						writer.write(theEncodedResource);
+					}
+				}
+				mkdir(file.getParent());
+				Files.move(tempFile, file, StandardCopyOption.ATOMIC_MOVE);
+			} finally {
+				Files.deleteIfExists(tempFile);
+			}
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2376) + "Failed to store resource body " + hash + ": " + e, e);
+		} finally {
+			lock.unlock();
+		}
+
+		ourLog.debug("Stored resource body {}", hash);
+		return hash;
+	}
+
+	@Override
+	public IBaseResource fetchResource(String theAddress) {
+		if (!VALID_ADDRESS_PATTERN.matcher(theAddress).matches()) {
+			throw new ResourceNotFoundException(Msg.code(2377) + "Invalid address for provider " + myId + ": " + theAddress);
+		}
+
+		try (Reader reader = new InputStreamReader(new GZIPInputStream(openFile(theAddress)), StandardCharsets.UTF_8)) {
+			return TolerantJsonParser.createWithLenientErrorHandling(myFhirContext, null).parseResource(reader);
+		} catch (NoSuchFileException e) {
+			throw new ResourceNotFoundException(Msg.code(2378) + "Resource body " + theAddress + " not found by provider " + myId);
+		} catch (IOException e) {
+			throw new InternalErrorException(Msg.code(2379) + "Failed to read resource body " + theAddress + ": " + e, e);
+		}
+	}
+
+	private InputStream openFile(String theAddress) throws IOException {
+		Cache<String, ByteBuffer> readCache = myReadCache;
+		if (readCache == null) {
+			return Files.newInputStream(getFilename(theAddress));
+		}
+
+		ByteBuffer buffer = readCache.getIfPresent(theAddress);
+		if (buffer == null) {
+			byte[] bytes = Files.readAllBytes(getFilename(theAddress));
+			buffer = ByteBuffer.allocateDirect(bytes.length);
+			buffer.put(bytes);
+			buffer.flip();
+			readCache.put(theAddress, buffer);
+		}
+
+		// The cached buffer is shared, so each reader gets its own position
+		return new ByteBufferBackedInputStream(buffer.duplicate());
+	}
+
+	/**
+	 * Files are spread over two levels of directories named after the start of the hash
+	 */
+	@Nonnull
+	private Path getFilename(String theHash) {
+		return myBasePath
+			.resolve(theHash.substring(0, 2))
+			.resolve(theHash.substring(2, 4))
+			.resolve(theHash + EXTENSION);
+	}
+
+	private void mkdir(Path thePath) {
+		try {
+			FileUtils.forceMkdir(thePath.toFile());
+		} catch (IOException e) {
+			throw new ConfigurationException(Msg.code(2380) + "Unable to create path " + thePath + ": " + e);
+		}
+	}
+}
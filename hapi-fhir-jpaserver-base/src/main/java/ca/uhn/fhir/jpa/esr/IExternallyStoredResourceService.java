@@ -19,8 +19,14 @@
  */
 package ca.uhn.fhir.jpa.esr;
 
+import ca.uhn.fhir.i18n.Msg;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import javax.annotation.Nonnull;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
 public interface IExternallyStoredResourceService {
 
 	/**
@@ -37,4 +43,38 @@ public interface IExternallyStoredResourceService {
 	 * @return HAPI FHIR may modify the returned object, so it is important to always return a new object for every call here (careful with caching!)
 	 */
 	IBaseResource fetchResource(String theAddress);
+
+	/**
+	 * Fetches several resources at once, e.g. for a page of search results. Providers backed by a remote
+	 * store should override this method in order to fetch the resources using as few requests as possible.
+	 * The default implementation calls {@link #fetchResource(String)} for each address.
+	 *
+	 * @param theAddresses The address strings
+	 * @return A map from address string to resource, which should contain every address. As with
+	 * {@link #fetchResource(String)}, a new object must be returned for every address.
+	 * @since 6.8.0
+	 */
+	@Nonnull
+	default Map<String, IBaseResource> fetchResources(Collection<String> theAddresses) {
+		Map<String, IBaseResource> retVal = new HashMap<>();
+		for (String next : theAddresses) {
+			retVal.put(next, fetchResource(next));
+		}
+		return retVal;
+	}
+
+	/**
+	 * Stores the given encoded resource body and returns the address string that it can be fetched
+	 * with. This is only called if this provider is configured as the
+	 * {@link ca.uhn.fhir.jpa.api.config.JpaStorageSettings#setExternallyStoredResourceWriteThroughProviderId(String) write-through provider},
+	 * in which case it is called while the resource is being stored. Providers which don't support
+	 * this don't need to implement it.
+	 *
+	 * @param theEncodedResource The resource body, encoded as JSON
+	 * @return The address string for the body
+	 * @since 6.8.0
+	 */
+	default String storeResource(String theEncodedResource) {
+		throw new UnsupportedOperationException(Msg.code(2375) + "Provider " + getId() + " does not support storing resources");
+	}
 }
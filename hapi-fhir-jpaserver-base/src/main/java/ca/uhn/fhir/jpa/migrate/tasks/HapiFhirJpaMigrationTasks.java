@@ -277,6 +277,32 @@ public class HapiFhirJpaMigrationTasks extends BaseMigrationTasks<VersionEnum> {
 			.unique(false)
 			.withColumns("CONCEPT_MAP_GRP_ELM_PID")
 			.onlyAppliesToPlatforms(NON_AUTOMATIC_FK_INDEX_PLATFORMS);
+
+		// Concept ancestor (transitive closure) table
+		version.addIdGenerator("20230612.1", "SEQ_CONCEPT_ANC_PID");
+		Builder.BuilderAddTableByColumns conceptAncestorTable = version.addTableByColumns("20230612.2", "TRM_CONCEPT_ANCESTOR", "PID");
+		conceptAncestorTable.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+		conceptAncestorTable.addColumn("CODESYSTEM_PID").nonNullable().type(ColumnTypeEnum.LONG);
+		conceptAncestorTable.addColumn("ANCESTOR_PID").nonNullable().type(ColumnTypeEnum.LONG);
+		conceptAncestorTable.addColumn("DESCENDANT_PID").nonNullable().type(ColumnTypeEnum.LONG);
+		conceptAncestorTable.addIndex("20230612.3", "IDX_CONCEPT_ANC_ANC_DESC").unique(false).withColumns("ANCESTOR_PID", "DESCENDANT_PID");
+		conceptAncestorTable.addIndex("20230612.4", "IDX_CONCEPT_ANC_DESC_ANC").unique(false).withColumns("DESCENDANT_PID", "ANCESTOR_PID");
+		conceptAncestorTable.addIndex("20230612.5", "IDX_CONCEPT_ANC_CS").unique(false).withColumns("CODESYSTEM_PID");
+
+		version.onTable("TRM_CODESYSTEM_VER")
+			.addColumn("20230612.6", "ANCESTORS_INDEXED")
+			.nullable()
+			.type(ColumnTypeEnum.BOOLEAN);
+
+		// MDM blocking key table
+		version.addIdGenerator("20230613.1", "SEQ_MPI_BLOCKING_KEY");
+		Builder.BuilderAddTableByColumns blockingKeyTable = version.addTableByColumns("20230613.2", "MPI_BLOCKING_KEY", "PID");
+		blockingKeyTable.addColumn("PID").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKeyTable.addColumn("RES_ID").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKeyTable.addColumn("PARAM_HASH").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKeyTable.addColumn("KEY_HASH").nonNullable().type(ColumnTypeEnum.LONG);
+		blockingKeyTable.addIndex("20230613.3", "IDX_MPI_BLOCKING_KEY").unique(false).withColumns("KEY_HASH", "PARAM_HASH", "RES_ID");
+		blockingKeyTable.addIndex("20230613.4", "IDX_MPI_BLOCKING_RES").unique(false).withColumns("RES_ID");
 	}
 
 	protected void init660() {
@@ -372,7 +372,7 @@ public class SearchCoordinatorSvcImpl implements ISearchCoordinatorSvc<JpaPid> {
 
 		if (cacheStatus != SearchCacheStatusEnum.NOT_TRIED) {
 			if (theParams.getEverythingMode() == null) {
-				if (myStorageSettings.getReuseCachedSearchResultsForMillis() != null) {
+				if (myStorageSettings.getReuseCachedSearchResultsForMillis() != null && mySearchResultCacheSvc.isResultReuseSupported()) {
 					PersistedJpaBundleProvider foundSearchProvider = findCachedQuery(theParams, theResourceType, theRequestDetails, queryString, theRequestPartitionId);
 					if (foundSearchProvider != null) {
 						foundSearchProvider.setCacheStatus(SearchCacheStatusEnum.HIT);
@@ -41,6 +41,7 @@ import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
 import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.IResultIterator;
 import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.dao.ResourceParsingExecutor;
 import ca.uhn.fhir.jpa.dao.data.IResourceSearchViewDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTagDao;
 import ca.uhn.fhir.jpa.dao.search.ResourceNotFoundInIndexException;
@@ -190,6 +191,8 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 	private IElasticsearchSvc myIElasticsearchSvc;
 	@Autowired
 	private IJpaStorageResourceParser myJpaStorageResourceParser;
+	@Autowired
+	private ResourceParsingExecutor myResourceParsingExecutor;
 
 	/**
 	 * Constructor
@@ -944,6 +947,7 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		//-- preload all tags with tag definition if any
 		Map<Long, Collection<ResourceTag>> tagMap = getResourceTagMap(resourceSearchViewList);
 
+		List<LoadedResource> loadedResources = new ArrayList<>(resourceSearchViewList.size());
 		for (IBaseResourceEntity next : resourceSearchViewList) {
 			if (next.getDeleted() != null) {
 				continue;
@@ -965,14 +969,39 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 				resourceId.setVersion(version);
 				if (version != null && !version.equals(next.getVersion())) {
 					IFhirResourceDao<? extends IBaseResource> dao = myDaoRegistry.getResourceDao(resourceType);
-					next = (IBaseResourceEntity) dao.readEntity(next.getIdDt().withVersion(Long.toString(version)), null);
+					IBaseResourceEntity versionEntity = (IBaseResourceEntity) dao.readEntity(next.getIdDt().withVersion(Long.toString(version)), null);
+
+					// Entities loaded individually may have lazy associations, so they are parsed on this thread
+					LoadedResource loadedResource = new LoadedResource(next, resourceType, resourceId);
+					if (versionEntity != null) {
+						loadedResource.setResource(myJpaStorageResourceParser.toResource(resourceType, versionEntity, tagMap.get(versionEntity.getId()), theForHistoryOperation));
+					} else {
+						loadedResource.setResource(null);
+					}
+					loadedResources.add(loadedResource);
+					continue;
 				}
 			}
 
-			IBaseResource resource = null;
-			if (next != null) {
-				resource = myJpaStorageResourceParser.toResource(resourceType, next, tagMap.get(next.getId()), theForHistoryOperation);
+			loadedResources.add(new LoadedResource(next, resourceType, resourceId));
+		}
+
+		// Bodies stored with an externally stored resource provider are fetched in one batch per provider
+		Map<String, IBaseResource> externallyStoredResources = myJpaStorageResourceParser.fetchExternallyStoredResources(resourceSearchViewList);
+
+		// Rows from the search view are fully loaded, so they can be decoded and parsed in parallel
+		List<IBaseResource> resources = myResourceParsingExecutor.parseAll(loadedResources, t -> {
+			if (t.isParsed()) {
+				return t.getResource();
 			}
+			return myJpaStorageResourceParser.toResource(t.getResourceType(), t.getEntity(), tagMap.get(t.getEntity().getId()), theForHistoryOperation, externallyStoredResources);
+		});
+
+		for (int i = 0; i < loadedResources.size(); i++) {
+			LoadedResource loadedResource = loadedResources.get(i);
+			IBaseResourceEntity next = loadedResource.getEntity();
+			JpaPid resourceId = loadedResource.getResourceId();
+			IBaseResource resource = resources.get(i);
 			if (resource == null) {
 				ourLog.warn("Unable to find resource {}/{}/_history/{} in database", next.getResourceType(), next.getIdDt().getIdPart(), next.getVersion());
 				continue;
@@ -1992,4 +2021,47 @@ public class SearchBuilder implements ISearchBuilder<JpaPid> {
 		myUseMaxPageSize50ForTest = theIsTest;
 	}
 
+	/**
+	 * A row loaded for {@link #doLoadPids}, which may already have been parsed
+	 * if it could not be parsed in parallel with the others
+	 */
+	private static class LoadedResource {
+		private final IBaseResourceEntity myEntity;
+		private final Class<? extends IBaseResource> myResourceType;
+		private final JpaPid myResourceId;
+		private IBaseResource myResource;
+		private boolean myParsed;
+
+		LoadedResource(IBaseResourceEntity theEntity, Class<? extends IBaseResource> theResourceType, JpaPid theResourceId) {
+			myEntity = theEntity;
+			myResourceType = theResourceType;
+			myResourceId = theResourceId;
+		}
+
+		IBaseResourceEntity getEntity() {
+			return myEntity;
+		}
+
+		Class<? extends IBaseResource> getResourceType() {
+			return myResourceType;
+		}
+
+		JpaPid getResourceId() {
+			return myResourceId;
+		}
+
+		IBaseResource getResource() {
+			return myResource;
+		}
+
+		void setResource(IBaseResource theResource) {
+			myResource = theResource;
+			myParsed = true;
+		}
+
+		boolean isParsed() {
+			return myParsed;
+		}
+	}
+
 }
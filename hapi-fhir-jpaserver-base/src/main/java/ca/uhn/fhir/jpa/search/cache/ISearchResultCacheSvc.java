@@ -57,4 +57,15 @@ public interface ISearchResultCacheSvc {
 	@Nullable
 	List<JpaPid> fetchAllResultPids(Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId);
 
+	/**
+	 * Returns <code>false</code> if results stored by this service may not be available to every node,
+	 * or may be removed before the search itself expires. In that case completed searches are not
+	 * reused for identical subsequent searches, since the results could be missing even for the first page.
+	 *
+	 * @since 6.8.0
+	 */
+	default boolean isResultReuseSupported() {
+		return true;
+	}
+
 }
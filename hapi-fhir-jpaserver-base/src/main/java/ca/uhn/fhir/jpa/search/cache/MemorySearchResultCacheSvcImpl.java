@@ -0,0 +1,263 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import com.google.common.annotations.VisibleForTesting;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Search result cache which keeps the result PIDs of each search in memory as a primitive
+ * <code>long</code> array instead of writing them to the HFJ_SEARCH_RESULT table, so that
+ * paging through large searches does not create any write load on the database.
+ * <p>
+ * The cache is bounded by {@link JpaStorageSettings#getSearchResultMemoryCacheMaximumBytes()}
+ * and entries expire after {@link JpaStorageSettings#getExpireSearchResultsAfterMillis()}. If the
+ * maximum size is <code>0</code> (the default) this class behaves exactly like
+ * {@link DatabaseSearchResultCacheSvcImpl}. Searches which are too large to be held in memory
+ * are written to the database instead, as are any searches that were already stored in
+ * the database before the memory cache was enabled.
+ * </p>
+ * <p>
+ * Results held in memory are only available on the node which performed the search. If
+ * a page is requested from another node, or after the results have been evicted, this
+ * service falls back to the database and reports the search as unknown if the results
+ * are not found there either, in the same way as an expired search. Clustered deployments
+ * should therefore only enable this cache if paging requests are routed to the node
+ * which performed the search (i.e. session affinity). For the same reason, searches are
+ * never reused for identical subsequent searches while this cache is enabled, since those
+ * could be handled by any node.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class MemorySearchResultCacheSvcImpl extends DatabaseSearchResultCacheSvcImpl {
+	private static final Logger ourLog = LoggerFactory.getLogger(MemorySearchResultCacheSvcImpl.class);
+
+	/**
+	 * A single search may use at most 1/n of the cache, so that one very large search
+	 * can not evict the results of every other search
+	 */
+	private static final int MAXIMUM_SEARCH_FRACTION = 10;
+
+	@Autowired
+	private JpaStorageSettings myStorageSettings;
+
+	private volatile Cache<Long, SearchResultPids> myCache;
+	private volatile Cache<Long, Boolean> myDatabaseSearches;
+	private volatile long myCacheMaximumBytes;
+	private volatile long myCacheExpiryMillis;
+
+	@Override
+	public List<JpaPid> fetchResultPids(Search theSearch, int theFrom, int theTo, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		Cache<Long, SearchResultPids> cache = getCacheOrNull();
+		if (cache == null || theSearch.getId() == null) {
+			return super.fetchResultPids(theSearch, theFrom, theTo, theRequestDetails, theRequestPartitionId);
+		}
+
+		SearchResultPids pids = cache.getIfPresent(theSearch.getId());
+		if (pids != null) {
+			List<JpaPid> retVal = pids.fetch(theFrom, theTo);
+			ourLog.debug("fetchResultPids for range {}-{} returned {} pids from memory", theFrom, theTo, retVal.size());
+			return retVal;
+		}
+
+		List<JpaPid> retVal = super.fetchResultPids(theSearch, theFrom, theTo, theRequestDetails, theRequestPartitionId);
+		if (retVal != null && retVal.isEmpty() && theFrom < theSearch.getNumFound()) {
+			ourLog.debug("Results for search {} are not available on this node", theSearch.getUuid());
+			return null;
+		}
+		return retVal;
+	}
+
+	@Override
+	public List<JpaPid> fetchAllResultPids(Search theSearch, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		Cache<Long, SearchResultPids> cache = getCacheOrNull();
+		if (cache == null || theSearch.getId() == null) {
+			return super.fetchAllResultPids(theSearch, theRequestDetails, theRequestPartitionId);
+		}
+
+		SearchResultPids pids = cache.getIfPresent(theSearch.getId());
+		if (pids != null) {
+			return pids.fetchAll();
+		}
+
+		List<JpaPid> retVal = super.fetchAllResultPids(theSearch, theRequestDetails, theRequestPartitionId);
+		if (retVal != null && retVal.isEmpty() && theSearch.getNumFound() > 0) {
+			ourLog.debug("Results for search {} are not available on this node", theSearch.getUuid());
+			return null;
+		}
+		return retVal;
+	}
+
+	@Override
+	public void storeResults(Search theSearch, List<JpaPid> thePreviouslyStoredResourcePids, List<JpaPid> theNewResourcePids, RequestDetails theRequestDetails, RequestPartitionId theRequestPartitionId) {
+		Cache<Long, SearchResultPids> cache = getCacheOrNull();
+		Cache<Long, Boolean> databaseSearches = myDatabaseSearches;
+		Long searchId = theSearch.getId();
+		if (cache == null || databaseSearches == null || searchId == null || databaseSearches.getIfPresent(searchId) != null) {
+			super.storeResults(theSearch, thePreviouslyStoredResourcePids, theNewResourcePids, theRequestDetails, theRequestPartitionId);
+			return;
+		}
+
+		/*
+		 * If the results are no longer in memory (e.g. they have been evicted) we can
+		 * still rebuild them, since the previously stored PIDs are always supplied
+		 */
+		SearchResultPids pids = cache.getIfPresent(searchId);
+		if (pids == null || pids.size() != thePreviouslyStoredResourcePids.size()) {
+			pids = new SearchResultPids();
+			pids.addAll(thePreviouslyStoredResourcePids);
+		}
+
+		long maximumSearchBytes = myCacheMaximumBytes / MAXIMUM_SEARCH_FRACTION;
+		if (SearchResultPids.estimateWeight(pids.size() + theNewResourcePids.size()) > maximumSearchBytes) {
+			ourLog.debug("Search {} is too large to be held in memory, storing results in the database", theSearch.getUuid());
+			List<JpaPid> allPids = new ArrayList<>(pids.size() + theNewResourcePids.size());
+			allPids.addAll(pids.fetchAll());
+			allPids.addAll(theNewResourcePids);
+			cache.invalidate(searchId);
+			databaseSearches.put(searchId, Boolean.TRUE);
+			super.storeResults(theSearch, Collections.emptyList(), allPids, theRequestDetails, theRequestPartitionId);
+			return;
+		}
+
+		ourLog.debug("Storing {} results with {} previous for search in memory", theNewResourcePids.size(), thePreviouslyStoredResourcePids.size());
+		pids.addAll(theNewResourcePids);
+
+		// Put the entry again even if it was already present so that its new size is weighed
+		cache.put(searchId, pids);
+	}
+
+	@Override
+	public boolean isResultReuseSupported() {
+		return getCacheOrNull() == null;
+	}
+
+	/**
+	 * Removes all search results held in memory
+	 */
+	@VisibleForTesting
+	public void invalidateAll() {
+		Cache<Long, SearchResultPids> cache = myCache;
+		if (cache != null) {
+			cache.invalidateAll();
+		}
+		Cache<Long, Boolean> databaseSearches = myDatabaseSearches;
+		if (databaseSearches != null) {
+			databaseSearches.invalidateAll();
+		}
+	}
+
+	@Nullable
+	private Cache<Long, SearchResultPids> getCacheOrNull() {
+		long maximumBytes = myStorageSettings.getSearchResultMemoryCacheMaximumBytes();
+		if (maximumBytes <= 0) {
+			if (myCache != null) {
+				synchronized (this) {
+					myCache = null;
+					myDatabaseSearches = null;
+					myCacheMaximumBytes = 0;
+				}
+			}
+			return null;
+		}
+
+		long expiryMillis = myStorageSettings.getExpireSearchResultsAfterMillis();
+		Cache<Long, SearchResultPids> cache = myCache;
+		if (cache == null || myCacheMaximumBytes != maximumBytes || myCacheExpiryMillis != expiryMillis) {
+			synchronized (this) {
+				cache = myCache;
+				if (cache == null || myCacheMaximumBytes != maximumBytes || myCacheExpiryMillis != expiryMillis) {
+					ourLog.info("Initializing search result memory cache with a maximum size of {} bytes", maximumBytes);
+					cache = CacheFactory.buildWeighted(expiryMillis, maximumBytes, (Long theKey, SearchResultPids theValue) -> theValue.getWeight());
+					myDatabaseSearches = CacheFactory.build(expiryMillis);
+					myCacheMaximumBytes = maximumBytes;
+					myCacheExpiryMillis = expiryMillis;
+					myCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	/**
+	 * The ordered result PIDs for a single search. Results are only ever appended
+	 * by the thread performing the search, but may be read concurrently by paging requests.
+	 */
+	private static class SearchResultPids {
+		private static final int ENTRY_OVERHEAD_BYTES = 64;
+		private long[] myPids = new long[0];
+		private int mySize;
+
+		synchronized int size() {
+			return mySize;
+		}
+
+		synchronized int getWeight() {
+			return (int) Math.min(Integer.MAX_VALUE, estimateWeight(myPids.length));
+		}
+
+		synchronized void addAll(List<JpaPid> thePids) {
+			int newSize = mySize + thePids.size();
+			if (newSize > myPids.length) {
+				myPids = Arrays.copyOf(myPids, Math.max(newSize, myPids.length + (myPids.length >> 1)));
+			}
+			for (JpaPid next : thePids) {
+				myPids[mySize++] = next.getId();
+			}
+		}
+
+		synchronized List<JpaPid> fetch(int theFrom, int theTo) {
+			int to = Math.min(theTo, mySize);
+			if (theFrom < 0 || theFrom >= to) {
+				return Collections.emptyList();
+			}
+			List<JpaPid> retVal = new ArrayList<>(to - theFrom);
+			for (int i = theFrom; i < to; i++) {
+				retVal.add(JpaPid.fromId(myPids[i]));
+			}
+			return retVal;
+		}
+
+		synchronized List<JpaPid> fetchAll() {
+			return fetch(0, mySize);
+		}
+
+		static long estimateWeight(int theCapacity) {
+			return ENTRY_OVERHEAD_BYTES + (long) theCapacity * Long.BYTES;
+		}
+	}
+
+}
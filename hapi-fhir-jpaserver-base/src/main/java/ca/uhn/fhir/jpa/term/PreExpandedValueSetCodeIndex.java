@@ -0,0 +1,256 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import org.apache.commons.lang3.Validate;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * An immutable in-memory copy of the codes in a pre-expanded ValueSet (i.e. the contents
+ * of HFJ_TRM_VALUESET_C for a single ValueSet), used to validate codes against the expansion
+ * without querying the database.
+ * <p>
+ * Each distinct system URL and version is stored only once in a dictionary, and the concepts
+ * are held in parallel arrays sorted by the hash code of their code, so that a code can be
+ * found with a binary search. Since hash codes can collide, candidates are always compared
+ * against the actual code too.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class PreExpandedValueSetCodeIndex {
+
+	private static final int ENTRY_OVERHEAD_BYTES = 64;
+	private static final int STRING_OVERHEAD_BYTES = 40;
+	private static final int PER_CONCEPT_BYTES = Integer.BYTES * 2 + 2 * 8;
+	private final long myExpansionTimestamp;
+	private final String[] mySystems;
+	private final String[] mySystemVersions;
+	private final int[] myCodeHashes;
+	private final int[] mySystemIndexes;
+	private final String[] myCodes;
+	private final String[] myDisplays;
+	private final long myWeight;
+
+	private PreExpandedValueSetCodeIndex(Builder theBuilder) {
+		myExpansionTimestamp = theBuilder.myExpansionTimestamp;
+		mySystems = theBuilder.mySystems.toArray(new String[0]);
+		mySystemVersions = theBuilder.mySystemVersions.toArray(new String[0]);
+
+		int count = theBuilder.mySize;
+		long[] sortKeys = new long[count];
+		for (int i = 0; i < count; i++) {
+			// Sort by hash, and within the same hash keep the original (expansion) order
+			sortKeys[i] = ((long) theBuilder.myCodes[i].hashCode() << 32) | i;
+		}
+		Arrays.sort(sortKeys);
+
+		myCodeHashes = new int[count];
+		mySystemIndexes = new int[count];
+		myCodes = new String[count];
+		myDisplays = new String[count];
+		long weight = ENTRY_OVERHEAD_BYTES;
+		for (int i = 0; i < count; i++) {
+			int source = (int) sortKeys[i];
+			myCodeHashes[i] = (int) (sortKeys[i] >> 32);
+			mySystemIndexes[i] = theBuilder.mySystemIndexes[source];
+			myCodes[i] = theBuilder.myCodes[source];
+			myDisplays[i] = theBuilder.myDisplays[source];
+			weight += PER_CONCEPT_BYTES + estimateWeight(myCodes[i]) + estimateWeight(myDisplays[i]);
+		}
+		for (int i = 0; i < mySystems.length; i++) {
+			weight += estimateWeight(mySystems[i]) + estimateWeight(mySystemVersions[i]);
+		}
+		myWeight = weight;
+	}
+
+	/**
+	 * Returns the expansion timestamp of the ValueSet this index was built from. An index
+	 * should only be used if this still matches the timestamp of the stored pre-expansion.
+	 */
+	public long getExpansionTimestamp() {
+		return myExpansionTimestamp;
+	}
+
+	/**
+	 * Returns the approximate number of bytes of memory used by this index
+	 */
+	public long getWeight() {
+		return myWeight;
+	}
+
+	public int size() {
+		return myCodes.length;
+	}
+
+	/**
+	 * Returns all concepts with the given code, regardless of their system
+	 */
+	@Nonnull
+	public List<TermValueSetConcept> findByCode(@Nonnull String theCode) {
+		return find(null, null, false, theCode);
+	}
+
+	/**
+	 * Returns the concepts with the given system and code. If a system version is given,
+	 * only a concept with this version is returned.
+	 */
+	@Nonnull
+	public List<TermValueSetConcept> findBySystemAndCode(@Nonnull String theSystem, @Nullable String theSystemVersion, @Nonnull String theCode) {
+		return find(theSystem, theSystemVersion, true, theCode);
+	}
+
+	/**
+	 * Returns <code>true</code> if the expansion contains any codes from the given system
+	 */
+	public boolean hasSystem(@Nullable String theSystem) {
+		for (String next : mySystems) {
+			if (next.equals(theSystem)) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private List<TermValueSetConcept> find(String theSystem, String theSystemVersion, boolean theMatchSystem, String theCode) {
+		int hash = theCode.hashCode();
+		int index = Arrays.binarySearch(myCodeHashes, hash);
+		if (index < 0) {
+			return List.of();
+		}
+		while (index > 0 && myCodeHashes[index - 1] == hash) {
+			index--;
+		}
+
+		List<TermValueSetConcept> retVal = new ArrayList<>(1);
+		for (; index < myCodeHashes.length && myCodeHashes[index] == hash; index++) {
+			if (!myCodes[index].equals(theCode)) {
+				continue;
+			}
+			int systemIndex = mySystemIndexes[index];
+			if (theMatchSystem) {
+				if (!mySystems[systemIndex].equals(theSystem)) {
+					continue;
+				}
+				if (theSystemVersion != null && !theSystemVersion.equals(mySystemVersions[systemIndex])) {
+					continue;
+				}
+			}
+			TermValueSetConcept concept = new TermValueSetConcept()
+				.setSystem(mySystems[systemIndex])
+				.setSystemVersion(mySystemVersions[systemIndex])
+				.setCode(myCodes[index])
+				.setDisplay(myDisplays[index]);
+			retVal.add(concept);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the approximate number of bytes that an index with the given number of
+	 * concepts will need at the very least, used to decide whether it is worth building
+	 */
+	public static long estimateMinimumWeight(long theConceptCount) {
+		return ENTRY_OVERHEAD_BYTES + theConceptCount * (PER_CONCEPT_BYTES + STRING_OVERHEAD_BYTES);
+	}
+
+	private static long estimateWeight(@Nullable String theString) {
+		return theString != null ? STRING_OVERHEAD_BYTES + 2L * theString.length() : 0;
+	}
+
+	public static class Builder {
+
+		private final long myExpansionTimestamp;
+		private final Map<SystemAndVersion, Integer> mySystemDictionary = new HashMap<>();
+		private final List<String> mySystems = new ArrayList<>();
+		private final List<String> mySystemVersions = new ArrayList<>();
+		private int[] mySystemIndexes = new int[16];
+		private String[] myCodes = new String[16];
+		private String[] myDisplays = new String[16];
+		private int mySize;
+
+		public Builder(long theExpansionTimestamp) {
+			myExpansionTimestamp = theExpansionTimestamp;
+		}
+
+		/**
+		 * Concepts must be added in expansion order
+		 */
+		public Builder add(@Nonnull String theSystem, @Nullable String theSystemVersion, @Nonnull String theCode, @Nullable String theDisplay) {
+			Validate.notNull(theSystem, "theSystem must not be null");
+			Validate.notNull(theCode, "theCode must not be null");
+
+			Integer systemIndex = mySystemDictionary.computeIfAbsent(new SystemAndVersion(theSystem, theSystemVersion), t -> {
+				mySystems.add(t.mySystem);
+				mySystemVersions.add(t.myVersion);
+				return mySystems.size() - 1;
+			});
+
+			if (mySize == myCodes.length) {
+				int newLength = myCodes.length + (myCodes.length >> 1);
+				mySystemIndexes = Arrays.copyOf(mySystemIndexes, newLength);
+				myCodes = Arrays.copyOf(myCodes, newLength);
+				myDisplays = Arrays.copyOf(myDisplays, newLength);
+			}
+			mySystemIndexes[mySize] = systemIndex;
+			myCodes[mySize] = theCode;
+			myDisplays[mySize] = theDisplay;
+			mySize++;
+			return this;
+		}
+
+		public PreExpandedValueSetCodeIndex build() {
+			return new PreExpandedValueSetCodeIndex(this);
+		}
+	}
+
+	private static class SystemAndVersion {
+		private final String mySystem;
+		private final String myVersion;
+
+		private SystemAndVersion(String theSystem, String theVersion) {
+			mySystem = theSystem;
+			myVersion = theVersion;
+		}
+
+		@Override
+		public boolean equals(Object theO) {
+			if (!(theO instanceof SystemAndVersion)) {
+				return false;
+			}
+			SystemAndVersion that = (SystemAndVersion) theO;
+			return mySystem.equals(that.mySystem) && Objects.equals(myVersion, that.myVersion);
+		}
+
+		@Override
+		public int hashCode() {
+			return Objects.hash(mySystem, myVersion);
+		}
+	}
+}
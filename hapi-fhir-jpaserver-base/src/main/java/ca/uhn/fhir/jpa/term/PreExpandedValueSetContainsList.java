@@ -0,0 +1,157 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.term;
+
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.r4.model.ValueSet;
+
+import javax.annotation.Nonnull;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * A read-only list of <code>ValueSet.expansion.contains</code> elements which is backed by a range of
+ * concepts in a pre-expanded ValueSet (i.e. the rows in HFJ_TRM_VALUESET_C with
+ * <code>VALUESET_ORDER</code> in a given range).
+ * <p>
+ * Nothing is loaded when this list is created. Iterating over it loads the concepts one page at a time,
+ * seeking each page by its <code>VALUESET_ORDER</code> range rather than by offset, and only the current
+ * page is held in memory. This means that a large expansion can be encoded straight to a response writer
+ * without ever being fully loaded. Each iteration loads the concepts again.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+class PreExpandedValueSetContainsList extends AbstractList<ValueSet.ValueSetExpansionContainsComponent> {
+
+	private final int myFromOrder;
+	private final int mySize;
+	private final int myPageSize;
+	private final IPageLoader myPageLoader;
+	private ValueSet.ValueSetExpansionContainsComponent myFirst;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theFromOrder  The <code>VALUESET_ORDER</code> of the first concept in this list
+	 * @param theSize       The number of concepts in this list
+	 * @param thePageSize   The maximum number of concepts to load at a time
+	 * @param thePageLoader Loads the concepts in a range
+	 */
+	PreExpandedValueSetContainsList(int theFromOrder, int theSize, int thePageSize, @Nonnull IPageLoader thePageLoader) {
+		Validate.isTrue(theFromOrder >= 0, "theFromOrder must be >= 0");
+		Validate.isTrue(theSize >= 0, "theSize must be >= 0");
+		Validate.isTrue(thePageSize > 0, "thePageSize must be > 0");
+		Validate.notNull(thePageLoader, "thePageLoader must not be null");
+		myFromOrder = theFromOrder;
+		mySize = theSize;
+		myPageSize = thePageSize;
+		myPageLoader = thePageLoader;
+	}
+
+	/**
+	 * Random access loads a single concept, so callers should iterate instead. The first
+	 * concept is kept though, since it is used to check whether the expansion is empty.
+	 */
+	@Override
+	public ValueSet.ValueSetExpansionContainsComponent get(int theIndex) {
+		if (theIndex < 0 || theIndex >= mySize) {
+			throw new IndexOutOfBoundsException("Index: " + theIndex + ", Size: " + mySize);
+		}
+		if (theIndex == 0 && myFirst != null) {
+			return myFirst;
+		}
+
+		int order = myFromOrder + theIndex;
+		List<ValueSet.ValueSetExpansionContainsComponent> page = myPageLoader.loadPage(order, order + 1);
+		if (page.isEmpty()) {
+			throw new IndexOutOfBoundsException("No concept at index " + theIndex + ", the pre-expansion may have changed");
+		}
+
+		ValueSet.ValueSetExpansionContainsComponent retVal = page.get(0);
+		if (theIndex == 0) {
+			myFirst = retVal;
+		}
+		return retVal;
+	}
+
+	@Override
+	public int size() {
+		return mySize;
+	}
+
+	@Nonnull
+	@Override
+	public Iterator<ValueSet.ValueSetExpansionContainsComponent> iterator() {
+		return new PageIterator();
+	}
+
+	@FunctionalInterface
+	interface IPageLoader {
+
+		/**
+		 * Loads the concepts with a <code>VALUESET_ORDER</code> greater than or equal to
+		 * <code>theFromOrder</code> and less than <code>theToOrder</code>, in order
+		 */
+		@Nonnull
+		List<ValueSet.ValueSetExpansionContainsComponent> loadPage(int theFromOrder, int theToOrder);
+
+	}
+
+	private class PageIterator implements Iterator<ValueSet.ValueSetExpansionContainsComponent> {
+
+		private final int myToOrder = myFromOrder + mySize;
+		private int myNextOrder = myFromOrder;
+		private Iterator<ValueSet.ValueSetExpansionContainsComponent> myPage = Collections.emptyIterator();
+
+		@Override
+		public boolean hasNext() {
+			while (!myPage.hasNext()) {
+				if (myNextOrder >= myToOrder) {
+					return false;
+				}
+
+				int pageToOrder = Math.min(myNextOrder + myPageSize, myToOrder);
+				List<ValueSet.ValueSetExpansionContainsComponent> page = myPageLoader.loadPage(myNextOrder, pageToOrder);
+				if (page.isEmpty()) {
+					// The pre-expansion was removed or replaced since this list was created
+					myNextOrder = myToOrder;
+					return false;
+				}
+
+				myNextOrder = pageToOrder;
+				myPage = page.iterator();
+			}
+			return true;
+		}
+
+		@Override
+		public ValueSet.ValueSetExpansionContainsComponent next() {
+			if (!hasNext()) {
+				throw new NoSuchElementException();
+			}
+			return myPage.next();
+		}
+	}
+
+}
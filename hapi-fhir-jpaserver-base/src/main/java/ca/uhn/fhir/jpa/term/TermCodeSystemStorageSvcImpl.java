@@ -29,6 +29,7 @@ import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
 import ca.uhn.fhir.jpa.dao.data.IResourceTableDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptAncestorDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDesignationDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptParentChildLinkDao;
@@ -111,6 +112,8 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 	@Autowired
 	private ITermConceptParentChildLinkDao myConceptParentChildLinkDao;
 	@Autowired
+	private ITermConceptAncestorDao myConceptAncestorDao;
+	@Autowired
 	private ITermVersionAdapterSvc myTerminologyVersionAdapterSvc;
 	@Autowired
 	private ITermDeferredStorageSvc myDeferredStorageSvc;
@@ -218,6 +221,8 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 
 	private void deleteEverythingRelatedToConcept(TermConcept theConcept, AtomicInteger theRemoveCounter) {
 
+		myConceptAncestorDao.deleteByConcept(theConcept.getId());
+
 		for (TermConceptParentChildLink nextParent : theConcept.getParents()) {
 			nextParent.getParent().getChildren().remove(nextParent);
 			myConceptParentChildLinkDao.deleteById(nextParent.getId());
@@ -399,6 +404,7 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 		}
 
 		ourLog.debug("Saving version containing {} concepts", totalCodeCount);
+		codeSystemToStore.setAncestorsIndexed(myStorageSettings.isConceptAncestorIndexEnabled());
 		if (codeSystemToStore.getPid() == null) {
 			codeSystemToStore = myCodeSystemVersionDao.saveAndFlush(codeSystemToStore);
 		}
@@ -529,6 +535,21 @@ public class TermCodeSystemStorageSvcImpl implements ITermCodeSystemStorageSvc {
 
 		}
 
+		// The ancestors of an existing concept were calculated when it was saved above, so they
+		// need to be updated now that it has been linked to its new parents
+		if (existingCodeOpt.isPresent() && !parentConceptsWeShouldLinkTo.isEmpty() && theCsv.isAncestorsIndexed()) {
+			if (theStatisticsTracker.getUpdatedConceptCount() <= myStorageSettings.getDeferIndexingForCodesystemsOfSize()) {
+				myTermConceptDaoSvc.updateAncestors(conceptToAdd);
+			} else {
+				// The new links are only stored later by the deferred storage service, so we can't
+				// update the ancestors here. Stop using them for this version instead of leaving
+				// stale rows behind, they will be rebuilt when the code system is uploaded again.
+				ourLog.warn("Concept {} was moved in a deferred upload, the ancestor index will not be used for code system version {}", conceptToAdd.getCode(), theCsv.getPid());
+				theCsv.setAncestorsIndexed(false);
+				myCodeSystemVersionDao.save(theCsv);
+			}
+		}
+
 		ourLog.trace("About to save parent-child links");
 
 		// Save children recursively
@@ -20,10 +20,13 @@
 package ca.uhn.fhir.jpa.term;
 
 import ca.uhn.fhir.jpa.dao.BaseHapiFhirDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptAncestorDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDesignationDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptPropertyDao;
+import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
+import ca.uhn.fhir.jpa.entity.TermConceptAncestor;
 import ca.uhn.fhir.jpa.entity.TermConceptDesignation;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
 import ca.uhn.fhir.jpa.entity.TermConceptProperty;
@@ -33,6 +36,12 @@ import org.springframework.beans.factory.annotation.Autowired;
 
 import java.util.Collection;
 import java.util.Date;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.apache.commons.lang3.StringUtils.isNumeric;
+import static org.apache.commons.lang3.StringUtils.split;
 
 public class TermConceptDaoSvc {
 	private static final Logger ourLog = LoggerFactory.getLogger(TermCodeSystemStorageSvcImpl.class);
@@ -46,6 +55,9 @@ public class TermConceptDaoSvc {
 	@Autowired
 	protected ITermConceptDesignationDao myConceptDesignationDao;
 
+	@Autowired
+	protected ITermConceptAncestorDao myConceptAncestorDao;
+
 	public int saveConcept(TermConcept theConcept) {
 		int retVal = 0;
 
@@ -67,6 +79,7 @@ public class TermConceptDaoSvc {
 		}
 
 		if (theConcept.getId() == null || theConcept.getIndexStatus() == null) {
+			boolean existing = theConcept.getId() != null;
 			retVal++;
 			theConcept.setIndexStatus(BaseHapiFhirDao.INDEX_STATUS_INDEXED);
 			theConcept.setUpdated(new Date());
@@ -80,6 +93,13 @@ public class TermConceptDaoSvc {
 				myConceptDesignationDao.save(next);
 			}
 
+			if (isAncestorsIndexed(theConcept)) {
+				if (theConcept.getParentPidsAsString() == null) {
+					theConcept.recalculateParentPids();
+				}
+				saveAncestors(theConcept, existing);
+			}
+
 		}
 
 		ourLog.trace("Saved {} and got PID {}", theConcept.getCode(), theConcept.getId());
@@ -97,6 +117,9 @@ public class TermConceptDaoSvc {
 				if (nextParent.getId() == null) {
 					nextParent.setUpdated(new Date());
 					myConceptDao.saveAndFlush(nextParent);
+					if (isAncestorsIndexed(nextParent)) {
+						saveAncestors(nextParent, false);
+					}
 					retVal++;
 					ourLog.debug("Saved parent code {} and got id {}", nextParent.getCode(), nextParent.getId());
 				}
@@ -105,5 +128,53 @@ public class TermConceptDaoSvc {
 
 		return retVal;
 	}
-}
 
+	/**
+	 * Recalculates the ancestors of a concept which has already been saved and of all of its
+	 * descendants, and replaces their stored {@link TermConceptAncestor} rows. This needs to be
+	 * called when new parents are linked to an existing concept. Does nothing if the code system
+	 * version doesn't index ancestors.
+	 */
+	public void updateAncestors(TermConcept theConcept) {
+		if (isAncestorsIndexed(theConcept)) {
+			List<TermConcept> descendants = myConceptAncestorDao.fetchDescendantConcepts(theConcept.getId());
+
+			theConcept.recalculateParentPids();
+			saveAncestors(theConcept, true);
+
+			for (TermConcept next : descendants) {
+				next.recalculateParentPids();
+				saveAncestors(next, true);
+			}
+
+			ourLog.debug("Updated ancestors of concept {} and {} descendants", theConcept.getCode(), descendants.size());
+		}
+	}
+
+	private void saveAncestors(TermConcept theConcept, boolean theReplaceExisting) {
+		Long conceptPid = theConcept.getId();
+		Long codeSystemVersionPid = theConcept.getCodeSystemVersion().getPid();
+		if (theReplaceExisting) {
+			myConceptAncestorDao.deleteByDescendant(conceptPid);
+		}
+		for (Long next : toParentPids(theConcept.getParentPidsAsString())) {
+			myConceptAncestorDao.save(new TermConceptAncestor(codeSystemVersionPid, next, conceptPid));
+		}
+	}
+
+	private static boolean isAncestorsIndexed(TermConcept theConcept) {
+		TermCodeSystemVersion codeSystemVersion = theConcept.getCodeSystemVersion();
+		return codeSystemVersion != null && codeSystemVersion.isAncestorsIndexed();
+	}
+
+	private static Set<Long> toParentPids(String theParentPids) {
+		Set<Long> retVal = new HashSet<>();
+		for (String next : split(theParentPids, ' ')) {
+			// The string is "NONE" for concepts without any parents
+			if (isNumeric(next)) {
+				retVal.add(Long.parseLong(next));
+			}
+		}
+		return retVal;
+	}
+}
@@ -40,6 +40,7 @@ import ca.uhn.fhir.jpa.dao.IFulltextSearchSvc;
 import ca.uhn.fhir.jpa.dao.IJpaStorageResourceParser;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemDao;
 import ca.uhn.fhir.jpa.dao.data.ITermCodeSystemVersionDao;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptAncestorDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptDesignationDao;
 import ca.uhn.fhir.jpa.dao.data.ITermConceptPropertyDao;
@@ -208,9 +209,17 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	private static final String OUR_PIPE_CHARACTER = "|";
 	private static final int SECONDS_IN_MINUTE = 60;
 	private static final int INDEXED_ROOTS_LOGGING_COUNT = 50_000;
+	/**
+	 * A single ValueSet may use at most 1/n of the pre-expanded code index cache
+	 */
+	private static final int MAXIMUM_CODE_INDEX_FRACTION = 4;
+	private static final int CODE_INDEX_LOAD_PAGE_SIZE = 10_000;
+	private static final int STREAMING_EXPANSION_PAGE_SIZE = 1000;
 	private static Runnable myInvokeOnNextCallForUnitTest;
 	private static boolean ourForceDisableHibernateSearchForUnitTest;
 	private final Cache<String, TermCodeSystemVersionDetails> myCodeSystemCurrentVersionCache = CacheFactory.build(TimeUnit.MINUTES.toMillis(1));
+	private volatile Cache<String, PreExpandedValueSetCodeIndex> myPreExpandedValueSetCodeIndexCache;
+	private volatile long myPreExpandedValueSetCodeIndexCacheMaximumBytes;
 	@Autowired
 	protected DaoRegistry myDaoRegistry;
 	@Autowired
@@ -218,6 +227,8 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 	@Autowired
 	protected ITermConceptDao myConceptDao;
 	@Autowired
+	protected ITermConceptAncestorDao myConceptAncestorDao;
+	@Autowired
 	protected ITermConceptPropertyDao myConceptPropertyDao;
 	@Autowired
 	protected ITermConceptDesignationDao myConceptDesignationDao;
@@ -444,7 +455,9 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 
 		myTxTemplate.executeWithoutResult(tx -> {
-			expandValueSetIntoAccumulator(theValueSetToExpand, theExpansionOptions, accumulator, theFilter, true);
+			if (!expandPreExpandedValueSetUsingStreaming(theValueSetToExpand, expansionOptions, accumulator, theFilter)) {
+				expandValueSetIntoAccumulator(theValueSetToExpand, theExpansionOptions, accumulator, theFilter, true);
+			}
 		});
 
 		if (accumulator.getTotalConcepts() != null) {
@@ -471,17 +484,86 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		return valueSet;
 	}
 
-	private void expandValueSetIntoAccumulator(ValueSet theValueSetToExpand, ValueSetExpansionOptions theExpansionOptions, IValueSetConceptAccumulator theAccumulator, ExpansionFilter theFilter, boolean theAdd) {
-		Optional<TermValueSet> optionalTermValueSet;
-		if (theValueSetToExpand.hasUrl()) {
-			if (theValueSetToExpand.hasVersion()) {
-				optionalTermValueSet = myTermValueSetDao.findTermValueSetByUrlAndVersion(theValueSetToExpand.getUrl(), theValueSetToExpand.getVersion());
+	/**
+	 * If streaming of pre-expanded ValueSets is enabled and the given ValueSet has a completed
+	 * pre-expansion, sets up the accumulator so that the requested range of concepts is loaded
+	 * from the pre-expansion tables one page at a time as the expansion is iterated, instead of
+	 * being loaded here.
+	 *
+	 * @return Returns <code>true</code> if the accumulator was set up, or <code>false</code> if
+	 * the ValueSet needs to be expanded normally
+	 */
+	private boolean expandPreExpandedValueSetUsingStreaming(ValueSet theValueSetToExpand, ValueSetExpansionOptions theExpansionOptions, ValueSetExpansionComponentWithConceptAccumulator theAccumulator, ExpansionFilter theFilter) {
+		if (!myStorageSettings.isPreExpandedValueSetStreamingEnabled() || theExpansionOptions.isIncludeHierarchy()) {
+			return false;
+		}
+		if (theFilter.hasCode() || !theFilter.getFilters().isEmpty()) {
+			return false;
+		}
+
+		Optional<TermValueSet> optionalTermValueSet = findTermValueSet(theValueSetToExpand);
+		if (optionalTermValueSet.isEmpty() || optionalTermValueSet.get().getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED) {
+			return false;
+		}
+
+		TermValueSet termValueSet = optionalTermValueSet.get();
+		int total = termValueSet.getTotalConcepts().intValue();
+		int offset = Math.min(theAccumulator.getSkipCountRemaining(), total);
+		int count = Math.min(theExpansionOptions.getCount(), total - offset);
+
+		String expansionTimestamp = toHumanReadableExpansionTimestamp(termValueSet);
+		String msg = myContext.getLocalizer().getMessage(TermReadSvcImpl.class, "valueSetExpandedUsingPreExpansion", expansionTimestamp);
+		theAccumulator.addMessage(msg);
+		theAccumulator.consumeSkipCount(offset);
+		theAccumulator.incrementOrDecrementTotalConcepts(true, total);
+
+		Long valueSetPid = termValueSet.getId();
+		boolean oracle = isOracleDialect();
+		theAccumulator.setContains(new PreExpandedValueSetContainsList(offset, count, STREAMING_EXPANSION_PAGE_SIZE,
+			(from, to) -> fetchPreExpandedConcepts(theExpansionOptions, valueSetPid, from, to, oracle)));
+
+		ourLog.debug("Streaming {} of {} concepts from pre-expansion of ValueSet[{}]", count, total, termValueSet.getUrl());
+		return true;
+	}
+
+	/**
+	 * Loads the concepts with a <code>VALUESET_ORDER</code> in the given range from the pre-expansion of
+	 * a ValueSet, in a transaction of their own.
+	 */
+	@Nonnull
+	private List<ValueSet.ValueSetExpansionContainsComponent> fetchPreExpandedConcepts(ValueSetExpansionOptions theExpansionOptions, Long theValueSetPid, int theFromOrder, int theToOrder, boolean theOracle) {
+		return myTxTemplate.execute(tx -> {
+			List<? extends ITermValueSetConceptView> conceptViews;
+			if (theOracle) {
+				conceptViews = myTermValueSetConceptViewOracleDao.findByTermValueSetId(theFromOrder, theToOrder, theValueSetPid);
 			} else {
-				optionalTermValueSet = findCurrentTermValueSet(theValueSetToExpand.getUrl());
+				conceptViews = myTermValueSetConceptViewDao.findByTermValueSetId(theFromOrder, theToOrder, theValueSetPid);
+			}
+
+			// The view has one row per designation, and the rows for a concept are adjacent
+			ValueSetExpansionComponentWithConceptAccumulator page = new ValueSetExpansionComponentWithConceptAccumulator(myContext, theToOrder - theFromOrder, false);
+			ITermValueSetConceptView current = null;
+			List<TermConceptDesignation> designations = new ArrayList<>();
+			for (ITermValueSetConceptView conceptView : conceptViews) {
+				if (current != null && !current.getConceptPid().equals(conceptView.getConceptPid())) {
+					page.includeConceptWithDesignations(current.getConceptSystemUrl(), current.getConceptCode(), current.getConceptDisplay(), designations, null, null, current.getConceptSystemVersion());
+					designations = new ArrayList<>();
+				}
+				current = conceptView;
+				if (conceptView.getDesignationPid() != null && isValueSetDisplayLanguageMatch(theExpansionOptions, conceptView.getDesignationLang())) {
+					designations.add(toTermConceptDesignation(conceptView));
+				}
+			}
+			if (current != null) {
+				page.includeConceptWithDesignations(current.getConceptSystemUrl(), current.getConceptCode(), current.getConceptDisplay(), designations, null, null, current.getConceptSystemVersion());
 			}
-		} else {
-			optionalTermValueSet = Optional.empty();
-		}
+
+			return page.getContains();
+		});
+	}
+
+	private void expandValueSetIntoAccumulator(ValueSet theValueSetToExpand, ValueSetExpansionOptions theExpansionOptions, IValueSetConceptAccumulator theAccumulator, ExpansionFilter theFilter, boolean theAdd) {
+		Optional<TermValueSet> optionalTermValueSet = findTermValueSet(theValueSetToExpand);
 
 		/*
 		 * ValueSet doesn't exist in pre-expansion database, so perform in-memory expansion
@@ -514,6 +596,16 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		expandConcepts(theExpansionOptions, theAccumulator, termValueSet, theFilter, theAdd, isOracleDialect());
 	}
 
+	private Optional<TermValueSet> findTermValueSet(ValueSet theValueSet) {
+		if (theValueSet.hasUrl()) {
+			if (theValueSet.hasVersion()) {
+				return myTermValueSetDao.findTermValueSetByUrlAndVersion(theValueSet.getUrl(), theValueSet.getVersion());
+			}
+			return findCurrentTermValueSet(theValueSet.getUrl());
+		}
+		return Optional.empty();
+	}
+
 	@Nonnull
 	private String toHumanReadableExpansionTimestamp(TermValueSet termValueSet) {
 		String expansionTimestamp = "(unknown)";
@@ -597,15 +689,8 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 			// TODO: DM 2019-08-17 - Implement includeDesignations parameter for $expand operation to designations optional.
 			if (conceptView.getDesignationPid() != null) {
-				TermConceptDesignation designation = new TermConceptDesignation();
-
 				if (isValueSetDisplayLanguageMatch(theExpansionOptions, conceptView.getDesignationLang())) {
-					designation.setUseSystem(conceptView.getDesignationUseSystem());
-					designation.setUseCode(conceptView.getDesignationUseCode());
-					designation.setUseDisplay(conceptView.getDesignationUseDisplay());
-					designation.setValue(conceptView.getDesignationVal());
-					designation.setLanguage(conceptView.getDesignationLang());
-					pidToDesignations.put(conceptPid, designation);
+					pidToDesignations.put(conceptPid, toTermConceptDesignation(conceptView));
 				}
 
 				if (++designationsExpanded % 250 == 0) {
@@ -657,6 +742,17 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		logConceptsExpanded("Finished expanding concepts. ", theTermValueSet, conceptsExpanded);
 	}
 
+	@Nonnull
+	private static TermConceptDesignation toTermConceptDesignation(ITermValueSetConceptView theConceptView) {
+		TermConceptDesignation designation = new TermConceptDesignation();
+		designation.setUseSystem(theConceptView.getDesignationUseSystem());
+		designation.setUseCode(theConceptView.getDesignationUseCode());
+		designation.setUseDisplay(theConceptView.getDesignationUseDisplay());
+		designation.setValue(theConceptView.getDesignationVal());
+		designation.setLanguage(theConceptView.getDesignationLang());
+		return designation;
+	}
+
 	private void logConceptsExpanded(String theLogDescriptionPrefix, TermValueSet theTermValueSet, int theConceptsExpanded) {
 		if (theConceptsExpanded > 0) {
 			ourLog.debug("{}Have expanded {} concepts in ValueSet[{}]", theLogDescriptionPrefix, theConceptsExpanded, theTermValueSet.getUrl());
@@ -1504,9 +1600,13 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 				case "concept":
 				case "code":
 					if (nextFilter.getOp() == ValueSet.FilterOperator.ISA) {
-						theValueSetCodeAccumulator.addMessage("Processing IS-A filter in database - Note that Hibernate Search is not enabled on this server, so this operation can be inefficient.");
 						TermConcept code = findCodeForFilterCriteria(theSystem, nextFilter);
-						addConceptAndChildren(theValueSetCodeAccumulator, theAddedCodes, theInclude, theSystem, theAdd, code);
+						if (code.getCodeSystemVersion().isAncestorsIndexed()) {
+							addDescendants(theValueSetCodeAccumulator, theAddedCodes, theInclude, theSystem, theAdd, code);
+						} else {
+							theValueSetCodeAccumulator.addMessage("Processing IS-A filter in database - Note that Hibernate Search is not enabled on this server, so this operation can be inefficient.");
+							addConceptAndChildren(theValueSetCodeAccumulator, theAddedCodes, theInclude, theSystem, theAdd, code);
+						}
 						handled = true;
 					}
 					break;
@@ -1517,7 +1617,7 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 			}
 		}
 
-		if (theInclude.getConcept().isEmpty()) {
+		if (theInclude.getConcept().isEmpty() && theInclude.getFilter().isEmpty()) {
 
 			Collection<TermConcept> concepts = myConceptDao.fetchConceptsAndDesignationsByVersionPid(theVersion.getPid());
 			for (TermConcept next : concepts) {
@@ -1546,6 +1646,15 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 	}
 
+	private void addDescendants(IValueSetConceptAccumulator theValueSetCodeAccumulator, Set<String> theAddedCodes, ValueSet.ConceptSetComponent theInclude, String theSystem, boolean theAdd, TermConcept theConcept) {
+		StopWatch sw = new StopWatch();
+		Collection<TermConcept> descendants = myConceptAncestorDao.fetchDescendantConceptsAndDesignations(theConcept.getId());
+		for (TermConcept next : descendants) {
+			addCodeIfNotAlreadyAdded(theValueSetCodeAccumulator, theAddedCodes, theAdd, theSystem, theInclude.getVersion(), next.getCode(), next.getDisplay(), next.getId(), next.getParentPidsAsString(), next.getDesignations());
+		}
+		ourLog.debug("Fetched {} descendants of code {} in {}", descendants.size(), theConcept.getCode(), sw);
+	}
+
 	private void addConceptAndChildren(IValueSetConceptAccumulator theValueSetCodeAccumulator, Set<String> theAddedCodes, ValueSet.ConceptSetComponent theInclude, String theSystem, boolean theAdd, TermConcept theConcept) {
 		for (TermConcept nextChild : theConcept.getChildCodes()) {
 			boolean added = addCodeIfNotAlreadyAdded(theValueSetCodeAccumulator, theAddedCodes, theAdd, theSystem, theInclude.getVersion(), nextChild.getCode(), nextChild.getDisplay(), nextChild.getId(), nextChild.getParentPidsAsString(), nextChild.getDesignations());
@@ -1574,6 +1683,11 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 
 		Long totalConcepts = termValueSet.getTotalConcepts();
 
+		Cache<String, PreExpandedValueSetCodeIndex> codeIndexCache = myPreExpandedValueSetCodeIndexCache;
+		if (codeIndexCache != null && termValueSet.getExpansionTimestamp() != null) {
+			codeIndexCache.invalidate(toPreExpandedValueSetCodeIndexKey(termValueSet));
+		}
+
 		deletePreCalculatedValueSetContents(termValueSet);
 
 		termValueSet.setExpansionStatus(TermValueSetPreExpansionStatusEnum.NOT_EXPANDED);
@@ -1621,34 +1735,40 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		assert TransactionSynchronizationManager.isSynchronizationActive();
 
 		ValidateUtil.isNotNullOrThrowUnprocessableEntity(theValueSet.hasId(), "ValueSet.id is required");
-		JpaPid valueSetResourcePid = getValueSetResourcePersistentId(theValueSet);
+		if (isBlank(theCode) && theCoding == null && theCodeableConcept == null) {
+			return null;
+		}
 
+		JpaPid valueSetResourcePid = getValueSetResourcePersistentId(theValueSet);
+		TermValueSet valueSetEntity = myTermValueSetDao.findByResourcePid(valueSetResourcePid.getId()).orElseThrow(IllegalStateException::new);
+		PreExpandedValueSetCodeIndex codeIndex = getPreExpandedValueSetCodeIndexOrNull(valueSetEntity);
 
 		List<TermValueSetConcept> concepts = new ArrayList<>();
 		if (isNotBlank(theCode)) {
 			if (theValidationOptions.isInferSystem()) {
-				concepts.addAll(myValueSetConceptDao.findByValueSetResourcePidAndCode(valueSetResourcePid.getId(), theCode));
+				if (codeIndex != null) {
+					concepts.addAll(codeIndex.findByCode(theCode));
+				} else {
+					concepts.addAll(myValueSetConceptDao.findByValueSetResourcePidAndCode(valueSetResourcePid.getId(), theCode));
+				}
 			} else if (isNotBlank(theSystem)) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theSystem, theCode));
+				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, codeIndex, theSystem, theCode));
 			}
 		} else if (theCoding != null) {
 			if (theCoding.hasSystem() && theCoding.hasCode()) {
-				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, theCoding.getSystem(), theCoding.getCode()));
+				concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, codeIndex, theCoding.getSystem(), theCoding.getCode()));
 			}
-		} else if (theCodeableConcept != null) {
+		} else {
 			for (Coding coding : theCodeableConcept.getCoding()) {
 				if (coding.hasSystem() && coding.hasCode()) {
-					concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, coding.getSystem(), coding.getCode()));
+					concepts.addAll(findByValueSetResourcePidSystemAndCode(valueSetResourcePid, codeIndex, coding.getSystem(), coding.getCode()));
 					if (!concepts.isEmpty()) {
 						break;
 					}
 				}
 			}
-		} else {
-			return null;
 		}
 
-		TermValueSet valueSetEntity = myTermValueSetDao.findByResourcePid(valueSetResourcePid.getId()).orElseThrow(IllegalStateException::new);
 		String timingDescription = toHumanReadableExpansionTimestamp(valueSetEntity);
 		String msg = myContext.getLocalizer().getMessage(TermReadSvcImpl.class, "validationPerformedAgainstPreExpansion", timingDescription);
 
@@ -1679,9 +1799,14 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 
 		// Ok, we failed
-		List<TermValueSetConcept> outcome = myValueSetConceptDao.findByTermValueSetIdSystemOnly(Pageable.ofSize(1), valueSetEntity.getId(), theSystem);
+		boolean hasSystem;
+		if (codeIndex != null) {
+			hasSystem = codeIndex.hasSystem(theSystem);
+		} else {
+			hasSystem = !myValueSetConceptDao.findByTermValueSetIdSystemOnly(Pageable.ofSize(1), valueSetEntity.getId(), theSystem).isEmpty();
+		}
 		String append;
-		if (outcome.size() == 0) {
+		if (!hasSystem) {
 			append = " - No codes in ValueSet belong to CodeSystem with URL " + theSystem;
 		} else {
 			append = " - Unknown code " + theSystem + "#" + theCode + ". " + msg;
@@ -1697,13 +1822,18 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 			.setMessage("Unable to validate code " + theSystem + "#" + theCode + theAppend);
 	}
 
-	private List<TermValueSetConcept> findByValueSetResourcePidSystemAndCode(JpaPid theResourcePid, String theSystem, String theCode) {
+	private List<TermValueSetConcept> findByValueSetResourcePidSystemAndCode(JpaPid theResourcePid, @Nullable PreExpandedValueSetCodeIndex theCodeIndex, String theSystem, String theCode) {
 		assert TransactionSynchronizationManager.isSynchronizationActive();
 
 		List<TermValueSetConcept> retVal = new ArrayList<>();
 		Optional<TermValueSetConcept> optionalTermValueSetConcept;
 		int versionIndex = theSystem.indexOf(OUR_PIPE_CHARACTER);
-		if (versionIndex >= 0) {
+		if (theCodeIndex != null) {
+			if (versionIndex >= 0) {
+				return theCodeIndex.findBySystemAndCode(theSystem.substring(0, versionIndex), theSystem.substring(versionIndex + 1), theCode);
+			}
+			return theCodeIndex.findBySystemAndCode(theSystem, null, theCode);
+		} else if (versionIndex >= 0) {
 			String systemUrl = theSystem.substring(0, versionIndex);
 			String systemVersion = theSystem.substring(versionIndex + 1);
 			optionalTermValueSetConcept = myValueSetConceptDao.findByValueSetResourcePidSystemAndCodeWithVersion(
@@ -1716,6 +1846,81 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		return retVal;
 	}
 
+	/**
+	 * Returns the in-memory copy of the current pre-expansion of the given ValueSet, building it
+	 * if needed, or returns <code>null</code> if the ValueSet should be validated against the
+	 * database instead.
+	 *
+	 * @see JpaStorageSettings#setPreExpandedValueSetCodeIndexMaximumBytes(long)
+	 */
+	@Nullable
+	private PreExpandedValueSetCodeIndex getPreExpandedValueSetCodeIndexOrNull(TermValueSet theValueSet) {
+		Cache<String, PreExpandedValueSetCodeIndex> cache = getPreExpandedValueSetCodeIndexCacheOrNull();
+		if (cache == null || theValueSet.getExpansionStatus() != TermValueSetPreExpansionStatusEnum.EXPANDED || theValueSet.getExpansionTimestamp() == null) {
+			return null;
+		}
+
+		Long totalConcepts = theValueSet.getTotalConcepts();
+		long maximumBytes = myPreExpandedValueSetCodeIndexCacheMaximumBytes / MAXIMUM_CODE_INDEX_FRACTION;
+		if (totalConcepts == null || PreExpandedValueSetCodeIndex.estimateMinimumWeight(totalConcepts) > maximumBytes) {
+			return null;
+		}
+
+		/*
+		 * The key includes the expansion timestamp, so an index is never used once the
+		 * ValueSet has been expanded again (possibly by another server)
+		 */
+		String key = toPreExpandedValueSetCodeIndexKey(theValueSet);
+		long expansionTimestamp = theValueSet.getExpansionTimestamp().getTime();
+		return cache.get(key, t -> buildPreExpandedValueSetCodeIndex(theValueSet.getId(), expansionTimestamp));
+	}
+
+	private PreExpandedValueSetCodeIndex buildPreExpandedValueSetCodeIndex(Long theTermValueSetId, long theExpansionTimestamp) {
+		StopWatch sw = new StopWatch();
+		PreExpandedValueSetCodeIndex.Builder builder = new PreExpandedValueSetCodeIndex.Builder(theExpansionTimestamp);
+		long afterPid = -1;
+		while (true) {
+			List<Object[]> page = myValueSetConceptDao.findCodesByTermValueSetId(Pageable.ofSize(CODE_INDEX_LOAD_PAGE_SIZE), theTermValueSetId, afterPid);
+			for (Object[] next : page) {
+				afterPid = (Long) next[0];
+				builder.add((String) next[1], (String) next[2], (String) next[3], (String) next[4]);
+			}
+			if (page.size() < CODE_INDEX_LOAD_PAGE_SIZE) {
+				break;
+			}
+		}
+		PreExpandedValueSetCodeIndex retVal = builder.build();
+		ourLog.info("Built in-memory code index with {} codes ({} bytes) for pre-expanded ValueSet {} in {}", retVal.size(), retVal.getWeight(), theTermValueSetId, sw);
+		return retVal;
+	}
+
+	@Nullable
+	private Cache<String, PreExpandedValueSetCodeIndex> getPreExpandedValueSetCodeIndexCacheOrNull() {
+		long maximumBytes = myStorageSettings.getPreExpandedValueSetCodeIndexMaximumBytes();
+		if (maximumBytes <= 0) {
+			myPreExpandedValueSetCodeIndexCache = null;
+			return null;
+		}
+
+		Cache<String, PreExpandedValueSetCodeIndex> cache = myPreExpandedValueSetCodeIndexCache;
+		if (cache == null || myPreExpandedValueSetCodeIndexCacheMaximumBytes != maximumBytes) {
+			synchronized (this) {
+				cache = myPreExpandedValueSetCodeIndexCache;
+				if (cache == null || myPreExpandedValueSetCodeIndexCacheMaximumBytes != maximumBytes) {
+					ourLog.info("Initializing pre-expanded ValueSet code index cache with a maximum size of {} bytes", maximumBytes);
+					cache = CacheFactory.buildWeighted(TimeUnit.HOURS.toMillis(1), maximumBytes, (String theKey, PreExpandedValueSetCodeIndex theValue) -> (int) Math.min(Integer.MAX_VALUE, theValue.getWeight()));
+					myPreExpandedValueSetCodeIndexCacheMaximumBytes = maximumBytes;
+					myPreExpandedValueSetCodeIndexCache = cache;
+				}
+			}
+		}
+		return cache;
+	}
+
+	private static String toPreExpandedValueSetCodeIndexKey(TermValueSet theValueSet) {
+		return theValueSet.getId() + "/" + theValueSet.getExpansionTimestamp().getTime();
+	}
+
 	private void fetchChildren(TermConcept theConcept, Set<TermConcept> theSetToPopulate) {
 		for (TermConceptParentChildLink nextChildLink : theConcept.getChildren()) {
 			TermConcept nextChild = nextChildLink.getChild();
@@ -1830,7 +2035,11 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		Set<TermConcept> retVal = new HashSet<>();
 		retVal.add(concept.get());
 
-		fetchParents(concept.get(), retVal);
+		if (concept.get().getCodeSystemVersion().isAncestorsIndexed()) {
+			retVal.addAll(myConceptAncestorDao.fetchAncestorConcepts(concept.get().getId()));
+		} else {
+			fetchParents(concept.get(), retVal);
+		}
 
 		ourLog.debug("Fetched {} codes above code {} in {}ms", retVal.size(), theCode, stopwatch.getMillis());
 		return retVal;
@@ -1862,7 +2071,11 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		Set<TermConcept> retVal = new HashSet<>();
 		retVal.add(concept.get());
 
-		fetchChildren(concept.get(), retVal);
+		if (concept.get().getCodeSystemVersion().isAncestorsIndexed()) {
+			retVal.addAll(myConceptAncestorDao.fetchDescendantConcepts(concept.get().getId()));
+		} else {
+			fetchChildren(concept.get(), retVal);
+		}
 
 		ourLog.debug("Fetched {} codes below code {} in {}ms", retVal.size(), theCode, stopwatch.elapsed(TimeUnit.MILLISECONDS));
 		return retVal;
@@ -2096,12 +2309,18 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		TermConcept codeB = findCode(codeBSystemIdentifier, conceptB.getCode())
 			.orElseThrow(() -> new InvalidRequestException("Unknown code: " + conceptB));
 
-		SearchSession searchSession = Search.session(myEntityManager);
-
 		ConceptSubsumptionOutcome subsumes;
-		subsumes = testForSubsumption(searchSession, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
-		if (subsumes == null) {
-			subsumes = testForSubsumption(searchSession, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+		if (codeA.getCodeSystemVersion().isAncestorsIndexed()) {
+			subsumes = testForSubsumptionUsingAncestors(codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
+			if (subsumes == null) {
+				subsumes = testForSubsumptionUsingAncestors(codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+			}
+		} else {
+			SearchSession searchSession = Search.session(myEntityManager);
+			subsumes = testForSubsumption(searchSession, codeA, codeB, ConceptSubsumptionOutcome.SUBSUMES);
+			if (subsumes == null) {
+				subsumes = testForSubsumption(searchSession, codeB, codeA, ConceptSubsumptionOutcome.SUBSUMEDBY);
+			}
 		}
 		if (subsumes == null) {
 			subsumes = ConceptSubsumptionOutcome.NOTSUBSUMED;
@@ -2174,6 +2393,14 @@ public class TermReadSvcImpl implements ITermReadSvc, IHasScheduledJobs {
 		}
 	}
 
+	private ConceptSubsumptionOutcome testForSubsumptionUsingAncestors(TermConcept theLeft, TermConcept theRight, ConceptSubsumptionOutcome theOutput) {
+		if (myConceptAncestorDao.countByAncestorAndDescendant(theLeft.getId(), theRight.getId()) > 0) {
+			return theOutput;
+		} else {
+			return null;
+		}
+	}
+
 	private ArrayList<FhirVersionIndependentConcept> toVersionIndependentConcepts(String theSystem, Set<TermConcept> codes) {
 		ArrayList<FhirVersionIndependentConcept> retVal = new ArrayList<>(codes.size());
 		for (TermConcept next : codes) {
@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * HAPI FHIR JPA Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent lookups of the same keys, so that when several threads need to
+ * resolve the same key at the same time (e.g. many concurrent transactions all referring
+ * to the same client assigned ID) only one of them actually queries the database, and
+ * the others reuse its outcome.
+ * <p>
+ * Only values which were found are shared. A key which the other thread did not find may
+ * have been created after that thread's lookup started (but before ours did), so it is
+ * always looked up again by every thread that was waiting on it.
+ * </p>
+ * <p>
+ * Lookups are always performed on the calling thread (and therefore within the caller's
+ * database transaction). A thread which is waiting on the outcome of another thread's
+ * lookup gives up after a timeout and performs the lookup itself, as it does if the other
+ * thread's lookup fails or its outcome can not be shared.
+ * </p>
+ */
+public class InFlightLookupTracker<K, V> {
+
+	private static final Logger ourLog = LoggerFactory.getLogger(InFlightLookupTracker.class);
+	private final ConcurrentHashMap<K, CompletableFuture<V>> myInFlightLookups = new ConcurrentHashMap<>();
+	private final long myTimeoutMillis;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theTimeoutMillis The maximum time to wait for lookups being performed by other threads
+	 */
+	public InFlightLookupTracker(long theTimeoutMillis) {
+		myTimeoutMillis = theTimeoutMillis;
+	}
+
+	/**
+	 * Looks up the given keys.
+	 *
+	 * @param theKeys           The keys to look up
+	 * @param theLookupFunction Invoked on the calling thread with the keys that it needs to look up itself. Returns the
+	 *                          value of every key which was found and may be shared with other threads. Keys which are
+	 *                          not in the returned map are looked up again by any threads that were waiting on them. Any other results (for example
+	 *                          values which could not be attributed to a specific key) need to be collected by the function
+	 *                          itself.
+	 * @return The values of the keys which were being looked up by other threads. Keys which were
+	 * passed to <code>theLookupFunction</code> are not included.
+	 */
+	public Map<K, V> lookup(Collection<K> theKeys, Function<Collection<K>, Map<K, V>> theLookupFunction) {
+		Map<K, CompletableFuture<V>> claimed = new LinkedHashMap<>();
+		Map<K, CompletableFuture<V>> awaited = new LinkedHashMap<>();
+		for (K next : theKeys) {
+			if (claimed.containsKey(next) || awaited.containsKey(next)) {
+				continue;
+			}
+			CompletableFuture<V> future = new CompletableFuture<>();
+			CompletableFuture<V> existing = myInFlightLookups.putIfAbsent(next, future);
+			if (existing == null) {
+				claimed.put(next, future);
+			} else {
+				awaited.put(next, existing);
+			}
+		}
+
+		try {
+			if (!claimed.isEmpty()) {
+				Map<K, V> outcomes = theLookupFunction.apply(new ArrayList<>(claimed.keySet()));
+				// A missing outcome tells any waiting threads to look the key up themselves
+				claimed.forEach((k, future) -> future.complete(outcomes.get(k)));
+			}
+		} catch (RuntimeException | Error e) {
+			claimed.values().forEach(t -> t.completeExceptionally(e));
+			throw e;
+		} finally {
+			claimed.forEach(myInFlightLookups::remove);
+		}
+
+		Map<K, V> retVal = new HashMap<>();
+		List<K> lookUpOurselves = new ArrayList<>();
+		long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(myTimeoutMillis);
+		for (Map.Entry<K, CompletableFuture<V>> next : awaited.entrySet()) {
+			V outcome = null;
+			try {
+				outcome = next.getValue().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException e) {
+				ourLog.debug("Concurrent lookup of {} failed, looking it up again: {}", next.getKey(), e.getCause().toString());
+			} catch (TimeoutException e) {
+				ourLog.debug("Timed out waiting for concurrent lookup of {}, looking it up again", next.getKey());
+			}
+
+			if (outcome != null) {
+				retVal.put(next.getKey(), outcome);
+			} else {
+				lookUpOurselves.add(next.getKey());
+			}
+		}
+
+		if (!lookUpOurselves.isEmpty()) {
+			theLookupFunction.apply(lookUpOurselves);
+		}
+
+		return retVal;
+	}
+
+	/**
+	 * Returns the number of keys currently being looked up
+	 */
+	public int getInFlightCount() {
+		return myInFlightLookups.size();
+	}
+
+}
@@ -0,0 +1,139 @@
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import org.apache.commons.lang3.StringUtils;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ParsedResourceCacheTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static final String PATIENT_TEXT = "{\"resourceType\":\"Patient\",\"active\":true,\"name\":[{\"family\":\"Simpson\"}]}";
+
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	private final AtomicInteger myParseCount = new AtomicInteger();
+	private ParsedResourceCache mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new ParsedResourceCache(myStorageSettings);
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		parse(1L, 1L, PATIENT_TEXT);
+		parse(1L, 1L, PATIENT_TEXT);
+
+		assertEquals(2, myParseCount.get());
+		assertEquals(0, mySvc.getHitCount());
+	}
+
+	@Test
+	public void testCacheHitReturnsCopy() {
+		myStorageSettings.setParsedResourceCacheMaximumBytes(100000);
+
+		Patient first = parse(1L, 1L, PATIENT_TEXT);
+		first.getNameFirstRep().setFamily("Flanders");
+		Patient second = parse(1L, 1L, PATIENT_TEXT);
+		Patient third = parse(1L, 1L, PATIENT_TEXT);
+
+		assertEquals(1, myParseCount.get());
+		assertEquals(2, mySvc.getHitCount());
+		assertEquals(1, mySvc.getMissCount());
+		assertEquals("Simpson", second.getNameFirstRep().getFamily());
+		assertNotSame(second, third);
+		second.setActive(false);
+		assertEquals(true, third.getActive());
+	}
+
+	@Test
+	public void testDifferentVersionOrTextIsNotAHit() {
+		myStorageSettings.setParsedResourceCacheMaximumBytes(100000);
+
+		parse(1L, 1L, PATIENT_TEXT);
+		parse(1L, 2L, PATIENT_TEXT);
+		Patient rewritten = parse(1L, 1L, PATIENT_TEXT.replace("Simpson", "Flanders"));
+
+		assertEquals(3, myParseCount.get());
+		assertEquals("Flanders", rewritten.getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testStoredBytes() {
+		myStorageSettings.setParsedResourceCacheMaximumBytes(100000);
+		byte[] bytes = GZipUtil.compress(PATIENT_TEXT);
+		byte[] rewrittenBytes = GZipUtil.compress(PATIENT_TEXT.replace("Simpson", "Flanders"));
+
+		parseBytes(1L, 1L, bytes);
+		Patient hit = parseBytes(1L, 1L, bytes.clone());
+		Patient rewritten = parseBytes(1L, 1L, rewrittenBytes);
+
+		assertEquals(2, myParseCount.get());
+		assertEquals(1, mySvc.getHitCount());
+		assertEquals("Simpson", hit.getNameFirstRep().getFamily());
+		assertEquals("Flanders", rewritten.getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testWeightUsesDecodedLength() {
+		String text = PATIENT_TEXT.replace("Simpson", StringUtils.repeat("Simpson", 1000));
+		byte[] compressed = GZipUtil.compress(text);
+		assertTrue(compressed.length < text.length() / 10);
+
+		int expected = text.length() * ParsedResourceCache.PARSED_BYTES_PER_TEXT_CHAR;
+		assertEquals(expected, ParsedResourceCache.estimateWeight(text, null));
+		assertEquals(expected, ParsedResourceCache.estimateWeight(null, compressed));
+		assertEquals(expected, ParsedResourceCache.estimateWeight(null, text.getBytes(StandardCharsets.UTF_8)));
+	}
+
+	@Test
+	public void testSameHashCodeIsNotAHit() {
+		myStorageSettings.setParsedResourceCacheMaximumBytes(100000);
+		// "Aa" and "BB" have the same String#hashCode() and length
+		String first = PATIENT_TEXT.replace("Simpson", "Aa");
+		String second = PATIENT_TEXT.replace("Simpson", "BB");
+		assertEquals(first.hashCode(), second.hashCode());
+
+		parse(1L, 1L, first);
+		Patient patient = parse(1L, 1L, second);
+
+		assertEquals(2, myParseCount.get());
+		assertEquals("BB", patient.getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testContainedResourcesAreNotCached() {
+		myStorageSettings.setParsedResourceCacheMaximumBytes(100000);
+		String text = "{\"resourceType\":\"Patient\",\"contained\":[{\"resourceType\":\"Organization\",\"id\":\"1\",\"name\":\"Org\"}],\"managingOrganization\":{\"reference\":\"#1\"}}";
+
+		parse(1L, 1L, text);
+		Patient patient = parse(1L, 1L, text);
+
+		assertEquals(2, myParseCount.get());
+		assertEquals("#1", patient.getManagingOrganization().getReference());
+	}
+
+	private Patient parseBytes(Long thePid, long theVersion, byte[] theBytes) {
+		return mySvc.getOrParse(ourCtx, thePid, theVersion, Patient.class, null, theBytes, () -> {
+			myParseCount.incrementAndGet();
+			return ourCtx.newJsonParser().parseResource(Patient.class, GZipUtil.decompress(theBytes));
+		});
+	}
+
+	private Patient parse(Long thePid, long theVersion, String theText) {
+		return mySvc.getOrParse(ourCtx, thePid, theVersion, Patient.class, theText, null, () -> {
+			myParseCount.incrementAndGet();
+			return ourCtx.newJsonParser().parseResource(Patient.class, theText);
+		});
+	}
+
+}
@@ -0,0 +1,122 @@
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.parser.DataFormatException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ResourceParsingExecutorTest {
+
+	private final JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	private final ResourceParsingExecutor mySvc = new ResourceParsingExecutor(myStorageSettings);
+	private final Set<String> myThreadNames = ConcurrentHashMap.newKeySet();
+
+	@AfterEach
+	public void after() {
+		mySvc.stop();
+	}
+
+	@Test
+	public void testDisabledByDefault() {
+		List<Integer> inputs = inputs(100);
+
+		List<String> outputs = mySvc.parseAll(inputs, this::parse);
+
+		assertEquals(expected(100), outputs);
+		assertEquals(Collections.singleton(Thread.currentThread().getName()), myThreadNames);
+	}
+
+	@Test
+	public void testParallelPreservesOrder() {
+		myStorageSettings.setSearchResultParsingThreadCount(4);
+		List<Integer> inputs = inputs(1001);
+
+		List<String> outputs = mySvc.parseAll(inputs, this::parse);
+
+		assertEquals(expected(1001), outputs);
+		assertTrue(myThreadNames.contains(Thread.currentThread().getName()));
+		assertTrue(myThreadNames.stream().anyMatch(t -> t.startsWith("resource-parsing-")), myThreadNames.toString());
+	}
+
+	@Test
+	public void testSmallBatchParsedOnCallingThread() {
+		myStorageSettings.setSearchResultParsingThreadCount(4);
+		List<Integer> inputs = inputs(ResourceParsingExecutor.MINIMUM_PARALLEL_BATCH_SIZE - 1);
+
+		mySvc.parseAll(inputs, this::parse);
+
+		assertEquals(Collections.singleton(Thread.currentThread().getName()), myThreadNames);
+	}
+
+	@Test
+	public void testFailureInPoolThreadIsRethrown() {
+		myStorageSettings.setSearchResultParsingThreadCount(4);
+		List<Integer> inputs = inputs(100);
+
+		DataFormatException e = assertThrows(DataFormatException.class, () -> mySvc.parseAll(inputs, t -> {
+			if (t == 99) {
+				throw new DataFormatException("Failed to parse " + t);
+			}
+			return parse(t);
+		}));
+		assertEquals("Failed to parse 99", e.getMessage());
+	}
+
+	@Test
+	public void testThreadCountChangeWhileParsing() throws Exception {
+		AtomicInteger threadCount = new AtomicInteger(2);
+		ResourceParsingExecutor svc = new ResourceParsingExecutor(threadCount::get, "resource-parsing-test-");
+		ExecutorService callers = Executors.newFixedThreadPool(4);
+		try {
+			List<Future<?>> futures = new ArrayList<>();
+			for (int i = 0; i < 4; i++) {
+				futures.add(callers.submit(() -> {
+					for (int j = 0; j < 200; j++) {
+						assertEquals(expected(100), svc.parseAll(inputs(100), this::parse));
+					}
+				}));
+			}
+			for (int i = 0; i < 50; i++) {
+				threadCount.set(2 + (i % 3));
+				Thread.sleep(1);
+			}
+			for (Future<?> next : futures) {
+				next.get(1, TimeUnit.MINUTES);
+			}
+		} finally {
+			callers.shutdown();
+			svc.stop();
+		}
+	}
+
+	private String parse(Integer theInput) {
+		myThreadNames.add(Thread.currentThread().getName());
+		return "Patient/" + theInput;
+	}
+
+	private static List<Integer> inputs(int theCount) {
+		return IntStream.range(0, theCount).boxed().collect(Collectors.toList());
+	}
+
+	private static List<String> expected(int theCount) {
+		return IntStream.range(0, theCount).mapToObj(t -> "Patient/" + t).collect(Collectors.toList());
+	}
+
+}
@@ -74,4 +74,15 @@ public class DaoSearchParamSynchronizerTest {
 		verify(entityManager, never()).remove(any(BaseResourceIndex.class));
 		verify(entityManager, times(1)).merge(THE_SEARCH_PARAM_NUMBER);
 	}
+
+	@Test
+	void synchronizeSearchParamsNewValuesArePersisted() {
+		final AddRemoveCount addRemoveCount = subject.synchronizeSearchParamsToDatabase(theParams, theEntity, new ResourceIndexedSearchParams());
+
+		assertEquals(0, addRemoveCount.getRemoveCount());
+		assertEquals(1, addRemoveCount.getAddCount());
+
+		verify(entityManager, times(1)).persist(THE_SEARCH_PARAM_NUMBER);
+		verify(entityManager, never()).merge(any(BaseResourceIndex.class));
+	}
 }
@@ -0,0 +1,96 @@
+package ca.uhn.fhir.jpa.esr;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.matchesPattern;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FilesystemExternallyStoredResourceServiceTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+	private static final String PATIENT_TEXT = "{\"resourceType\":\"Patient\",\"active\":true,\"name\":[{\"family\":\"Simpson\"}]}";
+
+	@TempDir
+	Path myBasePath;
+	private FilesystemExternallyStoredResourceService mySvc;
+
+	@BeforeEach
+	public void before() {
+		mySvc = new FilesystemExternallyStoredResourceService("fs", myBasePath.toString(), ourCtx);
+	}
+
+	@ParameterizedTest
+	@ValueSource(longs = {0, 100000})
+	public void testStoreAndFetch(long theReadCacheMaximumBytes) {
+		mySvc.setReadCacheMaximumBytes(theReadCacheMaximumBytes);
+
+		String address = mySvc.storeResource(PATIENT_TEXT);
+		assertThat(address, matchesPattern("[0-9a-f]{64}"));
+
+		Patient first = (Patient) mySvc.fetchResource(address);
+		assertEquals("Simpson", first.getNameFirstRep().getFamily());
+		first.getNameFirstRep().setFamily("Flanders");
+
+		Patient second = (Patient) mySvc.fetchResource(address);
+		assertNotSame(first, second);
+		assertEquals("Simpson", second.getNameFirstRep().getFamily());
+		assertTrue(second.getActive());
+	}
+
+	@Test
+	public void testIdenticalBodiesAreStoredOnce() throws IOException {
+		String address = mySvc.storeResource(PATIENT_TEXT);
+		assertEquals(address, mySvc.storeResource(PATIENT_TEXT));
+		String otherAddress = mySvc.storeResource(PATIENT_TEXT.replace("Simpson", "Flanders"));
+
+		List<Path> files;
+		try (Stream<Path> stream = Files.walk(myBasePath)) {
+			files = stream.filter(Files::isRegularFile).collect(Collectors.toList());
+		}
+		assertEquals(2, files.size(), files.toString());
+		assertTrue(files.stream().anyMatch(t -> t.getFileName().toString().equals(address + ".json.gz")));
+		assertTrue(files.stream().anyMatch(t -> t.getFileName().toString().equals(otherAddress + ".json.gz")));
+	}
+
+	@Test
+	public void testFetchResources() {
+		String address0 = mySvc.storeResource(PATIENT_TEXT);
+		String address1 = mySvc.storeResource(PATIENT_TEXT.replace("Simpson", "Flanders"));
+
+		Map<String, IBaseResource> resources = mySvc.fetchResources(List.of(address0, address1));
+		assertEquals(2, resources.size());
+		assertEquals("Simpson", ((Patient) resources.get(address0)).getNameFirstRep().getFamily());
+		assertEquals("Flanders", ((Patient) resources.get(address1)).getNameFirstRep().getFamily());
+	}
+
+	@Test
+	public void testFetchUnknownOrInvalidAddress() {
+		String unknown = "0".repeat(64);
+		ResourceNotFoundException e = assertThrows(ResourceNotFoundException.class, () -> mySvc.fetchResource(unknown));
+		assertEquals("HAPI-2378: Resource body " + unknown + " not found by provider fs", e.getMessage());
+
+		e = assertThrows(ResourceNotFoundException.class, () -> mySvc.fetchResource("../../etc/passwd"));
+		assertEquals("HAPI-2377: Invalid address for provider fs: ../../etc/passwd", e.getMessage());
+	}
+
+}
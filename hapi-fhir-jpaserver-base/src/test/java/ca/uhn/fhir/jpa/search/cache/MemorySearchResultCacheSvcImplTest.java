@@ -0,0 +1,147 @@
+package ca.uhn.fhir.jpa.search.cache;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.data.ISearchResultDao;
+import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
+import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
+import ca.uhn.fhir.jpa.entity.Search;
+import ca.uhn.fhir.jpa.entity.SearchResult;
+import ca.uhn.fhir.jpa.model.dao.JpaPid;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.SliceImpl;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.LongStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.verifyNoInteractions;
+import static org.mockito.Mockito.when;
+import static org.mockito.Mockito.withSettings;
+
+@ExtendWith(MockitoExtension.class)
+class MemorySearchResultCacheSvcImplTest {
+
+	@Mock
+	private ISearchResultDao mySearchResultDao;
+	@SuppressWarnings("unused") // injected into mySvc
+	@Spy
+	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
+	@Spy
+	private JpaStorageSettings myStorageSettings = new JpaStorageSettings();
+	@InjectMocks
+	private MemorySearchResultCacheSvcImpl mySvc;
+	@Captor
+	private ArgumentCaptor<List<SearchResult>> mySearchResultCaptor;
+
+	@Test
+	public void testDisabledByDefault() {
+		Search search = newSearch(1L, 0);
+
+		mySvc.storeResults(search, Collections.emptyList(), pids(1, 3), null, RequestPartitionId.allPartitions());
+
+		verify(mySearchResultDao, times(1)).saveAll(mySearchResultCaptor.capture());
+		assertEquals(3, mySearchResultCaptor.getValue().size());
+	}
+
+	@Test
+	public void testResultReuseOnlySupportedWhenDisabled() {
+		assertTrue(mySvc.isResultReuseSupported());
+
+		myStorageSettings.setSearchResultMemoryCacheMaximumBytes(100000);
+		assertFalse(mySvc.isResultReuseSupported());
+	}
+
+	@Test
+	public void testStoreAndFetchFromMemory() {
+		myStorageSettings.setSearchResultMemoryCacheMaximumBytes(100000);
+		Search search = newSearch(1L, 0);
+
+		mySvc.storeResults(search, Collections.emptyList(), pids(1, 20), null, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search, pids(1, 20), pids(21, 30), null, RequestPartitionId.allPartitions());
+
+		assertEquals(pids(11, 20), mySvc.fetchResultPids(search, 10, 20, null, RequestPartitionId.allPartitions()));
+		assertEquals(pids(26, 30), mySvc.fetchResultPids(search, 25, 40, null, RequestPartitionId.allPartitions()));
+		assertEquals(Collections.emptyList(), mySvc.fetchResultPids(search, 30, 40, null, RequestPartitionId.allPartitions()));
+		assertEquals(pids(1, 30), mySvc.fetchAllResultPids(search, null, RequestPartitionId.allPartitions()));
+		verifyNoInteractions(mySearchResultDao);
+	}
+
+	@Test
+	public void testResultsNotInMemoryOrDatabase() {
+		myStorageSettings.setSearchResultMemoryCacheMaximumBytes(100000);
+		Search search = newSearch(1L, 30);
+		when(mySearchResultDao.findWithSearchPid(eq(1L), any(Pageable.class))).thenReturn(new SliceImpl<>(Collections.emptyList()));
+		when(mySearchResultDao.findWithSearchPidOrderIndependent(eq(1L))).thenReturn(Collections.emptyList());
+
+		assertNull(mySvc.fetchResultPids(search, 10, 20, null, RequestPartitionId.allPartitions()));
+		assertNull(mySvc.fetchAllResultPids(search, null, RequestPartitionId.allPartitions()));
+	}
+
+	@Test
+	public void testResultsRebuiltAfterEviction() {
+		myStorageSettings.setSearchResultMemoryCacheMaximumBytes(100000);
+		Search search = newSearch(1L, 0);
+
+		mySvc.storeResults(search, Collections.emptyList(), pids(1, 10), null, RequestPartitionId.allPartitions());
+		mySvc.invalidateAll();
+		mySvc.storeResults(search, pids(1, 10), pids(11, 15), null, RequestPartitionId.allPartitions());
+
+		assertEquals(pids(1, 15), mySvc.fetchAllResultPids(search, null, RequestPartitionId.allPartitions()));
+		verifyNoInteractions(mySearchResultDao);
+	}
+
+	@Test
+	public void testLargeSearchStoredInDatabase() {
+		// A single search may use 1/10 of the cache, which is enough for 4 PIDs
+		myStorageSettings.setSearchResultMemoryCacheMaximumBytes(1000);
+		Search search = newSearch(1L, 0);
+
+		mySvc.storeResults(search, Collections.emptyList(), pids(1, 4), null, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search, pids(1, 4), pids(5, 20), null, RequestPartitionId.allPartitions());
+		mySvc.storeResults(search, pids(1, 20), pids(21, 22), null, RequestPartitionId.allPartitions());
+
+		verify(mySearchResultDao, times(2)).saveAll(mySearchResultCaptor.capture());
+		List<SearchResult> spilled = mySearchResultCaptor.getAllValues().get(0);
+		assertEquals(20, spilled.size());
+		assertEquals(0, spilled.get(0).getOrder());
+		assertEquals(Long.valueOf(1), spilled.get(0).getResourcePid());
+		List<SearchResult> appended = mySearchResultCaptor.getAllValues().get(1);
+		assertEquals(2, appended.size());
+		assertEquals(20, appended.get(0).getOrder());
+	}
+
+	private static Search newSearch(long theId, int theNumFound) {
+		Search retVal = mock(Search.class, withSettings().lenient());
+		when(retVal.getId()).thenReturn(theId);
+		when(retVal.getNumFound()).thenReturn(theNumFound);
+		when(retVal.getUuid()).thenReturn("search-" + theId);
+		return retVal;
+	}
+
+	private static List<JpaPid> pids(long theFrom, long theTo) {
+		return LongStream
+			.rangeClosed(theFrom, theTo)
+			.mapToObj(JpaPid::fromId)
+			.collect(Collectors.toList());
+	}
+
+}
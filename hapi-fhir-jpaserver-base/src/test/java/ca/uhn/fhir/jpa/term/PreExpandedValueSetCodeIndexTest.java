@@ -0,0 +1,107 @@
+package ca.uhn.fhir.jpa.term;
+
+import ca.uhn.fhir.jpa.entity.TermValueSetConcept;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.hamcrest.Matchers.empty;
+import static org.hamcrest.Matchers.greaterThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class PreExpandedValueSetCodeIndexTest {
+
+	@Test
+	public void testFindBySystemAndCode() {
+		PreExpandedValueSetCodeIndex index = new PreExpandedValueSetCodeIndex.Builder(123L)
+			.add("http://a", null, "A1", "Display A1")
+			.add("http://a", null, "A2", null)
+			.add("http://b", "1", "A1", "Display B1 v1")
+			.add("http://b", "2", "A1", "Display B1 v2")
+			.build();
+
+		assertEquals(123L, index.getExpansionTimestamp());
+		assertEquals(4, index.size());
+		assertThat(index.getWeight(), greaterThan(PreExpandedValueSetCodeIndex.estimateMinimumWeight(4)));
+
+		List<TermValueSetConcept> outcome = index.findBySystemAndCode("http://a", null, "A1");
+		assertEquals(1, outcome.size());
+		assertEquals("http://a", outcome.get(0).getSystem());
+		assertNull(outcome.get(0).getSystemVersion());
+		assertEquals("A1", outcome.get(0).getCode());
+		assertEquals("Display A1", outcome.get(0).getDisplay());
+
+		assertNull(index.findBySystemAndCode("http://a", null, "A2").get(0).getDisplay());
+		assertThat(index.findBySystemAndCode("http://a", null, "A3"), empty());
+		assertThat(index.findBySystemAndCode("http://c", null, "A1"), empty());
+
+		assertThat(toDisplays(index.findBySystemAndCode("http://b", null, "A1")), contains("Display B1 v1", "Display B1 v2"));
+		assertThat(toDisplays(index.findBySystemAndCode("http://b", "2", "A1")), contains("Display B1 v2"));
+		assertThat(index.findBySystemAndCode("http://b", "3", "A1"), empty());
+	}
+
+	@Test
+	public void testFindByCode() {
+		PreExpandedValueSetCodeIndex index = new PreExpandedValueSetCodeIndex.Builder(0L)
+			.add("http://b", null, "A1", "Display B")
+			.add("http://a", null, "A1", "Display A")
+			.add("http://a", null, "A2", "Display A2")
+			.build();
+
+		// Results are returned in expansion order
+		assertThat(toDisplays(index.findByCode("A1")), contains("Display B", "Display A"));
+		assertThat(toDisplays(index.findByCode("A2")), contains("Display A2"));
+		assertThat(index.findByCode("A3"), empty());
+	}
+
+	@Test
+	public void testHashCollision() {
+		// "Aa" and "BB" have the same String#hashCode()
+		assertEquals("Aa".hashCode(), "BB".hashCode());
+
+		PreExpandedValueSetCodeIndex.Builder builder = new PreExpandedValueSetCodeIndex.Builder(0L);
+		for (int i = 0; i < 100; i++) {
+			builder.add("http://a", null, "code" + i, "Display " + i);
+		}
+		builder.add("http://a", null, "BB", "Display BB");
+		builder.add("http://a", null, "Aa", "Display Aa");
+		PreExpandedValueSetCodeIndex index = builder.build();
+
+		assertEquals(102, index.size());
+		assertThat(toDisplays(index.findBySystemAndCode("http://a", null, "Aa")), contains("Display Aa"));
+		assertThat(toDisplays(index.findBySystemAndCode("http://a", null, "BB")), contains("Display BB"));
+		assertThat(toDisplays(index.findByCode("code57")), contains("Display 57"));
+		assertThat(index.findByCode("C#"), empty());
+	}
+
+	@Test
+	public void testHasSystem() {
+		PreExpandedValueSetCodeIndex index = new PreExpandedValueSetCodeIndex.Builder(0L)
+			.add("http://a", "1", "A1", null)
+			.build();
+
+		assertTrue(index.hasSystem("http://a"));
+		assertFalse(index.hasSystem("http://b"));
+		assertFalse(index.hasSystem(null));
+	}
+
+	@Test
+	public void testEmpty() {
+		PreExpandedValueSetCodeIndex index = new PreExpandedValueSetCodeIndex.Builder(0L).build();
+
+		assertEquals(0, index.size());
+		assertThat(index.findByCode("A"), empty());
+		assertFalse(index.hasSystem("http://a"));
+	}
+
+	private static List<String> toDisplays(List<TermValueSetConcept> theConcepts) {
+		return theConcepts.stream().map(TermValueSetConcept::getDisplay).collect(Collectors.toList());
+	}
+
+}
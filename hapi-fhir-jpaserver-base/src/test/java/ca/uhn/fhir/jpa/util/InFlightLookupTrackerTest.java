@@ -0,0 +1,150 @@
+package ca.uhn.fhir.jpa.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.contains;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class InFlightLookupTrackerTest {
+
+	private final ExecutorService myExecutor = Executors.newSingleThreadExecutor();
+
+	@AfterEach
+	public void after() {
+		myExecutor.shutdownNow();
+	}
+
+	@Test
+	public void testLookupWithNoConcurrency() {
+		InFlightLookupTracker<String, Long> svc = new InFlightLookupTracker<>(1000);
+		List<Collection<String>> lookups = new ArrayList<>();
+
+		Map<String, Long> outcome = svc.lookup(List.of("A", "B", "A"), keys -> {
+			lookups.add(keys);
+			return Map.of("A", 1L);
+		});
+
+		assertTrue(outcome.isEmpty());
+		assertThat(lookups, contains(contains("A", "B")));
+		assertEquals(0, svc.getInFlightCount());
+	}
+
+	@Test
+	public void testConcurrentLookupOfSameKeyIsCoalesced() throws Exception {
+		InFlightLookupTracker<String, Long> svc = new InFlightLookupTracker<>(10000);
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch leaderMayFinish = new CountDownLatch(1);
+
+		Future<?> leader = myExecutor.submit(() -> svc.lookup(List.of("A", "B"), keys -> {
+			leaderStarted.countDown();
+			awaitUninterruptibly(leaderMayFinish);
+			return Map.of("A", 1L, "B", 2L);
+		}));
+		assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+		// Our own keys are looked up after registering to wait on the others, so we can
+		// let the leader finish from there
+		List<Collection<String>> followerLookups = new ArrayList<>();
+		Map<String, Long> outcome = svc.lookup(List.of("A", "B", "C"), keys -> {
+			followerLookups.add(keys);
+			leaderMayFinish.countDown();
+			return Map.of("C", 3L);
+		});
+		leader.get(10, TimeUnit.SECONDS);
+
+		assertEquals(Map.of("A", 1L, "B", 2L), outcome);
+		assertThat(followerLookups, contains(contains("C")));
+		assertEquals(0, svc.getInFlightCount());
+	}
+
+	@Test
+	public void testMissingKeyIsLookedUpAgain() throws Exception {
+		InFlightLookupTracker<String, Long> svc = new InFlightLookupTracker<>(10000);
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch leaderMayFinish = new CountDownLatch(1);
+
+		Future<?> leader = myExecutor.submit(() -> svc.lookup(List.of("A", "B"), keys -> {
+			leaderStarted.countDown();
+			awaitUninterruptibly(leaderMayFinish);
+			// B wasn't found, but it may have been created since
+			return Map.of("A", 1L);
+		}));
+		assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+		List<Collection<String>> followerLookups = new ArrayList<>();
+		Map<String, Long> outcome = svc.lookup(List.of("A", "B", "C"), keys -> {
+			followerLookups.add(keys);
+			leaderMayFinish.countDown();
+			return Map.of();
+		});
+		leader.get(10, TimeUnit.SECONDS);
+
+		assertEquals(Map.of("A", 1L), outcome);
+		assertThat(followerLookups, contains(contains("C"), contains("B")));
+	}
+
+	@Test
+	public void testTimeoutWaitingForOtherThread() throws Exception {
+		InFlightLookupTracker<String, Long> svc = new InFlightLookupTracker<>(100);
+		CountDownLatch leaderStarted = new CountDownLatch(1);
+		CountDownLatch leaderMayFinish = new CountDownLatch(1);
+
+		Future<?> leader = myExecutor.submit(() -> svc.lookup(List.of("A"), keys -> {
+			leaderStarted.countDown();
+			awaitUninterruptibly(leaderMayFinish);
+			return Map.of("A", 1L);
+		}));
+		assertTrue(leaderStarted.await(10, TimeUnit.SECONDS));
+
+		List<Collection<String>> followerLookups = new ArrayList<>();
+		Map<String, Long> outcome = svc.lookup(List.of("A"), keys -> {
+			followerLookups.add(keys);
+			return Map.of("A", 1L);
+		});
+		leaderMayFinish.countDown();
+		leader.get(10, TimeUnit.SECONDS);
+
+		assertTrue(outcome.isEmpty());
+		assertThat(followerLookups, contains(contains("A")));
+	}
+
+	@Test
+	public void testFailedLookupReleasesKeys() {
+		InFlightLookupTracker<String, Long> svc = new InFlightLookupTracker<>(1000);
+
+		assertThrows(IllegalStateException.class, () -> svc.lookup(List.of("A"), keys -> {
+			throw new IllegalStateException();
+		}));
+		assertEquals(0, svc.getInFlightCount());
+
+		List<Collection<String>> lookups = new ArrayList<>();
+		svc.lookup(List.of("A"), keys -> {
+			lookups.add(keys);
+			return Map.of();
+		});
+		assertThat(lookups, contains(contains("A")));
+	}
+
+	private static void awaitUninterruptibly(CountDownLatch theLatch) {
+		try {
+			theLatch.await(10, TimeUnit.SECONDS);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+}
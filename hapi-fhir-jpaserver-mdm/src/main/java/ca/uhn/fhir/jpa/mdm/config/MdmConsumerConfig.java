@@ -45,6 +45,7 @@ import ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateSearcher;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByEidSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByExampleSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.FindCandidateByLinkSvc;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmBlockingIndexSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchCriteriaBuilderSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmGoldenResourceFindingSvc;
@@ -196,6 +197,11 @@ public class MdmConsumerConfig {
 		return new MdmCandidateSearchSvc();
 	}
 
+	@Bean
+	MdmBlockingIndexSvc mdmBlockingIndexSvc() {
+		return new MdmBlockingIndexSvc();
+	}
+
 	@Bean
 	CandidateSearcher candidateSearcher(DaoRegistry theDaoRegistry, IMdmSettings theMdmSettings, MdmSearchParamSvc theMdmSearchParamSvc) {
 		return new CandidateSearcher(theDaoRegistry, theMdmSettings, theMdmSearchParamSvc);
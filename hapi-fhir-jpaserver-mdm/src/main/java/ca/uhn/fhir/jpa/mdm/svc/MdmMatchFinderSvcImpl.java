@@ -23,6 +23,7 @@ import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchSvc;
 import ca.uhn.fhir.mdm.api.IMdmMatchFinderSvc;
 import ca.uhn.fhir.mdm.api.MatchedTarget;
+import ca.uhn.fhir.mdm.api.MdmMatchOutcome;
 import ca.uhn.fhir.mdm.log.Logs;
 import ca.uhn.fhir.mdm.rules.svc.MdmResourceMatcherSvc;
 import org.hl7.fhir.instance.model.api.IAnyResource;
@@ -32,9 +33,8 @@ import org.springframework.stereotype.Service;
 
 import javax.annotation.Nonnull;
 import org.springframework.transaction.annotation.Transactional;
-import java.util.Collection;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateSearcher.idOrType;
 
@@ -52,11 +52,13 @@ public class MdmMatchFinderSvcImpl implements IMdmMatchFinderSvc {
 	@Nonnull
 	@Transactional
 	public List<MatchedTarget> getMatchedTargets(String theResourceType, IAnyResource theResource, RequestPartitionId theRequestPartitionId) {
-		Collection<IAnyResource> targetCandidates = myMdmCandidateSearchSvc.findCandidates(theResourceType, theResource, theRequestPartitionId);
+		List<IAnyResource> targetCandidates = new ArrayList<>(myMdmCandidateSearchSvc.findCandidates(theResourceType, theResource, theRequestPartitionId));
+		List<MdmMatchOutcome> outcomes = myMdmResourceMatcherSvc.getMatchResults(theResource, targetCandidates);
 
-		List<MatchedTarget> matches = targetCandidates.stream()
-			.map(candidate -> new MatchedTarget(candidate, myMdmResourceMatcherSvc.getMatchResult(theResource, candidate)))
-			.collect(Collectors.toList());
+		List<MatchedTarget> matches = new ArrayList<>(targetCandidates.size());
+		for (int i = 0; i < targetCandidates.size(); i++) {
+			matches.add(new MatchedTarget(targetCandidates.get(i), outcomes.get(i)));
+		}
 
 		ourLog.trace("Found {} matched targets for {}.", matches.size(), idOrType(theResource, theResourceType));
 		return matches;
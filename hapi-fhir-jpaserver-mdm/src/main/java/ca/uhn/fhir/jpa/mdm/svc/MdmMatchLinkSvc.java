@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.mdm.svc;
 
 import ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateList;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MatchedGoldenResourceCandidate;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmBlockingIndexSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmGoldenResourceFindingSvc;
 import ca.uhn.fhir.mdm.api.IMdmLinkSvc;
 import ca.uhn.fhir.mdm.api.MdmLinkSourceEnum;
@@ -59,6 +60,8 @@ public class MdmMatchLinkSvc {
 	private GoldenResourceHelper myGoldenResourceHelper;
 	@Autowired
 	private MdmEidUpdateService myEidUpdateService;
+	@Autowired
+	private MdmBlockingIndexSvc myMdmBlockingIndexSvc;
 
 	/**
 	 * Given an MDM source (consisting of any supported MDM type), find a suitable Golden Resource candidate for them,
@@ -71,6 +74,7 @@ public class MdmMatchLinkSvc {
 	 */
 	@Transactional
 	public MdmTransactionContext updateMdmLinksForMdmSource(IAnyResource theResource, MdmTransactionContext theMdmTransactionContext) {
+		myMdmBlockingIndexSvc.updateBlockingKeys(theResource);
 		if (MdmResourceUtil.isMdmAllowed(theResource)) {
 			return doMdmUpdate(theResource, theMdmTransactionContext);
 		} else {
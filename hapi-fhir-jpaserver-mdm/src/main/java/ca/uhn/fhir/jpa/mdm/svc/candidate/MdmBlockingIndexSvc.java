@@ -0,0 +1,269 @@
+/*-
+ * #%L
+ * HAPI FHIR JPA Server - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.mdm.svc.candidate;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.context.phonetic.IPhoneticEncoder;
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.dao.ISearchBuilder;
+import ca.uhn.fhir.jpa.model.entity.ResourceIndexedSearchParamString;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
+import ca.uhn.fhir.mdm.api.IMdmSettings;
+import ca.uhn.fhir.mdm.dao.IMdmBlockingKeyDao;
+import ca.uhn.fhir.mdm.log.Logs;
+import ca.uhn.fhir.mdm.model.MdmBlockingKeyHash;
+import ca.uhn.fhir.mdm.rules.json.MdmResourceSearchParamJson;
+import ca.uhn.fhir.mdm.svc.MdmSearchParamSvc;
+import ca.uhn.fhir.mdm.util.MdmResourceUtil;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import ca.uhn.fhir.util.PhoneticEncoderUtil;
+import ca.uhn.fhir.util.SearchParameterUtil;
+import ca.uhn.fhir.util.StringUtil;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+import org.apache.commons.collections4.ListUtils;
+import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.slf4j.Logger;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static ca.uhn.fhir.jpa.mdm.svc.candidate.CandidateSearcher.idOrType;
+import static ca.uhn.fhir.mdm.api.MdmConstants.ALL_RESOURCE_SEARCH_PARAM_TYPE;
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+import static org.apache.commons.lang3.StringUtils.left;
+import static org.apache.commons.lang3.StringUtils.substringAfter;
+
+/**
+ * Maintains the MDM blocking index and uses it to find candidates. This is only used if
+ * {@link IMdmSettings#isBlockingIndexEnabled()} is set.
+ * <p>
+ * Every value that a resource has for a search parameter in one of the <code>candidateSearchParams</code>
+ * gets a key (and a second key holding the phonetic encoding of the value if one is configured). Values of
+ * string search parameters are normalized the same way as they are for searching, and stored resources get
+ * a key for every prefix of the normalized value, so that (as with a search) a stored value matches if it
+ * starts with the value of the incoming resource. String search parameters with the <code>:exact</code>
+ * modifier use the exact value instead. A resource is a candidate for a given set of search parameters
+ * if it shares at least one key for every search parameter in that set which the incoming resource has a
+ * value for, which is the same as the AND/OR semantics of the candidate search.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+@Service
+public class MdmBlockingIndexSvc {
+
+	/**
+	 * The number of candidates loaded at a time
+	 */
+	static final int PAGE_SIZE = 500;
+	private static final Logger ourLog = Logs.getMdmTroubleshootingLog();
+
+	@Autowired
+	private IMdmSettings myMdmSettings;
+	@Autowired
+	private FhirContext myFhirContext;
+	@Autowired
+	private IIdHelperService myIdHelperService;
+	@Autowired
+	private IMdmBlockingKeyDao myMdmBlockingKeyDao;
+	@Autowired
+	private MdmSearchParamSvc myMdmSearchParamSvc;
+	@Autowired
+	private ISearchParamRegistry mySearchParamRegistry;
+	@Autowired
+	private InMemoryResourceMatcher myInMemoryResourceMatcher;
+
+	public boolean isEnabled() {
+		return myMdmSettings.isBlockingIndexEnabled();
+	}
+
+	/**
+	 * Replaces the blocking keys of the given resource with keys for its current values. Golden resources
+	 * and resources which are not allowed to participate in MDM don't get any keys. This does nothing if
+	 * the keys haven't changed, or if the blocking index is disabled.
+	 */
+	@SuppressWarnings("unchecked")
+	public void updateBlockingKeys(IAnyResource theResource) {
+		if (!isEnabled()) {
+			return;
+		}
+
+		IResourcePersistentId<?> pid = myIdHelperService.getPidOrNull(RequestPartitionId.allPartitions(), theResource);
+		if (pid == null) {
+			return;
+		}
+
+		Set<MdmBlockingKeyHash> keys = new HashSet<>();
+		if (MdmResourceUtil.isMdmAllowed(theResource) && !MdmResourceUtil.isGoldenRecord(theResource)) {
+			String resourceType = myFhirContext.getResourceType(theResource);
+			for (MdmResourceSearchParamJson next : myMdmSettings.getMdmRules().getCandidateSearchParams()) {
+				if (next.getResourceType().equals(resourceType) || next.getResourceType().equalsIgnoreCase(ALL_RESOURCE_SEARCH_PARAM_TYPE)) {
+					addKeys(resourceType, theResource, next, true, keys);
+				}
+			}
+		}
+
+		ourLog.debug("Updating {} blocking keys for {}", keys.size(), theResource.getIdElement().toUnqualifiedVersionless());
+		myMdmBlockingKeyDao.updateBlockingKeys(pid, keys);
+	}
+
+	/**
+	 * Finds the resources which match the given resource on the given candidate search parameters, and
+	 * which match the given filter criteria.
+	 *
+	 * @return The candidates, or <code>null</code> if the filter criteria or a search parameter modifier
+	 * can't be evaluated without a search, in which case the caller should search instead
+	 * @throws TooManyCandidatesException If there are at least {@link IMdmSettings#getCandidateSearchLimit()} candidates
+	 */
+	@SuppressWarnings({"unchecked", "rawtypes"})
+	@Nullable
+	public List<IAnyResource> findCandidates(String theResourceType, IAnyResource theResource, List<String> theFilterCriteria, @Nonnull MdmResourceSearchParamJson theResourceSearchParam, @Nullable RequestPartitionId theRequestPartitionId) {
+		String filterCriteria = null;
+		if (!theFilterCriteria.isEmpty()) {
+			filterCriteria = theResourceType + "?" + String.join("&", theFilterCriteria);
+			if (!myInMemoryResourceMatcher.canBeEvaluatedInMemory(filterCriteria).supported()) {
+				return null;
+			}
+		}
+
+		Set<MdmBlockingKeyHash> keys = new HashSet<>();
+		if (!addKeys(theResourceType, theResource, theResourceSearchParam, false, keys)) {
+			return null;
+		}
+		if (keys.isEmpty()) {
+			return Collections.emptyList();
+		}
+
+		Set<Long> keyHashes = keys.stream().map(MdmBlockingKeyHash::getKeyHash).collect(Collectors.toSet());
+		int paramCount = (int) keys.stream().map(MdmBlockingKeyHash::getParamHash).distinct().count();
+		int candidateSearchLimit = myMdmSettings.getCandidateSearchLimit();
+		List<IResourcePersistentId> pids = myMdmBlockingKeyDao.findCandidatePids(keyHashes, paramCount, theRequestPartitionId, candidateSearchLimit);
+		if (pids.size() >= candidateSearchLimit) {
+			throw new TooManyCandidatesException(Msg.code(2372) + "More than " + candidateSearchLimit + " candidate matches found in the blocking index for " + idOrType(theResource, theResourceType) + ".  Aborting mdm matching.");
+		}
+
+		ISearchBuilder searchBuilder = myMdmSearchParamSvc.generateSearchBuilderForType(theResourceType);
+		List<IAnyResource> retVal = new ArrayList<>(pids.size());
+		for (List<IResourcePersistentId> nextBatch : ListUtils.partition(pids, PAGE_SIZE)) {
+			List<IBaseResource> resources = new ArrayList<>(nextBatch.size());
+			searchBuilder.loadResourcesByPid(nextBatch, Collections.emptyList(), resources, false, null);
+			for (IBaseResource next : resources) {
+				if (filterCriteria == null || myInMemoryResourceMatcher.match(filterCriteria, next, null).matched()) {
+					retVal.add((IAnyResource) next);
+				}
+			}
+		}
+
+		ourLog.debug("Blocking index found {} {} candidates for {}", retVal.size(), theResourceType, idOrType(theResource, theResourceType));
+		return retVal;
+	}
+
+	/**
+	 * Adds a key for every value that the resource has for every search parameter in the given set. The
+	 * set is identified by its search parameter names rather than by its position in the rules, so that
+	 * reordering the rules doesn't invalidate the keys.
+	 *
+	 * @param theIndexPrefixes If <code>true</code>, keys are added for every prefix of normalized string values (used
+	 *                         when storing keys), otherwise only for the whole value (used when looking keys up)
+	 * @return <code>false</code> if a search parameter uses a modifier which the index can't evaluate
+	 */
+	private boolean addKeys(String theResourceType, IAnyResource theResource, MdmResourceSearchParamJson theResourceSearchParam, boolean theIndexPrefixes, Set<MdmBlockingKeyHash> theKeys) {
+		String setName = String.join(",", theResourceSearchParam.getSearchParams());
+		IPhoneticEncoder phoneticEncoder = getPhoneticEncoder();
+
+		for (String nextSearchParam : theResourceSearchParam.getSearchParams()) {
+			List<String> values = myMdmSearchParamSvc.getValueFromResourceForSearchParam(theResource, nextSearchParam);
+			if (values.isEmpty()) {
+				continue;
+			}
+
+			RuntimeSearchParam activeSearchParam = mySearchParamRegistry.getActiveSearchParam(theResourceType, SearchParameterUtil.stripModifier(nextSearchParam));
+			boolean isString = activeSearchParam != null && activeSearchParam.getParamType() == RestSearchParameterTypeEnum.STRING;
+			String modifier = substringAfter(nextSearchParam, ":");
+			boolean isExact = Constants.PARAMQUALIFIER_STRING_EXACT.equals(":" + modifier);
+			if (isString && isNotBlank(modifier) && !isExact) {
+				return false;
+			}
+
+			long paramHash = hash(theResourceType, setName, nextSearchParam);
+			String paramHashString = Long.toString(paramHash);
+			for (String nextValue : values) {
+				if (isString && isExact) {
+					theKeys.add(MdmBlockingKeyHash.of(paramHash, hash(paramHashString, "E", left(nextValue, ResourceIndexedSearchParamString.MAX_LENGTH))));
+				} else if (isString) {
+					String normalized = left(StringUtil.normalizeStringForSearchIndexing(nextValue), ResourceIndexedSearchParamString.MAX_LENGTH);
+					if (theIndexPrefixes) {
+						for (int i = 1; i <= normalized.length(); i++) {
+							theKeys.add(MdmBlockingKeyHash.of(paramHash, hash(paramHashString, "V", normalized.substring(0, i))));
+						}
+					} else if (!normalized.isEmpty()) {
+						theKeys.add(MdmBlockingKeyHash.of(paramHash, hash(paramHashString, "V", normalized)));
+					}
+					if (phoneticEncoder != null) {
+						String encoded = phoneticEncoder.encode(nextValue);
+						if (isNotBlank(encoded)) {
+							theKeys.add(MdmBlockingKeyHash.of(paramHash, hash(paramHashString, "P", encoded)));
+						}
+					}
+				} else {
+					theKeys.add(MdmBlockingKeyHash.of(paramHash, hash(paramHashString, "V", nextValue)));
+				}
+			}
+		}
+		return true;
+	}
+
+	@Nullable
+	private IPhoneticEncoder getPhoneticEncoder() {
+		PhoneticEncoderEnum encoder = myMdmSettings.getBlockingIndexPhoneticEncoder();
+		if (encoder == null) {
+			return null;
+		}
+		return PhoneticEncoderUtil.getEncoder(encoder.name());
+	}
+
+	private static long hash(String... theValues) {
+		Hasher hasher = Hashing.murmur3_128(0).newHasher();
+		for (String next : theValues) {
+			hasher.putString(next, StandardCharsets.UTF_8);
+			hasher.putByte((byte) 0);
+		}
+		return hasher.hash().asLong();
+	}
+
+}
@@ -59,6 +59,8 @@ public class MdmCandidateSearchSvc {
 	private MdmCandidateSearchCriteriaBuilderSvc myMdmCandidateSearchCriteriaBuilderSvc;
 	@Autowired
 	private CandidateSearcher myCandidateSearcher;
+	@Autowired
+	private MdmBlockingIndexSvc myMdmBlockingIndexSvc;
 
 	public MdmCandidateSearchSvc() {
 	}
@@ -120,6 +122,16 @@ public class MdmCandidateSearchSvc {
 	 */
 	@SuppressWarnings("rawtypes")
 	private void searchForIdsAndAddToMap(String theResourceType, IAnyResource theResource, Map<IResourcePersistentId, IAnyResource> theMatchedPidsToResources, List<String> theFilterCriteria, MdmResourceSearchParamJson resourceSearchParam, RequestPartitionId theRequestPartitionId) {
+		// If the blocking index is enabled, candidates are looked up by their blocking keys instead
+		if (resourceSearchParam != null && myMdmBlockingIndexSvc.isEnabled()) {
+			List<IAnyResource> candidates = myMdmBlockingIndexSvc.findCandidates(theResourceType, theResource, theFilterCriteria, resourceSearchParam, theRequestPartitionId);
+			if (candidates != null) {
+				candidates.forEach(resource -> theMatchedPidsToResources.put(myIdHelperService.getPidOrNull(RequestPartitionId.allPartitions(), resource), resource));
+				return;
+			}
+			ourLog.debug("Candidate filter criteria can not be evaluated in memory, searching for {} candidates instead", theResourceType);
+		}
+
 		//1.
 		Optional<String> oResourceCriteria = myMdmCandidateSearchCriteriaBuilderSvc.buildResourceQueryString(theResourceType, theResource, theFilterCriteria, resourceSearchParam);
 		if (!oResourceCriteria.isPresent()) {
@@ -1,7 +1,9 @@
 package ca.uhn.fhir.jpa.mdm.svc;
 
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.mdm.BaseMdmR4Test;
+import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmBlockingIndexSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.MdmCandidateSearchSvc;
 import ca.uhn.fhir.jpa.mdm.svc.candidate.TooManyCandidatesException;
 import ca.uhn.fhir.jpa.nickname.INicknameSvc;
@@ -22,6 +24,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Date;
+import java.util.List;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.collection.IsCollectionWithSize.hasSize;
@@ -33,6 +36,8 @@ public class MdmCandidateSearchSvcIT extends BaseMdmR4Test {
 	@Autowired
 	MdmCandidateSearchSvc myMdmCandidateSearchSvc;
 	@Autowired
+	MdmBlockingIndexSvc myMdmBlockingIndexSvc;
+	@Autowired
 	MdmSettings myMdmSettings;
 	@Autowired
 	MatchUrlService myMatchUrlService;
@@ -52,6 +57,9 @@ public class MdmCandidateSearchSvcIT extends BaseMdmR4Test {
 	@AfterEach
 	public void resetMdmSettings() {
 		myMdmSettings.setCandidateSearchLimit(MdmSettings.DEFAULT_CANDIDATE_SEARCH_LIMIT);
+		myMdmSettings.setBlockingIndexEnabled(false);
+		myMdmSettings.setBlockingIndexPhoneticEncoder(null);
+		getPractitionerCandidateSearchParams().replaceAll(t -> t.equals("given") ? "given:nickname" : t);
 		myInterceptorRegistry.unregisterInterceptor(myNicknameInterceptor);
 	}
 
@@ -153,6 +161,129 @@ public class MdmCandidateSearchSvcIT extends BaseMdmR4Test {
 		}
 	}
 
+	@Test
+	public void testFindCandidates_BlockingIndex() {
+		myMdmSettings.setBlockingIndexEnabled(true);
+
+		Patient jane = createPatientAndUpdateLinks(buildJanePatient());
+		// Not processed by MDM, so it has no blocking keys
+		createActivePatient();
+		// Doesn't match the candidate filter criteria
+		Patient inactiveJane = createPatientAndUpdateLinks(buildJanePatient());
+		inactiveJane.setActive(false);
+		updatePatientAndUpdateLinks(inactiveJane);
+
+		Patient newJane = buildJanePatient();
+		Collection<IAnyResource> result = runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Patient", newJane, RequestPartitionId.allPartitions()));
+		assertThat(result, hasSize(1));
+		assertEquals(jane.getIdElement().toUnqualifiedVersionless().getValue(), result.iterator().next().getIdElement().toUnqualifiedVersionless().getValue());
+
+		// Deleted resources aren't candidates
+		myPatientDao.delete(jane.getIdElement());
+		result = runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Patient", newJane, RequestPartitionId.allPartitions()));
+		assertThat(result, hasSize(0));
+	}
+
+	@Test
+	public void testFindCandidates_BlockingIndex_Phonetic() {
+		myMdmSettings.setBlockingIndexEnabled(true);
+		useCandidateSearchParamsWithoutNickname();
+
+		Practitioner practitioner = new Practitioner();
+		practitioner.getNameFirstRep().addGiven("Jane");
+		practitioner.getNameFirstRep().setFamily("Smith");
+		createPractitionerAndUpdateLinks(practitioner);
+
+		Practitioner exact = new Practitioner();
+		exact.getNameFirstRep().addGiven("JANE");
+		exact.getNameFirstRep().setFamily("smith");
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", exact, RequestPartitionId.allPartitions())), hasSize(1));
+
+		Practitioner soundsAlike = new Practitioner();
+		soundsAlike.getNameFirstRep().addGiven("Jayne");
+		soundsAlike.getNameFirstRep().setFamily("Smyth");
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", soundsAlike, RequestPartitionId.allPartitions())), hasSize(0));
+
+		// Phonetic keys are only stored for resources processed while an encoder is configured
+		myMdmSettings.setBlockingIndexPhoneticEncoder(PhoneticEncoderEnum.SOUNDEX);
+		runInTransaction(() -> myMdmBlockingIndexSvc.updateBlockingKeys(practitioner));
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", soundsAlike, RequestPartitionId.allPartitions())), hasSize(1));
+	}
+
+	@Test
+	public void testFindCandidates_BlockingIndex_Prefix() {
+		myMdmSettings.setBlockingIndexEnabled(true);
+		useCandidateSearchParamsWithoutNickname();
+
+		Practitioner practitioner = new Practitioner();
+		practitioner.getNameFirstRep().addGiven("Jonathan");
+		practitioner.getNameFirstRep().setFamily("Smith");
+		createPractitionerAndUpdateLinks(practitioner);
+
+		// String values match as a (normalized) prefix, the same as when searching
+		Practitioner prefix = new Practitioner();
+		prefix.getNameFirstRep().addGiven("jon");
+		prefix.getNameFirstRep().setFamily("Smith");
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", prefix, RequestPartitionId.allPartitions())), hasSize(1));
+
+		Practitioner longer = new Practitioner();
+		longer.getNameFirstRep().addGiven("Jonathanson");
+		longer.getNameFirstRep().setFamily("Smith");
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", longer, RequestPartitionId.allPartitions())), hasSize(0));
+	}
+
+	@Test
+	public void testFindCandidates_BlockingIndex_NicknameIsSearched() {
+		myMdmSettings.setBlockingIndexEnabled(true);
+
+		Practitioner formal = new Practitioner();
+		formal.getNameFirstRep().addGiven("William");
+		formal.getNameFirstRep().setFamily("Shatner");
+		createPractitionerAndUpdateLinks(formal);
+
+		// The blocking index can't evaluate the :nickname modifier, so this is searched for instead
+		Practitioner nick = new Practitioner();
+		nick.getNameFirstRep().addGiven("Bill");
+		nick.getNameFirstRep().setFamily("Shatner");
+		assertThat(runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Practitioner", nick, RequestPartitionId.allPartitions())), hasSize(1));
+	}
+
+	/**
+	 * The Practitioner candidate search params in the test rules use the <code>:nickname</code> modifier,
+	 * which the blocking index doesn't support
+	 */
+	private void useCandidateSearchParamsWithoutNickname() {
+		getPractitionerCandidateSearchParams().replaceAll(t -> t.equals("given:nickname") ? "given" : t);
+	}
+
+	private List<String> getPractitionerCandidateSearchParams() {
+		return myMdmSettings.getMdmRules().getCandidateSearchParams().stream()
+			.filter(t -> t.getResourceType().equals("Practitioner"))
+			.findFirst()
+			.orElseThrow()
+			.getSearchParams();
+	}
+
+	@Test
+	public void testTooManyMatches_BlockingIndex() {
+		myMdmSettings.setBlockingIndexEnabled(true);
+
+		Patient newJane = buildJanePatient();
+
+		createPatientAndUpdateLinks(buildJanePatient());
+		createPatientAndUpdateLinks(buildJanePatient());
+		createPatientAndUpdateLinks(buildJanePatient());
+		assertEquals(3, runInTransaction(() -> myMdmCandidateSearchSvc.findCandidates("Patient", newJane, RequestPartitionId.allPartitions()).size()));
+
+		myMdmSettings.setCandidateSearchLimit(3);
+		try {
+			myMdmCandidateSearchSvc.findCandidates("Patient", newJane, RequestPartitionId.allPartitions());
+			fail();
+		} catch (TooManyCandidatesException e) {
+			assertEquals("HAPI-2372: More than 3 candidate matches found in the blocking index for Patient.  Aborting mdm matching.", e.getMessage());
+		}
+	}
+
 	private Patient createActivePatient() {
 		Patient jane = buildJanePatient();
 		jane.setActive(true);
@@ -49,7 +49,14 @@ public enum ResourceEncodingEnum {
 	 * Externally stored resource - Resource text is a reference to an external storage location,
 	 * which will be stored in {@link ResourceHistoryTable#getResourceTextVc()}
 	 */
-	ESR;
+	ESR,
+
+	/**
+	 * Json encoded using the binary Smile format
+	 *
+	 * @since 6.8.0
+	 */
+	SMILE;
 
 	public IParser newParser(FhirContext theContext) {
 		return theContext.newJsonParser();
@@ -96,6 +96,9 @@ public class StorageSettings {
 	private boolean myMassIngestionMode;
 	private Integer myMaximumTransactionBundleSize = DEFAULT_MAXIMUM_TRANSACTION_BUNDLE_SIZE;
 	private boolean myNormalizeTerminologyForBulkExportJobs = false;
+	private boolean myBulkExportStreamToBinaryStorage = false;
+	private boolean myBulkExportBinaryStorageGzipEnabled = false;
+	private boolean mySearchParamPathCompilationEnabled = true;
 	private String myEmailFromAddress = "noreply@unknown.com";
 	private String myWebsocketContextPath = DEFAULT_WEBSOCKET_CONTEXT_PATH;
 	/**
@@ -389,6 +392,86 @@ public class StorageSettings {
 		myNormalizeTerminologyForBulkExportJobs = theNormalizeTerminologyForBulkExportJobs;
 	}
 
+	/**
+	 * If set to true, bulk export jobs encode the exported resources directly into the
+	 * configured binary storage service (see {@literal IBinaryStorageSvc}) as they are
+	 * fetched, instead of passing the encoded resources between job steps and building each
+	 * output Binary in memory. The resulting Binary resources reference the stored blob using
+	 * the externalized binary ID extension. This setting has no effect if no binary storage
+	 * service is configured. Default is <code>false</code>.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isBulkExportStreamToBinaryStorage() {
+		return myBulkExportStreamToBinaryStorage;
+	}
+
+	/**
+	 * If set to true, bulk export jobs encode the exported resources directly into the
+	 * configured binary storage service (see {@literal IBinaryStorageSvc}) as they are
+	 * fetched, instead of passing the encoded resources between job steps and building each
+	 * output Binary in memory. The resulting Binary resources reference the stored blob using
+	 * the externalized binary ID extension. This setting has no effect if no binary storage
+	 * service is configured. Default is <code>false</code>.
+	 *
+	 * @since 6.8.0
+	 */
+	public void setBulkExportStreamToBinaryStorage(boolean theBulkExportStreamToBinaryStorage) {
+		myBulkExportStreamToBinaryStorage = theBulkExportStreamToBinaryStorage;
+	}
+
+	/**
+	 * If set to true, and {@link #isBulkExportStreamToBinaryStorage() bulk export streaming}
+	 * is enabled, the NDJSON files written to binary storage are gzip compressed, and the
+	 * resulting Binary resources have a content type of <code>application/gzip</code>.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isBulkExportBinaryStorageGzipEnabled() {
+		return myBulkExportBinaryStorageGzipEnabled;
+	}
+
+	/**
+	 * If set to true, and {@link #isBulkExportStreamToBinaryStorage() bulk export streaming}
+	 * is enabled, the NDJSON files written to binary storage are gzip compressed, and the
+	 * resulting Binary resources have a content type of <code>application/gzip</code>.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 6.8.0
+	 */
+	public void setBulkExportBinaryStorageGzipEnabled(boolean theBulkExportBinaryStorageGzipEnabled) {
+		myBulkExportBinaryStorageGzipEnabled = theBulkExportBinaryStorageGzipEnabled;
+	}
+
+	/**
+	 * If set to true (default is <code>true</code>), search parameter paths which only navigate
+	 * child elements (optionally with simple <code>where</code>, <code>as</code> and <code>ofType</code>
+	 * filters) are evaluated using the model's element accessors instead of the FHIRPath engine, and
+	 * all of the search parameters of a resource type are extracted in a single traversal of the
+	 * resource. Other paths are always evaluated using FHIRPath. This is currently only supported
+	 * for FHIR R4.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isSearchParamPathCompilationEnabled() {
+		return mySearchParamPathCompilationEnabled;
+	}
+
+	/**
+	 * If set to true (default is <code>true</code>), search parameter paths which only navigate
+	 * child elements (optionally with simple <code>where</code>, <code>as</code> and <code>ofType</code>
+	 * filters) are evaluated using the model's element accessors instead of the FHIRPath engine, and
+	 * all of the search parameters of a resource type are extracted in a single traversal of the
+	 * resource. Other paths are always evaluated using FHIRPath. This is currently only supported
+	 * for FHIR R4.
+	 *
+	 * @since 6.8.0
+	 */
+	public void setSearchParamPathCompilationEnabled(boolean theSearchParamPathCompilationEnabled) {
+		mySearchParamPathCompilationEnabled = theSearchParamPathCompilationEnabled;
+	}
+
 	/**
 	 * This is an internal API and may change or disappear without notice
 	 *
@@ -41,6 +41,8 @@ import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.util.ISearchParamRegistry;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
 import ca.uhn.fhir.util.BundleUtil;
 import ca.uhn.fhir.util.FhirTerser;
 import ca.uhn.fhir.util.HapiExtensions;
@@ -81,10 +83,14 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.rest.api.RestSearchParameterTypeEnum.DATE;
@@ -158,6 +164,9 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 	private BaseRuntimeChildDefinition myPatientCommunicationLanguageValueChild;
 	private BaseRuntimeChildDefinition myCodeableReferenceConcept;
 	private BaseRuntimeChildDefinition myCodeableReferenceReference;
+	private Cache<String, Optional<CompiledSearchParamPath>> myCompiledPaths;
+	private final Map<String, SearchParamExtractionPlan> myExtractionPlans = new ConcurrentHashMap<>();
+	private final ThreadLocal<SharedTraversal> mySharedTraversal = new ThreadLocal<>();
 
 	/**
 	 * Constructor
@@ -830,6 +839,15 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 				}
 
 				nextPath = trim(nextPath);
+				SharedTraversal sharedTraversal = mySharedTraversal.get();
+				if (sharedTraversal != null && sharedTraversal.myResource == theResource) {
+					allValues = sharedTraversal.getValues(nextPath);
+					if (allValues != null) {
+						values.addAll(allValues);
+						continue;
+					}
+				}
+
 				IValueExtractor allValuesFunc = getPathValueExtractor(theResource, nextPath);
 				try {
 					allValues = allValuesFunc.get();
@@ -854,6 +872,84 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 		return values;
 	}
 
+	/**
+	 * Evaluates the paths of all of the search parameters of the given resource in a single traversal
+	 * (the first time values are extracted from it) if {@link #isPathCompilationSupported() path
+	 * compilation} is supported and enabled. Nested calls just run the task.
+	 */
+	@Override
+	public <T> T withSharedTraversal(IBaseResource theResource, Supplier<T> theTask) {
+		if (mySharedTraversal.get() != null || getCompiledPathCache() == null) {
+			return theTask.get();
+		}
+
+		mySharedTraversal.set(new SharedTraversal(theResource));
+		try {
+			return theTask.get();
+		} finally {
+			mySharedTraversal.remove();
+		}
+	}
+
+	/**
+	 * Subclasses should return <code>true</code> if paths compiled by {@link CompiledSearchParamPath}
+	 * return the same values as their FHIRPath engine
+	 */
+	protected boolean isPathCompilationSupported() {
+		return false;
+	}
+
+	/**
+	 * Returns the given single path compiled into element accessors, or <code>null</code> if the path
+	 * can't be compiled (in which case it should be evaluated using FHIRPath) or if path compilation
+	 * is not supported or enabled.
+	 */
+	@Nullable
+	protected CompiledSearchParamPath getCompiledPath(String theSinglePath) {
+		Cache<String, Optional<CompiledSearchParamPath>> compiledPaths = getCompiledPathCache();
+		if (compiledPaths == null) {
+			return null;
+		}
+		return compiledPaths.get(theSinglePath, t -> Optional.ofNullable(CompiledSearchParamPath.compile(getContext(), t))).orElse(null);
+	}
+
+	@Nullable
+	private Cache<String, Optional<CompiledSearchParamPath>> getCompiledPathCache() {
+		if (!isPathCompilationSupported() || !myStorageSettings.isSearchParamPathCompilationEnabled()) {
+			return null;
+		}
+		return myCompiledPaths;
+	}
+
+	/**
+	 * Returns the extraction plan for the current search parameters of the given resource's type,
+	 * building a new one if the search parameters have changed
+	 */
+	@Nonnull
+	private SearchParamExtractionPlan getExtractionPlan(IBaseResource theResource) {
+		String resourceType = getContext().getResourceType(theResource);
+		Collection<RuntimeSearchParam> searchParams = getSearchParams(theResource);
+		SearchParamExtractionPlan retVal = myExtractionPlans.get(resourceType);
+		if (retVal == null || !retVal.isBuiltFrom(searchParams)) {
+			List<CompiledSearchParamPath> compiledPaths = new ArrayList<>();
+			for (RuntimeSearchParam nextSearchParam : searchParams) {
+				if (nextSearchParam.getParamType() == REFERENCE || RuntimeSearchParamHelper.isResourceLevel(nextSearchParam) || isBlank(nextSearchParam.getPath())) {
+					continue;
+				}
+				for (String nextPath : split(nextSearchParam.getPath())) {
+					CompiledSearchParamPath compiledPath = getCompiledPath(trim(nextPath));
+					if (compiledPath != null && compiledPath.getResourceType().equals(resourceType)) {
+						compiledPaths.add(compiledPath);
+					}
+				}
+			}
+			retVal = new SearchParamExtractionPlan(searchParams, compiledPaths);
+			ourLog.debug("Built search parameter extraction plan for {} with {} compiled paths", resourceType, retVal.size());
+			myExtractionPlans.put(resourceType, retVal);
+		}
+		return retVal;
+	}
+
 	protected FhirContext getContext() {
 		return myContext;
 	}
@@ -1567,6 +1663,7 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 
 	@PostConstruct
 	public void start() {
+		myCompiledPaths = CacheFactory.build(TimeUnit.MINUTES.toMillis(10));
 		myIgnoredForSearchDatatypes = new HashSet<>();
 		addIgnoredType(getContext(), "Annotation", myIgnoredForSearchDatatypes);
 		addIgnoredType(getContext(), "Attachment", myIgnoredForSearchDatatypes);
@@ -1705,6 +1802,38 @@ public abstract class BaseSearchParamExtractor implements ISearchParamExtractor
 		return null;
 	}
 
+	/**
+	 * The values of the compiled search parameter paths of a single resource, which are evaluated
+	 * the first time one of them is needed
+	 */
+	private class SharedTraversal {
+
+		private final IBaseResource myResource;
+		private SearchParamExtractionPlan myPlan;
+		private Map<String, List<IBase>> myValues;
+
+		private SharedTraversal(IBaseResource theResource) {
+			myResource = theResource;
+		}
+
+		/**
+		 * @return The values of the given path, or <code>null</code> if the path isn't in the plan
+		 */
+		@Nullable
+		List<IBase> getValues(String thePath) {
+			if (myPlan == null) {
+				myPlan = getExtractionPlan(myResource);
+			}
+			if (!myPlan.contains(thePath)) {
+				return null;
+			}
+			if (myValues == null) {
+				myValues = myPlan.evaluate(myResource);
+			}
+			return myValues.getOrDefault(thePath, Collections.emptyList());
+		}
+	}
+
 	@FunctionalInterface
 	public interface IValueExtractor {
 
@@ -0,0 +1,475 @@
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+import ca.uhn.fhir.context.BaseRuntimeChildDatatypeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeChildDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.BaseRuntimeElementDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeChildChoiceDefinition;
+import ca.uhn.fhir.context.RuntimeChildResourceBlockDefinition;
+import ca.uhn.fhir.context.RuntimeChildResourceDefinition;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * A search parameter path which has been compiled into a chain of {@link BaseRuntimeChildDefinition}
+ * accessors, so that it can be evaluated without the FHIRPath engine.
+ * <p>
+ * Only a small subset of FHIRPath is supported: a resource type followed by child names (including
+ * choice elements such as <code>Observation.value</code>), <code>where(child='literal')</code> on a
+ * string or code child, <code>(path as Type)</code> and <code>ofType(Type)</code> with a composite
+ * type. These cover most of the built-in search parameters. {@link #compile(FhirContext, String)}
+ * returns <code>null</code> for anything else, in which case the path is evaluated using FHIRPath
+ * as before. A compiled path returns the same elements, in the same order, as the FHIRPath engine
+ * in R4 (where <code>as</code> compares type names ignoring case, and doesn't require a single
+ * input).
+ * </p>
+ *
+ * @since 6.8.0
+ */
+class CompiledSearchParamPath {
+
+	private static final Pattern CHILD_NAME = Pattern.compile("[a-z][A-Za-z0-9]*");
+	private static final Pattern WHERE_EQUALS = Pattern.compile("where\\(\\s*([a-z][A-Za-z0-9]*)\\s*=\\s*'([^'\\\\]*)'\\s*\\)");
+	private static final Pattern OF_TYPE = Pattern.compile("ofType\\(\\s*([A-Za-z][A-Za-z0-9]*)\\s*\\)");
+	private static final Pattern AS_OPERATOR = Pattern.compile("(.+)\\s+as\\s+([A-Za-z][A-Za-z0-9]*)");
+	private static final Set<String> UNSUPPORTED_CHILD_NAMES = Set.of("id", "extension", "modifierExtension", "contained");
+	private static final Set<String> WHERE_PRIMITIVE_TYPES = Set.of("string", "code", "uri");
+
+	private final String myPath;
+	private final String myResourceType;
+	private final List<IStep> mySteps;
+
+	private CompiledSearchParamPath(String thePath, String theResourceType, List<IStep> theSteps) {
+		myPath = thePath;
+		myResourceType = theResourceType;
+		mySteps = theSteps;
+	}
+
+	String getPath() {
+		return myPath;
+	}
+
+	String getResourceType() {
+		return myResourceType;
+	}
+
+	List<IStep> getSteps() {
+		return mySteps;
+	}
+
+	/**
+	 * Returns the values of this path for the given resource
+	 */
+	@Nonnull
+	List<IBase> evaluate(IBase theResource) {
+		if (!myResourceType.equals(theResource.fhirType())) {
+			return Collections.emptyList();
+		}
+
+		List<IBase> focus = Collections.singletonList(theResource);
+		for (IStep nextStep : mySteps) {
+			List<IBase> next = new ArrayList<>();
+			for (IBase nextFocus : focus) {
+				nextStep.apply(nextFocus, next);
+			}
+			if (next.isEmpty()) {
+				return next;
+			}
+			focus = next;
+		}
+		return focus;
+	}
+
+	/**
+	 * Compiles a single search parameter path (i.e. a path which doesn't contain a union)
+	 *
+	 * @return The compiled path, or <code>null</code> if the path uses anything which can't be compiled
+	 */
+	@Nullable
+	static CompiledSearchParamPath compile(FhirContext theContext, String thePath) {
+		String path = thePath.trim();
+
+		String asType = null;
+		String afterAs = null;
+		if (path.startsWith("(")) {
+			int close = findClosingParen(path);
+			if (close == -1) {
+				return null;
+			}
+			Matcher asMatcher = AS_OPERATOR.matcher(path.substring(1, close).trim());
+			if (!asMatcher.matches()) {
+				return null;
+			}
+			asType = asMatcher.group(2);
+			afterAs = path.substring(close + 1).trim();
+			path = asMatcher.group(1).trim();
+			if (!afterAs.isEmpty() && !afterAs.startsWith(".")) {
+				return null;
+			}
+		} else {
+			Matcher asMatcher = AS_OPERATOR.matcher(path);
+			if (asMatcher.matches()) {
+				asType = asMatcher.group(2);
+				path = asMatcher.group(1).trim();
+			}
+		}
+
+		List<String> segments = splitSegments(path);
+		if (segments == null || segments.isEmpty() || !theContext.getResourceTypes().contains(segments.get(0))) {
+			return null;
+		}
+
+		String resourceType = segments.get(0);
+		Compiler compiler = new Compiler(theContext, theContext.getResourceDefinition(resourceType));
+		if (!compiler.addSegments(segments.subList(1, segments.size()))) {
+			return null;
+		}
+
+		if (asType != null) {
+			if (!compiler.addAs(asType)) {
+				return null;
+			}
+			if (afterAs != null && !afterAs.isEmpty()) {
+				List<String> afterSegments = splitSegments(afterAs.substring(1));
+				if (afterSegments == null || !compiler.addSegments(afterSegments)) {
+					return null;
+				}
+			}
+		}
+
+		return new CompiledSearchParamPath(thePath.trim(), resourceType, compiler.mySteps);
+	}
+
+	/**
+	 * Splits a path on the dots which aren't within parentheses or quotes
+	 */
+	@Nullable
+	private static List<String> splitSegments(String thePath) {
+		List<String> retVal = new ArrayList<>();
+		int depth = 0;
+		boolean inQuote = false;
+		int start = 0;
+		for (int i = 0; i < thePath.length(); i++) {
+			char next = thePath.charAt(i);
+			if (inQuote) {
+				if (next == '\'') {
+					inQuote = false;
+				}
+			} else if (next == '\'') {
+				inQuote = true;
+			} else if (next == '(') {
+				depth++;
+			} else if (next == ')') {
+				depth--;
+			} else if (next == '.' && depth == 0) {
+				retVal.add(thePath.substring(start, i).trim());
+				start = i + 1;
+			}
+		}
+		if (depth != 0 || inQuote) {
+			return null;
+		}
+		retVal.add(thePath.substring(start).trim());
+		return retVal;
+	}
+
+	private static int findClosingParen(String thePath) {
+		int depth = 0;
+		boolean inQuote = false;
+		for (int i = 0; i < thePath.length(); i++) {
+			char next = thePath.charAt(i);
+			if (inQuote) {
+				if (next == '\'') {
+					inQuote = false;
+				}
+			} else if (next == '\'') {
+				inQuote = true;
+			} else if (next == '(') {
+				depth++;
+			} else if (next == ')') {
+				depth--;
+				if (depth == 0) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Tracks the type of the current focus while the steps are being added. The type
+	 * is <code>null</code> after a choice element, until a type filter is applied.
+	 */
+	private static class Compiler {
+
+		private final FhirContext myContext;
+		private final List<IStep> mySteps = new ArrayList<>();
+		private BaseRuntimeElementDefinition<?> myFocusDefinition;
+
+		Compiler(FhirContext theContext, RuntimeResourceDefinition theResourceDefinition) {
+			myContext = theContext;
+			myFocusDefinition = theResourceDefinition;
+		}
+
+		boolean addSegments(List<String> theSegments) {
+			for (String next : theSegments) {
+				if (!addSegment(next)) {
+					return false;
+				}
+			}
+			return true;
+		}
+
+		private boolean addSegment(String theSegment) {
+			if (CHILD_NAME.matcher(theSegment).matches()) {
+				return addChild(theSegment);
+			}
+
+			Matcher whereMatcher = WHERE_EQUALS.matcher(theSegment);
+			if (whereMatcher.matches()) {
+				return addWhereEquals(whereMatcher.group(1), whereMatcher.group(2));
+			}
+
+			Matcher ofTypeMatcher = OF_TYPE.matcher(theSegment);
+			if (ofTypeMatcher.matches()) {
+				return addOfType(ofTypeMatcher.group(1));
+			}
+
+			return false;
+		}
+
+		private boolean addChild(String theName) {
+			BaseRuntimeChildDefinition child = getChild(theName);
+			if (child == null) {
+				return false;
+			}
+
+			BaseRuntimeElementDefinition<?> childDefinition = null;
+			if (!(child instanceof RuntimeChildChoiceDefinition)) {
+				childDefinition = child.getChildByName(theName);
+				if (childDefinition == null || childDefinition instanceof RuntimeResourceDefinition) {
+					return false;
+				}
+			}
+
+			mySteps.add(new ChildStep(child));
+			myFocusDefinition = childDefinition;
+			return true;
+		}
+
+		private boolean addWhereEquals(String theName, String theLiteral) {
+			BaseRuntimeChildDefinition child = getChild(theName);
+			if (child == null || child instanceof RuntimeChildChoiceDefinition) {
+				return false;
+			}
+			BaseRuntimeElementDefinition<?> childDefinition = child.getChildByName(theName);
+			if (childDefinition == null || !WHERE_PRIMITIVE_TYPES.contains(childDefinition.getName())) {
+				return false;
+			}
+
+			mySteps.add(new WhereEqualsStep(child, theLiteral));
+			return true;
+		}
+
+		boolean addAs(String theType) {
+			BaseRuntimeElementDefinition<?> typeDefinition = myContext.getElementDefinition(theType);
+			if (typeDefinition == null || typeDefinition instanceof RuntimeResourceDefinition) {
+				return false;
+			}
+
+			mySteps.add(new AsStep(theType));
+			myFocusDefinition = typeDefinition;
+			return true;
+		}
+
+		/**
+		 * <code>ofType</code> also matches subtypes. The Java class hierarchy only matches the
+		 * FHIR type hierarchy for composite types, so primitive types aren't compiled.
+		 */
+		private boolean addOfType(String theType) {
+			BaseRuntimeElementDefinition<?> typeDefinition = myContext.getElementDefinition(theType);
+			if (!(typeDefinition instanceof BaseRuntimeElementCompositeDefinition) || typeDefinition instanceof RuntimeResourceDefinition || !typeDefinition.getName().equals(theType)) {
+				return false;
+			}
+
+			mySteps.add(new OfTypeStep(theType, typeDefinition.getImplementingClass()));
+			myFocusDefinition = typeDefinition;
+			return true;
+		}
+
+		/**
+		 * Returns the child with the given name, or with the given name as a choice element. Child
+		 * names which refer to a single type of a choice element (e.g. <code>valueQuantity</code>)
+		 * aren't supported by FHIRPath, and neither are extensions or contained resources.
+		 */
+		@Nullable
+		private BaseRuntimeChildDefinition getChild(String theName) {
+			if (!(myFocusDefinition instanceof BaseRuntimeElementCompositeDefinition) || UNSUPPORTED_CHILD_NAMES.contains(theName)) {
+				return null;
+			}
+
+			BaseRuntimeElementCompositeDefinition<?> focusDefinition = (BaseRuntimeElementCompositeDefinition<?>) myFocusDefinition;
+			BaseRuntimeChildDefinition retVal = focusDefinition.getChildByName(theName);
+			if (retVal == null) {
+				retVal = focusDefinition.getChildByName(theName + "[x]");
+				return retVal instanceof RuntimeChildChoiceDefinition ? retVal : null;
+			}
+
+			if (retVal instanceof RuntimeChildChoiceDefinition || !theName.equals(retVal.getElementName())) {
+				return null;
+			}
+			if (retVal instanceof BaseRuntimeChildDatatypeDefinition || retVal instanceof RuntimeChildResourceBlockDefinition || retVal instanceof RuntimeChildResourceDefinition) {
+				return retVal;
+			}
+			return null;
+		}
+	}
+
+	interface IStep {
+
+		/**
+		 * Adds the values this step produces for the given focus element to the given list
+		 */
+		void apply(IBase theFocus, List<IBase> theValues);
+
+		/**
+		 * Steps with the same key produce the same values, so they can be shared between paths
+		 */
+		String getKey();
+
+	}
+
+	private static class ChildStep implements IStep {
+
+		private final BaseRuntimeChildDefinition myChild;
+		private final String myKey;
+
+		ChildStep(BaseRuntimeChildDefinition theChild) {
+			myChild = theChild;
+			myKey = theChild.getElementName();
+		}
+
+		@Override
+		public void apply(IBase theFocus, List<IBase> theValues) {
+			for (IBase next : myChild.getAccessor().getValues(theFocus)) {
+				if (next != null) {
+					theValues.add(next);
+				}
+			}
+		}
+
+		@Override
+		public String getKey() {
+			return myKey;
+		}
+	}
+
+	/**
+	 * FHIRPath equality between a single primitive and a string literal compares the
+	 * primitive value, and is false if the child doesn't have exactly one value
+	 */
+	private static class WhereEqualsStep implements IStep {
+
+		private final BaseRuntimeChildDefinition myChild;
+		private final String myLiteral;
+		private final String myKey;
+
+		WhereEqualsStep(BaseRuntimeChildDefinition theChild, String theLiteral) {
+			myChild = theChild;
+			myLiteral = theLiteral;
+			myKey = "where(" + theChild.getElementName() + "='" + theLiteral + "')";
+		}
+
+		@Override
+		public void apply(IBase theFocus, List<IBase> theValues) {
+			List<IBase> childValues = myChild.getAccessor().getValues(theFocus);
+			if (childValues.size() == 1 && childValues.get(0) instanceof IPrimitiveType) {
+				if (myLiteral.equals(((IPrimitiveType<?>) childValues.get(0)).getValueAsString())) {
+					theValues.add(theFocus);
+				}
+			}
+		}
+
+		@Override
+		public String getKey() {
+			return myKey;
+		}
+	}
+
+	private static class AsStep implements IStep {
+
+		private final String myType;
+		private final String myKey;
+
+		AsStep(String theType) {
+			myType = theType;
+			myKey = "as(" + theType + ")";
+		}
+
+		@Override
+		public void apply(IBase theFocus, List<IBase> theValues) {
+			if (myType.equalsIgnoreCase(theFocus.fhirType())) {
+				theValues.add(theFocus);
+			}
+		}
+
+		@Override
+		public String getKey() {
+			return myKey;
+		}
+	}
+
+	private static class OfTypeStep implements IStep {
+
+		private final Class<?> myType;
+		private final String myKey;
+
+		OfTypeStep(String theType, Class<?> theImplementingClass) {
+			myType = theImplementingClass;
+			myKey = "ofType(" + theType + ")";
+		}
+
+		@Override
+		public void apply(IBase theFocus, List<IBase> theValues) {
+			if (myType.isInstance(theFocus)) {
+				theValues.add(theFocus);
+			}
+		}
+
+		@Override
+		public String getKey() {
+			return myKey;
+		}
+	}
+
+}
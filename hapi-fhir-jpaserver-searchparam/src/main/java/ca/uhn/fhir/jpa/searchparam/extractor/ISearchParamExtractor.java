@@ -31,6 +31,7 @@ import java.util.Collections;
 import java.util.Date;
 import java.util.HashSet;
 import java.util.List;
+import java.util.function.Supplier;
 
 public interface ISearchParamExtractor {
 
@@ -125,6 +126,17 @@ public interface ISearchParamExtractor {
 
 	BaseSearchParamExtractor.IValueExtractor getPathValueExtractor(IBase theResource, String theSinglePath);
 
+	/**
+	 * Runs the given task, allowing the extractor to evaluate the paths of all of the search
+	 * parameters of the given resource in a single traversal when the task extracts values from it,
+	 * instead of evaluating each path separately. The default implementation just runs the task.
+	 *
+	 * @since 6.8.0
+	 */
+	default <T> T withSharedTraversal(IBaseResource theResource, Supplier<T> theTask) {
+		return theTask.get();
+	}
+
 	List<IBase> getCodingsFromCodeableConcept(IBase theValue);
 
 	String getDisplayTextFromCodeableConcept(IBase theValue);
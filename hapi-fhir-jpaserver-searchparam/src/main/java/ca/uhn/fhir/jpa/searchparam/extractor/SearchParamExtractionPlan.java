@@ -0,0 +1,133 @@
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import org.hl7.fhir.instance.model.api.IBase;
+
+import javax.annotation.Nonnull;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * The compiled paths of all of the search parameters for one resource type, merged into a tree
+ * so that the steps which paths have in common (e.g. <code>Patient.name</code> in
+ * <code>Patient.name.family</code> and <code>Patient.name.given</code>) are only evaluated once,
+ * and a resource can be indexed in a single traversal.
+ *
+ * @since 6.8.0
+ */
+class SearchParamExtractionPlan {
+
+	private final List<RuntimeSearchParam> mySearchParams;
+	private final Set<String> myPaths;
+	private final Node myRoot = new Node(null);
+
+	/**
+	 * @param theSearchParams The search parameters the plan was built from, which are used to detect
+	 *                        when the plan needs to be rebuilt
+	 * @param thePaths        The compiled paths of those search parameters
+	 */
+	SearchParamExtractionPlan(Collection<RuntimeSearchParam> theSearchParams, Collection<CompiledSearchParamPath> thePaths) {
+		mySearchParams = new ArrayList<>(theSearchParams);
+		myPaths = new HashSet<>();
+		for (CompiledSearchParamPath nextPath : thePaths) {
+			if (!myPaths.add(nextPath.getPath())) {
+				continue;
+			}
+			Node node = myRoot;
+			for (CompiledSearchParamPath.IStep nextStep : nextPath.getSteps()) {
+				node = node.myChildren.computeIfAbsent(nextStep.getKey(), t -> new Node(nextStep));
+			}
+			node.myPaths.add(nextPath.getPath());
+		}
+	}
+
+	/**
+	 * The search parameter registry creates new {@link RuntimeSearchParam} instances when it is
+	 * refreshed, so comparing the instances is enough to tell whether they have changed
+	 */
+	boolean isBuiltFrom(Collection<RuntimeSearchParam> theSearchParams) {
+		if (theSearchParams.size() != mySearchParams.size()) {
+			return false;
+		}
+		int index = 0;
+		for (RuntimeSearchParam next : theSearchParams) {
+			if (next != mySearchParams.get(index++)) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	boolean contains(String thePath) {
+		return myPaths.contains(thePath);
+	}
+
+	int size() {
+		return myPaths.size();
+	}
+
+	/**
+	 * Evaluates every path in the plan against the given resource, which must be of the resource
+	 * type the plan was built for. Paths which have no values are not included in the returned map.
+	 */
+	@Nonnull
+	Map<String, List<IBase>> evaluate(IBase theResource) {
+		Map<String, List<IBase>> retVal = new HashMap<>();
+		evaluate(myRoot, Collections.singletonList(theResource), retVal);
+		return retVal;
+	}
+
+	private void evaluate(Node theNode, List<IBase> theFocus, Map<String, List<IBase>> theValues) {
+		for (Node nextChild : theNode.myChildren.values()) {
+			List<IBase> next = new ArrayList<>();
+			for (IBase nextFocus : theFocus) {
+				nextChild.myStep.apply(nextFocus, next);
+			}
+			if (next.isEmpty()) {
+				continue;
+			}
+			for (String nextPath : nextChild.myPaths) {
+				theValues.put(nextPath, next);
+			}
+			evaluate(nextChild, next, theValues);
+		}
+	}
+
+	private static class Node {
+
+		private final CompiledSearchParamPath.IStep myStep;
+		private final Map<String, Node> myChildren = new LinkedHashMap<>();
+		private final List<String> myPaths = new ArrayList<>(1);
+
+		Node(CompiledSearchParamPath.IStep theStep) {
+			myStep = theStep;
+		}
+	}
+
+}
@@ -72,12 +72,25 @@ public class SearchParamExtractorR4 extends BaseSearchParamExtractor implements
 
 	@Override
 	public IValueExtractor getPathValueExtractor(IBase theResource, String theSinglePath) {
+		CompiledSearchParamPath compiledPath = getCompiledPath(theSinglePath);
+		if (compiledPath != null) {
+			return () -> compiledPath.evaluate(theResource);
+		}
+
 		return () -> {
 			ExpressionNode parsed = myParsedFhirPathCache.get(theSinglePath, path -> myFhirPathEngine.parse(path));
 			return myFhirPathEngine.evaluate(theResource, (Base) theResource, (Base) theResource, (Base) theResource, parsed);
 		};
 	}
 
+	/**
+	 * The R4 FHIRPath engine compares type names ignoring case in the <code>as</code> operator,
+	 * which is what {@link CompiledSearchParamPath} does
+	 */
+	@Override
+	protected boolean isPathCompilationSupported() {
+		return true;
+	}
 
 	@Override
 	@PostConstruct
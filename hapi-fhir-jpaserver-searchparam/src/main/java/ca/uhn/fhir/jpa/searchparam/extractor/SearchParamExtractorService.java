@@ -73,10 +73,12 @@ import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static org.apache.commons.lang3.StringUtils.isBlank;
@@ -84,6 +86,11 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class SearchParamExtractorService {
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(SearchParamExtractorService.class);
+	/**
+	 * Transaction user data key for an {@link IdentityHashMap} of resource to
+	 * {@link PreExtractedSearchIndexParameters}
+	 */
+	public static final String XACT_USERDATA_KEY_PRE_EXTRACTED_PARAMS = SearchParamExtractorService.class.getName() + "_PRE_EXTRACTED_PARAMS";
 	@Autowired
 	private ISearchParamExtractor mySearchParamExtractor;
 	@Autowired
@@ -117,8 +124,14 @@ public class SearchParamExtractorService {
 	 */
 	public void extractFromResource(RequestPartitionId theRequestPartitionId, RequestDetails theRequestDetails, ResourceIndexedSearchParams theNewParams, ResourceIndexedSearchParams theExistingParams, ResourceTable theEntity, IBaseResource theResource, TransactionDetails theTransactionDetails, boolean theFailOnInvalidReference, @Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter) {
 		// All search parameter types except Reference
-		ResourceIndexedSearchParams normalParams = new ResourceIndexedSearchParams();
-		extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		ResourceIndexedSearchParams normalParams = null;
+		if (theSearchParamFilter == ISearchParamExtractor.ALL_PARAMS) {
+			normalParams = takePreExtractedSearchIndexParameters(theRequestDetails, theTransactionDetails, theResource);
+		}
+		if (normalParams == null) {
+			normalParams = new ResourceIndexedSearchParams();
+			extractSearchIndexParameters(theRequestDetails, normalParams, theResource, theSearchParamFilter);
+		}
 		mergeParams(normalParams, theNewParams);
 
 		boolean indexOnContainedResources = myStorageSettings.isIndexOnContainedResources();
@@ -176,6 +189,62 @@ public class SearchParamExtractorService {
 		theNewParams.setUpdatedTime(theTransactionDetails.getTransactionDate());
 	}
 
+	/**
+	 * Extracts the indexes for all search parameter types except Reference from the given resource.
+	 * This does not access the database or invoke any interceptors, so unlike the other methods on
+	 * this class it may be called from a thread other than the one processing the current transaction.
+	 * <p>
+	 * The result should be registered using {@link #addPreExtractedSearchIndexParameters(TransactionDetails, IBaseResource, PreExtractedSearchIndexParameters)}
+	 * on the transaction thread, and will then be used instead of extracting these indexes again the
+	 * next time {@link #extractFromResource} is called for the same resource instance in the same
+	 * transaction. The resource must not be modified in between.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	@Nonnull
+	public PreExtractedSearchIndexParameters preExtractSearchIndexParameters(@Nonnull IBaseResource theResource) {
+		PreExtractedSearchIndexParameters retVal = new PreExtractedSearchIndexParameters();
+		extractSearchIndexParameters(retVal.myParams, theResource, ISearchParamExtractor.ALL_PARAMS, t -> {
+			if (!t.getWarnings().isEmpty()) {
+				retVal.mySearchParamSetsWithWarnings.add(t);
+			}
+		});
+		return retVal;
+	}
+
+	/**
+	 * Registers indexes created by {@link #preExtractSearchIndexParameters(IBaseResource)} with the
+	 * given transaction
+	 *
+	 * @since 6.8.0
+	 */
+	public static void addPreExtractedSearchIndexParameters(@Nonnull TransactionDetails theTransactionDetails, @Nonnull IBaseResource theResource, @Nonnull PreExtractedSearchIndexParameters theParams) {
+		IdentityHashMap<IBaseResource, PreExtractedSearchIndexParameters> preExtractedParams = theTransactionDetails.getOrCreateUserData(XACT_USERDATA_KEY_PRE_EXTRACTED_PARAMS, IdentityHashMap::new);
+		preExtractedParams.put(theResource, theParams);
+	}
+
+	@Nullable
+	private ResourceIndexedSearchParams takePreExtractedSearchIndexParameters(RequestDetails theRequestDetails, @Nullable TransactionDetails theTransactionDetails, IBaseResource theResource) {
+		if (theTransactionDetails == null) {
+			return null;
+		}
+		IdentityHashMap<IBaseResource, PreExtractedSearchIndexParameters> preExtractedParams = theTransactionDetails.getUserData(XACT_USERDATA_KEY_PRE_EXTRACTED_PARAMS);
+		if (preExtractedParams == null) {
+			return null;
+		}
+		PreExtractedSearchIndexParameters retVal = preExtractedParams.remove(theResource);
+		if (retVal == null) {
+			return null;
+		}
+
+		// Warnings are broadcast now since interceptors are invoked on the transaction thread
+		for (ISearchParamExtractor.SearchParamSet<?> next : retVal.mySearchParamSetsWithWarnings) {
+			handleWarnings(theRequestDetails, myInterceptorBroadcaster, next);
+		}
+		return retVal.myParams;
+	}
+
 	@Nonnull
 	private Map<String, Boolean> getReferenceSearchParamPresenceMap(ResourceTable entity, ResourceIndexedSearchParams newParams) {
 		Map<String, Boolean> retval = new HashMap<>();
@@ -388,36 +457,51 @@ public class SearchParamExtractorService {
 	}
 
 	void extractSearchIndexParameters(RequestDetails theRequestDetails, ResourceIndexedSearchParams theParams, IBaseResource theResource, @Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter) {
+		extractSearchIndexParameters(theParams, theResource, theSearchParamFilter, t -> handleWarnings(theRequestDetails, myInterceptorBroadcaster, t));
+	}
+
+	/**
+	 * All of the extractions below share a single traversal of the resource where the
+	 * extractor supports it
+	 */
+	private void extractSearchIndexParameters(ResourceIndexedSearchParams theParams, IBaseResource theResource, @Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter, Consumer<ISearchParamExtractor.SearchParamSet<?>> theWarningHandler) {
+		mySearchParamExtractor.withSharedTraversal(theResource, () -> {
+			doExtractSearchIndexParameters(theParams, theResource, theSearchParamFilter, theWarningHandler);
+			return null;
+		});
+	}
+
+	private void doExtractSearchIndexParameters(ResourceIndexedSearchParams theParams, IBaseResource theResource, @Nonnull ISearchParamExtractor.ISearchParamFilter theSearchParamFilter, Consumer<ISearchParamExtractor.SearchParamSet<?>> theWarningHandler) {
 
 		// Strings
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamString> strings = extractSearchParamStrings(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, strings);
+		theWarningHandler.accept(strings);
 		theParams.myStringParams.addAll(strings);
 
 		// Numbers
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamNumber> numbers = extractSearchParamNumber(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, numbers);
+		theWarningHandler.accept(numbers);
 		theParams.myNumberParams.addAll(numbers);
 
 		// Quantities
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantity> quantities = extractSearchParamQuantity(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, quantities);
+		theWarningHandler.accept(quantities);
 		theParams.myQuantityParams.addAll(quantities);
 
 		if (myStorageSettings.getNormalizedQuantitySearchLevel().equals(NormalizedQuantitySearchLevel.NORMALIZED_QUANTITY_STORAGE_SUPPORTED) || myStorageSettings.getNormalizedQuantitySearchLevel().equals(NormalizedQuantitySearchLevel.NORMALIZED_QUANTITY_SEARCH_SUPPORTED)) {
 			ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamQuantityNormalized> quantitiesNormalized = extractSearchParamQuantityNormalized(theResource, theSearchParamFilter);
-			handleWarnings(theRequestDetails, myInterceptorBroadcaster, quantitiesNormalized);
+			theWarningHandler.accept(quantitiesNormalized);
 			theParams.myQuantityNormalizedParams.addAll(quantitiesNormalized);
 		}
 
 		// Dates
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamDate> dates = extractSearchParamDates(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, dates);
+		theWarningHandler.accept(dates);
 		theParams.myDateParams.addAll(dates);
 
 		// URIs
 		ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamUri> uris = extractSearchParamUri(theResource, theSearchParamFilter);
-		handleWarnings(theRequestDetails, myInterceptorBroadcaster, uris);
+		theWarningHandler.accept(uris);
 		theParams.myUriParams.addAll(uris);
 
 		// Tokens (can result in both Token and String, as we index the display name for
@@ -437,7 +521,7 @@ public class SearchParamExtractorService {
 		// dst2 composites use stuff like value[x] , and we don't support them.
 		if (myContext.getVersion().getVersion().isEqualOrNewerThan(FhirVersionEnum.DSTU3)) {
 			ISearchParamExtractor.SearchParamSet<ResourceIndexedSearchParamComposite> composites = extractSearchParamComposites(theResource, theSearchParamFilter);
-			handleWarnings(theRequestDetails, myInterceptorBroadcaster, composites);
+			theWarningHandler.accept(composites);
 			theParams.myCompositeParams.addAll(composites);
 		}
 
@@ -857,6 +941,22 @@ public class SearchParamExtractorService {
 		populateResourceTableForComboParams(theParams.myComboTokenNonUnique, theEntity);
 	}
 
+	/**
+	 * Indexes extracted ahead of time by {@link #preExtractSearchIndexParameters(IBaseResource)}
+	 *
+	 * @since 6.8.0
+	 */
+	public static final class PreExtractedSearchIndexParameters {
+
+		private final ResourceIndexedSearchParams myParams = new ResourceIndexedSearchParams();
+		private final List<ISearchParamExtractor.SearchParamSet<?>> mySearchParamSetsWithWarnings = new ArrayList<>();
+
+		private PreExtractedSearchIndexParameters() {
+			super();
+		}
+
+	}
+
 	/**
 	 * This interface is used by {@link #extractSearchIndexParametersForTargetResources(RequestDetails, ResourceIndexedSearchParams, ResourceTable, Collection, IChainedSearchParameterExtractionStrategy, ISearchParamExtractor.SearchParamSet, boolean, boolean)}
 	 * in order to use that method for extracting chained search parameter indexes both
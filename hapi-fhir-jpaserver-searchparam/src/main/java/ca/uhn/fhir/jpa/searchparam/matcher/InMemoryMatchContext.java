@@ -0,0 +1,92 @@
+/*-
+ * #%L
+ * HAPI FHIR Search Parameters
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.searchparam.matcher;
+
+import ca.uhn.fhir.jpa.searchparam.extractor.ResourceIndexedSearchParams;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Supplier;
+
+/**
+ * Holds state which can be shared when a single resource is matched in-memory against
+ * many different criteria (e.g. one resource modification being tested against every
+ * registered subscription). The search parameter indexes for the resource are only
+ * extracted once, and the result of each distinct parameter clause (e.g. <code>code=http://loinc.org|1234-5</code>)
+ * is only evaluated once, no matter how many criteria contain it.
+ * <p>
+ * Instances are not thread safe, and must not be reused across resources.
+ * </p>
+ *
+ * @see InMemoryResourceMatcher#matchWithContext(String, InMemoryMatchContext, ca.uhn.fhir.rest.api.server.RequestDetails)
+ * @since 6.8.0
+ */
+public class InMemoryMatchContext {
+
+	private final IBaseResource myResource;
+	private final Map<String, InMemoryMatchResult> myClauseResults = new HashMap<>();
+	private ResourceIndexedSearchParams myIndexedSearchParams;
+	private int myClauseEvaluationCount;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theResource The resource being matched
+	 */
+	public InMemoryMatchContext(@Nonnull IBaseResource theResource) {
+		myResource = theResource;
+	}
+
+	@Nonnull
+	public IBaseResource getResource() {
+		return myResource;
+	}
+
+	@Nullable
+	ResourceIndexedSearchParams getIndexedSearchParams() {
+		return myIndexedSearchParams;
+	}
+
+	void setIndexedSearchParams(ResourceIndexedSearchParams theIndexedSearchParams) {
+		myIndexedSearchParams = theIndexedSearchParams;
+	}
+
+	InMemoryMatchResult getOrEvaluateClause(String theClauseKey, Supplier<InMemoryMatchResult> theEvaluator) {
+		InMemoryMatchResult retVal = myClauseResults.get(theClauseKey);
+		if (retVal == null) {
+			retVal = theEvaluator.get();
+			myClauseEvaluationCount++;
+			myClauseResults.put(theClauseKey, retVal);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the number of distinct parameter clauses which have actually been evaluated
+	 * against the resource using this context
+	 */
+	public int getClauseEvaluationCount() {
+		return myClauseEvaluationCount;
+	}
+
+}
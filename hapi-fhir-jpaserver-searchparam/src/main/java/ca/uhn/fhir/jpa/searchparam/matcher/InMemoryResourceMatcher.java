@@ -70,6 +70,7 @@ import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
 
+import static org.apache.commons.lang3.StringUtils.defaultString;
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
@@ -173,6 +174,30 @@ public class InMemoryResourceMatcher {
 		return match(searchParameterMap, theResource, resourceDefinition, relevantSearchParams);
 	}
 
+	/**
+	 * Matches a resource against the given criteria, sharing work with any other criteria which
+	 * have been (or will be) matched using the same {@link InMemoryMatchContext}. All search parameter
+	 * indexes for the resource are extracted the first time they are needed, and each distinct
+	 * parameter clause is only evaluated once per context.
+	 */
+	public InMemoryMatchResult matchWithContext(String theCriteria, @Nonnull InMemoryMatchContext theContext, RequestDetails theRequestDetails) {
+		IBaseResource resource = theContext.getResource();
+		RuntimeResourceDefinition resourceDefinition = myFhirContext.getResourceDefinition(resource);
+		SearchParameterMap searchParameterMap;
+		try {
+			searchParameterMap = myMatchUrlService.translateMatchUrl(theCriteria, resourceDefinition);
+		} catch (UnsupportedOperationException e) {
+			return InMemoryMatchResult.unsupportedFromReason(InMemoryMatchResult.PARSE_FAIL);
+		}
+		searchParameterMap.clean();
+
+		if (theContext.getIndexedSearchParams() == null) {
+			theContext.setIndexedSearchParams(myIndexedSearchParamExtractor.extractIndexedSearchParams(resource, theRequestDetails));
+		}
+
+		return doMatch(searchParameterMap, resource, resourceDefinition, theContext.getIndexedSearchParams(), theContext);
+	}
+
 	/**
 	 * @param theCriteria
 	 * @return result.supported() will be true if theCriteria can be evaluated in-memory
@@ -192,6 +217,11 @@ public class InMemoryResourceMatcher {
 
 	@Nonnull
 	public InMemoryMatchResult match(SearchParameterMap theSearchParameterMap, IBaseResource theResource, RuntimeResourceDefinition theResourceDefinition, ResourceIndexedSearchParams theSearchParams) {
+		return doMatch(theSearchParameterMap, theResource, theResourceDefinition, theSearchParams, null);
+	}
+
+	@Nonnull
+	private InMemoryMatchResult doMatch(SearchParameterMap theSearchParameterMap, IBaseResource theResource, RuntimeResourceDefinition theResourceDefinition, ResourceIndexedSearchParams theSearchParams, @Nullable InMemoryMatchContext theContext) {
 		if (theSearchParameterMap.getLastUpdated() != null) {
 			return InMemoryMatchResult.unsupportedFromParameterAndReason(Constants.PARAM_LASTUPDATED, InMemoryMatchResult.STANDARD_PARAMETER);
 		}
@@ -202,7 +232,13 @@ public class InMemoryResourceMatcher {
 		for (Map.Entry<String, List<List<IQueryParameterType>>> entry : theSearchParameterMap.entrySet()) {
 			String theParamName = entry.getKey();
 			List<List<IQueryParameterType>> theAndOrParams = entry.getValue();
-			InMemoryMatchResult result = matchIdsWithAndOr(theParamName, theAndOrParams, theResourceDefinition, theResource, theSearchParams);
+			InMemoryMatchResult result;
+			if (theContext != null) {
+				String clauseKey = toClauseKey(theParamName, theAndOrParams);
+				result = theContext.getOrEvaluateClause(clauseKey, () -> matchIdsWithAndOr(theParamName, theAndOrParams, theResourceDefinition, theResource, theSearchParams));
+			} else {
+				result = matchIdsWithAndOr(theParamName, theAndOrParams, theResourceDefinition, theResource, theSearchParams);
+			}
 			if (!result.matched()) {
 				return result;
 			}
@@ -210,6 +246,28 @@ public class InMemoryResourceMatcher {
 		return InMemoryMatchResult.successfulMatch();
 	}
 
+	/**
+	 * Builds a key which is identical for two parameter clauses if and only if they
+	 * would produce the same match result against the same resource
+	 */
+	private String toClauseKey(String theParamName, List<List<IQueryParameterType>> theAndOrParams) {
+		StringBuilder b = new StringBuilder(theParamName);
+		for (List<IQueryParameterType> nextOrList : theAndOrParams) {
+			b.append('&');
+			for (int i = 0; i < nextOrList.size(); i++) {
+				IQueryParameterType next = nextOrList.get(i);
+				if (i > 0) {
+					b.append(',');
+				}
+				b.append(next.getClass().getSimpleName());
+				b.append(defaultString(next.getQueryParameterQualifier()));
+				b.append('=');
+				b.append(next.getValueAsQueryToken(myFhirContext));
+			}
+		}
+		return b.toString();
+	}
+
 	// This method is modelled from SearchBuilder.searchForIdsWithAndOr()
 	private InMemoryMatchResult matchIdsWithAndOr(String theParamName, List<List<IQueryParameterType>> theAndOrParams, RuntimeResourceDefinition theResourceDefinition, IBaseResource theResource, ResourceIndexedSearchParams theSearchParams) {
 		if (theAndOrParams.isEmpty()) {
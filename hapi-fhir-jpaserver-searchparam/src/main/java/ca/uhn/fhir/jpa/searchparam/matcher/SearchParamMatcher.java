@@ -41,6 +41,16 @@ public class SearchParamMatcher {
 		return myInMemoryResourceMatcher.match(theCriteria, theResource, null, theRequest);
 	}
 
+	/**
+	 * Matches the resource held by the given context against the criteria, reusing extracted
+	 * indexes and clause results from previous matches against the same context.
+	 *
+	 * @see InMemoryMatchContext
+	 */
+	public InMemoryMatchResult matchWithContext(String theCriteria, InMemoryMatchContext theContext, RequestDetails theRequest) {
+		return myInMemoryResourceMatcher.matchWithContext(theCriteria, theContext, theRequest);
+	}
+
 	public InMemoryMatchResult match(SearchParameterMap theSearchParameterMap, IBaseResource theResource) {
 		if (theSearchParameterMap.isEmpty()) {
 			return InMemoryMatchResult.successfulMatch();
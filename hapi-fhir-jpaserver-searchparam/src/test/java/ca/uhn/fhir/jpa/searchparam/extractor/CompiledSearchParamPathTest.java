@@ -0,0 +1,177 @@
+package ca.uhn.fhir.jpa.searchparam.extractor;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.context.RuntimeResourceDefinition;
+import ca.uhn.fhir.context.RuntimeSearchParam;
+import ca.uhn.fhir.jpa.model.config.PartitionSettings;
+import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.rest.server.util.FhirContextSearchParamRegistry;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.CodeableConcept;
+import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.Condition;
+import org.hl7.fhir.r4.model.ContactPoint;
+import org.hl7.fhir.r4.model.DateTimeType;
+import org.hl7.fhir.r4.model.DateType;
+import org.hl7.fhir.r4.model.Enumerations;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Period;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.Reference;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class CompiledSearchParamPathTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"Patient",
+		"Patient.name",
+		"Patient.name.family",
+		"Patient.telecom.where(system='phone')",
+		"Observation.value",
+		"(Observation.value as Quantity)",
+		"Observation.value as Quantity",
+		"(Observation.component.value as CodeableConcept).coding",
+		"Observation.component.value.ofType(Quantity)",
+		"Condition.onset.ofType(Period)"
+	})
+	public void testCompile(String thePath) {
+		assertNotNull(CompiledSearchParamPath.compile(ourCtx, thePath));
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"Resource.id",
+		"Patient.id",
+		"Patient.extension",
+		"Patient.contained",
+		"Patient.valueQuantity",
+		"Observation.valueQuantity",
+		"Observation.value.as(Quantity)",
+		"Observation.value.ofType(string)",
+		"Observation.subject.where(resolve() is Patient)",
+		"Patient.name.where(family.exists())",
+		"Patient.telecom.where(system='phone' or system='email')",
+		"Patient.name.first()",
+		"Patient.foo",
+		"Foo.name",
+		"Patient.name[0]"
+	})
+	public void testCompileUnsupported(String thePath) {
+		assertNull(CompiledSearchParamPath.compile(ourCtx, thePath));
+	}
+
+	@Test
+	public void testCompiledPathsMatchFhirPath() {
+		StorageSettings storageSettings = new StorageSettings();
+		storageSettings.setSearchParamPathCompilationEnabled(false);
+		SearchParamExtractorR4 fhirPathExtractor = new SearchParamExtractorR4(storageSettings, new PartitionSettings(), ourCtx, new FhirContextSearchParamRegistry(ourCtx));
+
+		int compiledCount = 0;
+		for (IBaseResource nextResource : List.of(newPatient(), newObservation(), newCondition())) {
+			RuntimeResourceDefinition def = ourCtx.getResourceDefinition(nextResource);
+			for (RuntimeSearchParam nextSearchParam : def.getSearchParams()) {
+				if (nextSearchParam.getPath() == null) {
+					continue;
+				}
+				for (String nextPath : fhirPathExtractor.split(nextSearchParam.getPath())) {
+					CompiledSearchParamPath compiled = CompiledSearchParamPath.compile(ourCtx, nextPath.trim());
+					if (compiled == null) {
+						continue;
+					}
+					compiledCount++;
+
+					List<? extends IBase> expected = fhirPathExtractor.getPathValueExtractor(nextResource, nextPath.trim()).get();
+					assertEquals(toIdentities(expected), toIdentities(compiled.evaluate(nextResource)), nextPath);
+				}
+			}
+		}
+
+		assertTrue(compiledCount > 50, "Compiled " + compiledCount);
+	}
+
+	@Test
+	public void testSharedTraversalExtractsSameParams() {
+		StorageSettings storageSettings = new StorageSettings();
+		storageSettings.setSearchParamPathCompilationEnabled(false);
+		SearchParamExtractorR4 fhirPathExtractor = new SearchParamExtractorR4(storageSettings, new PartitionSettings(), ourCtx, new FhirContextSearchParamRegistry(ourCtx));
+		SearchParamExtractorR4 compiledExtractor = new SearchParamExtractorR4(new StorageSettings(), new PartitionSettings(), ourCtx, new FhirContextSearchParamRegistry(ourCtx));
+
+		for (IBaseResource nextResource : List.of(newPatient(), newObservation(), newCondition())) {
+			assertEquals(toStrings(fhirPathExtractor.extractSearchParamTokens(nextResource)), toStrings(compiledExtractor.withSharedTraversal(nextResource, () -> compiledExtractor.extractSearchParamTokens(nextResource))));
+			assertEquals(toStrings(fhirPathExtractor.extractSearchParamStrings(nextResource)), toStrings(compiledExtractor.withSharedTraversal(nextResource, () -> compiledExtractor.extractSearchParamStrings(nextResource))));
+			assertEquals(toStrings(fhirPathExtractor.extractSearchParamDates(nextResource)), toStrings(compiledExtractor.withSharedTraversal(nextResource, () -> compiledExtractor.extractSearchParamDates(nextResource))));
+			assertEquals(toStrings(fhirPathExtractor.extractSearchParamQuantity(nextResource)), toStrings(compiledExtractor.withSharedTraversal(nextResource, () -> compiledExtractor.extractSearchParamQuantity(nextResource))));
+			assertEquals(toStrings(fhirPathExtractor.extractSearchParamComposites(nextResource)), toStrings(compiledExtractor.withSharedTraversal(nextResource, () -> compiledExtractor.extractSearchParamComposites(nextResource))));
+		}
+	}
+
+	private static List<String> toIdentities(List<? extends IBase> theValues) {
+		return theValues.stream().map(t -> t.fhirType() + "@" + System.identityHashCode(t)).collect(Collectors.toList());
+	}
+
+	private static List<String> toStrings(Iterable<?> theParams) {
+		List<String> retVal = new ArrayList<>();
+		theParams.forEach(t -> retVal.add(t.toString()));
+		return retVal.stream().sorted().collect(Collectors.toList());
+	}
+
+	private static Patient newPatient() {
+		Patient patient = new Patient();
+		patient.setActive(true);
+		patient.addIdentifier().setSystem("http://foo").setValue("123");
+		patient.addName().setFamily("Simpson").addGiven("Homer").addGiven("Jay");
+		patient.addName().setFamily("Simpson").addGiven("Max").addPrefix("Mr");
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.PHONE).setValue("555-1234");
+		patient.addTelecom().setSystem(ContactPoint.ContactPointSystem.EMAIL).setValue("homer@example.com");
+		patient.addTelecom().setValue("no-system");
+		patient.setGender(Enumerations.AdministrativeGender.MALE);
+		patient.setBirthDateElement(new DateType("1956-05-12"));
+		patient.addAddress().setCity("Springfield").addLine("742 Evergreen Terrace").setPostalCode("12345");
+		patient.setDeceased(new DateTimeType("2020-01-01"));
+		patient.addCommunication().setLanguage(new CodeableConcept().addCoding(new Coding("urn:ietf:bcp:47", "en", "English")));
+		patient.setManagingOrganization(new Reference("Organization/1"));
+		return patient;
+	}
+
+	private static Observation newObservation() {
+		Observation observation = new Observation();
+		observation.setStatus(Observation.ObservationStatus.FINAL);
+		observation.getCode().addCoding().setSystem("http://loinc.org").setCode("85354-9");
+		observation.addCategory().addCoding().setSystem("http://terminology.hl7.org/CodeSystem/observation-category").setCode("vital-signs");
+		observation.setSubject(new Reference("Patient/1"));
+		observation.setEffective(new Period().setStartElement(new DateTimeType("2020-01-01")).setEndElement(new DateTimeType("2020-01-02")));
+		observation.setValue(new Quantity().setValue(120).setSystem("http://unitsofmeasure.org").setCode("mm[Hg]"));
+		observation.addComponent().setValue(new Quantity().setValue(80).setSystem("http://unitsofmeasure.org").setCode("mm[Hg]")).getCode().addCoding().setSystem("http://loinc.org").setCode("8462-4");
+		observation.addComponent().setValue(new CodeableConcept().setText("high")).getCode().addCoding().setSystem("http://loinc.org").setCode("8480-6");
+		observation.addComponent().setValue(new StringType("a string")).getCode().setText("text only");
+		return observation;
+	}
+
+	private static Condition newCondition() {
+		Condition condition = new Condition();
+		condition.setSubject(new Reference("Patient/1"));
+		condition.getCode().addCoding().setSystem("http://snomed.info/sct").setCode("38341003");
+		condition.setOnset(new Period().setStartElement(new DateTimeType("2019-01-01")));
+		condition.setAbatement(new DateTimeType("2020-01-01"));
+		condition.setRecordedDateElement(new DateTimeType("2019-01-02"));
+		return condition;
+	}
+
+}
@@ -285,6 +285,26 @@ public class InMemoryResourceMatcherR5Test {
 		}
 	}
 
+	@Test
+	public void testMatchContextSharesClauseResults() {
+		when(myIndexedSearchParamExtractor.extractIndexedSearchParams(any(), any())).thenReturn(mySearchParams);
+		InMemoryMatchContext context = new InMemoryMatchContext(myObservation);
+
+		InMemoryMatchResult result = myInMemoryResourceMatcher.matchWithContext("code=" + OBSERVATION_CODE + "&date=lt" + LATE_DATE, context, newRequest());
+		assertTrue(result.matched());
+		assertEquals(2, context.getClauseEvaluationCount());
+
+		result = myInMemoryResourceMatcher.matchWithContext("code=" + OBSERVATION_CODE, context, newRequest());
+		assertTrue(result.matched());
+		assertEquals(2, context.getClauseEvaluationCount());
+
+		result = myInMemoryResourceMatcher.matchWithContext("date=gt" + LATE_DATE, context, newRequest());
+		assertFalse(result.matched());
+		assertEquals(3, context.getClauseEvaluationCount());
+
+		verify(myIndexedSearchParamExtractor).extractIndexedSearchParams(any(), any());
+	}
+
 	@Test
 	public void testNowPast() {
 		InMemoryMatchResult result = myInMemoryResourceMatcher.match("date=lt" + BaseDateTimeDt.NOW_DATE_CONSTANT, myObservation, mySearchParams, newRequest());
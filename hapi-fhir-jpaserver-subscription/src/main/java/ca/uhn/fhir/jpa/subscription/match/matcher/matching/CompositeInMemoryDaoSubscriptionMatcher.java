@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.subscription.match.matcher.matching;
 
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchContext;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
@@ -28,6 +29,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nullable;
+
 public class CompositeInMemoryDaoSubscriptionMatcher implements ISubscriptionMatcher {
 	private Logger ourLog = LoggerFactory.getLogger(CompositeInMemoryDaoSubscriptionMatcher.class);
 
@@ -43,9 +46,14 @@ public class CompositeInMemoryDaoSubscriptionMatcher implements ISubscriptionMat
 
 	@Override
 	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg) {
+		return match(theSubscription, theMsg, null);
+	}
+
+	@Override
+	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg, @Nullable InMemoryMatchContext theMatchContext) {
 		InMemoryMatchResult result;
 		if (myStorageSettings.isEnableInMemorySubscriptionMatching()) {
-			result = myInMemorySubscriptionMatcher.match(theSubscription, theMsg);
+			result = myInMemorySubscriptionMatcher.match(theSubscription, theMsg, theMatchContext);
 			if (result.supported()) {
 				result.setInMemory(true);
 			} else {
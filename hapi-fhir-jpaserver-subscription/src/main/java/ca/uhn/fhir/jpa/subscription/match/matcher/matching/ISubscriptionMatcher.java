@@ -19,10 +19,25 @@
  */
 package ca.uhn.fhir.jpa.subscription.match.matcher.matching;
 
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchContext;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.jpa.subscription.model.ResourceModifiedMessage;
 
+import javax.annotation.Nullable;
+
 public interface ISubscriptionMatcher {
 	InMemoryMatchResult match(CanonicalSubscription subscription, ResourceModifiedMessage msg);
+
+	/**
+	 * Same as {@link #match(CanonicalSubscription, ResourceModifiedMessage)}, but allows implementations
+	 * which match in-memory to share work across all the subscriptions being tested against the same
+	 * message. The default implementation ignores the context.
+	 *
+	 * @param theMatchContext A context created for the payload of this message, or <code>null</code>
+	 * @since 6.8.0
+	 */
+	default InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg, @Nullable InMemoryMatchContext theMatchContext) {
+		return match(theSubscription, theMsg);
+	}
 }
@@ -21,6 +21,7 @@ package ca.uhn.fhir.jpa.subscription.match.matcher.matching;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchContext;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
@@ -30,6 +31,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nullable;
+
 public class InMemorySubscriptionMatcher implements ISubscriptionMatcher {
 	private static final Logger ourLog = LoggerFactory.getLogger(InMemorySubscriptionMatcher.class);
 
@@ -40,7 +43,20 @@ public class InMemorySubscriptionMatcher implements ISubscriptionMatcher {
 
 	@Override
 	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg) {
+		return match(theSubscription, theMsg, null);
+	}
+
+	/**
+	 * If a match context is supplied, search parameter extraction and the evaluation of criteria
+	 * clauses shared by several subscriptions (e.g. <code>Observation?code=X&amp;status=final</code> and
+	 * <code>Observation?code=X</code>) are only performed once for the message.
+	 */
+	@Override
+	public InMemoryMatchResult match(CanonicalSubscription theSubscription, ResourceModifiedMessage theMsg, @Nullable InMemoryMatchContext theMatchContext) {
 		try {
+			if (theMatchContext != null) {
+				return mySearchParamMatcher.matchWithContext(theSubscription.getCriteriaString(), theMatchContext, null);
+			}
 			return mySearchParamMatcher.match(theSubscription.getCriteriaString(), theMsg.getNewPayload(myContext), null);
 		} catch (Exception e) {
 			ourLog.error("Failure in in-memory matcher", e);
@@ -23,6 +23,7 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchContext;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.subscription.match.matcher.matching.ISubscriptionMatcher;
 import ca.uhn.fhir.jpa.subscription.match.registry.ActiveSubscription;
@@ -40,7 +41,9 @@ import org.springframework.messaging.MessageHandler;
 import org.springframework.messaging.MessagingException;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collection;
+import java.util.Collections;
 
 import static ca.uhn.fhir.rest.server.messaging.BaseResourceMessage.OperationTypeEnum.DELETE;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
@@ -111,13 +114,33 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 	private void doMatchActiveSubscriptionsAndDeliver(ResourceModifiedMessage theMsg) {
 		IIdType resourceId = theMsg.getPayloadId(myFhirContext);
 
-		Collection<ActiveSubscription> subscriptions = mySubscriptionRegistry.getAllNonTopicSubscriptions();
+		Collection<ActiveSubscription> subscriptions;
+		if (isNotBlank(theMsg.getSubscriptionId())) {
+			ActiveSubscription activeSubscription = mySubscriptionRegistry.get(theMsg.getSubscriptionId());
+			if (activeSubscription == null || activeSubscription.getSubscription().isTopicSubscription()) {
+				ourLog.debug("Subscription {} is not an active non-topic subscription", theMsg.getSubscriptionId());
+				subscriptions = Collections.emptyList();
+			} else {
+				subscriptions = Collections.singletonList(activeSubscription);
+			}
+		} else {
+			subscriptions = mySubscriptionRegistry.getNonTopicSubscriptionCandidates(resourceId.getResourceType(), theMsg.getPartitionId());
+		}
 
 		ourLog.trace("Testing {} subscriptions for applicability", subscriptions.size());
 		boolean anySubscriptionsMatchedResource = false;
 
+		// Share extracted indexes and clause results across all candidate subscriptions
+		InMemoryMatchContext matchContext = null;
+		if (subscriptions.size() > 1 && theMsg.getOperationType() != DELETE) {
+			IBaseResource payload = theMsg.getNewPayload(myFhirContext);
+			if (payload != null) {
+				matchContext = new InMemoryMatchContext(payload);
+			}
+		}
+
 		for (ActiveSubscription nextActiveSubscription : subscriptions) {
-			anySubscriptionsMatchedResource |= processSubscription(theMsg, resourceId, nextActiveSubscription);
+			anySubscriptionsMatchedResource |= processSubscription(theMsg, resourceId, nextActiveSubscription, matchContext);
 		}
 
 		if (!anySubscriptionsMatchedResource) {
@@ -132,7 +155,7 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 	 * Returns true if subscription matched, and processing completed successfully, and the message was sent to the delivery channel. False otherwise.
 	 *
 	 */
-	private boolean processSubscription(ResourceModifiedMessage theMsg, IIdType theResourceId, ActiveSubscription theActiveSubscription) {
+	private boolean processSubscription(ResourceModifiedMessage theMsg, IIdType theResourceId, ActiveSubscription theActiveSubscription, @Nullable InMemoryMatchContext theMatchContext) {
 		// skip if the partitions don't match
 		CanonicalSubscription subscription = theActiveSubscription.getSubscription();
 		if (subscription != null && theMsg.getPartitionId() != null &&
@@ -144,7 +167,6 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 
 		if (isNotBlank(theMsg.getSubscriptionId())) {
 			if (!theMsg.getSubscriptionId().equals(nextSubscriptionId)) {
-				// TODO KHS we should use a hash to look it up instead of this full table scan
 				ourLog.debug("Ignoring subscription {} because it is not {}", nextSubscriptionId, theMsg.getSubscriptionId());
 				return false;
 			}
@@ -163,7 +185,7 @@ public class SubscriptionMatchingSubscriber implements MessageHandler {
 
 		InMemoryMatchResult matchResult;
 		if (theActiveSubscription.getCriteria().getType() == SubscriptionCriteriaParser.TypeEnum.SEARCH_EXPRESSION) {
-			matchResult = mySubscriptionMatcher.match(theActiveSubscription.getSubscription(), theMsg);
+			matchResult = mySubscriptionMatcher.match(theActiveSubscription.getSubscription(), theMsg, theMatchContext);
 			if (!matchResult.matched()) {
 				ourLog.trace("Subscription {} was not matched by resource {} {}",
 					theActiveSubscription.getId(),
@@ -19,10 +19,13 @@
  */
 package ca.uhn.fhir.jpa.subscription.match.registry;
 
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import org.apache.commons.lang3.Validate;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -37,6 +40,8 @@ class ActiveSubscriptionCache {
 	private static final Logger ourLog = LoggerFactory.getLogger(ActiveSubscriptionCache.class);
 
 	private final Map<String, ActiveSubscription> myCache = new ConcurrentHashMap<>();
+	private volatile ActiveSubscriptionIndex myIndex = ActiveSubscriptionIndex.EMPTY;
+	private volatile boolean myIndexStale;
 
 	public ActiveSubscription get(String theIdPart) {
 		return myCache.get(theIdPart);
@@ -52,6 +57,14 @@ class ActiveSubscriptionCache {
 
 	public void put(String theSubscriptionId, ActiveSubscription theActiveSubscription) {
 		myCache.put(theSubscriptionId, theActiveSubscription);
+		invalidateIndex();
+	}
+
+	/**
+	 * Must be called if the criteria or partition of a cached subscription are modified in place
+	 */
+	public void invalidateIndex() {
+		myIndexStale = true;
 	}
 
 	public synchronized ActiveSubscription remove(String theSubscriptionId) {
@@ -63,6 +76,7 @@ class ActiveSubscriptionCache {
 		}
 
 		myCache.remove(theSubscriptionId);
+		invalidateIndex();
 		return activeSubscription;
 	}
 
@@ -103,4 +117,30 @@ class ActiveSubscriptionCache {
 			.filter(as -> !as.getSubscription().isTopicSubscription())
 			.collect(Collectors.toList());
 	}
+
+	/**
+	 * Returns the non-topic subscriptions whose criteria could apply to a resource of the given
+	 * type in the given partition, using an index which is only rebuilt when the set of
+	 * registered subscriptions changes.
+	 *
+	 * @param theResourceType The type of the modified resource
+	 * @param thePartitionId  The partition of the modified resource, or <code>null</code> if unknown
+	 */
+	@Nonnull
+	public List<ActiveSubscription> getNonTopicSubscriptionCandidates(@Nonnull String theResourceType, @Nullable RequestPartitionId thePartitionId) {
+		return getIndex().getCandidates(theResourceType, thePartitionId);
+	}
+
+	private ActiveSubscriptionIndex getIndex() {
+		if (myIndexStale) {
+			synchronized (this) {
+				if (myIndexStale) {
+					// Clear the flag first so that a concurrent modification triggers another rebuild
+					myIndexStale = false;
+					myIndex = new ActiveSubscriptionIndex(new ArrayList<>(myCache.values()));
+				}
+			}
+		}
+		return myIndex;
+	}
 }
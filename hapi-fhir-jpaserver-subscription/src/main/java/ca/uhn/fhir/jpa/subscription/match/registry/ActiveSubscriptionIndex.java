@@ -0,0 +1,135 @@
+/*-
+ * #%L
+ * HAPI FHIR Subscription Server
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.subscription.match.registry;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.jpa.subscription.match.matcher.subscriber.SubscriptionCriteriaParser;
+import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable lookup structure over the non-topic subscriptions in an {@link ActiveSubscriptionCache}.
+ * Subscriptions are bucketed by the resource types their criteria apply to, and within each
+ * resource type by the partition they belong to, so that a resource modification only needs
+ * to be tested against the subscriptions that could possibly apply to it.
+ * <p>
+ * Instances are rebuilt by the cache whenever the set of registered subscriptions changes, and
+ * are safe to read concurrently.
+ * </p>
+ */
+class ActiveSubscriptionIndex {
+
+	static final ActiveSubscriptionIndex EMPTY = new ActiveSubscriptionIndex(Collections.emptyList());
+
+	private final Map<String, PartitionBuckets> myResourceTypeToBuckets = new HashMap<>();
+	private final PartitionBuckets myAnyResourceTypeBuckets = new PartitionBuckets();
+
+	ActiveSubscriptionIndex(Collection<ActiveSubscription> theActiveSubscriptions) {
+		for (ActiveSubscription next : theActiveSubscriptions) {
+			CanonicalSubscription subscription = next.getSubscription();
+			SubscriptionCriteriaParser.SubscriptionCriteria criteria = next.getCriteria();
+			if (subscription == null || subscription.isTopicSubscription() || criteria == null) {
+				continue;
+			}
+
+			switch (criteria.getType()) {
+				case STARTYPE_EXPRESSION:
+					myAnyResourceTypeBuckets.add(next);
+					break;
+				case SEARCH_EXPRESSION:
+				case MULTITYPE_EXPRESSION:
+				default:
+					for (String nextResourceType : criteria.getApplicableResourceTypes()) {
+						myResourceTypeToBuckets.computeIfAbsent(nextResourceType, t -> new PartitionBuckets()).add(next);
+					}
+					break;
+			}
+		}
+	}
+
+	/**
+	 * Returns the subscriptions which may apply to a resource of the given type in the
+	 * given partition. The returned subscriptions still need to be tested against the
+	 * resource itself.
+	 *
+	 * @param theResourceType The resource type of the modified resource
+	 * @param thePartitionId  The partition of the modified resource, or <code>null</code> if
+	 *                        the partition is not known (in which case subscriptions in all partitions are candidates)
+	 */
+	@Nonnull
+	List<ActiveSubscription> getCandidates(@Nonnull String theResourceType, @Nullable RequestPartitionId thePartitionId) {
+		List<ActiveSubscription> retVal = new ArrayList<>();
+		PartitionBuckets resourceTypeBuckets = myResourceTypeToBuckets.get(theResourceType);
+		if (resourceTypeBuckets != null) {
+			resourceTypeBuckets.addCandidates(thePartitionId, retVal);
+		}
+		// Wildcard subscriptions never match Subscription resources
+		if (!"Subscription".equals(theResourceType)) {
+			myAnyResourceTypeBuckets.addCandidates(thePartitionId, retVal);
+		}
+		return retVal;
+	}
+
+	private static class PartitionBuckets {
+
+		private final List<ActiveSubscription> myAll = new ArrayList<>();
+		private final List<ActiveSubscription> myCrossPartition = new ArrayList<>();
+		/*
+		 * Keys may be null, which is the ID of the default partition
+		 */
+		private final Map<Integer, List<ActiveSubscription>> myPartitionIdToSubscriptions = new HashMap<>();
+
+		void add(ActiveSubscription theActiveSubscription) {
+			myAll.add(theActiveSubscription);
+			CanonicalSubscription subscription = theActiveSubscription.getSubscription();
+			if (subscription.getCrossPartitionEnabled()) {
+				myCrossPartition.add(theActiveSubscription);
+			} else {
+				myPartitionIdToSubscriptions.computeIfAbsent(subscription.getRequestPartitionId(), t -> new ArrayList<>()).add(theActiveSubscription);
+			}
+		}
+
+		void addCandidates(@Nullable RequestPartitionId thePartitionId, List<ActiveSubscription> theCandidates) {
+			if (thePartitionId == null || !thePartitionId.hasPartitionIds()) {
+				theCandidates.addAll(myAll);
+				return;
+			}
+
+			theCandidates.addAll(myCrossPartition);
+			for (Integer nextPartitionId : new LinkedHashSet<>(thePartitionId.getPartitionIds())) {
+				List<ActiveSubscription> partitionSubscriptions = myPartitionIdToSubscriptions.get(nextPartitionId);
+				if (partitionSubscriptions != null) {
+					theCandidates.addAll(partitionSubscriptions);
+				}
+			}
+		}
+
+	}
+
+}
@@ -22,6 +22,7 @@ package ca.uhn.fhir.jpa.subscription.match.registry;
 import ca.uhn.fhir.interceptor.api.HookParams;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.interceptor.api.Pointcut;
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.ISubscriptionDeliveryChannelNamer;
 import ca.uhn.fhir.jpa.subscription.channel.subscription.SubscriptionChannelRegistry;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
@@ -35,6 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.PreDestroy;
 import java.util.Collection;
 import java.util.Collections;
@@ -199,6 +202,7 @@ public class SubscriptionRegistry {
 		Validate.notNull(activeSubscription);
 		CanonicalSubscription canonicalized = mySubscriptionCanonicalizer.canonicalize(theSubscription);
 		activeSubscription.setSubscription(canonicalized);
+		myActiveSubscriptionCache.invalidateIndex();
 
 		// Interceptor call: SUBSCRIPTION_AFTER_ACTIVE_SUBSCRIPTION_REGISTERED
 		HookParams params = new HookParams()
@@ -217,4 +221,17 @@ public class SubscriptionRegistry {
 	public synchronized List<ActiveSubscription> getAllNonTopicSubscriptions() {
 		return myActiveSubscriptionCache.getAllNonTopicSubscriptions();
 	}
+
+	/**
+	 * Returns the non-topic subscriptions which could apply to a resource of the given type in the
+	 * given partition. This is backed by an index, so unlike {@link #getAllNonTopicSubscriptions()} the
+	 * cost does not grow with the number of registered subscriptions for other resource types or partitions.
+	 *
+	 * @param theResourceType The type of the modified resource
+	 * @param thePartitionId  The partition of the modified resource, or <code>null</code> if unknown
+	 */
+	@Nonnull
+	public List<ActiveSubscription> getNonTopicSubscriptionCandidates(@Nonnull String theResourceType, @Nullable RequestPartitionId thePartitionId) {
+		return myActiveSubscriptionCache.getNonTopicSubscriptionCandidates(theResourceType, thePartitionId);
+	}
 }
@@ -1,5 +1,6 @@
 package ca.uhn.fhir.jpa.subscription.match.registry;
 
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.subscription.model.CanonicalSubscription;
 import ca.uhn.fhir.model.primitive.IdDt;
 import org.jetbrains.annotations.NotNull;
@@ -7,6 +8,7 @@ import org.junit.jupiter.api.Test;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
@@ -132,6 +134,47 @@ public class ActiveSubscriptionCacheTest {
 		assertEquals(ID3, match.getId());
 	}
 
+	@Test
+	public void getNonTopicSubscriptionCandidates() {
+		ActiveSubscriptionCache activeSubscriptionCache = new ActiveSubscriptionCache();
+		activeSubscriptionCache.put(ID1, buildCriteriaSubscription(ID1, "Observation?code=123", 1, false));
+		activeSubscriptionCache.put(ID2, buildCriteriaSubscription(ID2, "[Observation,Patient]", 2, false));
+		activeSubscriptionCache.put(ID3, buildCriteriaSubscription(ID3, "[*]", 2, true));
+		activeSubscriptionCache.put("topic", buildTopicSubscription("topic", TEST_TOPIC_URL));
+
+		assertThat(getCandidateIds(activeSubscriptionCache, "Observation", null), containsInAnyOrder(ID1, ID2, ID3));
+		assertThat(getCandidateIds(activeSubscriptionCache, "Observation", RequestPartitionId.fromPartitionId(1)), containsInAnyOrder(ID1, ID3));
+		assertThat(getCandidateIds(activeSubscriptionCache, "Patient", RequestPartitionId.fromPartitionId(1)), containsInAnyOrder(ID3));
+		assertThat(getCandidateIds(activeSubscriptionCache, "Patient", RequestPartitionId.fromPartitionId(2)), containsInAnyOrder(ID2, ID3));
+		assertThat(getCandidateIds(activeSubscriptionCache, "Subscription", null), hasSize(0));
+
+		// Index is refreshed after removal and in-place updates
+		activeSubscriptionCache.remove(ID3);
+		assertThat(getCandidateIds(activeSubscriptionCache, "Patient", null), containsInAnyOrder(ID2));
+
+		activeSubscriptionCache.get(ID1).setSubscription(buildCriteriaSubscription(ID1, "Patient?name=smith", 1, false).getSubscription());
+		activeSubscriptionCache.invalidateIndex();
+		assertThat(getCandidateIds(activeSubscriptionCache, "Patient", null), containsInAnyOrder(ID1, ID2));
+		assertThat(getCandidateIds(activeSubscriptionCache, "Observation", null), containsInAnyOrder(ID2));
+	}
+
+	private List<String> getCandidateIds(ActiveSubscriptionCache theCache, String theResourceType, RequestPartitionId thePartitionId) {
+		return theCache
+			.getNonTopicSubscriptionCandidates(theResourceType, thePartitionId)
+			.stream()
+			.map(ActiveSubscription::getId)
+			.collect(Collectors.toList());
+	}
+
+	private ActiveSubscription buildCriteriaSubscription(String theId, String theCriteria, Integer thePartitionId, boolean theCrossPartition) {
+		CanonicalSubscription canonicalSubscription = new CanonicalSubscription();
+		canonicalSubscription.setIdElement(new IdDt(theId));
+		canonicalSubscription.setCriteriaString(theCriteria);
+		canonicalSubscription.setPartitionId(thePartitionId);
+		canonicalSubscription.setCrossPartitionEnabled(theCrossPartition);
+		return new ActiveSubscription(canonicalSubscription, null);
+	}
+
 	@NotNull
 	private ActiveSubscription buildTopicSubscription(String theId, String theTopicUrl) {
 		ActiveSubscription activeSub2 = buildActiveSubscription(theId);
@@ -19,11 +19,18 @@ import org.slf4j.LoggerFactory;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.util.Collection;
 
 import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
 public class FilesystemBinaryStorageSvcImplTest {
@@ -126,6 +133,76 @@ public class FilesystemBinaryStorageSvcImplTest {
 		assertEquals(0, capture.size());
 	}
 
+	@Test
+	public void testContentAddressedStorageDeduplicates() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id1 = new IdType("Patient/123");
+		IIdType id2 = new IdType("Patient/456");
+		StoredDetails outcome1 = mySvc.storeBlob(id1, null, "image/png", new ByteArrayInputStream(SOME_BYTES), new ServletRequestDetails());
+		StoredDetails outcome2 = mySvc.storeBlob(id2, null, "image/png", new ByteArrayInputStream(SOME_BYTES), new ServletRequestDetails());
+		assertNotEquals(outcome1.getBlobId(), outcome2.getBlobId());
+		assertEquals(outcome1.getHash(), outcome2.getHash());
+		assertEquals(1, listContentFiles().size());
+		assertEquals(0, listFiles(new File(myPath, "tmp")).size());
+
+		mySvc.expungeBlob(id1, outcome1.getBlobId());
+		assertNull(mySvc.fetchBlobDetails(id1, outcome1.getBlobId()));
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id2, outcome2.getBlobId()));
+		assertEquals(1, listContentFiles().size());
+
+		mySvc.expungeBlob(id2, outcome2.getBlobId());
+		assertEquals(0, listContentFiles().size());
+	}
+
+	@Test
+	public void testContentAddressedStorageDifferentContent() throws IOException {
+		mySvc.setContentAddressedStorageEnabled(true);
+
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome1 = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES), new ServletRequestDetails());
+		StoredDetails outcome2 = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(new byte[]{1, 2, 3}), new ServletRequestDetails());
+
+		assertEquals(2, listContentFiles().size());
+		assertEquals("dc7197cfab936698bef7818975c185a9b88b71a0a0a2493deea487706ddf20cb", outcome1.getHash());
+		assertArrayEquals(SOME_BYTES, mySvc.fetchBlob(id, outcome1.getBlobId()));
+		assertArrayEquals(new byte[]{1, 2, 3}, mySvc.fetchBlob(id, outcome2.getBlobId()));
+	}
+
+	@Test
+	public void testContentAddressedStorageRejectOversized() {
+		mySvc.setContentAddressedStorageEnabled(true);
+		mySvc.setMinimumBinarySize(0);
+		mySvc.setMaximumBinarySize(5);
+
+		IIdType id = new IdType("Patient/123");
+		assertThrows(PayloadTooLargeException.class, () -> mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES), new ServletRequestDetails()));
+		assertEquals(0, listContentFiles().size());
+		assertEquals(0, listFiles(new File(myPath, "tmp")).size());
+	}
+
+	@Test
+	public void testWriteBlobToFile() throws IOException {
+		IIdType id = new IdType("Patient/123");
+		StoredDetails outcome = mySvc.storeBlob(id, null, "image/png", new ByteArrayInputStream(SOME_BYTES), new ServletRequestDetails());
+
+		File target = new File(myPath, "target.bin");
+		try (FileOutputStream outputStream = new FileOutputStream(target)) {
+			assertTrue(mySvc.writeBlob(id, outcome.getBlobId(), outputStream));
+		}
+
+		assertArrayEquals(SOME_BYTES, FileUtils.readFileToByteArray(target));
+		assertFalse(mySvc.writeBlob(id, "1111111111", new ByteArrayOutputStream()));
+	}
+
+	private Collection<File> listContentFiles() {
+		return listFiles(new File(myPath, "content"));
+	}
+
+	private static Collection<File> listFiles(File theDirectory) {
+		return FileUtils.listFiles(theDirectory, null, true);
+	}
+
 	@Test
 	public void testRejectOversized() throws IOException {
 		mySvc.setMinimumBinarySize(0);
@@ -5,6 +5,7 @@ import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.model.BulkExportJobResults;
 import ca.uhn.fhir.jpa.api.svc.IBatch2JobRunner;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
 import ca.uhn.fhir.jpa.bulk.export.model.BulkExportJobStatusEnum;
 import ca.uhn.fhir.jpa.provider.BaseResourceProviderR4Test;
 import ca.uhn.fhir.jpa.util.BulkExportUtils;
@@ -59,6 +60,8 @@ public class BulkDataExportTest extends BaseResourceProviderR4Test {
 
 	@Autowired
 	private IBatch2JobRunner myJobRunner;
+	@Autowired
+	private IBinaryStorageSvc myBinaryStorageSvc;
 
 	@AfterEach
 	void afterEach() {
@@ -710,6 +713,53 @@ public class BulkDataExportTest extends BaseResourceProviderR4Test {
 		assertEquals(40, finalJobInstance.getCombinedRecordsProcessed());
 	}
 
+	@Test
+	public void testSystemBulkExport_StreamToBinaryStorage() throws IOException {
+		myStorageSettings.setBulkExportStreamToBinaryStorage(true);
+		myInterceptorRegistry.registerInterceptor(myBinaryStorageInterceptor);
+		try {
+			for (int i = 0; i < 5; i++) {
+				Patient patient = new Patient();
+				patient.setId("P" + i);
+				patient.setActive(true);
+				myPatientDao.update(patient, mySrd);
+			}
+
+			BulkDataExportOptions options = new BulkDataExportOptions();
+			options.setResourceTypes(Sets.newHashSet("Patient"));
+			options.setExportStyle(BulkDataExportOptions.ExportStyle.SYSTEM);
+			options.setOutputFormat(Constants.CT_FHIR_NDJSON);
+
+			Batch2JobStartResponse startResponse = myJobRunner.startNewJob(mySrd, BulkExportUtils.createBulkExportJobParametersFromExportOptions(options));
+			myBatch2JobHelper.awaitJobCompletion(startResponse.getInstanceId(), 120);
+			await()
+				.atMost(200, TimeUnit.SECONDS)
+				.until(() -> myJobRunner.getJobInfo(startResponse.getInstanceId()).getReport() != null);
+
+			String report = myJobRunner.getJobInfo(startResponse.getInstanceId()).getReport();
+			BulkExportJobResults results = JsonUtil.deserialize(report, BulkExportJobResults.class);
+			List<String> binaryIds = results.getResourceTypeToBinaryIds().get("Patient");
+			assertNotNull(binaryIds);
+
+			Set<String> foundIds = new HashSet<>();
+			for (String nextBinaryId : binaryIds) {
+				Binary binary = myBinaryDao.read(new IdType(nextBinaryId), mySrd);
+				assertEquals(Constants.CT_FHIR_NDJSON, binary.getContentType());
+
+				String ndJson = new String(myBinaryStorageSvc.fetchDataBlobFromBinary(binary), Constants.CHARSET_UTF8);
+				for (String nextLine : ndJson.split("\n")) {
+					if (isNotBlank(nextLine)) {
+						foundIds.add(myFhirContext.newJsonParser().parseResource(nextLine).getIdElement().toUnqualifiedVersionless().getValue());
+					}
+				}
+			}
+			assertEquals(Set.of("Patient/P0", "Patient/P1", "Patient/P2", "Patient/P3", "Patient/P4"), foundIds);
+		} finally {
+			myInterceptorRegistry.unregisterInterceptor(myBinaryStorageInterceptor);
+			myStorageSettings.setBulkExportStreamToBinaryStorage(new JpaStorageSettings().isBulkExportStreamToBinaryStorage());
+		}
+	}
+
 	private JobInstance verifyBulkExportResults(BulkDataExportOptions theOptions, List<String> theContainedList, List<String> theExcludedList) {
 		Batch2JobStartResponse startResponse = myJobRunner.startNewJob(mySrd, BulkExportUtils.createBulkExportJobParametersFromExportOptions(theOptions));
 
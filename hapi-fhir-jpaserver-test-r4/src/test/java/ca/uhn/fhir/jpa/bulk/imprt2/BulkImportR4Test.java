@@ -21,6 +21,7 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.test.utilities.ProxyUtil;
 import ca.uhn.fhir.test.utilities.server.HttpServletExtension;
 import ca.uhn.fhir.util.JsonUtil;
+import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Observation;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.AfterEach;
@@ -124,6 +125,54 @@ public class BulkImportR4Test extends BaseJpaR4Test {
 		});
 	}
 
+	@Test
+	public void testRunBulkImport_Pipelined() {
+		// Setup
+
+		int fileCount = 20;
+		List<String> indexes = addFiles(fileCount);
+
+		BulkImportJobParameters parameters = new BulkImportJobParameters();
+		parameters.setPipelinedIngest(true);
+		parameters.setPipelineParseThreadCount(2);
+		parameters.setPipelineWriteBatchSize(1);
+		for (String next : indexes) {
+			String url = myHttpServletExtension.getBaseUrl() + "/download?index=" + next;
+			parameters.addNdJsonUrl(url);
+		}
+
+		JobInstanceStartRequest request = new JobInstanceStartRequest();
+		request.setJobDefinitionId(BulkImportAppCtx.JOB_BULK_IMPORT_PULL);
+		request.setParameters(parameters);
+
+		// Execute
+
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(request);
+		String instanceId = startResponse.getInstanceId();
+		assertThat(instanceId, not(blankOrNullString()));
+
+		// Verify
+
+		await().atMost(120, TimeUnit.SECONDS).until(() -> {
+			myJobCleanerService.runMaintenancePass();
+			JobInstance instance = myJobCoordinator.getInstance(instanceId);
+			return instance.getStatus();
+		}, equalTo(StatusEnum.COMPLETED));
+
+		runInTransaction(() -> {
+			assertEquals(40, myResourceTableDao.count());
+		});
+
+		runInTransaction(() -> {
+			JobInstance instance = myJobCoordinator.getInstance(instanceId);
+			assertEquals(0, instance.getErrorCount());
+			assertEquals(40, instance.getCombinedRecordsProcessed());
+		});
+
+		Observation observation = myObservationDao.read(new IdType("Observation/O0"), mySrd);
+		assertEquals("Patient/P0", observation.getSubject().getReference());
+	}
+
 	@Test
 	public void testRunBulkImport_StorageFailure() {
 		// Setup
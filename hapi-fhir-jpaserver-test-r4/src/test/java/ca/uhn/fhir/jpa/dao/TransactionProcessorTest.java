@@ -15,6 +15,7 @@ import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
 import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.partition.IRequestPartitionHelperSvc;
 import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.jpa.searchparam.matcher.SearchParamMatcher;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
@@ -81,6 +82,8 @@ public class TransactionProcessorTest {
 	private SessionImpl mySession;
 	@MockBean
 	private IFhirSystemDao<Bundle, Meta> mySystemDao;
+	@MockBean
+	private SearchParamExtractorService mySearchParamExtractorService;
 
 	@BeforeEach
 	public void before() {
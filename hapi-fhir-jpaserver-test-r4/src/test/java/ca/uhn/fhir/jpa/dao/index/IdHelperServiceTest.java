@@ -7,6 +7,8 @@ import ca.uhn.fhir.jpa.model.config.PartitionSettings;
 import ca.uhn.fhir.jpa.model.cross.IResourceLookup;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.util.MemoryCacheService;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -16,6 +18,7 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -30,8 +33,13 @@ import java.util.stream.Collectors;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @ExtendWith(MockitoExtension.class)
@@ -205,4 +213,77 @@ public class IdHelperServiceTest {
 		JpaPid result = myHelperService.resolveResourcePersistentIds(partitionId, resourceType, id.toString());
 		assertEquals(id, result.getId());
 	}
+
+	@Test
+	public void testResolveResourceIdentity_knownMissingIdIsNotLookedUp() {
+		when(myStorageSettings.isClientAssignedIdNegativeCacheEnabled()).thenReturn(true);
+		when(myMemoryCacheService.getIfPresent(any(), any())).thenAnswer(t -> {
+			if (t.getArgument(0) == MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND && "Patient/AAA".equals(t.getArgument(1))) {
+				return Boolean.TRUE;
+			}
+			return null;
+		});
+
+		assertThrows(ResourceNotFoundException.class, () -> myHelperService.resolveResourceIdentity(RequestPartitionId.allPartitions(), "Patient", "AAA"));
+		verify(myForcedIdDao, never()).findAndResolveByForcedIdWithNoType(any(), any(), anyBoolean());
+	}
+
+	@Test
+	public void testResolveResourceIdentity_missingIdIsCached() {
+		when(myStorageSettings.isClientAssignedIdNegativeCacheEnabled()).thenReturn(true);
+		when(myMemoryCacheService.getEvictionCounter(eq(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND), eq("Patient/AAA"))).thenReturn(7L);
+		when(myForcedIdDao.findAndResolveByForcedIdWithNoType(any(), any(), anyBoolean())).thenReturn(Collections.emptyList());
+
+		assertThrows(ResourceNotFoundException.class, () -> myHelperService.resolveResourceIdentity(RequestPartitionId.allPartitions(), "Patient", "AAA"));
+		verify(myMemoryCacheService).putUnlessEvicted(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, "Patient/AAA", Boolean.TRUE, 7L);
+	}
+
+	@Test
+	public void testResolveResourceIdentity_missingIdIsNotCachedIfRowsDontMatchExactly() {
+		when(myStorageSettings.isClientAssignedIdNegativeCacheEnabled()).thenReturn(true);
+		Object[] view = new Object[]{"Patient", 1L, "AAA", null};
+		when(myForcedIdDao.findAndResolveByForcedIdWithNoType(any(), any(), anyBoolean())).thenReturn(Collections.singletonList(view));
+
+		// e.g. a database which compares IDs case-insensitively
+		assertThrows(ResourceNotFoundException.class, () -> myHelperService.resolveResourceIdentity(RequestPartitionId.allPartitions(), "Patient", "aaa"));
+		verify(myMemoryCacheService, never()).putUnlessEvicted(any(), any(), any(), anyLong());
+	}
+
+	@Test
+	public void testResolveResourceIdentity_missingIdIsNotCachedWhenDisabled() {
+		when(myForcedIdDao.findAndResolveByForcedIdWithNoType(any(), any(), anyBoolean())).thenReturn(Collections.emptyList());
+
+		assertThrows(ResourceNotFoundException.class, () -> myHelperService.resolveResourceIdentity(RequestPartitionId.allPartitions(), "Patient", "AAA"));
+		verify(myMemoryCacheService, never()).getEvictionCounter(any(), any());
+		verify(myMemoryCacheService, never()).putUnlessEvicted(any(), any(), any(), anyLong());
+	}
+
+	@Test
+	public void testAddResolvedPidToForcedId_evictsMissingId() {
+		when(myStorageSettings.isClientAssignedIdNegativeCacheEnabled()).thenReturn(true);
+
+		JpaPid pid = JpaPid.fromId(1L);
+		pid.setAssociatedResourceId(new IdType("Patient/AAA"));
+		myHelperService.addResolvedPidToForcedId(pid, RequestPartitionId.allPartitions(), "Patient", "AAA", null);
+
+		verify(myMemoryCacheService).evictAfterCommit(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND, "Patient/AAA");
+	}
+
+	@Test
+	public void testAddResolvedPidToForcedId_tracksCreatedIdsWhenNotFoundCacheDisabled() {
+		// Created IDs must never be shared with concurrent lookups, so these are tracked regardless
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			JpaPid pid = JpaPid.fromId(1L);
+			pid.setAssociatedResourceId(new IdType("Patient/AAA"));
+			myHelperService.addResolvedPidToForcedId(pid, RequestPartitionId.allPartitions(), "Patient", "AAA", null);
+
+			assertThat(TransactionSynchronizationManager.getResourceMap().keySet(), hasSize(1));
+			assertThat(TransactionSynchronizationManager.getSynchronizations(), hasSize(1));
+			verify(myMemoryCacheService, never()).evictAfterCommit(eq(MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND), any());
+		} finally {
+			new ArrayList<>(TransactionSynchronizationManager.getResourceMap().keySet()).forEach(TransactionSynchronizationManager::unbindResource);
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+	}
 }
@@ -77,6 +77,7 @@ import static org.hamcrest.Matchers.matchesPattern;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 
@@ -92,6 +93,7 @@ public class FhirResourceDaoR4CreateTest extends BaseJpaR4Test {
 		myStorageSettings.setIndexOnContainedResources(new JpaStorageSettings().isIndexOnContainedResources());
 		myStorageSettings.setIndexOnContainedResourcesRecursively(new JpaStorageSettings().isIndexOnContainedResourcesRecursively());
 		myStorageSettings.setInlineResourceTextBelowSize(new JpaStorageSettings().getInlineResourceTextBelowSize());
+		myStorageSettings.setMatchUrlCacheEnabled(new JpaStorageSettings().isMatchUrlCacheEnabled());
 	}
 
 	@Test
@@ -359,6 +361,30 @@ public class FhirResourceDaoR4CreateTest extends BaseJpaR4Test {
 		assertFalse(outcome.getCreated());
 	}
 
+	@Test
+	public void testConditionalCreate_MatchUrlCacheInvalidatedByDelete() {
+		myStorageSettings.setMatchUrlCacheEnabled(true);
+
+		Observation obs = new Observation();
+		obs.addIdentifier().setValue("A");
+		IIdType id = myObservationDao.create(obs, "identifier=A", new SystemRequestDetails()).getId().toUnqualifiedVersionless();
+
+		obs = new Observation();
+		obs.addIdentifier().setValue("A");
+		DaoMethodOutcome outcome = myObservationDao.create(obs, "identifier=A", new SystemRequestDetails());
+		assertFalse(outcome.getCreated());
+		assertEquals(id.getIdPart(), outcome.getId().getIdPart());
+
+		myObservationDao.delete(id, new SystemRequestDetails());
+
+		// The cached match would point to the deleted resource
+		obs = new Observation();
+		obs.addIdentifier().setValue("A");
+		outcome = myObservationDao.create(obs, "identifier=A", new SystemRequestDetails());
+		assertTrue(outcome.getCreated());
+		assertNotEquals(id.getIdPart(), outcome.getId().getIdPart());
+	}
+
 	/**
 	 * Simulate a client error: Identifier has a "+" but URL has an escaped space character
 	 */
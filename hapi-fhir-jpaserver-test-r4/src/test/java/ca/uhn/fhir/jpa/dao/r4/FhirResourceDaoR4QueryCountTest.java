@@ -38,6 +38,7 @@ import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.TokenParam;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
+import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
 import ca.uhn.fhir.rest.server.interceptor.auth.AuthorizationInterceptor;
 import ca.uhn.fhir.rest.server.interceptor.auth.PolicyEnum;
 import ca.uhn.fhir.test.utilities.server.HashMapResourceProviderExtension;
@@ -104,6 +105,7 @@ import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.eq;
@@ -162,6 +164,7 @@ public class FhirResourceDaoR4QueryCountTest extends BaseResourceProviderR4Test
 		myStorageSettings.setResourceMetaCountHardLimit(new JpaStorageSettings().getResourceMetaCountHardLimit());
 		myStorageSettings.setRespectVersionsForSearchIncludes(new JpaStorageSettings().isRespectVersionsForSearchIncludes());
 		myStorageSettings.setTagStorageMode(new JpaStorageSettings().getTagStorageMode());
+		myStorageSettings.setClientAssignedIdNegativeCacheEnabled(new JpaStorageSettings().isClientAssignedIdNegativeCacheEnabled());
 
 		myFhirContext.getParserOptions().setStripVersionsFromReferences(true);
 		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(false);
@@ -539,6 +542,35 @@ public class FhirResourceDaoR4QueryCountTest extends BaseResourceProviderR4Test
 		assertEquals(0, myCaptureQueriesListener.getDeleteQueriesForCurrentThread().size());
 	}
 
+	/**
+	 * See the class javadoc before changing the counts in this test!
+	 */
+	@Test
+	public void testReadMissingClientAssignedId_NegativeCacheEnabled() {
+		myStorageSettings.setClientAssignedIdNegativeCacheEnabled(true);
+
+		// First read looks in the DB
+		myCaptureQueriesListener.clear();
+		assertThrows(ResourceNotFoundException.class, () -> myPatientDao.read(new IdType("Patient/ABC"), mySrd));
+		myCaptureQueriesListener.logSelectQueriesForCurrentThread();
+		assertEquals(1, myCaptureQueriesListener.getSelectQueriesForCurrentThread().size());
+
+		// Second read doesn't
+		myCaptureQueriesListener.clear();
+		assertThrows(ResourceNotFoundException.class, () -> myPatientDao.read(new IdType("Patient/ABC"), mySrd));
+		myCaptureQueriesListener.logSelectQueriesForCurrentThread();
+		assertEquals(0, myCaptureQueriesListener.getSelectQueriesForCurrentThread().size());
+
+		// Creating the resource evicts the cached miss
+		Patient p = new Patient();
+		p.setId("Patient/ABC");
+		p.setActive(true);
+		myPatientDao.update(p, mySrd);
+
+		Patient actual = myPatientDao.read(new IdType("Patient/ABC"), mySrd);
+		assertTrue(actual.getActive());
+	}
+
 	/**
 	 * See the class javadoc before changing the counts in this test!
 	 */
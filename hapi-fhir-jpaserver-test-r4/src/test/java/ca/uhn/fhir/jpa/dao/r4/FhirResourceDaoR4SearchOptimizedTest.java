@@ -13,6 +13,8 @@ import ca.uhn.fhir.jpa.searchparam.MatchUrlService;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.jpa.util.QueryParameterUtils;
+import ca.uhn.fhir.model.api.ResourceMetadataKeyEnum;
+import ca.uhn.fhir.model.valueset.BundleEntrySearchModeEnum;
 import ca.uhn.fhir.rest.api.SearchTotalModeEnum;
 import ca.uhn.fhir.rest.api.SortSpec;
 import ca.uhn.fhir.rest.api.SummaryEnum;
@@ -30,6 +32,7 @@ import ca.uhn.fhir.test.utilities.ProxyUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.hl7.fhir.instance.model.api.IAnyResource;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.BodyStructure;
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -105,6 +108,7 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 		myStorageSettings.setSearchPreFetchThresholds(new JpaStorageSettings().getSearchPreFetchThresholds());
 		myCaptureQueriesListener.setCaptureQueryStackTrace(false);
 		myStorageSettings.setIndexMissingFields(new JpaStorageSettings().getIndexMissingFields());
+		myStorageSettings.setSearchResultParsingThreadCount(new JpaStorageSettings().getSearchResultParsingThreadCount());
 	}
 
 	private void create200Patients() {
@@ -288,6 +292,26 @@ public class FhirResourceDaoR4SearchOptimizedTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testFetchLargePageWithParallelParsing() {
+		create200Patients();
+		myStorageSettings.setSearchResultParsingThreadCount(4);
+
+		SearchParameterMap params = new SearchParameterMap();
+		params.setSort(new SortSpec(Patient.SP_NAME));
+		params.setLoadSynchronous(true);
+		IBundleProvider results = myPatientDao.search(params);
+		List<IBaseResource> resources = results.getResources(0, 200);
+
+		assertEquals(200, resources.size());
+		for (int i = 0; i < resources.size(); i++) {
+			Patient patient = (Patient) resources.get(i);
+			assertEquals("Patient/PT" + leftPad(Integer.toString(i), 5, '0'), patient.getIdElement().toUnqualifiedVersionless().getValue());
+			assertEquals("FAM" + leftPad(Integer.toString(i), 5, '0'), patient.getNameFirstRep().getFamily());
+			assertEquals(BundleEntrySearchModeEnum.MATCH, ResourceMetadataKeyEnum.ENTRY_SEARCH_MODE.get(patient));
+		}
+	}
+
 	@Test
 	public void testCountEvenIfPreviousSimilarSearchDidNotRequestIt() {
 		create200Patients();
@@ -14,6 +14,7 @@ import ca.uhn.fhir.jpa.test.BaseJpaR4Test;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.ResourceNotFoundException;
+import ca.uhn.fhir.util.HapiExtensions;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.hl7.fhir.r4.model.CodeSystem;
@@ -31,9 +32,13 @@ import org.junit.jupiter.api.Test;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.io.IOException;
+import java.util.List;
+import java.util.stream.Collectors;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.startsWith;
 import static org.hamcrest.Matchers.stringContainsInOrder;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -53,6 +58,7 @@ public class FhirResourceDaoR4ValueSetTest extends BaseJpaR4Test {
 		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(false);
 		myStorageSettings.setPreExpandValueSets(new JpaStorageSettings().isPreExpandValueSets());
 		myStorageSettings.setMaximumExpansionSize(new JpaStorageSettings().getMaximumExpansionSize());
+		myStorageSettings.setConceptAncestorIndexEnabled(new JpaStorageSettings().isConceptAncestorIndexEnabled());
 	}
 
 
@@ -572,6 +578,40 @@ public class FhirResourceDaoR4ValueSetTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testExpandValueSet_IsAFilterNoHibernateSearch_DoesNotIncludeOtherCodes() {
+		CodeSystem cs = new CodeSystem();
+		cs.setId("cs");
+		cs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		cs.setContent(CodeSystem.CodeSystemContentMode.COMPLETE);
+		cs.setUrl("http://cs");
+		CodeSystem.ConceptDefinitionComponent parent = cs.addConcept().setCode("A");
+		CodeSystem.ConceptDefinitionComponent child = parent.addConcept().setCode("AA");
+		child.addConcept().setCode("AAA");
+		child.addConcept().setCode("AAB");
+		parent.addConcept().setCode("AB");
+		cs.addConcept().setCode("B")
+			.addConcept().setCode("BA");
+		myCodeSystemDao.update(cs, mySrd);
+		myTerminologyDeferredStorageSvc.saveAllDeferred();
+
+		ValueSet vs = new ValueSet();
+		vs.setUrl("http://vs");
+		vs.getCompose()
+			.addInclude()
+			.setSystem("http://cs")
+			.addFilter()
+			.setProperty("concept")
+			.setOp(ValueSet.FilterOperator.ISA)
+			.setValue("AA");
+
+		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(true);
+		ValueSet expanded = myValueSetDao.expand(vs, null);
+
+		ourLog.debug("Expanded ValueSet:\n" + myFhirContext.newJsonParser().setPrettyPrint(true).encodeResourceToString(expanded));
+		assertEquals("[AAA, AAB]", expanded.getExpansion().getContains().stream().map(ValueSet.ValueSetExpansionContainsComponent::getCode).sorted().toList().toString());
+	}
+
 	/** See #4449 */
 	@Test
 	public void testExpandValueSet_PreExpandedWithHierarchyNoHibernateSearch() {
@@ -616,5 +656,47 @@ public class FhirResourceDaoR4ValueSetTest extends BaseJpaR4Test {
 		assertEquals(2, valueSet.getExpansion().getContains().get(0).getContains().size());
 	}
 
+	@Test
+	public void testExpandValueSet_IsAFilterNoHibernateSearch_ConceptAncestorIndexEnabled() {
+		myStorageSettings.setConceptAncestorIndexEnabled(true);
+
+		CodeSystem cs = new CodeSystem();
+		cs.setId("cs");
+		cs.setStatus(Enumerations.PublicationStatus.ACTIVE);
+		cs.setContent(CodeSystem.CodeSystemContentMode.COMPLETE);
+		cs.setUrl("http://cs");
+		CodeSystem.ConceptDefinitionComponent parent = cs.addConcept().setCode("A");
+		CodeSystem.ConceptDefinitionComponent child = parent.addConcept().setCode("AA");
+		child.addConcept().setCode("AAA");
+		child.addConcept().setCode("AAB");
+		parent.addConcept().setCode("AB");
+		cs.addConcept().setCode("B")
+			.addConcept().setCode("BA");
+		myCodeSystemDao.update(cs, mySrd);
+		myTerminologyDeferredStorageSvc.saveAllDeferred();
+
+		ValueSet vs = new ValueSet();
+		vs.setUrl("http://vs");
+		vs.getCompose()
+			.addInclude()
+			.setSystem("http://cs")
+			.addFilter()
+			.setProperty("concept")
+			.setOp(ValueSet.FilterOperator.ISA)
+			.setValue("AA");
+
+		TermReadSvcImpl.setForceDisableHibernateSearchForUnitTest(true);
+		ValueSet expanded = myValueSetDao.expand(vs, null);
+
+		ourLog.debug("Expanded ValueSet:\n" + myFhirContext.newJsonParser().setPrettyPrint(true).encodeResourceToString(expanded));
+		List<String> codes = expanded.getExpansion().getContains().stream().map(ValueSet.ValueSetExpansionContainsComponent::getCode).collect(Collectors.toList());
+		assertThat(codes, containsInAnyOrder("AAA", "AAB"));
+		assertThat(expanded.getExtensionsByUrl(HapiExtensions.EXT_VALUESET_EXPANSION_MESSAGE), empty());
+
+		vs.getCompose().getIncludeFirstRep().getFilterFirstRep().setValue("A");
+		expanded = myValueSetDao.expand(vs, null);
+		codes = expanded.getExpansion().getContains().stream().map(ValueSet.ValueSetExpansionContainsComponent::getCode).collect(Collectors.toList());
+		assertThat(codes, containsInAnyOrder("AA", "AAA", "AAB", "AB"));
+	}
 
 }
@@ -14,12 +14,16 @@ import ca.uhn.fhir.jpa.model.entity.ResourceTag;
 import ca.uhn.fhir.jpa.model.entity.TagTypeEnum;
 import ca.uhn.fhir.jpa.provider.r4.SystemProviderR4Test;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.jpa.searchparam.extractor.SearchParamExtractorService;
 import ca.uhn.fhir.model.primitive.IdDt;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
+import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
+import ca.uhn.fhir.rest.param.ParamPrefixEnum;
+import ca.uhn.fhir.rest.param.QuantityParam;
 import ca.uhn.fhir.rest.param.ReferenceParam;
 import ca.uhn.fhir.rest.param.StringParam;
 import ca.uhn.fhir.rest.param.TokenParam;
@@ -104,6 +108,7 @@ import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
@@ -147,6 +152,7 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 		myStorageSettings.setPopulateIdentifierInAutoCreatedPlaceholderReferenceTargets(defaults.isPopulateIdentifierInAutoCreatedPlaceholderReferenceTargets());
 		myStorageSettings.setAutoVersionReferenceAtPaths(defaults.getAutoVersionReferenceAtPaths());
 		myStorageSettings.setAutoCreatePlaceholderReferenceTargets(defaults.isAutoCreatePlaceholderReferenceTargets());
+		myStorageSettings.setTransactionIndexingThreadCount(defaults.getTransactionIndexingThreadCount());
 
 		myFhirContext.getParserOptions().setAutoContainReferenceTargetsWithNoId(true);
 	}
@@ -267,6 +273,52 @@ public class FhirSystemDaoR4Test extends BaseJpaR4SystemTest {
 		return null;
 	}
 
+	@Test
+	public void testTransactionWithParallelIndexing() {
+		myStorageSettings.setTransactionIndexingThreadCount(4);
+
+		Bundle input = new Bundle();
+		input.setType(BundleType.TRANSACTION);
+
+		Patient pt = new Patient();
+		pt.setId(IdType.newRandomUuid());
+		pt.addName().setFamily("PARALLEL");
+		input.addEntry().setFullUrl(pt.getId()).setResource(pt).getRequest().setUrl("Patient").setMethod(HTTPVerb.POST);
+
+		for (int i = 0; i < 40; i++) {
+			Observation obs = new Observation();
+			obs.getCode().addCoding().setSystem("http://foo").setCode("code-" + i);
+			obs.getSubject().setReference(pt.getId());
+			obs.setValue(new Quantity().setValue(i).setSystem("http://unitsofmeasure.org").setCode("mg"));
+			input.addEntry().setResource(obs).getRequest().setUrl("Observation").setMethod(HTTPVerb.POST);
+		}
+
+		// Parameters are registered for every resource up front, and removed as each one is indexed
+		AtomicReference<Map<?, ?>> preExtractedParams = new AtomicReference<>();
+		mySrdInterceptorService.registerAnonymousInterceptor(Pointcut.STORAGE_TRANSACTION_PROCESSED, (thePointcut, theArgs) -> {
+			TransactionDetails transactionDetails = theArgs.get(TransactionDetails.class);
+			preExtractedParams.set(transactionDetails.getUserData(SearchParamExtractorService.XACT_USERDATA_KEY_PRE_EXTRACTED_PARAMS));
+		});
+
+		Bundle output = mySystemDao.transaction(mySrd, input);
+		String patientId = new IdType(output.getEntry().get(0).getResponse().getLocation()).toUnqualifiedVersionless().getValue();
+
+		assertNotNull(preExtractedParams.get());
+		assertThat(preExtractedParams.get().keySet(), empty());
+
+		SearchParameterMap map = SearchParameterMap.newSynchronous(Observation.SP_CODE, new TokenParam("http://foo", "code-7"));
+		assertEquals(1, toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)).size());
+
+		map = SearchParameterMap.newSynchronous(Observation.SP_VALUE_QUANTITY, new QuantityParam(ParamPrefixEnum.GREATERTHAN_OR_EQUALS, 30, "http://unitsofmeasure.org", "mg"));
+		assertEquals(10, toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)).size());
+
+		map = SearchParameterMap.newSynchronous(Observation.SP_SUBJECT, new ReferenceParam(patientId));
+		assertEquals(40, toUnqualifiedVersionlessIdValues(myObservationDao.search(map, mySrd)).size());
+
+		map = SearchParameterMap.newSynchronous(Patient.SP_FAMILY, new StringParam("PARALLEL"));
+		assertEquals(patientId, toUnqualifiedVersionlessIdValues(myPatientDao.search(map, mySrd)).get(0));
+	}
+
 	@Test
 	public void testTransactionReSavesPreviouslyDeletedResources() {
 
@@ -12,6 +12,7 @@ import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.api.dao.ReindexParameters;
 import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.batch.models.Batch2JobStartResponse;
+import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -33,10 +34,12 @@ import javax.annotation.PostConstruct;
 import javax.persistence.Query;
 import java.util.Date;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.Stream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.blankOrNullString;
+import static org.hamcrest.Matchers.contains;
 import static org.hamcrest.Matchers.equalTo;
 import static org.hamcrest.Matchers.hasSize;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -66,6 +69,7 @@ public class ReindexJobTest extends BaseJpaR4Test {
 		myStorageSettings.setInlineResourceTextBelowSize(new JpaStorageSettings().getInlineResourceTextBelowSize());
 		myStorageSettings.setStoreMetaSourceInformation(new JpaStorageSettings().getStoreMetaSourceInformation());
 		myStorageSettings.setPreserveRequestIdInResourceBody(new JpaStorageSettings().isPreserveRequestIdInResourceBody());
+		myStorageSettings.setResourceEncoding(new JpaStorageSettings().getResourceEncoding());
 	}
 
 	@Test
@@ -171,6 +175,53 @@ public class ReindexJobTest extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testOptimizeStorage_AllVersions_ConvertToSmile() {
+		// Setup
+		IIdType patientId = createPatient(withActiveTrue(), withFamily("Smith"));
+		for (int i = 0; i < 4; i++) {
+			Patient p = new Patient();
+			p.setId(patientId.toUnqualifiedVersionless());
+			p.setActive(true);
+			p.addIdentifier().setValue(String.valueOf(i));
+			myPatientDao.update(p, mySrd);
+		}
+
+		myStorageSettings.setResourceEncoding(ResourceEncodingEnum.SMILE);
+		createPatient(withActiveFalse());
+
+		runInTransaction(()->{
+			List<ResourceEncodingEnum> encodings = myResourceHistoryTableDao.findAll().stream().map(ResourceHistoryTable::getEncoding).collect(Collectors.toList());
+			assertThat(encodings, contains(ResourceEncodingEnum.JSONC, ResourceEncodingEnum.JSONC, ResourceEncodingEnum.JSONC, ResourceEncodingEnum.JSONC, ResourceEncodingEnum.JSONC, ResourceEncodingEnum.SMILE));
+		});
+
+		// execute
+		JobInstanceStartRequest startRequest = new JobInstanceStartRequest();
+		startRequest.setJobDefinitionId(ReindexAppCtx.JOB_REINDEX);
+		startRequest.setParameters(
+			new ReindexJobParameters()
+				.setOptimizeStorage(ReindexParameters.OptimizeStorageModeEnum.ALL_VERSIONS)
+				.setReindexSearchParameters(ReindexParameters.ReindexSearchParametersEnum.NONE)
+		);
+		Batch2JobStartResponse startResponse = myJobCoordinator.startInstance(startRequest);
+		myBatch2JobHelper.awaitJobCompletion(startResponse);
+
+		// validate
+		runInTransaction(()->{
+			assertEquals(6, myResourceHistoryTableDao.count());
+			for (ResourceHistoryTable history : myResourceHistoryTableDao.findAll()) {
+				assertEquals(ResourceEncodingEnum.SMILE, history.getEncoding());
+				assertNull(history.getResourceTextVc());
+				assertNotNull(history.getResource());
+			}
+		});
+		Patient patient = myPatientDao.read(patientId.withVersion("1"), mySrd);
+		assertTrue(patient.getActive());
+		assertEquals("Smith", patient.getNameFirstRep().getFamily());
+		patient = myPatientDao.read(patientId, mySrd);
+		assertEquals("3", patient.getIdentifierFirstRep().getValue());
+	}
+
 	@Test
 	public void testOptimizeStorage_AllVersions_CopyProvenanceEntityData() {
 		// Setup
@@ -4,6 +4,7 @@ import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.ValidationSupportContext;
 import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
+import ca.uhn.fhir.jpa.dao.data.ITermConceptAncestorDao;
 import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermConceptParentChildLink;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
@@ -16,8 +17,10 @@ import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.CodeType;
 import org.hl7.fhir.r4.model.Coding;
+import org.hl7.fhir.r4.model.codesystems.ConceptSubsumptionOutcome;
 import org.hl7.fhir.r4.model.Parameters;
 import org.hl7.fhir.r4.model.StringType;
+import org.hl7.fhir.r4.model.UriType;
 import org.hl7.fhir.r4.model.ValueSet;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
@@ -34,6 +37,7 @@ import java.util.stream.Collectors;
 import static org.apache.commons.lang3.StringUtils.leftPad;
 import static org.hamcrest.CoreMatchers.containsString;
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
 import static org.hamcrest.Matchers.matchesPattern;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
@@ -42,9 +46,13 @@ import static org.junit.jupiter.api.Assertions.fail;
 public class TerminologySvcDeltaR4Test extends BaseJpaR4Test {
 	private static final Logger ourLog = LoggerFactory.getLogger(TerminologySvcDeltaR4Test.class);
 
+	@Autowired
+	private ITermConceptAncestorDao myTermConceptAncestorDao;
+
 	@AfterEach
 	public void after() {
 		myStorageSettings.setDeferIndexingForCodesystemsOfSize(new JpaStorageSettings().getDeferIndexingForCodesystemsOfSize());
+		myStorageSettings.setConceptAncestorIndexEnabled(new JpaStorageSettings().isConceptAncestorIndexEnabled());
 		TermDeferredStorageSvcImpl termDeferredStorageSvc = AopTestUtils.getTargetObject(myTermDeferredStorageSvc);
 		termDeferredStorageSvc.clearDeferred();
 	}
@@ -191,6 +199,75 @@ public class TerminologySvcDeltaR4Test extends BaseJpaR4Test {
 
 	}
 
+	@Test
+	public void testAddMoveConceptFromOneParentToAnother_ConceptAncestorIndexEnabled() {
+		myStorageSettings.setConceptAncestorIndexEnabled(true);
+		createNotPresentCodeSystem();
+
+		CustomTerminologySet delta = new CustomTerminologySet();
+		delta.addRootConcept("RootA", "Root A")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAA").setDisplay("Child AA")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAAA").setDisplay("Child AAA");
+		delta.addRootConcept("RootB", "Root B");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		runInTransaction(() -> assertEquals(3, myTermConceptAncestorDao.count()));
+
+		assertThat(toCodes(myTermSvc.findCodesAbove("http://foo/cs", "ChildAAA")), containsInAnyOrder("ChildAAA", "ChildAA", "RootA"));
+		assertThat(toCodes(myTermSvc.findCodesBelow("http://foo/cs", "RootA")), containsInAnyOrder("RootA", "ChildAA", "ChildAAA"));
+		assertEquals(ConceptSubsumptionOutcome.SUBSUMES, subsumes("RootA", "ChildAAA"));
+		assertEquals(ConceptSubsumptionOutcome.SUBSUMEDBY, subsumes("ChildAAA", "RootA"));
+		assertEquals(ConceptSubsumptionOutcome.NOTSUBSUMED, subsumes("RootB", "ChildAAA"));
+
+		// Move ChildAA (and so also ChildAAA) below RootB too
+		delta = new CustomTerminologySet();
+		delta.addRootConcept("RootB", "Root B")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAA").setDisplay("Child AA");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		runInTransaction(() -> assertEquals(5, myTermConceptAncestorDao.count()));
+
+		assertThat(toCodes(myTermSvc.findCodesAbove("http://foo/cs", "ChildAAA")), containsInAnyOrder("ChildAAA", "ChildAA", "RootA", "RootB"));
+		assertThat(toCodes(myTermSvc.findCodesBelow("http://foo/cs", "RootB")), containsInAnyOrder("RootB", "ChildAA", "ChildAAA"));
+		assertEquals(ConceptSubsumptionOutcome.SUBSUMES, subsumes("RootB", "ChildAAA"));
+		assertEquals(ConceptSubsumptionOutcome.NOTSUBSUMED, subsumes("RootA", "RootB"));
+
+		// Remove ChildAAA
+		delta = new CustomTerminologySet();
+		delta.addRootConcept("ChildAAA");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsRemove("http://foo/cs", delta);
+		runInTransaction(() -> assertEquals(2, myTermConceptAncestorDao.count()));
+		assertThat(toCodes(myTermSvc.findCodesBelow("http://foo/cs", "RootB")), containsInAnyOrder("RootB", "ChildAA"));
+	}
+
+	@Test
+	public void testAddMoveConceptFromOneParentToAnother_ConceptAncestorIndexEnabled_Deferred() {
+		myStorageSettings.setConceptAncestorIndexEnabled(true);
+		createNotPresentCodeSystem();
+
+		CustomTerminologySet delta = new CustomTerminologySet();
+		delta.addRootConcept("RootA", "Root A")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAA").setDisplay("Child AA")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAAA").setDisplay("Child AAA");
+		delta.addRootConcept("RootB", "Root B");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		assertEquals(ConceptSubsumptionOutcome.NOTSUBSUMED, subsumes("RootB", "ChildAAA"));
+
+		// Move ChildAA (and so also ChildAAA) below RootB too, with the new link stored later
+		myStorageSettings.setDeferIndexingForCodesystemsOfSize(0);
+		delta = new CustomTerminologySet();
+		delta.addRootConcept("RootB", "Root B")
+			.addChild(TermConceptParentChildLink.RelationshipTypeEnum.ISA).setCode("ChildAA").setDisplay("Child AA");
+		myTermCodeSystemStorageSvc.applyDeltaCodeSystemsAdd("http://foo/cs", delta);
+		myTermDeferredStorageSvc.saveAllDeferred();
+
+		runInTransaction(() -> assertFalse(myTermCodeSystemDao.findByCodeSystemUri("http://foo/cs").getCurrentVersion().isAncestorsIndexed()));
+		assertThat(toCodes(myTermSvc.findCodesAbove("http://foo/cs", "ChildAAA")), containsInAnyOrder("ChildAAA", "ChildAA", "RootA", "RootB"));
+		assertThat(toCodes(myTermSvc.findCodesBelow("http://foo/cs", "RootB")), containsInAnyOrder("RootB", "ChildAA", "ChildAAA"));
+	}
+
+	private ConceptSubsumptionOutcome subsumes(String theCodeA, String theCodeB) {
+		return myTermSvc.subsumes(new CodeType(theCodeA), new CodeType(theCodeB), new UriType("http://foo/cs"), null, null).getOutcome();
+	}
+
 	@Test
 	public void testReAddingConceptsDoesntRecreateExistingLinks() {
 		createNotPresentCodeSystem();
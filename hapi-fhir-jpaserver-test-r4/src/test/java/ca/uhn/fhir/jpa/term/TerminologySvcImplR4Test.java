@@ -11,6 +11,7 @@ import ca.uhn.fhir.jpa.entity.TermConcept;
 import ca.uhn.fhir.jpa.entity.TermValueSet;
 import ca.uhn.fhir.jpa.test.Batch2JobHelper;
 import ca.uhn.fhir.rest.server.exceptions.UnprocessableEntityException;
+import org.apache.commons.io.FileUtils;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r4.model.CodeSystem;
 import org.hl7.fhir.r4.model.CodeableConcept;
@@ -33,12 +34,16 @@ import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
 import java.util.Set;
+import java.util.stream.Collectors;
 
 import static ca.uhn.fhir.batch2.jobs.termcodesystem.TermCodeSystemJobConfig.TERM_CODE_SYSTEM_VERSION_DELETE_JOB_NAME;
 import static org.awaitility.Awaitility.await;
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.containsString;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasItem;
+import static org.hamcrest.Matchers.not;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNull;
@@ -61,6 +66,7 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 	public void after() {
 		super.after();
 		myStorageSettings.setDeferIndexingForCodesystemsOfSize(new JpaStorageSettings().getDeferIndexingForCodesystemsOfSize());
+		myStorageSettings.setPreExpandedValueSetCodeIndexMaximumBytes(new JpaStorageSettings().getPreExpandedValueSetCodeIndexMaximumBytes());
 		TermCodeSystemDeleteJobSvcWithUniTestFailures.setFailNextDeleteCodeSystemVersion(false);
 	}
 
@@ -305,6 +311,61 @@ public class TerminologySvcImplR4Test extends BaseTermR4Test {
 		assertEquals("Systolic blood pressure at First encounter", result.getDisplay());
 	}
 
+	@Test
+	public void testValidateCodeIsInPreExpandedValueSet_CodeIndexEnabled() throws Exception {
+		myStorageSettings.setPreExpandValueSets(true);
+
+		loadAndPersistCodeSystemAndValueSetWithDesignations(HttpVerb.POST);
+		ValueSet valueSet = myValueSetDao.read(myExtensionalVsId);
+		myTermSvc.preExpandDeferredValueSetsToTerminologyTables();
+
+		Coding coding = new Coding("http://acme.org", "11378-7", "Systolic blood pressure at First encounter");
+		CodeableConcept codeableConcept = new CodeableConcept();
+		codeableConcept.addCoding(new Coding("BOGUS", "BOGUS", "BOGUS"));
+		codeableConcept.addCoding(coding);
+
+		// Validate using the database first
+		List<IValidationSupport.CodeValidationResult> expected = validateCodesInPreExpandedValueSet(valueSet, coding, codeableConcept);
+
+		myStorageSettings.setPreExpandedValueSetCodeIndexMaximumBytes(10 * FileUtils.ONE_MB);
+
+		// The first validation loads the index
+		List<IValidationSupport.CodeValidationResult> actual = validateCodesInPreExpandedValueSet(valueSet, coding, codeableConcept);
+		assertEquals(expected.size(), actual.size());
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).isOk(), actual.get(i).isOk(), "Result " + i);
+			assertEquals(expected.get(i).getDisplay(), actual.get(i).getDisplay(), "Result " + i);
+			assertEquals(stripElapsedTime(expected.get(i).getMessage()), stripElapsedTime(actual.get(i).getMessage()), "Result " + i);
+		}
+
+		// Subsequent validations shouldn't need to query the expanded concepts
+		myCaptureQueriesListener.clear();
+		IValidationSupport.CodeValidationResult result = myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, valueSet, "http://acme.org", "11378-7", null, null, null);
+		assertTrue(result.isOk());
+		assertEquals("Systolic blood pressure at First encounter", result.getDisplay());
+		result = myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, valueSet, "http://acme.org", "BOGUS", null, null, null);
+		assertFalse(result.isOk());
+		myCaptureQueriesListener.logSelectQueries();
+		assertThat(myCaptureQueriesListener.getSelectQueries().stream().map(t -> t.getSql(false, false)).collect(Collectors.toList()), not(hasItem(containsString("HFJ_TRM_VALUESET_C"))));
+	}
+
+	private static String stripElapsedTime(String theMessage) {
+		return theMessage != null ? theMessage.replaceAll("\\(.* ago\\)", "") : null;
+	}
+
+	private List<IValidationSupport.CodeValidationResult> validateCodesInPreExpandedValueSet(ValueSet theValueSet, Coding theCoding, CodeableConcept theCodeableConcept) {
+		List<IValidationSupport.CodeValidationResult> retVal = new ArrayList<>();
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, null, "BOGUS", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, null, "11378-7", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsGuess, theValueSet, null, "11378-7", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, "http://acme.org", "11378-7", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, "http://acme.org", "BOGUS", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, "http://bogus.org", "11378-7", null, null, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, null, null, null, theCoding, null));
+		retVal.add(myTermSvc.validateCodeIsInPreExpandedValueSet(optsNoGuess, theValueSet, null, null, null, null, theCodeableConcept));
+		return retVal;
+	}
+
 	@Test
 	public void testValidateCodeIsInPreExpandedValueSetWithClientAssignedId() throws Exception {
 		myStorageSettings.setPreExpandValueSets(true);
@@ -5,6 +5,7 @@ import ca.uhn.fhir.context.support.ConceptValidationOptions;
 import ca.uhn.fhir.context.support.IValidationSupport;
 import ca.uhn.fhir.context.support.ValueSetExpansionOptions;
 import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.entity.TermCodeSystem;
 import ca.uhn.fhir.jpa.entity.TermCodeSystemVersion;
 import ca.uhn.fhir.jpa.entity.TermConcept;
@@ -79,6 +80,7 @@ public class ValueSetExpansionR4Test extends BaseTermR4Test {
 	@AfterEach
 	public void afterEach() {
 		SearchBuilder.setMaxPageSize50ForTest(false);
+		myStorageSettings.setPreExpandedValueSetStreamingEnabled(new JpaStorageSettings().isPreExpandedValueSetStreamingEnabled());
 	}
 
 	@Test
@@ -248,6 +250,55 @@ public class ValueSetExpansionR4Test extends BaseTermR4Test {
 
 	}
 
+	@Test
+	public void testExpandPreExpandedValueSet_Streaming() {
+		myStorageSettings.setPreExpandValueSets(true);
+		myStorageSettings.setPreExpandedValueSetStreamingEnabled(true);
+		IIdType vsId = createConceptsCodeSystemAndValueSet(2500);
+
+		// Larger than the maximum expansion size, which doesn't apply when streaming
+		ValueSetExpansionOptions options = ValueSetExpansionOptions.forOffsetAndCount(300, 2100);
+		myCaptureQueriesListener.clear();
+		ValueSet expandedValueSet = myValueSetDao.expand(vsId, options, mySrd);
+		assertEquals(0, countPreExpansionPageQueries());
+
+		assertEquals(2500, expandedValueSet.getExpansion().getTotal());
+		assertEquals(300, expandedValueSet.getExpansion().getOffset());
+		assertEquals(2100, expandedValueSet.getExpansion().getContains().size());
+		assertThat(expandedValueSet.getMeta().getExtensionString(EXT_VALUESET_EXPANSION_MESSAGE), containsString("ValueSet was expanded using an expansion that was pre-calculated"));
+
+		// Concepts are loaded a page at a time while encoding. The parser walks the
+		// resource twice (once looking for references to contain), so 2 x 3 pages.
+		myCaptureQueriesListener.clear();
+		String encoded = myFhirContext.newJsonParser().encodeResourceToString(expandedValueSet);
+		assertEquals(6, countPreExpansionPageQueries());
+
+		ValueSet parsed = myFhirContext.newJsonParser().parseResource(ValueSet.class, encoded);
+		assertEquals(2100, parsed.getExpansion().getContains().size());
+
+		// Offset past the end of the expansion
+		ValueSet pastEnd = myValueSetDao.expand(vsId, ValueSetExpansionOptions.forOffsetAndCount(2600, 100), mySrd);
+		assertEquals(2500, pastEnd.getExpansion().getTotal());
+		assertThat(pastEnd.getExpansion().getContains(), empty());
+
+		// Same concepts as a normal expansion
+		myStorageSettings.setPreExpandedValueSetStreamingEnabled(false);
+		myStorageSettings.setMaximumExpansionSize(5000);
+		ValueSet notStreamed = myValueSetDao.expand(vsId, options, mySrd);
+		assertEquals(myValueSetTestUtil.toCodes(notStreamed), myValueSetTestUtil.toCodes(parsed));
+		assertEquals(
+			myFhirContext.newJsonParser().encodeToString(notStreamed.getExpansion().getContains().get(0)),
+			myFhirContext.newJsonParser().encodeToString(parsed.getExpansion().getContains().get(0)));
+	}
+
+	private int countPreExpansionPageQueries() {
+		return (int) myCaptureQueriesListener
+			.getSelectQueries()
+			.stream()
+			.filter(t -> t.getSql(false, false).toLowerCase().contains("concept_valueset_order>="))
+			.count();
+	}
+
 	@Test
 	public void testExpandIntestExpandInline_IncludePreExpandedValueSetByUri_FilterOnDisplay_LeftMatch_SelectRangeline_IncludePreExpandedValueSetByUri_FilterOnDisplay_LeftMatch_SelectRange() {
 		myStorageSettings.setPreExpandValueSets(true);
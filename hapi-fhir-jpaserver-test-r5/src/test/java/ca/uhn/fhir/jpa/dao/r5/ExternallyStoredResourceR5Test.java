@@ -2,23 +2,41 @@ package ca.uhn.fhir.jpa.dao.r5;
 
 import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceAddress;
 import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceAddressMetadataKey;
+import ca.uhn.fhir.jpa.api.config.JpaStorageSettings;
 import ca.uhn.fhir.jpa.esr.ExternallyStoredResourceServiceRegistry;
+import ca.uhn.fhir.jpa.esr.FilesystemExternallyStoredResourceService;
 import ca.uhn.fhir.jpa.esr.IExternallyStoredResourceService;
 import ca.uhn.fhir.jpa.model.entity.ResourceEncodingEnum;
 import ca.uhn.fhir.jpa.model.entity.ResourceHistoryTable;
 import ca.uhn.fhir.jpa.model.entity.ResourceTable;
+import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
+import ca.uhn.fhir.rest.api.server.IBundleProvider;
+import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.hl7.fhir.r5.model.Patient;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 import org.mockito.Mock;
 import org.springframework.beans.factory.annotation.Autowired;
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsInAnyOrder;
+import static org.hamcrest.Matchers.startsWith;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 public class ExternallyStoredResourceR5Test extends BaseJpaR5Test {
@@ -30,6 +48,8 @@ public class ExternallyStoredResourceR5Test extends BaseJpaR5Test {
 
 	@Mock
 	private IExternallyStoredResourceService myProvider;
+	@TempDir
+	Path myTempDir;
 
 	@BeforeEach
 	public void beforeEach() {
@@ -40,6 +60,9 @@ public class ExternallyStoredResourceR5Test extends BaseJpaR5Test {
 	@AfterEach
 	public void afterEach() {
 		myProviderRegistry.clearProviders();
+		JpaStorageSettings defaults = new JpaStorageSettings();
+		myStorageSettings.setExternallyStoredResourceWriteThroughProviderId(defaults.getExternallyStoredResourceWriteThroughProviderId());
+		myStorageSettings.setExternallyStoredResourceWriteThroughMinimumSize(defaults.getExternallyStoredResourceWriteThroughMinimumSize());
 	}
 
 	@Test
@@ -74,9 +97,78 @@ public class ExternallyStoredResourceR5Test extends BaseJpaR5Test {
 
 	}
 
+	@Test
+	public void testSearchFetchesPageInOneBatch() {
+		// Setup
+		IIdType id0 = storePatientWithExternalAddress("address_0");
+		IIdType id1 = storePatientWithExternalAddress("address_1");
+		when(myProvider.fetchResources(anyCollection())).thenAnswer(t -> {
+			Collection<String> addresses = t.getArgument(0);
+			assertThat(addresses, containsInAnyOrder("address_0", "address_1"));
+			return Map.of("address_0", new Patient().setActive(true), "address_1", new Patient().setActive(false));
+		});
+
+		// Test
+		IBundleProvider outcome = myPatientDao.search(SearchParameterMap.newSynchronous(), mySrd);
+		List<IBaseResource> resources = outcome.getResources(0, 10);
+
+		// Verify
+		assertEquals(2, resources.size());
+		Map<String, Boolean> idToActive = Map.of(
+			resources.get(0).getIdElement().toUnqualifiedVersionless().getValue(), ((Patient) resources.get(0)).getActive(),
+			resources.get(1).getIdElement().toUnqualifiedVersionless().getValue(), ((Patient) resources.get(1)).getActive());
+		assertEquals(Map.of(id0.getValue(), true, id1.getValue(), false), idToActive);
+		verify(myProvider, times(1)).fetchResources(anyCollection());
+		verify(myProvider, never()).fetchResource(any());
+	}
+
+	@Test
+	public void testWriteThrough() {
+		// Setup
+		FilesystemExternallyStoredResourceService provider = new FilesystemExternallyStoredResourceService("fs", myTempDir.toString(), myFhirContext);
+		myProviderRegistry.registerProvider(provider);
+		myStorageSettings.setExternallyStoredResourceWriteThroughProviderId("fs");
+		myStorageSettings.setExternallyStoredResourceWriteThroughMinimumSize(100);
+
+		Patient small = new Patient();
+		small.setActive(true);
+		Patient large = new Patient();
+		large.addName().setFamily("Simpson").addGiven("Homer").addGiven("Jay");
+		large.addIdentifier().setSystem("http://example.com/mrn").setValue("12345");
+
+		// Test
+		IIdType smallId = myPatientDao.create(small, mySrd).getId().toUnqualifiedVersionless();
+		IIdType largeId = myPatientDao.create(large, mySrd).getId().toUnqualifiedVersionless();
+
+		// Verify
+		runInTransaction(() -> {
+			ResourceHistoryTable smallHistory = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(smallId.getIdPartAsLong(), 1L);
+			assertEquals(ResourceEncodingEnum.JSONC, smallHistory.getEncoding());
+			ResourceHistoryTable largeHistory = myResourceHistoryTableDao.findForIdAndVersionAndFetchProvenance(largeId.getIdPartAsLong(), 1L);
+			assertEquals(ResourceEncodingEnum.ESR, largeHistory.getEncoding());
+			assertThat(largeHistory.getResourceTextVc(), startsWith("fs:"));
+		});
+
+		Patient fetched = myPatientDao.read(largeId, mySrd);
+		assertEquals("Simpson", fetched.getNameFirstRep().getFamily());
+		assertEquals("12345", fetched.getIdentifierFirstRep().getValue());
+		assertEquals("1", fetched.getIdElement().getVersionIdPart());
+
+		// Updating with no changes doesn't create a new version
+		fetched.setId(largeId);
+		assertEquals("1", myPatientDao.update(fetched, mySrd).getId().getVersionIdPart());
+
+		List<IBaseResource> searchResults = myPatientDao.search(SearchParameterMap.newSynchronous(), mySrd).getResources(0, 10);
+		assertEquals(2, searchResults.size());
+	}
+
 	private IIdType storePatientWithExternalAddress() {
+		return storePatientWithExternalAddress(ADDRESS_123);
+	}
+
+	private IIdType storePatientWithExternalAddress(String theLocation) {
 		Patient p = new Patient();
-		ExternallyStoredResourceAddress address = new ExternallyStoredResourceAddress(MY_PROVIDER_ID, ADDRESS_123);
+		ExternallyStoredResourceAddress address = new ExternallyStoredResourceAddress(MY_PROVIDER_ID, theLocation);
 		ExternallyStoredResourceAddressMetadataKey.INSTANCE.put(p, address);
 		IIdType id = myPatientDao.create(p, mySrd).getId().toUnqualifiedVersionless();
 		return id;
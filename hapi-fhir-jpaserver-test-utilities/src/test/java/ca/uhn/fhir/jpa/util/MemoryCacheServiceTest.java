@@ -12,6 +12,8 @@ import org.junit.jupiter.api.Nested;
 import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionSynchronizationUtils;
 
 import java.util.ArrayList;
 import java.util.List;
@@ -25,8 +27,12 @@ import java.util.concurrent.TimeoutException;
 import java.util.function.Predicate;
 
 import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.empty;
 import static org.hamcrest.Matchers.equalTo;
+import static org.hamcrest.Matchers.hasSize;
+import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.nullValue;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.Assertions.fail;
@@ -65,6 +71,106 @@ class MemoryCacheServiceTest {
 		assertThat(retVal, equalTo(tagDef));
 	}
 
+	@Test
+	public void testInvalidationBus_OnlyEvictIsPropagated() {
+		LocalMemoryCacheInvalidationBus bus = new LocalMemoryCacheInvalidationBus();
+		MemoryCacheService otherSvc = new MemoryCacheService(new JpaStorageSettings());
+		mySvc.setInvalidationBus(bus);
+		otherSvc.setInvalidationBus(bus);
+
+		otherSvc.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo", "A");
+		otherSvc.put(MemoryCacheService.CacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 123L, "B");
+
+		// A put only caches what is already in the database, so other nodes keep their copy
+		mySvc.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo", "C");
+		assertThat(mySvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), equalTo("C"));
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), equalTo("A"));
+
+		mySvc.evict(MemoryCacheService.CacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 123L);
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.RESOURCE_CONDITIONAL_CREATE_VERSION, 123L), nullValue());
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), equalTo("A"));
+	}
+
+	@Test
+	public void testInvalidationBus_CompositeKeysAreNotBroadcast() {
+		LocalMemoryCacheInvalidationBus bus = new LocalMemoryCacheInvalidationBus();
+		MemoryCacheService otherSvc = new MemoryCacheService(new JpaStorageSettings());
+		mySvc.setInvalidationBus(bus);
+		otherSvc.setInvalidationBus(bus);
+
+		MemoryCacheService.TagDefinitionCacheKey key = new MemoryCacheService.TagDefinitionCacheKey(TagTypeEnum.TAG, "http://foo", "0", null, null);
+		otherSvc.put(MemoryCacheService.CacheEnum.TAG_DEFINITION, key, new TagDefinition(TagTypeEnum.TAG, "http://foo", "0", null));
+		otherSvc.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo", "A");
+
+		mySvc.evict(MemoryCacheService.CacheEnum.TAG_DEFINITION, key);
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.TAG_DEFINITION, key), notNullValue());
+
+		mySvc.invalidate(MemoryCacheService.CacheEnum.TAG_DEFINITION);
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.TAG_DEFINITION, key), nullValue());
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), equalTo("A"));
+
+		mySvc.invalidateAllCaches();
+		assertThat(otherSvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), nullValue());
+	}
+
+	@Test
+	public void testInvalidateAfterCommit() {
+		LocalMemoryCacheInvalidationBus bus = new LocalMemoryCacheInvalidationBus();
+		List<MemoryCacheInvalidationEvent> events = new ArrayList<>();
+		bus.registerListener(events::add);
+		mySvc.setInvalidationBus(bus);
+		mySvc.put(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo", "A");
+
+		TransactionSynchronizationManager.initSynchronization();
+		try {
+			mySvc.invalidateAfterCommit(MemoryCacheService.CacheEnum.MATCH_URL);
+			mySvc.invalidateAfterCommit(MemoryCacheService.CacheEnum.MATCH_URL);
+			assertThat(mySvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), equalTo("A"));
+			assertThat(events, empty());
+
+			TransactionSynchronizationUtils.triggerAfterCommit();
+		} finally {
+			TransactionSynchronizationManager.clearSynchronization();
+		}
+
+		assertThat(mySvc.getIfPresent(MemoryCacheService.CacheEnum.MATCH_URL, "Patient?identifier=foo"), nullValue());
+		assertThat(events, hasSize(1));
+		assertEquals(MemoryCacheInvalidationEvent.OperationEnum.INVALIDATE, events.get(0).getOperation());
+		assertEquals(MemoryCacheService.CacheEnum.MATCH_URL, events.get(0).getCache());
+	}
+
+	@Test
+	public void testPutUnlessEvicted() {
+		LocalMemoryCacheInvalidationBus bus = new LocalMemoryCacheInvalidationBus();
+		MemoryCacheService otherSvc = new MemoryCacheService(new JpaStorageSettings());
+		mySvc.setInvalidationBus(bus);
+		otherSvc.setInvalidationBus(bus);
+		MemoryCacheService.CacheEnum cache = MemoryCacheService.CacheEnum.FORCED_ID_NOT_FOUND;
+
+		// No eviction in between, so the put goes through
+		long counter = mySvc.getEvictionCounter(cache, "Patient/A");
+		mySvc.putUnlessEvicted(cache, "Patient/A", Boolean.TRUE, counter);
+		assertThat(mySvc.getIfPresent(cache, "Patient/A"), equalTo(Boolean.TRUE));
+
+		// A local eviction after reading the counter discards the put
+		counter = mySvc.getEvictionCounter(cache, "Patient/B");
+		mySvc.evict(cache, "Patient/B");
+		mySvc.putUnlessEvicted(cache, "Patient/B", Boolean.TRUE, counter);
+		assertThat(mySvc.getIfPresent(cache, "Patient/B"), nullValue());
+
+		// So does an eviction on another node
+		counter = mySvc.getEvictionCounter(cache, "Patient/C");
+		otherSvc.evict(cache, "Patient/C");
+		mySvc.putUnlessEvicted(cache, "Patient/C", Boolean.TRUE, counter);
+		assertThat(mySvc.getIfPresent(cache, "Patient/C"), nullValue());
+
+		// And invalidating everything
+		counter = mySvc.getEvictionCounter(cache, "Patient/D");
+		otherSvc.invalidateAllCaches();
+		mySvc.putUnlessEvicted(cache, "Patient/D", Boolean.TRUE, counter);
+		assertThat(mySvc.getIfPresent(cache, "Patient/D"), nullValue());
+	}
+
 	@Nested
 	public static class CaffeineAbuseTest {
 
@@ -19,8 +19,11 @@
  */
 package ca.uhn.fhir.mdm.api;
 
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
 
+import javax.annotation.Nullable;
+
 import java.util.stream.Collectors;
 
 public interface IMdmSettings {
@@ -61,4 +64,32 @@ public interface IMdmSettings {
 	boolean getSearchAllPartitionForMatch();
 
 	void setSearchAllPartitionForMatch(boolean theSearchAllPartitionForMatch);
+
+	/**
+	 * If enabled, MDM stores blocking keys for the values of the <code>candidateSearchParams</code> of every
+	 * resource that it processes, and finds candidates by looking those keys up instead of searching.
+	 * Values match the same way they would in a search (e.g. a normalized prefix for string search
+	 * parameters, so that <code>Jon</code> finds <code>Jonathan</code>), or if they are equal after
+	 * phonetic encoding (see {@link #getBlockingIndexPhoneticEncoder()}). String search parameters with
+	 * a modifier other than <code>:exact</code> are searched for as before.
+	 * Only resources processed by MDM while this is enabled are found, so resources should be
+	 * submitted to MDM again after enabling this or after changing the candidate search parameters.
+	 *
+	 * @since 6.8.0
+	 */
+	default boolean isBlockingIndexEnabled() {
+		return false;
+	}
+
+	/**
+	 * If set, the blocking index also stores the phonetic encoding of values of string search
+	 * parameters, so that candidates which sound alike are found. Only used if
+	 * {@link #isBlockingIndexEnabled()} is set.
+	 *
+	 * @since 6.8.0
+	 */
+	@Nullable
+	default PhoneticEncoderEnum getBlockingIndexPhoneticEncoder() {
+		return null;
+	}
 }
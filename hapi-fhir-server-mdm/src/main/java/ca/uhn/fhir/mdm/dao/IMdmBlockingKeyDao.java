@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.mdm.dao;
+
+import ca.uhn.fhir.interceptor.model.RequestPartitionId;
+import ca.uhn.fhir.mdm.model.MdmBlockingKeyHash;
+import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Stores the MDM blocking index, which is used to find candidates if
+ * {@link ca.uhn.fhir.mdm.api.IMdmSettings#isBlockingIndexEnabled()} is set.
+ *
+ * @since 6.8.0
+ */
+public interface IMdmBlockingKeyDao<P extends IResourcePersistentId> {
+
+	/**
+	 * Replaces the blocking keys stored for the given resource. This does nothing if the keys haven't changed.
+	 */
+	void updateBlockingKeys(P theResourcePid, Set<MdmBlockingKeyHash> theKeys);
+
+	/**
+	 * Finds the non-deleted resources which have at least one of the given key hashes for
+	 * <code>theParamCount</code> distinct parameter hashes.
+	 *
+	 * @param theRequestPartitionId The partitions to return resources from, or <code>null</code> for all partitions
+	 * @param theMaxCount           The maximum number of PIDs to return
+	 */
+	@Nonnull
+	List<P> findCandidatePids(Collection<Long> theKeyHashes, int theParamCount, @Nullable RequestPartitionId theRequestPartitionId, int theMaxCount);
+
+}
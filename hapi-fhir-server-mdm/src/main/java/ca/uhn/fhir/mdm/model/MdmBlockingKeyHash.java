@@ -0,0 +1,67 @@
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.mdm.model;
+
+import java.util.Objects;
+
+/**
+ * The hashes of an MDM blocking key. The parameter hash identifies the resource type, candidate search
+ * parameter set and search parameter that the key belongs to, and the key hash adds the value.
+ *
+ * @since 6.8.0
+ */
+public class MdmBlockingKeyHash {
+	private final long myParamHash;
+	private final long myKeyHash;
+
+	private MdmBlockingKeyHash(long theParamHash, long theKeyHash) {
+		myParamHash = theParamHash;
+		myKeyHash = theKeyHash;
+	}
+
+	public static MdmBlockingKeyHash of(long theParamHash, long theKeyHash) {
+		return new MdmBlockingKeyHash(theParamHash, theKeyHash);
+	}
+
+	public long getParamHash() {
+		return myParamHash;
+	}
+
+	public long getKeyHash() {
+		return myKeyHash;
+	}
+
+	@Override
+	public boolean equals(Object theO) {
+		if (this == theO) {
+			return true;
+		}
+		if (theO == null || getClass() != theO.getClass()) {
+			return false;
+		}
+		MdmBlockingKeyHash that = (MdmBlockingKeyHash) theO;
+		return myParamHash == that.myParamHash && myKeyHash == that.myKeyHash;
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(myParamHash, myKeyHash);
+	}
+}
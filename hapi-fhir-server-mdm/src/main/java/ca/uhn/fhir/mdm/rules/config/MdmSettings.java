@@ -19,6 +19,7 @@
  */
 package ca.uhn.fhir.mdm.rules.config;
 
+import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.mdm.api.IMdmRuleValidator;
 import ca.uhn.fhir.mdm.api.IMdmSettings;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
@@ -55,6 +56,8 @@ public class MdmSettings implements IMdmSettings {
 	 * number matched is equal to or higher than this, then an exception will be thrown and candidate matching will be aborted
 	 */
 	private int myCandidateSearchLimit = DEFAULT_CANDIDATE_SEARCH_LIMIT;
+	private boolean myBlockingIndexEnabled = false;
+	private PhoneticEncoderEnum myBlockingIndexPhoneticEncoder;
 
 	@Autowired
 	public MdmSettings(IMdmRuleValidator theMdmRuleValidator) {
@@ -158,4 +161,32 @@ public class MdmSettings implements IMdmSettings {
 	public void setSearchAllPartitionForMatch(boolean theSearchAllPartitionForMatch) {
 		mySearchAllPartitionForMatch = theSearchAllPartitionForMatch;
 	}
+
+	@Override
+	public boolean isBlockingIndexEnabled() {
+		return myBlockingIndexEnabled;
+	}
+
+	/**
+	 * @see IMdmSettings#isBlockingIndexEnabled()
+	 * @since 6.8.0
+	 */
+	public MdmSettings setBlockingIndexEnabled(boolean theBlockingIndexEnabled) {
+		myBlockingIndexEnabled = theBlockingIndexEnabled;
+		return this;
+	}
+
+	@Override
+	public PhoneticEncoderEnum getBlockingIndexPhoneticEncoder() {
+		return myBlockingIndexPhoneticEncoder;
+	}
+
+	/**
+	 * @see IMdmSettings#getBlockingIndexPhoneticEncoder()
+	 * @since 6.8.0
+	 */
+	public MdmSettings setBlockingIndexPhoneticEncoder(PhoneticEncoderEnum theBlockingIndexPhoneticEncoder) {
+		myBlockingIndexPhoneticEncoder = theBlockingIndexPhoneticEncoder;
+		return this;
+	}
 }
@@ -20,15 +20,17 @@
 package ca.uhn.fhir.mdm.rules.matcher.fieldmatchers;
 
 import ca.uhn.fhir.mdm.rules.json.MdmMatcherJson;
-import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFieldMatcher;
+import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFeatureMatcher;
 import ca.uhn.fhir.mdm.rules.matcher.util.StringMatcherUtils;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
+import javax.annotation.Nonnull;
+
 /**
  * Similarity measure for two IBase fields whose similarity can be measured by their String representations.
  */
-public class HapiStringMatcher implements IMdmFieldMatcher {
+public class HapiStringMatcher implements IMdmFeatureMatcher {
 
 	@Override
 	public boolean matches(IBase theLeftBase, IBase theRightBase, MdmMatcherJson theExtraMatchParams) {
@@ -40,4 +42,17 @@ public class HapiStringMatcher implements IMdmFieldMatcher {
 		}
 		return false;
 	}
+
+	@Override
+	public Object extractFeature(IBase theBase, MdmMatcherJson theParams) {
+		if (theBase instanceof IPrimitiveType) {
+			return StringMatcherUtils.extractString((IPrimitiveType<?>) theBase, theParams.getExact());
+		}
+		return null;
+	}
+
+	@Override
+	public boolean matchesFeatures(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature, MdmMatcherJson theParams) {
+		return theLeftFeature.equals(theRightFeature);
+	}
 }
@@ -21,19 +21,20 @@ package ca.uhn.fhir.mdm.rules.matcher.fieldmatchers;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.mdm.rules.json.MdmMatcherJson;
-import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFieldMatcher;
+import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFeatureMatcher;
 import ca.uhn.fhir.mdm.util.NameUtil;
 import ca.uhn.fhir.util.StringUtil;
 import org.apache.commons.lang3.StringUtils;
 import org.hl7.fhir.instance.model.api.IBase;
 
+import javax.annotation.Nonnull;
 import java.util.List;
 import java.util.stream.Collectors;
 
 /**
  * Similarity measure for two IBase name fields
  */
-public class NameMatcher implements IMdmFieldMatcher {
+public class NameMatcher implements IMdmFeatureMatcher {
 
 	private final MdmNameMatchModeEnum myMatchMode;
 
@@ -46,33 +47,57 @@ public class NameMatcher implements IMdmFieldMatcher {
 
 	@Override
 	public boolean matches(IBase theLeftBase, IBase theRightBase, MdmMatcherJson theParams) {
-		String leftFamilyName = NameUtil.extractFamilyName(myFhirContext, theLeftBase);
-		String rightFamilyName = NameUtil.extractFamilyName(myFhirContext, theRightBase);
-		if (StringUtils.isEmpty(leftFamilyName) || StringUtils.isEmpty(rightFamilyName)) {
+		Object leftName = extractFeature(theLeftBase, theParams);
+		Object rightName = extractFeature(theRightBase, theParams);
+		if (leftName == null || rightName == null) {
 			return false;
 		}
+		return matchesFeatures(leftName, rightName, theParams);
+	}
 
-		boolean match = false;
-
-		List<String> leftGivenNames = NameUtil.extractGivenNames(myFhirContext, theLeftBase);
-		List<String> rightGivenNames = NameUtil.extractGivenNames(myFhirContext, theRightBase);
+	/**
+	 * The feature of a name is its family name and given names, normalized unless the match is exact
+	 */
+	@Override
+	public Object extractFeature(IBase theBase, MdmMatcherJson theParams) {
+		String familyName = NameUtil.extractFamilyName(myFhirContext, theBase);
+		if (StringUtils.isEmpty(familyName)) {
+			return null;
+		}
 
+		List<String> givenNames = NameUtil.extractGivenNames(myFhirContext, theBase);
 		if (!theParams.getExact()) {
-			leftFamilyName = StringUtil.normalizeStringForSearchIndexing(leftFamilyName);
-			rightFamilyName = StringUtil.normalizeStringForSearchIndexing(rightFamilyName);
-			leftGivenNames = leftGivenNames.stream().map(StringUtil::normalizeStringForSearchIndexing).collect(Collectors.toList());
-			rightGivenNames = rightGivenNames.stream().map(StringUtil::normalizeStringForSearchIndexing).collect(Collectors.toList());
+			familyName = StringUtil.normalizeStringForSearchIndexing(familyName);
+			givenNames = givenNames.stream().map(StringUtil::normalizeStringForSearchIndexing).collect(Collectors.toList());
 		}
+		return new Name(familyName, givenNames);
+	}
 
-		for (String leftGivenName : leftGivenNames) {
-			for (String rightGivenName : rightGivenNames) {
-				match |= leftGivenName.equals(rightGivenName) && leftFamilyName.equals(rightFamilyName);
+	@Override
+	public boolean matchesFeatures(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature, MdmMatcherJson theParams) {
+		Name leftName = (Name) theLeftFeature;
+		Name rightName = (Name) theRightFeature;
+
+		boolean match = false;
+		for (String leftGivenName : leftName.myGivenNames) {
+			for (String rightGivenName : rightName.myGivenNames) {
+				match |= leftGivenName.equals(rightGivenName) && leftName.myFamilyName.equals(rightName.myFamilyName);
 				if (myMatchMode == MdmNameMatchModeEnum.ANY_ORDER) {
-					match |= leftGivenName.equals(rightFamilyName) && leftFamilyName.equals(rightGivenName);
+					match |= leftGivenName.equals(rightName.myFamilyName) && leftName.myFamilyName.equals(rightGivenName);
 				}
 			}
 		}
 
 		return match;
 	}
+
+	private static class Name {
+		private final String myFamilyName;
+		private final List<String> myGivenNames;
+
+		private Name(String theFamilyName, List<String> theGivenNames) {
+			myFamilyName = theFamilyName;
+			myGivenNames = theGivenNames;
+		}
+	}
 }
@@ -22,7 +22,7 @@ package ca.uhn.fhir.mdm.rules.matcher.fieldmatchers;
 import ca.uhn.fhir.context.phonetic.IPhoneticEncoder;
 import ca.uhn.fhir.context.phonetic.PhoneticEncoderEnum;
 import ca.uhn.fhir.mdm.rules.json.MdmMatcherJson;
-import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFieldMatcher;
+import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFeatureMatcher;
 import ca.uhn.fhir.mdm.rules.matcher.util.StringMatcherUtils;
 import ca.uhn.fhir.util.PhoneticEncoderUtil;
 import org.hl7.fhir.instance.model.api.IBase;
@@ -30,7 +30,9 @@ import org.hl7.fhir.instance.model.api.IPrimitiveType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class PhoneticEncoderMatcher implements IMdmFieldMatcher {
+import javax.annotation.Nonnull;
+
+public class PhoneticEncoderMatcher implements IMdmFeatureMatcher {
 	private static final Logger ourLog = LoggerFactory.getLogger(PhoneticEncoderMatcher.class);
 
 	private final IPhoneticEncoder myStringEncoder;
@@ -51,4 +53,18 @@ public class PhoneticEncoderMatcher implements IMdmFieldMatcher {
 		return matches(leftString, rightString);
 	}
 
+	/**
+	 * The feature of a value is its phonetic encoding
+	 */
+	@Override
+	public Object extractFeature(IBase theBase, MdmMatcherJson theParams) {
+		String string = StringMatcherUtils.extractString((IPrimitiveType<?>) theBase, theParams.getExact());
+		return myStringEncoder.encode(string);
+	}
+
+	@Override
+	public boolean matchesFeatures(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature, MdmMatcherJson theParams) {
+		return theLeftFeature.equals(theRightFeature);
+	}
+
 }
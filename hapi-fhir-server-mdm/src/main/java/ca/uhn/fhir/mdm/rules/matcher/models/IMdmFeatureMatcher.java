@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.mdm.rules.matcher.models;
+
+import ca.uhn.fhir.mdm.rules.json.MdmMatcherJson;
+import org.hl7.fhir.instance.model.api.IBase;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A field matcher which can compare values using a feature that is computed from each value on its own, e.g.
+ * the normalized string or its phonetic encoding. This means that the features of the incoming resource only
+ * need to be computed once when it is compared with many candidates, and the features of a candidate can be
+ * kept for as long as the candidate doesn't change.
+ * <p>
+ * Comparing the features of two values must give the same result as
+ * {@link #matches(IBase, IBase, MdmMatcherJson)}. Features may be cached, so they should be small and immutable.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public interface IMdmFeatureMatcher extends IMdmFieldMatcher {
+
+	/**
+	 * Computes the feature of the given value.
+	 *
+	 * @return The feature, or <code>null</code> if the value can't match any other value
+	 */
+	@Nullable
+	Object extractFeature(IBase theBase, MdmMatcherJson theParams);
+
+	/**
+	 * Checks if two features returned by {@link #extractFeature(IBase, MdmMatcherJson)} match,
+	 * returning true if they do and false otherwise.
+	 */
+	boolean matchesFeatures(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature, MdmMatcherJson theParams);
+}
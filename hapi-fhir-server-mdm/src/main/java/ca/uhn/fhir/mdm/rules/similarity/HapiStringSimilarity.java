@@ -21,18 +21,31 @@ package ca.uhn.fhir.mdm.rules.similarity;
 
 import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.mdm.rules.matcher.util.StringMatcherUtils;
+import info.debatty.java.stringsimilarity.Cosine;
+import info.debatty.java.stringsimilarity.Jaccard;
+import info.debatty.java.stringsimilarity.ShingleBased;
+import info.debatty.java.stringsimilarity.SorensenDice;
 import info.debatty.java.stringsimilarity.interfaces.NormalizedStringSimilarity;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
+import javax.annotation.Nonnull;
+import java.util.Map;
+
 /**
  * Similarity measure for two IBase fields whose similarity can be measured by their String representations.
+ * <p>
+ * The feature of a value is its string, along with its n-gram profile if the similarity is computed from
+ * profiles (i.e. {@link Cosine}, {@link Jaccard} and {@link SorensenDice}).
+ * </p>
  */
-public class HapiStringSimilarity implements IMdmFieldSimilarity {
+public class HapiStringSimilarity implements IMdmFeatureSimilarity {
 	private final NormalizedStringSimilarity myStringSimilarity;
+	private final boolean myUsesProfiles;
 
 	public HapiStringSimilarity(NormalizedStringSimilarity theStringSimilarity) {
 		myStringSimilarity = theStringSimilarity;
+		myUsesProfiles = theStringSimilarity instanceof Cosine || theStringSimilarity instanceof Jaccard || theStringSimilarity instanceof SorensenDice;
 	}
 
 	@Override
@@ -45,4 +58,67 @@ public class HapiStringSimilarity implements IMdmFieldSimilarity {
 		}
 		return 0.0;
 	}
+
+	@Override
+	public Object extractFeature(IBase theBase, boolean theExact) {
+		if (!(theBase instanceof IPrimitiveType)) {
+			return null;
+		}
+		String string = StringMatcherUtils.extractString((IPrimitiveType<?>) theBase, theExact);
+		if (string == null) {
+			return null;
+		}
+		if (myUsesProfiles) {
+			return new ProfiledString(string, ((ShingleBased) myStringSimilarity).getProfile(string));
+		}
+		return string;
+	}
+
+	/**
+	 * The profile based similarities below are computed the same way as in the string similarity library,
+	 * except that the profiles aren't computed again for every comparison.
+	 */
+	@Override
+	public double similarity(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature) {
+		if (!myUsesProfiles) {
+			return myStringSimilarity.similarity((String) theLeftFeature, (String) theRightFeature);
+		}
+
+		ProfiledString left = (ProfiledString) theLeftFeature;
+		ProfiledString right = (ProfiledString) theRightFeature;
+		if (left.myString.equals(right.myString)) {
+			return 1.0;
+		}
+
+		if (myStringSimilarity instanceof Cosine) {
+			Cosine cosine = (Cosine) myStringSimilarity;
+			if (left.myString.length() < cosine.getK() || right.myString.length() < cosine.getK()) {
+				return 0.0;
+			}
+			return cosine.similarity(left.myProfile, right.myProfile);
+		}
+
+		int intersection = 0;
+		for (String next : left.myProfile.keySet()) {
+			if (right.myProfile.containsKey(next)) {
+				intersection++;
+			}
+		}
+		int leftSize = left.myProfile.size();
+		int rightSize = right.myProfile.size();
+		if (myStringSimilarity instanceof Jaccard) {
+			return 1.0 * intersection / (leftSize + rightSize - intersection);
+		}
+		return 2.0 * intersection / (leftSize + rightSize);
+	}
+
+	private static class ProfiledString {
+		private final String myString;
+		private final Map<String, Integer> myProfile;
+
+		private ProfiledString(String theString, Map<String, Integer> theProfile) {
+			myString = theString;
+			myProfile = theProfile;
+		}
+	}
 }
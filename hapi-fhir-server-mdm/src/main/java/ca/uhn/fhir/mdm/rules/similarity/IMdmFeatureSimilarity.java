@@ -0,0 +1,53 @@
+/*-
+ * #%L
+ * HAPI FHIR - Master Data Management
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.mdm.rules.similarity;
+
+import org.hl7.fhir.instance.model.api.IBase;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * A similarity measure which can compare values using a feature that is computed from each value on its own,
+ * e.g. the normalized string and its n-gram profile. See {@link ca.uhn.fhir.mdm.rules.matcher.models.IMdmFeatureMatcher}.
+ * <p>
+ * The similarity of the features of two values must be the same as
+ * {@link #similarity(ca.uhn.fhir.context.FhirContext, IBase, IBase, boolean)}. Features may be cached, so they
+ * should be small and immutable.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public interface IMdmFeatureSimilarity extends IMdmFieldSimilarity {
+
+	/**
+	 * Computes the feature of the given value.
+	 *
+	 * @return The feature, or <code>null</code> if the value isn't similar to any other value
+	 */
+	@Nullable
+	Object extractFeature(IBase theBase, boolean theExact);
+
+	/**
+	 * Measures how similar two features returned by {@link #extractFeature(IBase, boolean)} are.
+	 * 1.0 means identical.  0.0 means completely different.
+	 */
+	double similarity(@Nonnull Object theLeftFeature, @Nonnull Object theRightFeature);
+}
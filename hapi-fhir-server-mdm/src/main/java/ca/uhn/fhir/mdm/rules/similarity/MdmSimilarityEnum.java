@@ -44,6 +44,10 @@ public enum MdmSimilarityEnum {
 		myMdmFieldSimilarity = theMdmFieldSimilarity;
 	}
 
+	public IMdmFieldSimilarity getFieldSimilarity() {
+		return myMdmFieldSimilarity;
+	}
+
 	public MdmMatchEvaluation match(FhirContext theFhirContext, IBase theLeftBase, IBase theRightBase, boolean theExact, @Nullable Double theThreshold) {
 		return matchBySimilarity(myMdmFieldSimilarity, theFhirContext, theLeftBase, theRightBase, theExact, theThreshold);
 	}
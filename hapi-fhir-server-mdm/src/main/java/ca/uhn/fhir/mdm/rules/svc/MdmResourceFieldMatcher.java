@@ -28,14 +28,18 @@ import ca.uhn.fhir.mdm.rules.json.MdmMatcherJson;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
 import ca.uhn.fhir.mdm.rules.json.MdmSimilarityJson;
 import ca.uhn.fhir.mdm.rules.matcher.IMatcherFactory;
+import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFeatureMatcher;
 import ca.uhn.fhir.mdm.rules.matcher.models.IMdmFieldMatcher;
 import ca.uhn.fhir.mdm.rules.matcher.models.MatchTypeEnum;
+import ca.uhn.fhir.mdm.rules.similarity.IMdmFeatureSimilarity;
+import ca.uhn.fhir.mdm.rules.similarity.IMdmFieldSimilarity;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.util.FhirTerser;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBase;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -56,6 +60,7 @@ public class MdmResourceFieldMatcher {
 	private final boolean myIsFhirPathExpression;
 
 	private final IMatcherFactory myIMatcherFactory;
+	private final IMdmFieldMatcher myFieldMatcher;
 
 	public MdmResourceFieldMatcher(
 		FhirContext theFhirContext,
@@ -73,6 +78,8 @@ public class MdmResourceFieldMatcher {
 		myName = theMdmFieldMatchJson.getName();
 		myMdmRulesJson = theMdmRulesJson;
 		myIsFhirPathExpression = myFhirPath != null;
+		// Matchers don't hold any state, so the matcher is only created once
+		myFieldMatcher = createFieldMatcher();
 	}
 
 	/**
@@ -90,19 +97,99 @@ public class MdmResourceFieldMatcher {
 		validate(theLeftResource);
 		validate(theRightResource);
 
-		List<IBase> leftValues;
-		List<IBase> rightValues;
+		List<IBase> leftValues = extractValues(theLeftResource);
+		List<IBase> rightValues = extractValues(theRightResource);
+		return match(leftValues, rightValues);
+	}
 
+	/**
+	 * Returns <code>true</code> if the values of this field are compared using features (see
+	 * {@link IMdmFeatureMatcher} and {@link IMdmFeatureSimilarity}), in which case the result of
+	 * {@link #extractFeatures(IBaseResource)} only depends on the resource and may be cached.
+	 */
+	public boolean isFeatureBased() {
+		IMdmFieldMatcher matcher = getFieldMatcher();
+		if (matcher != null) {
+			return matcher instanceof IMdmFeatureMatcher;
+		}
+		return getFeatureSimilarity() != null;
+	}
+
+	/**
+	 * Extracts the values of this field from the given resource, for use with {@link #matchFeatures(List, List)}.
+	 * If this field {@link #isFeatureBased() is feature based} the values are replaced with their features,
+	 * otherwise they are returned as-is.
+	 */
+	public List<?> extractFeatures(IBaseResource theResource) {
+		validate(theResource);
+		List<IBase> values = extractValues(theResource);
+		if (!isFeatureBased()) {
+			return values;
+		}
+
+		List<Object> retVal = new ArrayList<>(values.size());
+		IMdmFieldMatcher matcher = getFieldMatcher();
+		for (IBase next : values) {
+			Object feature;
+			if (matcher != null) {
+				feature = ((IMdmFeatureMatcher) matcher).extractFeature(next, myMdmFieldMatchJson.getMatcher());
+			} else {
+				feature = getFeatureSimilarity().extractFeature(next, myMdmFieldMatchJson.getSimilarity().getExact());
+			}
+			if (feature != null) {
+				retVal.add(feature);
+			}
+		}
+		return retVal;
+	}
+
+	/**
+	 * Compares the values of this field returned by {@link #extractFeatures(IBaseResource)} for two resources.
+	 * This gives the same result as {@link #match(IBaseResource, IBaseResource)}.
+	 */
+	@SuppressWarnings("unchecked")
+	public MdmMatchEvaluation matchFeatures(List<?> theLeftFeatures, List<?> theRightFeatures) {
+		if (!isFeatureBased()) {
+			return match((List<IBase>) theLeftFeatures, (List<IBase>) theRightFeatures);
+		}
+
+		IMdmFieldMatcher matcher = getFieldMatcher();
+		if (matcher != null) {
+			if (theLeftFeatures.isEmpty() && theRightFeatures.isEmpty() && matcher.isMatchingEmptyFields()) {
+				return match((IBase) null, (IBase) null);
+			}
+			IMdmFeatureMatcher featureMatcher = (IMdmFeatureMatcher) matcher;
+			MdmMatcherJson params = myMdmFieldMatchJson.getMatcher();
+			for (Object leftFeature : theLeftFeatures) {
+				for (Object rightFeature : theRightFeatures) {
+					if (featureMatcher.matchesFeatures(leftFeature, rightFeature, params)) {
+						return new MdmMatchEvaluation(true, 1.0);
+					}
+				}
+			}
+			return new MdmMatchEvaluation(false, 0.0);
+		}
+
+		IMdmFeatureSimilarity similarity = getFeatureSimilarity();
+		double threshold = myMdmFieldMatchJson.getSimilarity().getMatchThreshold();
+		MdmMatchEvaluation retVal = new MdmMatchEvaluation(false, 0.0);
+		for (Object leftFeature : theLeftFeatures) {
+			for (Object rightFeature : theRightFeatures) {
+				double score = similarity.similarity(leftFeature, rightFeature);
+				retVal = MdmMatchEvaluation.max(retVal, new MdmMatchEvaluation(score >= threshold, score));
+			}
+		}
+		return retVal;
+	}
+
+	private List<IBase> extractValues(IBaseResource theResource) {
 		if (myIsFhirPathExpression) {
 			IFhirPath fhirPath = myFhirContext.newFhirPath();
-			leftValues = fhirPath.evaluate(theLeftResource, myFhirPath, IBase.class);
-			rightValues = fhirPath.evaluate(theRightResource, myFhirPath, IBase.class);
+			return fhirPath.evaluate(theResource, myFhirPath, IBase.class);
 		} else {
 			FhirTerser fhirTerser = myFhirContext.newTerser();
-			leftValues = fhirTerser.getValues(theLeftResource, myResourcePath, IBase.class);
-			rightValues = fhirTerser.getValues(theRightResource, myResourcePath, IBase.class);
+			return fhirTerser.getValues(theResource, myResourcePath, IBase.class);
 		}
-		return match(leftValues, rightValues);
 	}
 
 	private MdmMatchEvaluation match(List<IBase> theLeftValues, List<IBase> theRightValues) {
@@ -164,6 +251,21 @@ public class MdmResourceFieldMatcher {
 	}
 
 	private IMdmFieldMatcher getFieldMatcher() {
+		return myFieldMatcher;
+	}
+
+	private IMdmFeatureSimilarity getFeatureSimilarity() {
+		MdmSimilarityJson similarity = myMdmFieldMatchJson.getSimilarity();
+		if (similarity != null && similarity.getAlgorithm() != null) {
+			IMdmFieldSimilarity fieldSimilarity = similarity.getAlgorithm().getFieldSimilarity();
+			if (fieldSimilarity instanceof IMdmFeatureSimilarity) {
+				return (IMdmFeatureSimilarity) fieldSimilarity;
+			}
+		}
+		return null;
+	}
+
+	private IMdmFieldMatcher createFieldMatcher() {
 		MdmMatcherJson matcherJson = myMdmFieldMatchJson.getMatcher();
 		MatchTypeEnum matchTypeEnum = null;
 		if (matcherJson != null) {
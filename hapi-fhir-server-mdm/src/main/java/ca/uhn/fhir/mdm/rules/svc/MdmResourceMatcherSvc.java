@@ -31,12 +31,20 @@ import ca.uhn.fhir.mdm.log.Logs;
 import ca.uhn.fhir.mdm.rules.json.MdmFieldMatchJson;
 import ca.uhn.fhir.mdm.rules.json.MdmRulesJson;
 import ca.uhn.fhir.mdm.rules.matcher.IMatcherFactory;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.sl.cache.Cache;
+import ca.uhn.fhir.sl.cache.CacheFactory;
+import ca.uhn.fhir.util.StopWatch;
 import com.google.common.annotations.VisibleForTesting;
+import org.apache.commons.lang3.time.DateUtils;
+import org.apache.commons.lang3.tuple.Pair;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.springframework.stereotype.Service;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
 /**
@@ -49,9 +57,16 @@ import java.util.List;
 public class MdmResourceMatcherSvc {
 	private static final Logger ourLog = Logs.getMdmTroubleshootingLog();
 
+	/**
+	 * The maximum number of candidates whose features are kept by {@link #getMatchResults(IBaseResource, List)}
+	 */
+	static final int CANDIDATE_FEATURE_CACHE_SIZE = 10000;
+	private static final long CANDIDATE_FEATURE_CACHE_TIMEOUT_MILLIS = 10 * DateUtils.MILLIS_PER_MINUTE;
+
 	private final FhirContext myFhirContext;
 	private final IMatcherFactory myMatcherFactory;
 	private final List<MdmResourceFieldMatcher> myFieldMatchers = new ArrayList<>();
+	private final Cache<Pair<String, Object>, List<List<?>>> myCandidateFeatureCache = CacheFactory.build(CANDIDATE_FEATURE_CACHE_TIMEOUT_MILLIS, CANDIDATE_FEATURE_CACHE_SIZE);
 
 	private MdmRulesJson myMdmRulesJson;
 
@@ -72,6 +87,7 @@ public class MdmResourceMatcherSvc {
 			throw new ConfigurationException(Msg.code(1521) + "Failed to load MDM Rules.  If MDM is enabled, then MDM rules must be available in context.");
 		}
 		myFieldMatchers.clear();
+		myCandidateFeatureCache.invalidateAll();
 		for (MdmFieldMatchJson matchFieldJson : myMdmRulesJson.getMatchFields()) {
 			myFieldMatchers.add(new MdmResourceFieldMatcher(myFhirContext, myMatcherFactory, matchFieldJson, myMdmRulesJson));
 		}
@@ -89,17 +105,140 @@ public class MdmResourceMatcherSvc {
 		return match(theLeftResource, theRightResource);
 	}
 
+	/**
+	 * Compares one {@link IBaseResource} with many candidates, giving the same results as calling
+	 * {@link #getMatchResult(IBaseResource, IBaseResource)} for each candidate.
+	 * <p>
+	 * The fields of <code>theLeftResource</code> are only extracted once. For fields whose matcher or similarity
+	 * works on precomputed features (e.g. normalized strings, phonetic encodings and n-gram profiles), the features
+	 * of a candidate are cached by its versioned ID, so they are only computed again when the candidate changes.
+	 * The time spent in each field matcher is logged to the MDM troubleshooting log at debug level.
+	 * </p>
+	 *
+	 * @param theLeftResource   The resource being matched
+	 * @param theRightResources The candidates
+	 * @return The outcome for each candidate, in the same order as the candidates
+	 */
+	public List<MdmMatchOutcome> getMatchResults(IBaseResource theLeftResource, List<? extends IBaseResource> theRightResources) {
+		StopWatch sw = new StopWatch();
+		String resourceType = myFhirContext.getResourceType(theLeftResource);
+		int matcherCount = myFieldMatchers.size();
+		long[] matcherNanos = new long[matcherCount];
+
+		List<List<?>> leftFeatures = new ArrayList<>(matcherCount);
+		for (int i = 0; i < matcherCount; ++i) {
+			MdmResourceFieldMatcher fieldComparator = myFieldMatchers.get(i);
+			if (!isValidResourceType(resourceType, fieldComparator.getResourceType())) {
+				ourLog.debug("Matcher {} is not valid for resource type: {}. Skipping it.", fieldComparator.getName(), resourceType);
+				leftFeatures.add(null);
+				continue;
+			}
+			long start = System.nanoTime();
+			leftFeatures.add(fieldComparator.extractFeatures(theLeftResource));
+			matcherNanos[i] += System.nanoTime() - start;
+		}
+
+		List<MdmMatchOutcome> retVal = new ArrayList<>(theRightResources.size());
+		for (IBaseResource nextRightResource : theRightResources) {
+			List<List<?>> rightFeatures = getCandidateFeatures(nextRightResource, matcherNanos);
+
+			long vector = 0;
+			double score = 0.0;
+			int appliedRuleCount = 0;
+			for (int i = 0; i < matcherCount; ++i) {
+				List<?> nextLeftFeatures = leftFeatures.get(i);
+				if (nextLeftFeatures == null) {
+					continue;
+				}
+
+				MdmResourceFieldMatcher fieldComparator = myFieldMatchers.get(i);
+				long start = System.nanoTime();
+				List<?> nextRightFeatures = rightFeatures.get(i);
+				if (nextRightFeatures == null) {
+					nextRightFeatures = fieldComparator.extractFeatures(nextRightResource);
+				}
+				MdmMatchEvaluation matchEvaluation = fieldComparator.matchFeatures(nextLeftFeatures, nextRightFeatures);
+				matcherNanos[i] += System.nanoTime() - start;
+
+				if (matchEvaluation.match) {
+					vector |= (1L << i);
+					ourLog.trace("Match: Successfully matched matcher {} with score {}. New vector: {}", fieldComparator.getName(), matchEvaluation.score, vector);
+				} else {
+					ourLog.trace("No match: Matcher {} did not match (score: {}).", fieldComparator.getName(), matchEvaluation.score);
+				}
+				score += matchEvaluation.score;
+				appliedRuleCount += 1;
+			}
+
+			MdmMatchOutcome matchResult = new MdmMatchOutcome(vector, score);
+			matchResult.setMdmRuleCount(appliedRuleCount);
+			retVal.add(setMatchResultEnum(nextRightResource, matchResult));
+		}
+
+		if (ourLog.isDebugEnabled()) {
+			StringBuilder matcherTimes = new StringBuilder();
+			for (int i = 0; i < matcherCount; ++i) {
+				if (leftFeatures.get(i) != null) {
+					if (matcherTimes.length() > 0) {
+						matcherTimes.append(", ");
+					}
+					matcherTimes.append(myFieldMatchers.get(i).getName()).append("=").append(StopWatch.formatMillis(matcherNanos[i] / 1000000.0));
+				}
+			}
+			ourLog.debug("Scored {} candidates in {}. Time per matcher: {}", theRightResources.size(), sw, matcherTimes);
+		}
+		return retVal;
+	}
+
+	/**
+	 * Returns the features of the given candidate for every field that is {@link MdmResourceFieldMatcher#isFeatureBased() feature based},
+	 * and <code>null</code> for the other fields. Features are cached by the versioned ID and partition of the candidate.
+	 */
+	private List<List<?>> getCandidateFeatures(IBaseResource theResource, long[] theMatcherNanos) {
+		Pair<String, Object> cacheKey = null;
+		IIdType id = theResource.getIdElement();
+		if (id.hasIdPart() && id.hasVersionIdPart()) {
+			String versionedId = myFhirContext.getResourceType(theResource) + "/" + id.getIdPart() + "/_history/" + id.getVersionIdPart();
+			cacheKey = Pair.of(versionedId, theResource.getUserData(Constants.RESOURCE_PARTITION_ID));
+			List<List<?>> retVal = myCandidateFeatureCache.getIfPresent(cacheKey);
+			if (retVal != null) {
+				return retVal;
+			}
+		}
+
+		String resourceType = myFhirContext.getResourceType(theResource);
+		List<?>[] retVal = new List<?>[myFieldMatchers.size()];
+		for (int i = 0; i < myFieldMatchers.size(); ++i) {
+			MdmResourceFieldMatcher fieldComparator = myFieldMatchers.get(i);
+			if (fieldComparator.isFeatureBased() && isValidResourceType(resourceType, fieldComparator.getResourceType())) {
+				long start = System.nanoTime();
+				retVal[i] = fieldComparator.extractFeatures(theResource);
+				theMatcherNanos[i] += System.nanoTime() - start;
+			}
+		}
+
+		List<List<?>> features = Arrays.asList(retVal);
+		if (cacheKey != null) {
+			myCandidateFeatureCache.put(cacheKey, features);
+		}
+		return features;
+	}
+
 	MdmMatchOutcome match(IBaseResource theLeftResource, IBaseResource theRightResource) {
 		MdmMatchOutcome matchResult = getMatchOutcome(theLeftResource, theRightResource);
-		MdmMatchResultEnum matchResultEnum = myMdmRulesJson.getMatchResult(matchResult.getVector());
-		matchResult.setMatchResultEnum(matchResultEnum);
+		return setMatchResultEnum(theRightResource, matchResult);
+	}
+
+	private MdmMatchOutcome setMatchResultEnum(IBaseResource theRightResource, MdmMatchOutcome theMatchResult) {
+		MdmMatchResultEnum matchResultEnum = myMdmRulesJson.getMatchResult(theMatchResult.getVector());
+		theMatchResult.setMatchResultEnum(matchResultEnum);
 		if (ourLog.isDebugEnabled()) {
-			ourLog.debug("{} {}: {}", matchResult.getMatchResultEnum(), theRightResource.getIdElement().toUnqualifiedVersionless(), matchResult);
+			ourLog.debug("{} {}: {}", theMatchResult.getMatchResultEnum(), theRightResource.getIdElement().toUnqualifiedVersionless(), theMatchResult);
 			if (ourLog.isTraceEnabled()) {
-				ourLog.trace("Field matcher results:\n{}", myMdmRulesJson.getDetailedFieldMatchResultWithSuccessInformation(matchResult.getVector()));
+				ourLog.trace("Field matcher results:\n{}", myMdmRulesJson.getDetailedFieldMatchResultWithSuccessInformation(theMatchResult.getVector()));
 			}
 		}
-		return matchResult;
+		return theMatchResult;
 	}
 
 	/**
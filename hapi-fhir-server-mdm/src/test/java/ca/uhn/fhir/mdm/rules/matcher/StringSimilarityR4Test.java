@@ -9,9 +9,15 @@ import info.debatty.java.stringsimilarity.NormalizedLevenshtein;
 import info.debatty.java.stringsimilarity.SorensenDice;
 import org.hl7.fhir.r4.model.StringType;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 public class StringSimilarityR4Test extends BaseMatcherR4Test {
 	private static final Logger ourLog = LoggerFactory.getLogger(StringSimilarityR4Test.class);
 	public static final String LEFT = "somon";
@@ -32,6 +38,28 @@ public class StringSimilarityR4Test extends BaseMatcherR4Test {
 		ourLog.info("" + similarity(SORENSEN_DICE, LEFT, RIGHT));
 	}
 	
+	@ParameterizedTest
+	@CsvSource({
+		"somon, slomon",
+		"John, Johny",
+		"Jo, John",
+		"Jo, Jo",
+		"Jo, Ja",
+		"Zoë, zoe",
+		"Mary Ann, Maryann",
+		"Henry, John"
+	})
+	public void testFeatureSimilarity(String theLeft, String theRight) {
+		for (HapiStringSimilarity next : List.of(JARO_WINKLER, COSINE, JACCARD, LEVENSCHTEIN, SORENSEN_DICE)) {
+			for (boolean exact : new boolean[]{true, false}) {
+				double expected = next.similarity(ourFhirContext, new StringType(theLeft), new StringType(theRight), exact);
+				Object leftFeature = next.extractFeature(new StringType(theLeft), exact);
+				Object rightFeature = next.extractFeature(new StringType(theRight), exact);
+				assertEquals(expected, next.similarity(leftFeature, rightFeature), 0.000001);
+			}
+		}
+	}
+
 	private double similarity(IMdmFieldSimilarity theSimilarity, String theLeft, String theRight) {
 		return theSimilarity.similarity(ourFhirContext, new StringType(theLeft), new StringType(theRight), false);
 	}
@@ -11,6 +11,9 @@ import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
@@ -72,6 +75,21 @@ public class MdmResourceMatcherSvcLoggingTest extends BaseMdmRulesR4Test {
 		assertTrue(memoryAppender.contains("Field matcher results:\npatient-given: NO\npatient-last: YES", Level.TRACE));
 	}
 
+	@Test
+	public void testMatchResultsWillProvideMatcherTimesOnDebugLevel() {
+		Logger logger = (Logger) Logs.getMdmTroubleshootingLog();
+		logger.setLevel(Level.DEBUG);
+
+		MemoryAppender memoryAppender = createAndAssignMemoryAppender(logger);
+
+		List<MdmMatchOutcome> results = myMdmResourceMatcherSvc.getMatchResults(myJohn, List.of(myJohny, buildSomeoneElse()));
+		assertEquals(2, results.size());
+
+		assertTrue(memoryAppender.contains("Scored 2 candidates in ", Level.DEBUG));
+		assertTrue(memoryAppender.contains("Time per matcher: patient-given=", Level.DEBUG));
+		assertTrue(memoryAppender.contains(", patient-last=", Level.DEBUG));
+	}
+
 	protected Patient buildSomeoneElse() {
 		Patient patient = new Patient();
 		patient.addName().addGiven("SomeOneElse");
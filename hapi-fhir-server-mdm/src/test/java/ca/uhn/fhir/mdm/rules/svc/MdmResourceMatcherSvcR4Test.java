@@ -7,6 +7,9 @@ import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
 
@@ -57,4 +60,48 @@ public class MdmResourceMatcherSvcR4Test extends BaseMdmRulesR4Test {
 		patient3.addName().addGiven("Henry");
 		assertMatchResult(MdmMatchResultEnum.NO_MATCH, 0L, 0.0, false, false, myMdmResourceMatcherSvc.getMatchResult(myJohn, patient3));
 	}
+
+	@Test
+	public void testMatchResults() {
+		myJohn.addName().setFamily("Smith");
+		myJohny.addName().setFamily("Smith");
+		Patient patient3 = new Patient();
+		patient3.setId("Patient/3");
+		patient3.addName().addGiven("Henry");
+		Patient patient4 = new Patient();
+		patient4.setId("Patient/4");
+		patient4.addName().addGiven("Jon").setFamily("Smyth");
+
+		List<Patient> candidates = List.of(myJohny, patient3, patient4);
+		List<MdmMatchOutcome> results = myMdmResourceMatcherSvc.getMatchResults(myJohn, candidates);
+		assertEquals(3, results.size());
+		for (int i = 0; i < candidates.size(); i++) {
+			MdmMatchOutcome expected = myMdmResourceMatcherSvc.getMatchResult(myJohn, candidates.get(i));
+			assertMatchResult(expected.getMatchResultEnum(), expected.getVector(), expected.getScore(), false, false, results.get(i));
+			assertEquals(expected.getMdmRuleCount(), results.get(i).getMdmRuleCount());
+		}
+		assertMatchResult(MdmMatchResultEnum.MATCH, 3L, 1.816, false, false, results.get(0));
+		assertMatchResult(MdmMatchResultEnum.NO_MATCH, 0L, 0.0, false, false, results.get(1));
+	}
+
+	@Test
+	public void testMatchResultsCachesCandidateFeaturesByVersion() {
+		myJohny.setId("Patient/2/_history/1");
+		assertMatch(MdmMatchResultEnum.POSSIBLE_MATCH, myMdmResourceMatcherSvc.getMatchResults(myJohn, List.of(myJohny)).get(0));
+
+		// Same version, so the cached features are used
+		myJohny.getNameFirstRep().getGiven().clear();
+		myJohny.getNameFirstRep().addGiven("Henry");
+		assertMatch(MdmMatchResultEnum.POSSIBLE_MATCH, myMdmResourceMatcherSvc.getMatchResults(myJohn, List.of(myJohny)).get(0));
+
+		// New version
+		myJohny.setId("Patient/2/_history/2");
+		assertMatch(MdmMatchResultEnum.NO_MATCH, myMdmResourceMatcherSvc.getMatchResults(myJohn, List.of(myJohny)).get(0));
+
+		// Changing the rules discards the cached features
+		myJohny.getNameFirstRep().getGiven().clear();
+		myJohny.getNameFirstRep().addGiven("Johny");
+		myMdmResourceMatcherSvc.setMdmRulesJson(buildActiveBirthdateIdRules());
+		assertMatch(MdmMatchResultEnum.POSSIBLE_MATCH, myMdmResourceMatcherSvc.getMatchResults(myJohn, List.of(myJohny)).get(0));
+	}
 }
@@ -61,6 +61,29 @@ public interface IRestfulResponse {
 	@Nonnull
 	Writer getResponseWriter(int theStatusCode, String theContentType, String theCharset, boolean theRespondGzip) throws IOException;
 
+	/**
+	 * Initiate a new textual response which the caller writes as UTF-8 encoded bytes, instead of through
+	 * the {@link Writer} returned by {@link #getResponseWriter(int, String, String, boolean)}. This lets
+	 * encoders which produce bytes directly skip the character conversion. The response is otherwise
+	 * the same as one created by {@link #getResponseWriter(int, String, String, boolean)} using a charset of
+	 * UTF-8, and the returned stream must be finalized by calling {@link #commitResponse(Closeable)} later.
+	 * <p>
+	 * The default implementation returns {@literal null}, meaning that this response does not support
+	 * byte oriented textual responses and {@link #getResponseWriter(int, String, String, boolean)} must
+	 * be used instead.
+	 * </p>
+	 *
+	 * @param theStatusCode  The HTTP status code.
+	 * @param theContentType The HTTP response content type.
+	 * @param theRespondGzip Should the response be GZip encoded?
+	 * @return Returns an {@link OutputStream} that can accept the UTF-8 encoded response body, or {@literal null}
+	 * @since 6.8.0
+	 */
+	@Nullable
+	default OutputStream getResponseTextOutputStream(int theStatusCode, String theContentType, boolean theRespondGzip) throws IOException {
+		return null;
+	}
+
 	/**
 	 * Initiate a new binary response. The OutputStream returned by this method must be finalized by
 	 * calling {@link #commitResponse(Closeable)} later. This method should only be used for non-textual
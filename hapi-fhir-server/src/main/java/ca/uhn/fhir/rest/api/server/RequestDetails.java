@@ -20,11 +20,13 @@
 package ca.uhn.fhir.rest.api.server;
 
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.api.IInterceptorBroadcaster;
 import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.RequestTypeEnum;
 import ca.uhn.fhir.rest.api.RestOperationTypeEnum;
 import ca.uhn.fhir.rest.server.IRestfulServerDefaults;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.interceptor.IServerInterceptor;
 import ca.uhn.fhir.rest.server.servlet.ServletRequestDetails;
 import ca.uhn.fhir.util.StopWatch;
@@ -36,6 +38,7 @@ import org.hl7.fhir.instance.model.api.IPrimitiveType;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.Reader;
@@ -62,6 +65,7 @@ public abstract class RequestDetails {
 	private String myOperation;
 	private Map<String, String[]> myParameters;
 	private byte[] myRequestContents;
+	private boolean myRequestContentsStreamed;
 	private String myRequestPath;
 	private RequestTypeEnum myRequestType;
 	private String myResourceName;
@@ -102,6 +106,7 @@ public abstract class RequestDetails {
 		myOperation = theRequestDetails.getOperation();
 		myParameters = theRequestDetails.getParameters();
 		myRequestContents = theRequestDetails.getRequestContentsIfLoaded();
+		myRequestContentsStreamed = theRequestDetails.isRequestContentsStreamed();
 		myRequestPath = theRequestDetails.getRequestPath();
 		myRequestType = theRequestDetails.getRequestType();
 		myResourceName = theRequestDetails.getResourceName();
@@ -167,6 +172,18 @@ public abstract class RequestDetails {
 
 	protected abstract byte[] getByteStreamRequestContents();
 
+	/**
+	 * Subclasses may override this method in order to supply the request body as a stream which
+	 * is read directly from the underlying transport, instead of being buffered in memory first.
+	 * The default implementation returns <code>null</code>, meaning that streaming is not supported
+	 * and the contents will always be loaded via {@link #loadRequestContents()}.
+	 *
+	 * @since 6.8.0
+	 */
+	protected InputStream getStreamingRequestContents() {
+		return null;
+	}
+
 	/**
 	 * Return the charset as defined by the header contenttype. Return null if it is not set.
 	 */
@@ -505,11 +522,46 @@ public abstract class RequestDetails {
 
 	public final byte[] loadRequestContents() {
 		if (myRequestContents == null) {
+			if (myRequestContentsStreamed) {
+				throw new InternalErrorException(Msg.code(2368) + "The request body has already been consumed as a stream and can not be loaded. Interceptors requiring the raw request body must call loadRequestContents() before the request is handled.");
+			}
 			myRequestContents = getByteStreamRequestContents();
 		}
 		return getRequestContentsIfLoaded();
 	}
 
+	/**
+	 * Returns the request contents as a stream. If the contents have already been
+	 * loaded (e.g. by an interceptor calling {@link #loadRequestContents()}) a stream
+	 * over the loaded bytes is returned. Otherwise, if the implementation supports it, a
+	 * stream reading directly from the client request is returned, in which case the
+	 * request contents may only be consumed once and {@link #loadRequestContents()} can
+	 * no longer be used for this request.
+	 *
+	 * @since 6.8.0
+	 */
+	public final InputStream getRequestContentsStream() {
+		if (myRequestContents == null && !myRequestContentsStreamed) {
+			InputStream retVal = getStreamingRequestContents();
+			if (retVal != null) {
+				myRequestContentsStreamed = true;
+				return retVal;
+			}
+		}
+		return new ByteArrayInputStream(loadRequestContents());
+	}
+
+	/**
+	 * Returns <code>true</code> if the request contents have been consumed directly
+	 * from the client request by {@link #getRequestContentsStream()} without being
+	 * buffered in memory.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isRequestContentsStreamed() {
+		return myRequestContentsStreamed;
+	}
+
 	/**
 	 * Returns the request contents if they were loaded, returns <code>null</code> otherwise
 	 *
@@ -172,6 +172,7 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 	private String myServerVersion = createPoweredByHeaderProductVersion();
 	private boolean myStarted;
 	private boolean myUncompressIncomingContents = true;
+	private boolean myStreamingRequestContents;
 	private ITenantIdentificationStrategy myTenantIdentificationStrategy;
 	private PreferReturnEnum myDefaultPreferReturn = DEFAULT_PREFER_RETURN;
 	private ElementsSupportEnum myElementsSupport = ElementsSupportEnum.EXTENDED;
@@ -1570,6 +1571,46 @@ public class RestfulServer extends HttpServlet implements IRestfulServer<Servlet
 		myUncompressIncomingContents = theUncompressIncomingContents;
 	}
 
+	/**
+	 * Should the server parse incoming resources directly from the request stream (default is <code>false</code>)?
+	 * If enabled, request bodies containing a FHIR resource (e.g. a create, update or transaction) are
+	 * decompressed and parsed on the fly instead of first being copied into memory, which considerably
+	 * reduces the memory required to process large requests. Request bodies which are not
+	 * parsed as a FHIR resource (e.g. raw Binary uploads) are always buffered.
+	 * <p>
+	 * When this setting is enabled, the raw request body is no longer available through
+	 * {@link RequestDetails#loadRequestContents()} after the resource has been parsed. Interceptors which
+	 * need the raw request body must call that method in an early pointcut such as
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_INCOMING_REQUEST_POST_PROCESSED}, in which case
+	 * the buffered contents will be used for parsing.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isStreamingRequestContents() {
+		return myStreamingRequestContents;
+	}
+
+	/**
+	 * Should the server parse incoming resources directly from the request stream (default is <code>false</code>)?
+	 * If enabled, request bodies containing a FHIR resource (e.g. a create, update or transaction) are
+	 * decompressed and parsed on the fly instead of first being copied into memory, which considerably
+	 * reduces the memory required to process large requests. Request bodies which are not
+	 * parsed as a FHIR resource (e.g. raw Binary uploads) are always buffered.
+	 * <p>
+	 * When this setting is enabled, the raw request body is no longer available through
+	 * {@link RequestDetails#loadRequestContents()} after the resource has been parsed. Interceptors which
+	 * need the raw request body must call that method in an early pointcut such as
+	 * {@link ca.uhn.fhir.interceptor.api.Pointcut#SERVER_INCOMING_REQUEST_POST_PROCESSED}, in which case
+	 * the buffered contents will be used for parsing.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setStreamingRequestContents(boolean theStreamingRequestContents) {
+		myStreamingRequestContents = theStreamingRequestContents;
+	}
+
 
 	public void populateRequestDetailsFromRequestPath(RequestDetails theRequestDetails, String theRequestPath) {
 		UrlPathTokenizer tok = new UrlPathTokenizer(theRequestPath);
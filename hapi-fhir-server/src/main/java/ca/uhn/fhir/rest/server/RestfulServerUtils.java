@@ -924,11 +924,26 @@ public class RestfulServerUtils {
 			contentType = responseEncoding.getResourceContentType();
 		}
 		String charset = Constants.CHARSET_NAME_UTF8;
+		boolean hasWriterCreatedHooks = theServer.getInterceptorService() != null && theServer.getInterceptorService().hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED);
+
+		/*
+		 * If nothing needs to see the Writer, let the parser write UTF-8 bytes straight to
+		 * the response stream instead of going through a character writer
+		 */
+		if (theResource != null && !encodingDomainResourceAsText && !hasWriterCreatedHooks) {
+			OutputStream outputStream = response.getResponseTextOutputStream(theStatusCode, contentType, respondGzip);
+			if (outputStream != null) {
+				FhirVersionEnum forVersion = theResource.getStructureFhirVersionEnum();
+				IParser parser = getNewParser(theServer.getFhirContext(), forVersion, theRequestDetails);
+				parser.encodeResourceToOutputStream(theResource, outputStream);
+				return response.commitResponse(outputStream);
+			}
+		}
 
 		Writer writer = response.getResponseWriter(theStatusCode, contentType, charset, respondGzip);
 
 		// Interceptor call: SERVER_OUTGOING_WRITER_CREATED
-		if (theServer.getInterceptorService() != null && theServer.getInterceptorService().hasHooks(Pointcut.SERVER_OUTGOING_WRITER_CREATED)) {
+		if (hasWriterCreatedHooks) {
 			HookParams params = new HookParams()
 				.add(Writer.class, writer)
 				.add(RequestDetails.class, theRequestDetails)
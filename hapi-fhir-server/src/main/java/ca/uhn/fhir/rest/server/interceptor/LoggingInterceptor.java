@@ -128,6 +128,7 @@ public class LoggingInterceptor {
 
 	private static final org.slf4j.Logger ourLog = org.slf4j.LoggerFactory.getLogger(LoggingInterceptor.class);
 
+	private static final String REQUEST_BODY_FHIR = "${requestBodyFhir}";
 	private String myErrorMessageFormat = "ERROR - ${operationType} - ${idOrResourceName}";
 	private boolean myLogExceptions = true;
 	private Logger myLogger = ourLog;
@@ -163,6 +164,22 @@ public class LoggingInterceptor {
 	}
 
 
+	/**
+	 * If the server parses request bodies directly from the request stream, the
+	 * request body needs to be loaded before it is consumed if it will be logged.
+	 */
+	@Hook(Pointcut.SERVER_INCOMING_REQUEST_POST_PROCESSED)
+	public boolean incomingRequestPostProcessed(ServletRequestDetails theRequestDetails) {
+		if (theRequestDetails.getServer() != null && theRequestDetails.getServer().isStreamingRequestContents()) {
+			if (myMessageFormat.contains(REQUEST_BODY_FHIR) || (myLogExceptions && myErrorMessageFormat.contains(REQUEST_BODY_FHIR))) {
+				if (determineRequestEncoding(theRequestDetails.getServletRequest()) != null) {
+					theRequestDetails.loadRequestContents();
+				}
+			}
+		}
+		return true;
+	}
+
 	@Hook(Pointcut.SERVER_PROCESSING_COMPLETED_NORMALLY)
 	public void processingCompletedNormally(ServletRequestDetails theRequestDetails) {
 		// Perform any string substitutions from the message format
@@ -216,6 +233,20 @@ public class LoggingInterceptor {
 		myMessageFormat = theMessageFormat;
 	}
 
+	private static EncodingEnum determineRequestEncoding(HttpServletRequest theRequest) {
+		String contentType = theRequest.getContentType();
+		if (isNotBlank(contentType)) {
+			int colonIndex = contentType.indexOf(';');
+			if (colonIndex != -1) {
+				contentType = contentType.substring(0, colonIndex);
+			}
+			contentType = contentType.trim();
+
+			return EncodingEnum.forContentType(contentType);
+		}
+		return null;
+	}
+
 	private static final class MyLookup implements StringLookup {
 		private final Throwable myException;
 		private final HttpServletRequest myRequest;
@@ -305,19 +336,10 @@ public class LoggingInterceptor {
 			} else if (theKey.equals("requestVerb")) {
 				return myRequest.getMethod();
 			} else if (theKey.equals("requestBodyFhir")) {
-				String contentType = myRequest.getContentType();
-				if (isNotBlank(contentType)) {
-					int colonIndex = contentType.indexOf(';');
-					if (colonIndex != -1) {
-						contentType = contentType.substring(0, colonIndex);
-					}
-					contentType = contentType.trim();
-
-					EncodingEnum encoding = EncodingEnum.forContentType(contentType);
-					if (encoding != null) {
-						byte[] requestContents = myRequestDetails.loadRequestContents();
-						return new String(requestContents, Constants.CHARSET_UTF8);
-					}
+				EncodingEnum encoding = determineRequestEncoding(myRequest);
+				if (encoding != null) {
+					byte[] requestContents = myRequestDetails.loadRequestContents();
+					return new String(requestContents, Constants.CHARSET_UTF8);
 				}
 				return "";
 			} else if ("processingTimeMillis".equals(theKey)) {
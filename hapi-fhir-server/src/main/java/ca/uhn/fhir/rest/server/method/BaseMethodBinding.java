@@ -67,6 +67,7 @@ public abstract class BaseMethodBinding {
 	private Object myProvider;
 	private boolean mySupportsConditional;
 	private boolean mySupportsConditionalMultiple;
+	private boolean myRawRequestBodyRequired;
 	public BaseMethodBinding(Method theMethod, FhirContext theContext, Object theProvider) {
 		assert theMethod != null;
 		assert theContext != null;
@@ -91,10 +92,29 @@ public abstract class BaseMethodBinding {
 			}
 		}
 
+		for (IParameter next : myParameters) {
+			if (next instanceof ResourceParameter) {
+				ResourceParameter.Mode mode = ((ResourceParameter) next).getMode();
+				if (mode == ResourceParameter.Mode.BODY || mode == ResourceParameter.Mode.BODY_BYTE_ARRAY) {
+					myRawRequestBodyRequired = true;
+					break;
+				}
+			}
+		}
+
 		// This allows us to invoke methods on private classes
 		myMethod.setAccessible(true);
 	}
 
+	/**
+	 * Returns <code>true</code> if this method receives the raw request body (as a
+	 * String or byte[]), meaning that the body can not be streamed into the parser
+	 * when a resource is also parsed from it.
+	 */
+	boolean isRawRequestBodyRequired() {
+		return myRawRequestBodyRequired;
+	}
+
 	protected List<BaseQueryParameter> getQueryParameters() {
 		return myQueryParameters;
 	}
@@ -34,6 +34,7 @@ import ca.uhn.fhir.rest.server.RestfulServerUtils;
 import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.util.BinaryUtil;
+import ca.uhn.fhir.util.IoUtil;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.Validate;
 import org.hl7.fhir.instance.model.api.IBaseBinary;
@@ -125,6 +126,18 @@ public class ResourceParameter implements IParameter {
 		return new InputStreamReader(new ByteArrayInputStream(theRequest.loadRequestContents()), charset);
 	}
 
+	/**
+	 * Creates a reader for a request body which is about to be parsed as a resource. If the
+	 * server allows it, the body is read directly from the client request, unless the method
+	 * also needs the raw body (in which case the body must remain available after parsing).
+	 */
+	private static Reader createResourceRequestReader(RequestDetails theRequest, BaseMethodBinding theMethodBinding, Charset charset) {
+		if (theMethodBinding != null && theMethodBinding.isRawRequestBodyRequired()) {
+			return createRequestReader(theRequest, charset);
+		}
+		return new InputStreamReader(theRequest.getRequestContentsStream(), charset);
+	}
+
 	// Do not make private
 	@SuppressWarnings("WeakerAccess")
 	public static Reader createRequestReader(RequestDetails theRequest) {
@@ -144,7 +157,7 @@ public class ResourceParameter implements IParameter {
 		FhirContext ctx = theRequest.getServer().getFhirContext();
 
 		final Charset charset = determineRequestCharset(theRequest);
-		Reader requestReader = createRequestReader(theRequest, charset);
+		Reader requestReader = createResourceRequestReader(theRequest, theMethodBinding, charset);
 
 		RestOperationTypeEnum restOperationType = theMethodBinding != null ? theMethodBinding.getRestOperationType() : null;
 
@@ -189,6 +202,8 @@ public class ResourceParameter implements IParameter {
 		} catch (DataFormatException e) {
 			String msg = ctx.getLocalizer().getMessage(ResourceParameter.class, "failedToParseRequest", encoding.name(), e.getMessage());
 			throw new InvalidRequestException(Msg.code(450) + msg);
+		} finally {
+			IoUtil.closeQuietly(requestReader);
 		}
 
 		return retVal;
@@ -34,9 +34,9 @@ import org.apache.commons.lang3.Validate;
 import javax.annotation.Nonnull;
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
-import java.io.ByteArrayInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.PushbackInputStream;
 import java.io.Reader;
 import java.nio.charset.Charset;
 import java.util.ArrayList;
@@ -89,26 +89,52 @@ public class ServletRequestDetails extends RequestDetails {
 	@Override
 	protected byte[] getByteStreamRequestContents() {
 		try {
-			InputStream inputStream = getInputStream();
-			byte[] requestContents = IOUtils.toByteArray(inputStream);
-
-			if (myServer.isUncompressIncomingContents()) {
-				String contentEncoding = myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING);
-				if ("gzip".equals(contentEncoding)) {
-					ourLog.debug("Uncompressing (GZip) incoming content");
-					if (requestContents.length > 0) {
-						GZIPInputStream gis = new GZIPInputStream(new ByteArrayInputStream(requestContents));
-						requestContents = IOUtils.toByteArray(gis);
-					}
-				}
-			}
-			return requestContents;
+			return IOUtils.toByteArray(openRequestContents());
 		} catch (IOException e) {
 			ourLog.error("Could not load request resource", e);
 			throw new InvalidRequestException(Msg.code(308) + String.format("Could not load request resource: %s", e.getMessage()));
 		}
 	}
 
+	@Override
+	protected InputStream getStreamingRequestContents() {
+		if (myServer == null || !myServer.isStreamingRequestContents()) {
+			return null;
+		}
+		try {
+			return openRequestContents();
+		} catch (IOException e) {
+			ourLog.error("Could not load request resource", e);
+			throw new InvalidRequestException(Msg.code(2387) + String.format("Could not open request resource stream: %s", e.getMessage()));
+		}
+	}
+
+	/**
+	 * Opens the request input stream, decompressing it on the fly if the server
+	 * is configured to uncompress incoming contents and the client sent GZip
+	 * encoded contents
+	 */
+	private InputStream openRequestContents() throws IOException {
+		InputStream inputStream = getInputStream();
+
+		if (myServer.isUncompressIncomingContents()) {
+			String contentEncoding = myServletRequest.getHeader(Constants.HEADER_CONTENT_ENCODING);
+			if ("gzip".equals(contentEncoding)) {
+				ourLog.debug("Uncompressing (GZip) incoming content");
+				// An empty body is passed through as-is since it has no GZip header
+				PushbackInputStream pushbackInputStream = new PushbackInputStream(inputStream, 1);
+				int firstByte = pushbackInputStream.read();
+				if (firstByte == -1) {
+					return pushbackInputStream;
+				}
+				pushbackInputStream.unread(firstByte);
+				inputStream = new GZIPInputStream(pushbackInputStream);
+			}
+		}
+
+		return inputStream;
+	}
+
 	@Override
 	public Charset getCharset() {
 		Charset charset = null;
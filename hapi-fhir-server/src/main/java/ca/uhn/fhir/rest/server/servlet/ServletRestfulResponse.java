@@ -89,6 +89,24 @@ public class ServletRestfulResponse extends BaseRestfulResponse<ServletRequestDe
 		return myWriter;
 	}
 
+	@Override
+	public OutputStream getResponseTextOutputStream(int theStatusCode, String theContentType, boolean theRespondGzip) throws IOException {
+		Validate.isTrue(myWriter == null, "getResponseTextOutputStream() called after getResponseWriter()" );
+		Validate.isTrue(myOutputStream == null, "getResponseTextOutputStream() called multiple times" );
+
+		addHeaders();
+		HttpServletResponse httpResponse = getRequestDetails().getServletResponse();
+		httpResponse.setCharacterEncoding(Constants.CHARSET_NAME_UTF8);
+		httpResponse.setStatus(theStatusCode);
+		httpResponse.setContentType(theContentType);
+		myOutputStream = httpResponse.getOutputStream();
+		if (theRespondGzip) {
+			httpResponse.addHeader(Constants.HEADER_CONTENT_ENCODING, Constants.ENCODING_GZIP);
+			myOutputStream = new GZIPOutputStream(myOutputStream);
+		}
+		return myOutputStream;
+	}
+
 	private void addHeaders() {
 		HttpServletResponse httpResponse = getRequestDetails().getServletResponse();
 		getRequestDetails().getServer().addHeadersToResponse(httpResponse);
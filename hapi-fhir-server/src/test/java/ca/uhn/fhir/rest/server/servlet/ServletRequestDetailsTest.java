@@ -1,11 +1,24 @@
 package ca.uhn.fhir.rest.server.servlet;
 
 import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.server.RestfulServer;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.apache.commons.io.IOUtils;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import javax.servlet.http.HttpServletRequest;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPOutputStream;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.when;
@@ -41,4 +54,84 @@ class ServletRequestDetailsTest {
 		assertFalse(servletRequestDetails.isRewriteHistory());
 	}
 
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void testStreamRequestContents(boolean theGzip) throws IOException {
+		String body = "{\"resourceType\":\"Patient\"}";
+		ServletRequestDetails servletRequestDetails = newRequestDetails(true, body, theGzip);
+
+		String actual = IOUtils.toString(servletRequestDetails.getRequestContentsStream(), StandardCharsets.UTF_8);
+
+		assertEquals(body, actual);
+		assertTrue(servletRequestDetails.isRequestContentsStreamed());
+		InternalErrorException e = assertThrows(InternalErrorException.class, servletRequestDetails::loadRequestContents);
+		assertTrue(e.getMessage().startsWith("HAPI-2368: "));
+	}
+
+	@Test
+	public void testStreamRequestContents_EmptyGzipBody() throws IOException {
+		ServletRequestDetails servletRequestDetails = newRequestDetails(true, null, true);
+
+		String actual = IOUtils.toString(servletRequestDetails.getRequestContentsStream(), StandardCharsets.UTF_8);
+
+		assertEquals("", actual);
+	}
+
+	@Test
+	public void testStreamRequestContents_AlreadyLoaded() throws IOException {
+		String body = "{\"resourceType\":\"Patient\"}";
+		ServletRequestDetails servletRequestDetails = newRequestDetails(true, body, true);
+		servletRequestDetails.loadRequestContents();
+
+		String actual = IOUtils.toString(servletRequestDetails.getRequestContentsStream(), StandardCharsets.UTF_8);
+
+		assertEquals(body, actual);
+		assertFalse(servletRequestDetails.isRequestContentsStreamed());
+		assertEquals(body, new String(servletRequestDetails.loadRequestContents(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testStreamRequestContents_StreamingDisabled() throws IOException {
+		String body = "{\"resourceType\":\"Patient\"}";
+		ServletRequestDetails servletRequestDetails = newRequestDetails(false, body, true);
+
+		String actual = IOUtils.toString(servletRequestDetails.getRequestContentsStream(), StandardCharsets.UTF_8);
+
+		assertEquals(body, actual);
+		assertFalse(servletRequestDetails.isRequestContentsStreamed());
+		assertEquals(body, new String(servletRequestDetails.getRequestContentsIfLoaded(), StandardCharsets.UTF_8));
+	}
+
+	private static ServletRequestDetails newRequestDetails(boolean theStreaming, String theBody, boolean theGzip) throws IOException {
+		byte[] bytes = new byte[0];
+		if (theBody != null) {
+			bytes = theBody.getBytes(StandardCharsets.UTF_8);
+			if (theGzip) {
+				ByteArrayOutputStream bos = new ByteArrayOutputStream();
+				try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+					gos.write(bytes);
+				}
+				bytes = bos.toByteArray();
+			}
+		}
+		byte[] requestBytes = bytes;
+
+		RestfulServer server = new RestfulServer();
+		server.setStreamingRequestContents(theStreaming);
+		HttpServletRequest httpRequest = mock(HttpServletRequest.class);
+		if (theGzip) {
+			when(httpRequest.getHeader(Constants.HEADER_CONTENT_ENCODING)).thenReturn("gzip");
+		}
+
+		ServletRequestDetails retVal = new ServletRequestDetails() {
+			@Override
+			public InputStream getInputStream() {
+				return new ByteArrayInputStream(requestBytes);
+			}
+		};
+		retVal.setServer(server);
+		retVal.setServletRequest(httpRequest);
+		return retVal;
+	}
+
 }
@@ -59,4 +59,13 @@ public class CacheFactory {
 		CacheProvider<K, V> cacheProvider = getCacheProvider();
 		return cacheProvider.create(theTimeoutMillis, theMaximumSize, cacheLoader);
 	}
+
+	/**
+	 * Builds a cache which is bounded by the total weight of its entries (as computed
+	 * by the given weigher) instead of by the number of entries
+	 */
+	public static <K, V> Cache<K, V> buildWeighted(long theTimeoutMillis, long theMaximumWeight, CacheWeigher<K, V> theWeigher) {
+		CacheProvider<K, V> cacheProvider = getCacheProvider();
+		return cacheProvider.createWeighted(theTimeoutMillis, theMaximumWeight, theWeigher);
+	}
 }
@@ -28,4 +28,16 @@ public interface CacheProvider<K,V> {
     LoadingCache create(long timeoutMillis, CacheLoader<K,V> cacheLoader);
 
     LoadingCache create(long timeoutMillis, long maximumSize, CacheLoader<K,V> cacheLoader);
+
+    /**
+     * Creates a cache which is bounded by the total weight of its entries instead of by
+     * the number of entries. Providers which do not support weighing entries fall back
+     * to a cache bounded by the number of entries, using <code>maximumWeight</code> as
+     * the maximum number of entries.
+     *
+     * @since 6.8.0
+     */
+    default Cache createWeighted(long timeoutMillis, long maximumWeight, CacheWeigher<K,V> weigher) {
+        return create(timeoutMillis, maximumWeight);
+    }
 }
@@ -25,6 +25,7 @@ import java.util.concurrent.TimeUnit;
 import com.google.common.cache.CacheBuilder;
 import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheLoader;
+import ca.uhn.fhir.sl.cache.CacheWeigher;
 import ca.uhn.fhir.sl.cache.LoadingCache;
 
 public class CacheProvider<K,V> implements ca.uhn.fhir.sl.cache.CacheProvider<K,V> {
@@ -73,4 +74,14 @@ public class CacheProvider<K,V> implements ca.uhn.fhir.sl.cache.CacheProvider<K,
 		);
 	}
 
+	public Cache<K,V> createWeighted(long timeoutMillis, long maximumWeight, CacheWeigher<K,V> weigher) {
+		return new CacheDelegator<K,V>(
+			CacheBuilder.newBuilder()
+				.expireAfterWrite(timeoutMillis, TimeUnit.MILLISECONDS)
+				.maximumWeight(maximumWeight)
+				.<K,V>weigher(weigher::weigh)
+				.build()
+		);
+	}
+
 }
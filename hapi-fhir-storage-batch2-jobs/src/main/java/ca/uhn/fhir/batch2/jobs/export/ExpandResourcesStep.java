@@ -28,31 +28,44 @@ import ca.uhn.fhir.batch2.jobs.export.models.BulkExportJobParameters;
 import ca.uhn.fhir.batch2.jobs.export.models.ExpandedResourcesList;
 import ca.uhn.fhir.batch2.jobs.export.models.ResourceIdList;
 import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.i18n.Msg;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.binary.api.StoredDetails;
+import ca.uhn.fhir.jpa.binary.svc.NullBinaryStorageSvcImpl;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
 import ca.uhn.fhir.jpa.searchparam.SearchParameterMap;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryMatchResult;
 import ca.uhn.fhir.jpa.searchparam.matcher.InMemoryResourceMatcher;
 import ca.uhn.fhir.parser.IParser;
+import ca.uhn.fhir.rest.api.Constants;
 import ca.uhn.fhir.rest.api.server.IBundleProvider;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.param.TokenOrListParam;
 import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
+import ca.uhn.fhir.util.BinaryUtil;
+import ca.uhn.fhir.util.HapiExtensions;
 import com.google.common.collect.ArrayListMultimap;
 import com.google.common.collect.ListMultimap;
+import org.hl7.fhir.instance.model.api.IBaseBinary;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IBaseHasExtensions;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.ApplicationContext;
 
 import javax.annotation.Nonnull;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
@@ -90,6 +103,9 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 	@Autowired
 	private InMemoryResourceMatcher myInMemoryResourceMatcher;
 
+	@Autowired(required = false)
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	private volatile ResponseTerminologyTranslationSvc myResponseTerminologyTranslationSvc;
 
 	@Nonnull
@@ -132,6 +148,13 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 			terminologyTranslationSvc.processResourcesForTerminologyTranslation(allResources);
 		}
 
+		// stream them straight into binary storage if possible, so that the encoded
+		// resources never need to be held in memory or stored in the work chunk
+		if (isStreamToBinaryStorage()) {
+			writeToBinaryStorage(allResources, theStepExecutionDetails, theDataSink);
+			return RunOutcome.SUCCESS;
+		}
+
 		// encode them - Key is resource type, Value is a collection of serialized resources of that type
 		ListMultimap<String, String> resources = encodeToString(allResources, parameters);
 
@@ -248,6 +271,71 @@ public class ExpandResourcesStep implements IJobStepWorker<BulkExportJobParamete
 		return retVal;
 	}
 
+	private boolean isStreamToBinaryStorage() {
+		return myStorageSettings.isBulkExportStreamToBinaryStorage()
+			&& myBinaryStorageSvc != null
+			&& !(myBinaryStorageSvc instanceof NullBinaryStorageSvcImpl);
+	}
+
+	/**
+	 * Writes one NDJSON file per resource type directly into binary storage. For each file a
+	 * Binary resource is created which references the stored blob using the externalized binary
+	 * ID extension, and only the ID of that Binary is passed on to the next step.
+	 */
+	private void writeToBinaryStorage(List<IBaseResource> theResources, StepExecutionDetails<BulkExportJobParameters, ResourceIdList> theStepExecutionDetails, IJobDataSink<ExpandedResourcesList> theDataSink) {
+		BulkExportJobParameters parameters = theStepExecutionDetails.getParameters();
+		String instanceId = theStepExecutionDetails.getInstance().getInstanceId();
+		boolean gzip = myStorageSettings.isBulkExportBinaryStorageGzipEnabled();
+		String contentType = gzip ? Constants.CT_APPLICATION_GZIP : Constants.CT_FHIR_NDJSON;
+
+		ListMultimap<String, IBaseResource> typeToResources = ArrayListMultimap.create();
+		for (IBaseResource next : theResources) {
+			typeToResources.put(myFhirContext.getResourceType(next), next);
+		}
+
+		@SuppressWarnings("unchecked")
+		IFhirResourceDao<IBaseBinary> binaryDao = myDaoRegistry.getResourceDao("Binary");
+
+		for (String nextResourceType : typeToResources.keySet()) {
+			List<IBaseResource> resources = typeToResources.get(nextResourceType);
+
+			IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
+			WriteBinaryStep.addMetadataExtensionsToBinary(myFhirContext, parameters, instanceId, nextResourceType, binary);
+			binary.setContentType(contentType);
+
+			String blobId = myBinaryStorageSvc.newBlobId();
+			IBaseHasExtensions data = (IBaseHasExtensions) BinaryUtil.getOrCreateData(myFhirContext, binary);
+			IBaseExtension<?, ?> blobIdExtension = data.addExtension();
+			blobIdExtension.setUrl(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID);
+			// Marks the extension as added by the server so that BinaryStorageInterceptor accepts it
+			blobIdExtension.setUserData(JpaConstants.EXTENSION_EXT_SYSTEMDEFINED, Boolean.TRUE);
+			blobIdExtension.setValue(myFhirContext.newPrimitiveString(blobId));
+
+			SystemRequestDetails srd = WriteBinaryStep.newRequestDetailsForBinary(parameters);
+			ExpandedResourcesList output = myTransactionService
+				.withRequest(srd)
+				.execute(() -> {
+					IIdType binaryId = binaryDao.create(binary, srd).getId().toUnqualifiedVersionless();
+					try (NdJsonResourceInputStream inputStream = new NdJsonResourceInputStream(resources.iterator(), getParser(parameters), gzip)) {
+						StoredDetails storedDetails = myBinaryStorageSvc.storeBlob(binaryId, blobId, contentType, inputStream, srd);
+						ourLog.info("Bulk export instance[{}] chunk[{}] - Wrote {} resources of type {} ({} bytes) to {}", instanceId, theStepExecutionDetails.getChunkId(), inputStream.getResourceCount(), nextResourceType, storedDetails.getBytes(), binaryId.getValue());
+
+						ExpandedResourcesList retVal = new ExpandedResourcesList();
+						retVal.setResourceType(nextResourceType);
+						retVal.setBinaryId(binaryId.getValue());
+						retVal.setResourceCount(inputStream.getResourceCount());
+						return retVal;
+					} catch (IOException e) {
+						String errorMsg = String.format("Failure to write resources of type %s to binary storage: %s", nextResourceType, e.getMessage());
+						ourLog.error(errorMsg, e);
+						throw new JobExecutionFailedException(Msg.code(2367) + errorMsg);
+					}
+				});
+
+			theDataSink.accept(output);
+		}
+	}
+
 	private IParser getParser(BulkExportJobParameters theParameters) {
 		// The parser depends on the
 		// output format
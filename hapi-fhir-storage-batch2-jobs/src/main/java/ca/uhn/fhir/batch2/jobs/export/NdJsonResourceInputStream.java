@@ -0,0 +1,120 @@
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.jobs.export;
+
+import ca.uhn.fhir.parser.IParser;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Iterator;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * An {@link InputStream} which produces an NDJSON document (optionally gzip compressed)
+ * from a collection of resources. Resources are only encoded as the stream is read, one
+ * at a time, so the full document is never held in memory.
+ */
+class NdJsonResourceInputStream extends InputStream {
+
+	private static final byte[] EMPTY = new byte[0];
+	private final Iterator<? extends IBaseResource> myResources;
+	private final IParser myParser;
+	private final ByteArrayOutputStream myBuffer = new ByteArrayOutputStream();
+	private final OutputStream myEncoderStream;
+	private byte[] myCurrent = EMPTY;
+	private int myCurrentPos;
+	private boolean myFinished;
+	private int myResourceCount;
+
+	NdJsonResourceInputStream(Iterator<? extends IBaseResource> theResources, IParser theParser, boolean theGzip) throws IOException {
+		myResources = theResources;
+		myParser = theParser;
+		myEncoderStream = theGzip ? new GZIPOutputStream(myBuffer) : myBuffer;
+	}
+
+	/**
+	 * Returns the number of resources which have been encoded so far
+	 */
+	int getResourceCount() {
+		return myResourceCount;
+	}
+
+	@Override
+	public int read() throws IOException {
+		if (!fill()) {
+			return -1;
+		}
+		return myCurrent[myCurrentPos++] & 0xFF;
+	}
+
+	@Override
+	public int read(byte[] theBuffer, int theOffset, int theLength) throws IOException {
+		if (theLength == 0) {
+			return 0;
+		}
+		if (!fill()) {
+			return -1;
+		}
+		int count = Math.min(theLength, myCurrent.length - myCurrentPos);
+		System.arraycopy(myCurrent, myCurrentPos, theBuffer, theOffset, count);
+		myCurrentPos += count;
+		return count;
+	}
+
+	@Override
+	public void close() throws IOException {
+		if (!myFinished) {
+			myFinished = true;
+			myEncoderStream.close();
+		}
+	}
+
+	/**
+	 * Makes sure there is unread data in the current buffer, encoding more resources as needed
+	 *
+	 * @return Returns <code>false</code> if the stream is exhausted
+	 */
+	private boolean fill() throws IOException {
+		while (myCurrentPos >= myCurrent.length) {
+			if (myFinished) {
+				return false;
+			}
+
+			if (myResources.hasNext()) {
+				myParser.encodeResourceToOutputStream(myResources.next(), myEncoderStream);
+				myEncoderStream.write('\n');
+				myEncoderStream.flush();
+				myResourceCount++;
+			} else {
+				// Closing the stream finishes the gzip trailer if we're compressing
+				myEncoderStream.close();
+				myFinished = true;
+			}
+
+			myCurrent = myBuffer.toByteArray();
+			myCurrentPos = 0;
+			myBuffer.reset();
+		}
+		return true;
+	}
+}
@@ -50,6 +50,7 @@ import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.io.OutputStreamWriter;
 
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.slf4j.LoggerFactory.getLogger;
 
 public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters, ExpandedResourcesList, BulkExportBinaryFileId> {
@@ -67,6 +68,19 @@ public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters,
 								 @Nonnull IJobDataSink<BulkExportBinaryFileId> theDataSink) throws JobExecutionFailedException {
 
 		ExpandedResourcesList expandedResources = theStepExecutionDetails.getData();
+
+		// The resources have already been streamed into binary storage by the expand step
+		if (expandedResources.getBinaryId() != null) {
+			BulkExportBinaryFileId bulkExportBinaryFileId = new BulkExportBinaryFileId();
+			bulkExportBinaryFileId.setBinaryId(expandedResources.getBinaryId());
+			bulkExportBinaryFileId.setResourceType(expandedResources.getResourceType());
+			theDataSink.accept(bulkExportBinaryFileId);
+
+			int resourceCount = defaultIfNull(expandedResources.getResourceCount(), 0);
+			ourLog.info("Binary {} was already written for {} resources of type {}", expandedResources.getBinaryId(), resourceCount, expandedResources.getResourceType());
+			return new RunOutcome(resourceCount);
+		}
+
 		final int numResourcesProcessed = expandedResources.getStringifiedResources().size();
 
 		ourLog.info("Write binary step of Job Export");
@@ -77,7 +91,7 @@ public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters,
 
 		IBaseBinary binary = BinaryUtil.newBinary(myFhirContext);
 
-		addMetadataExtensionsToBinary(theStepExecutionDetails, expandedResources, binary);
+		addMetadataExtensionsToBinary(myFhirContext, theStepExecutionDetails.getParameters(), theStepExecutionDetails.getInstance().getInstanceId(), expandedResources.getResourceType(), binary);
 
 		// TODO
 		// should be dependent on the
@@ -106,13 +120,7 @@ public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters,
 			throw new JobExecutionFailedException(Msg.code(2238) + errorMsg);
 		}
 
-		SystemRequestDetails srd = new SystemRequestDetails();
-		RequestPartitionId partitionId = theStepExecutionDetails.getParameters().getPartitionId();
-		if (partitionId == null){
-			srd.setRequestPartitionId(RequestPartitionId.defaultPartition());
-		} else {
-			srd.setRequestPartitionId(partitionId);
-		}
+		SystemRequestDetails srd = newRequestDetailsForBinary(theStepExecutionDetails.getParameters());
 		DaoMethodOutcome outcome = binaryDao.create(binary,srd);
 		IIdType id = outcome.getId();
 
@@ -135,34 +143,49 @@ public class WriteBinaryStep implements IJobStepWorker<BulkExportJobParameters,
 	 * 2. the job_id of the job instance.
 	 * 3. the resource type of the resources contained in the binary
 	 */
-	private void addMetadataExtensionsToBinary(@Nonnull  StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> theStepExecutionDetails, ExpandedResourcesList expandedResources, IBaseBinary binary) {
+	static void addMetadataExtensionsToBinary(FhirContext theFhirContext, BulkExportJobParameters theParameters, String theInstanceId, String theResourceType, IBaseBinary binary) {
 		// Note that this applies only to hl7.org structures, so these extensions will not be added
 		// to DSTU2 structures
 		if (binary.getMeta() instanceof IBaseHasExtensions) {
 			IBaseHasExtensions meta = (IBaseHasExtensions) binary.getMeta();
 
 			//export identifier, potentially null.
-			String exportIdentifier = theStepExecutionDetails.getParameters().getExportIdentifier();
+			String exportIdentifier = theParameters.getExportIdentifier();
 			if (!StringUtils.isBlank(exportIdentifier)) {
 				IBaseExtension<?, ?> exportIdentifierExtension = meta.addExtension();
 				exportIdentifierExtension.setUrl(JpaConstants.BULK_META_EXTENSION_EXPORT_IDENTIFIER);
-				exportIdentifierExtension.setValue(myFhirContext.newPrimitiveString(exportIdentifier));
+				exportIdentifierExtension.setValue(theFhirContext.newPrimitiveString(exportIdentifier));
 			}
 
 			//job id
 			IBaseExtension<?, ?> jobExtension = meta.addExtension();
 			jobExtension.setUrl(JpaConstants.BULK_META_EXTENSION_JOB_ID);
-			jobExtension.setValue(myFhirContext.newPrimitiveString(theStepExecutionDetails.getInstance().getInstanceId()));
+			jobExtension.setValue(theFhirContext.newPrimitiveString(theInstanceId));
 
 			//resource type
 			IBaseExtension<?, ?> typeExtension = meta.addExtension();
 			typeExtension.setUrl(JpaConstants.BULK_META_EXTENSION_RESOURCE_TYPE);
-			typeExtension.setValue(myFhirContext.newPrimitiveString(expandedResources.getResourceType()));
+			typeExtension.setValue(theFhirContext.newPrimitiveString(theResourceType));
 		} else {
 			ourLog.warn("Could not attach metadata extensions to binary resource, as this binary metadata does not support extensions");
 		}
 	}
 
+	/**
+	 * Creates the request details used when storing the Binary resources for an export, which
+	 * are stored in the partition being exported (or the default partition)
+	 */
+	static SystemRequestDetails newRequestDetailsForBinary(BulkExportJobParameters theParameters) {
+		SystemRequestDetails srd = new SystemRequestDetails();
+		RequestPartitionId partitionId = theParameters.getPartitionId();
+		if (partitionId == null){
+			srd.setRequestPartitionId(RequestPartitionId.defaultPartition());
+		} else {
+			srd.setRequestPartitionId(partitionId);
+		}
+		return srd;
+	}
+
 	/**
 	 * Returns an output stream writer
 	 * (exposed for testing)
@@ -38,6 +38,20 @@ public class ExpandedResourcesList extends BulkExportJobBase {
 	@JsonProperty("resourceType")
 	private String myResourceType;
 
+	/**
+	 * If the resources were streamed directly into binary
+	 * storage instead of being included in this object, this
+	 * is the ID of the Binary resource they were written to.
+	 */
+	@JsonProperty("binaryId")
+	private String myBinaryId;
+
+	/**
+	 * The number of resources written to {@link #getBinaryId() the binary}
+	 */
+	@JsonProperty("resourceCount")
+	private Integer myResourceCount;
+
 	public List<String> getStringifiedResources() {
 		return myStringifiedResources;
 	}
@@ -53,4 +67,20 @@ public class ExpandedResourcesList extends BulkExportJobBase {
 	public void setResourceType(String theResourceType) {
 		myResourceType = theResourceType;
 	}
+
+	public String getBinaryId() {
+		return myBinaryId;
+	}
+
+	public void setBinaryId(String theBinaryId) {
+		myBinaryId = theBinaryId;
+	}
+
+	public Integer getResourceCount() {
+		return myResourceCount;
+	}
+
+	public void setResourceCount(Integer theResourceCount) {
+		myResourceCount = theResourceCount;
+	}
 }
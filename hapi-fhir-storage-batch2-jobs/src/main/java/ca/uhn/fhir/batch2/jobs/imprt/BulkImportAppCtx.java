@@ -24,12 +24,16 @@ import ca.uhn.fhir.batch2.api.VoidModel;
 import ca.uhn.fhir.batch2.model.JobDefinition;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 
 @Configuration
 public class BulkImportAppCtx {
 
 	public static final String JOB_BULK_IMPORT_PULL = "BULK_IMPORT_PULL";
 	public static final int PARAM_MAXIMUM_BATCH_SIZE_DEFAULT = 800; // Avoid the 1000 SQL param limit
+	public static final int PARAM_PIPELINE_PARSE_THREAD_COUNT_DEFAULT = 4;
+	public static final int PARAM_PIPELINE_WRITE_BATCH_SIZE_DEFAULT = 100;
+	public static final String PIPELINE_PARSE_TASK_EXECUTOR_NAME = "bulkImportPipelineParseTaskExecutor";
 
 	@Bean
 	public JobDefinition bulkImport2JobDefinition() {
@@ -61,6 +65,21 @@ public class BulkImportAppCtx {
 		return new ConsumeFilesStep();
 	}
 
+	/**
+	 * Parses the batches for {@link BulkImportJobParameters#isPipelinedIngest() pipelined ingest}. Each job
+	 * limits how many of its own batches are in flight, so the queue is left unbounded.
+	 */
+	@Bean(name = PIPELINE_PARSE_TASK_EXECUTOR_NAME)
+	public ThreadPoolTaskExecutor bulkImportPipelineParseTaskExecutor() {
+		int threadCount = Math.max(PARAM_PIPELINE_PARSE_THREAD_COUNT_DEFAULT, Runtime.getRuntime().availableProcessors());
+		ThreadPoolTaskExecutor retVal = new ThreadPoolTaskExecutor();
+		retVal.setCorePoolSize(threadCount);
+		retVal.setMaxPoolSize(threadCount);
+		retVal.setAllowCoreThreadTimeOut(true);
+		retVal.setThreadNamePrefix("bulk-import-parse-");
+		return retVal;
+	}
+
 	@Bean
 	public BulkDataImportProvider bulkImportProvider() {
 		return new BulkDataImportProvider();
@@ -56,6 +56,20 @@ public class BulkImportJobParameters implements IModelJson {
 	@Nullable
 	private RequestPartitionId myPartitionId;
 
+	@JsonProperty(value = "pipelinedIngest", required = false)
+	@Nullable
+	private Boolean myPipelinedIngest;
+
+	@JsonProperty(value = "pipelineParseThreadCount", required = false)
+	@Min(1)
+	@Nullable
+	private Integer myPipelineParseThreadCount;
+
+	@JsonProperty(value = "pipelineWriteBatchSize", required = false)
+	@Min(1)
+	@Nullable
+	private Integer myPipelineWriteBatchSize;
+
 	public List<String> getNdJsonUrls() {
 		if (myNdJsonUrls == null) {
 			myNdJsonUrls = new ArrayList<>();
@@ -97,4 +111,68 @@ public class BulkImportJobParameters implements IModelJson {
 		myPartitionId = thePartitionId;
 		return this;
 	}
+
+	/**
+	 * If set to <code>true</code>, each file chunk is parsed on a pool of parser threads while the resources
+	 * which have already been parsed are stored, and the resources are stored in batches of
+	 * {@link #getPipelineWriteBatchSize()} with each batch in its own transaction. Parsing is paused whenever
+	 * storing falls behind. Since a failure part way through a chunk leaves the batches before it stored,
+	 * this mode is intended for loading large amounts of data where the job can simply be run again.
+	 * Default is <code>false</code>.
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isPipelinedIngest() {
+		return Boolean.TRUE.equals(myPipelinedIngest);
+	}
+
+	/**
+	 * @see #isPipelinedIngest()
+	 * @since 6.8.0
+	 */
+	public BulkImportJobParameters setPipelinedIngest(@Nullable Boolean thePipelinedIngest) {
+		myPipelinedIngest = thePipelinedIngest;
+		return this;
+	}
+
+	/**
+	 * The maximum number of batches from each file chunk which are parsed concurrently if
+	 * {@link #isPipelinedIngest() pipelined ingest} is enabled. The batches are parsed on a thread pool
+	 * which is shared by all bulk import jobs. Default is {@value BulkImportAppCtx#PARAM_PIPELINE_PARSE_THREAD_COUNT_DEFAULT}.
+	 *
+	 * @since 6.8.0
+	 */
+	@Nullable
+	public Integer getPipelineParseThreadCount() {
+		return myPipelineParseThreadCount;
+	}
+
+	/**
+	 * @see #getPipelineParseThreadCount()
+	 * @since 6.8.0
+	 */
+	public BulkImportJobParameters setPipelineParseThreadCount(@Nullable Integer thePipelineParseThreadCount) {
+		myPipelineParseThreadCount = thePipelineParseThreadCount;
+		return this;
+	}
+
+	/**
+	 * The number of resources stored in each transaction if {@link #isPipelinedIngest() pipelined ingest}
+	 * is enabled. Default is {@value BulkImportAppCtx#PARAM_PIPELINE_WRITE_BATCH_SIZE_DEFAULT}.
+	 *
+	 * @since 6.8.0
+	 */
+	@Nullable
+	public Integer getPipelineWriteBatchSize() {
+		return myPipelineWriteBatchSize;
+	}
+
+	/**
+	 * @see #getPipelineWriteBatchSize()
+	 * @since 6.8.0
+	 */
+	public BulkImportJobParameters setPipelineWriteBatchSize(@Nullable Integer thePipelineWriteBatchSize) {
+		myPipelineWriteBatchSize = thePipelineWriteBatchSize;
+		return this;
+	}
 }
@@ -0,0 +1,139 @@
+/*-
+ * #%L
+ * hapi-fhir-storage-batch2-jobs
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.batch2.jobs.imprt;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.rest.server.exceptions.InternalErrorException;
+import org.apache.commons.io.LineIterator;
+import org.apache.commons.lang3.Validate;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.springframework.core.task.AsyncTaskExecutor;
+
+import java.io.StringReader;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import static org.apache.commons.lang3.StringUtils.isNotBlank;
+
+/**
+ * Stores the resources in an NDJSON chunk using a pipeline, which is used by {@link ConsumeFilesStep}
+ * if {@link BulkImportJobParameters#isPipelinedIngest() pipelined ingest} is enabled.
+ * <p>
+ * The lines are split into batches. The batches are parsed in parallel on a shared executor,
+ * while the calling thread writes the batches which have already been parsed, in the order they appear
+ * in the chunk. At most {@link #getMaxBatchesInFlight()} batches are being parsed or waiting to be written
+ * at any time, so reading stops whenever writing falls behind.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+class BulkImportPipeline {
+
+	private final AsyncTaskExecutor myExecutor;
+	private final int myParseThreadCount;
+	private final int myBatchSize;
+	private final Function<List<String>, List<IBaseResource>> myParser;
+	private final Consumer<List<IBaseResource>> myWriter;
+
+	/**
+	 * Constructor
+	 *
+	 * @param theExecutor         The executor used to parse batches. This is shared, so it is not shut down by the pipeline.
+	 * @param theParseThreadCount The maximum number of batches parsed concurrently by this pipeline
+	 * @param theBatchSize        The maximum number of resources in a batch
+	 * @param theParser           Parses the lines in a batch. This is called concurrently, from the parser threads.
+	 * @param theWriter           Writes a parsed batch. This is called from the calling thread, one batch at a time.
+	 */
+	BulkImportPipeline(AsyncTaskExecutor theExecutor, int theParseThreadCount, int theBatchSize, Function<List<String>, List<IBaseResource>> theParser, Consumer<List<IBaseResource>> theWriter) {
+		Validate.notNull(theExecutor, "theExecutor must not be null");
+		Validate.isTrue(theParseThreadCount > 0, "theParseThreadCount must be > 0");
+		Validate.isTrue(theBatchSize > 0, "theBatchSize must be > 0");
+		myExecutor = theExecutor;
+		myParseThreadCount = theParseThreadCount;
+		myBatchSize = theBatchSize;
+		myParser = theParser;
+		myWriter = theWriter;
+	}
+
+	int getMaxBatchesInFlight() {
+		return myParseThreadCount * 2;
+	}
+
+	/**
+	 * Parses and writes every non-blank line in the given NDJSON text.
+	 *
+	 * @return The number of resources written
+	 */
+	int consume(String theNdJson) {
+		Deque<Future<List<IBaseResource>>> batchesInFlight = new ArrayDeque<>();
+		int retVal = 0;
+		try {
+			LineIterator lineIter = new LineIterator(new StringReader(theNdJson));
+			List<String> batch = new ArrayList<>(myBatchSize);
+			while (lineIter.hasNext()) {
+				String next = lineIter.next();
+				if (isNotBlank(next)) {
+					batch.add(next);
+				}
+				if (batch.size() >= myBatchSize || (!lineIter.hasNext() && !batch.isEmpty())) {
+					while (batchesInFlight.size() >= getMaxBatchesInFlight()) {
+						retVal += writeNextBatch(batchesInFlight);
+					}
+					List<String> lines = batch;
+					batchesInFlight.add(myExecutor.submit(() -> myParser.apply(lines)));
+					batch = new ArrayList<>(myBatchSize);
+				}
+			}
+
+			while (!batchesInFlight.isEmpty()) {
+				retVal += writeNextBatch(batchesInFlight);
+			}
+		} finally {
+			// Only left over if writing failed, in which case the remaining batches are abandoned
+			batchesInFlight.forEach(t -> t.cancel(true));
+		}
+		return retVal;
+	}
+
+	private int writeNextBatch(Deque<Future<List<IBaseResource>>> theBatchesInFlight) {
+		List<IBaseResource> resources;
+		try {
+			resources = theBatchesInFlight.removeFirst().get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InternalErrorException(Msg.code(2373) + "Interrupted while waiting for bulk import batch to be parsed", e);
+		} catch (ExecutionException e) {
+			if (e.getCause() instanceof RuntimeException) {
+				throw (RuntimeException) e.getCause();
+			}
+			throw new InternalErrorException(Msg.code(2374) + "Failed to parse bulk import batch: " + e.getCause(), e.getCause());
+		}
+
+		myWriter.accept(resources);
+		return resources.size();
+	}
+
+}
@@ -41,12 +41,15 @@ import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.api.server.storage.TransactionDetails;
 import ca.uhn.fhir.rest.server.exceptions.InvalidRequestException;
 import ca.uhn.fhir.rest.server.exceptions.PreconditionFailedException;
+import ca.uhn.fhir.util.StopWatch;
 import org.apache.commons.io.LineIterator;
 import org.hl7.fhir.instance.model.api.IBaseResource;
 import org.hl7.fhir.instance.model.api.IIdType;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.core.task.AsyncTaskExecutor;
 
 import javax.annotation.Nonnull;
 import java.io.StringReader;
@@ -54,7 +57,9 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
+import static org.apache.commons.lang3.ObjectUtils.defaultIfNull;
 import static org.apache.commons.lang3.StringUtils.isNotBlank;
 
 public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParameters, NdJsonFileJson> {
@@ -70,6 +75,9 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 	private IIdHelperService myIdHelperService;
 	@Autowired
 	private IFhirSystemDao<?, ?> mySystemDao;
+	@Autowired
+	@Qualifier(BulkImportAppCtx.PIPELINE_PARSE_TASK_EXECUTOR_NAME)
+	private AsyncTaskExecutor myPipelineParseExecutor;
 
 	@Nonnull
 	@Override
@@ -77,30 +85,58 @@ public class ConsumeFilesStep implements ILastJobStepWorker<BulkImportJobParamet
 
 		String ndjson = theStepExecutionDetails.getData().getNdJsonText();
 		String sourceName = theStepExecutionDetails.getData().getSourceName();
+		BulkImportJobParameters parameters = theStepExecutionDetails.getParameters();
+
+		if (parameters.isPipelinedIngest()) {
+			return new RunOutcome(storeResourcesPipelined(ndjson, sourceName, parameters));
+		}
 
-		IParser jsonParser = myCtx.newJsonParser();
 		LineIterator lineIter = new LineIterator(new StringReader(ndjson));
-		List<IBaseResource> resources = new ArrayList<>();
+		List<String> lines = new ArrayList<>();
 		while (lineIter.hasNext()) {
 			String next = lineIter.next();
 			if (isNotBlank(next)) {
-				IBaseResource parsed;
-				try {
-					parsed = jsonParser.parseResource(next);
-				} catch (DataFormatException e) {
-					throw new JobExecutionFailedException(Msg.code(2052) + "Failed to parse resource: " + e, e);
-				}
-				resources.add(parsed);
+				lines.add(next);
 			}
 		}
+		List<IBaseResource> resources = parseResources(lines);
 
 		ourLog.info("Bulk loading {} resources from source {}", resources.size(), sourceName);
 
-		storeResources(resources, theStepExecutionDetails.getParameters().getPartitionId());
+		storeResources(resources, parameters.getPartitionId());
 
 		return new RunOutcome(resources.size());
 	}
 
+	/**
+	 * Parses the NDJSON on the shared parser thread pool while storing the resources which have already been
+	 * parsed. Each batch of resources is stored in its own transaction.
+	 */
+	private int storeResourcesPipelined(String theNdJson, String theSourceName, BulkImportJobParameters theParameters) {
+		int parseThreadCount = defaultIfNull(theParameters.getPipelineParseThreadCount(), BulkImportAppCtx.PARAM_PIPELINE_PARSE_THREAD_COUNT_DEFAULT);
+		int writeBatchSize = defaultIfNull(theParameters.getPipelineWriteBatchSize(), BulkImportAppCtx.PARAM_PIPELINE_WRITE_BATCH_SIZE_DEFAULT);
+
+		StopWatch sw = new StopWatch();
+		BulkImportPipeline pipeline = new BulkImportPipeline(myPipelineParseExecutor, parseThreadCount, writeBatchSize, this::parseResources, batch -> storeResources(batch, theParameters.getPartitionId()));
+		int count = pipeline.consume(theNdJson);
+
+		ourLog.info("Bulk loaded {} resources from source {} in {} ({}/sec)", count, theSourceName, sw, sw.formatThroughput(count, TimeUnit.SECONDS));
+		return count;
+	}
+
+	private List<IBaseResource> parseResources(List<String> theLines) {
+		IParser jsonParser = myCtx.newJsonParser();
+		List<IBaseResource> retVal = new ArrayList<>(theLines.size());
+		for (String next : theLines) {
+			try {
+				retVal.add(jsonParser.parseResource(next));
+			} catch (DataFormatException e) {
+				throw new JobExecutionFailedException(Msg.code(2052) + "Failed to parse resource: " + e, e);
+			}
+		}
+		return retVal;
+	}
+
 	public void storeResources(List<IBaseResource> resources, RequestPartitionId thePartitionId) {
 		SystemRequestDetails requestDetails = new SystemRequestDetails();
 		if (thePartitionId == null) {
@@ -13,19 +13,29 @@ import ca.uhn.fhir.context.FhirContext;
 import ca.uhn.fhir.interceptor.model.RequestPartitionId;
 import ca.uhn.fhir.jpa.api.dao.DaoRegistry;
 import ca.uhn.fhir.jpa.api.dao.IFhirResourceDao;
+import ca.uhn.fhir.jpa.api.model.DaoMethodOutcome;
 import ca.uhn.fhir.jpa.api.model.PersistentIdToForcedIdMap;
 import ca.uhn.fhir.jpa.api.svc.IIdHelperService;
+import ca.uhn.fhir.jpa.binary.api.IBinaryStorageSvc;
+import ca.uhn.fhir.jpa.binary.api.StoredDetails;
 import ca.uhn.fhir.jpa.bulk.export.api.IBulkExportProcessor;
 import ca.uhn.fhir.jpa.dao.tx.IHapiTransactionService;
 import ca.uhn.fhir.jpa.dao.tx.NonTransactionalHapiTransactionService;
 import ca.uhn.fhir.jpa.model.dao.JpaPid;
 import ca.uhn.fhir.jpa.model.entity.StorageSettings;
+import ca.uhn.fhir.jpa.model.util.JpaConstants;
+import ca.uhn.fhir.rest.api.Constants;
+import ca.uhn.fhir.rest.api.server.RequestDetails;
 import ca.uhn.fhir.rest.api.server.SystemRequestDetails;
 import ca.uhn.fhir.rest.api.server.bulk.BulkDataExportOptions;
 import ca.uhn.fhir.rest.api.server.storage.IResourcePersistentId;
 import ca.uhn.fhir.rest.server.SimpleBundleProvider;
 import ca.uhn.fhir.rest.server.interceptor.ResponseTerminologyTranslationSvc;
+import ca.uhn.fhir.util.HapiExtensions;
+import org.apache.commons.io.IOUtils;
 import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Binary;
+import org.hl7.fhir.r4.model.IdType;
 import org.hl7.fhir.r4.model.Patient;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.junit.jupiter.params.ParameterizedTest;
@@ -36,18 +46,27 @@ import org.mockito.Mock;
 import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
+import java.util.zip.GZIPInputStream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mock;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
@@ -76,6 +95,9 @@ public class ExpandResourcesStepTest {
 	@Spy
 	private IHapiTransactionService myTransactionService = new NonTransactionalHapiTransactionService();
 
+	@Mock
+	private IBinaryStorageSvc myBinaryStorageSvc;
+
 	@InjectMocks
 	private ExpandResourcesStep mySecondStep;
 
@@ -176,4 +198,91 @@ public class ExpandResourcesStepTest {
 		assertEquals(input.getParameters().getPartitionId(), patientSearchCaptor.getValue().getRequestPartitionId());
 
 	}
+
+	@ParameterizedTest
+	@ValueSource(booleans = {true, false})
+	public void jobComplete_streamToBinaryStorage_writesBlobAndOnlyPassesBinaryId(boolean theGzip) throws IOException {
+		//setup
+		myStorageSettings.setBulkExportStreamToBinaryStorage(true);
+		myStorageSettings.setBulkExportBinaryStorageGzipEnabled(theGzip);
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		IJobDataSink<ExpandedResourcesList> sink = mock(IJobDataSink.class);
+		IFhirResourceDao<?> dao = mockOutDaoRegistry();
+		ResourceIdList idList = new ResourceIdList();
+		idList.setResourceType("Patient");
+		ArrayList<IBaseResource> resources = new ArrayList<>();
+		ArrayList<BatchResourceId> batchResourceIds = new ArrayList<>();
+		for (int i = 0; i < 100; i++) {
+			String stringId = String.valueOf(i);
+			BatchResourceId batchResourceId = new BatchResourceId();
+			batchResourceId.setResourceType("Patient");
+			batchResourceId.setId(stringId);
+			batchResourceIds.add(batchResourceId);
+
+			Patient patient = new Patient();
+			patient.setId(stringId);
+			resources.add(patient);
+		}
+		idList.setIds(batchResourceIds);
+
+		StepExecutionDetails<BulkExportJobParameters, ResourceIdList> input = createInput(
+			idList,
+			createParameters(false),
+			instance
+		);
+		when(dao.search(any(), any())).thenReturn(new SimpleBundleProvider(resources));
+		when(myIdHelperService.newPidFromStringIdAndResourceName(anyString(), anyString())).thenReturn(JpaPid.fromId(1L));
+		when(myIdHelperService.translatePidsToForcedIds(any())).thenAnswer(t->{
+			Set<IResourcePersistentId<JpaPid>> inputSet = t.getArgument(0, Set.class);
+			Map<IResourcePersistentId<?>, Optional<String>> map = new HashMap<>();
+			for (var next : inputSet) {
+				map.put(next, Optional.empty());
+			}
+			return new PersistentIdToForcedIdMap<>(map);
+		});
+		DaoMethodOutcome binaryOutcome = new DaoMethodOutcome();
+		binaryOutcome.setId(new IdType("Binary/123/_history/1"));
+		when(((IFhirResourceDao<IBaseResource>) dao).create(any(), any(RequestDetails.class))).thenReturn(binaryOutcome);
+		when(myBinaryStorageSvc.newBlobId()).thenReturn("BLOB-ID");
+		ByteArrayOutputStream storedBytes = new ByteArrayOutputStream();
+		when(myBinaryStorageSvc.storeBlob(any(), any(), any(), any(), any())).thenAnswer(t -> {
+			try (InputStream inputStream = t.getArgument(3, InputStream.class)) {
+				IOUtils.copy(inputStream, storedBytes);
+			}
+			return new StoredDetails().setBlobId(t.getArgument(1, String.class)).setBytes(storedBytes.size());
+		});
+
+		// test
+		RunOutcome outcome = mySecondStep.run(input, sink);
+
+		// verify
+		assertEquals(RunOutcome.SUCCESS, outcome);
+
+		String expectedContentType = theGzip ? Constants.CT_APPLICATION_GZIP : Constants.CT_FHIR_NDJSON;
+		verify(myBinaryStorageSvc).storeBlob(eq(new IdType("Binary/123")), eq("BLOB-ID"), eq(expectedContentType), any(), any());
+		InputStream storedStream = new ByteArrayInputStream(storedBytes.toByteArray());
+		if (theGzip) {
+			storedStream = new GZIPInputStream(storedStream);
+		}
+		List<String> lines = IOUtils.readLines(storedStream, StandardCharsets.UTF_8);
+		assertEquals(resources.size(), lines.size());
+		assertEquals("{\"resourceType\":\"Patient\",\"id\":\"0\"}", lines.get(0));
+
+		ArgumentCaptor<IBaseResource> binaryCaptor = ArgumentCaptor.forClass(IBaseResource.class);
+		verify((IFhirResourceDao<IBaseResource>) dao).create(binaryCaptor.capture(), any(RequestDetails.class));
+		Binary binary = (Binary) binaryCaptor.getValue();
+		assertEquals(expectedContentType, binary.getContentType());
+		assertNull(binary.getDataElement().getValue());
+		assertEquals("BLOB-ID", binary.getDataElement().getExtensionString(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID));
+		assertEquals(Boolean.TRUE, binary.getDataElement().getExtensionByUrl(HapiExtensions.EXT_EXTERNALIZED_BINARY_ID).getUserData(JpaConstants.EXTENSION_EXT_SYSTEMDEFINED));
+
+		ArgumentCaptor<ExpandedResourcesList> expandedCaptor = ArgumentCaptor.forClass(ExpandedResourcesList.class);
+		verify(sink).accept(expandedCaptor.capture());
+		ExpandedResourcesList expandedResources = expandedCaptor.getValue();
+		assertNull(expandedResources.getStringifiedResources());
+		assertEquals("Binary/123", expandedResources.getBinaryId());
+		assertEquals(resources.size(), expandedResources.getResourceCount());
+		assertEquals("Patient", expandedResources.getResourceType());
+	}
 }
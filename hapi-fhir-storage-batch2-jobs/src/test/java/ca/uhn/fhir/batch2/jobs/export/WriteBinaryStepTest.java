@@ -175,6 +175,31 @@ public class WriteBinaryStepTest {
 		assertEquals(binaryId.getValueAsString(), fileIdArgumentCaptor.getValue().getBinaryId());
 	}
 
+	@Test
+	public void run_alreadyStreamedToBinaryStorage_passesBinaryIdThrough() {
+		// setup
+		ExpandedResourcesList expandedResources = new ExpandedResourcesList();
+		expandedResources.setResourceType("Patient");
+		expandedResources.setBinaryId("Binary/123");
+		expandedResources.setResourceCount(4);
+		JobInstance instance = new JobInstance();
+		instance.setInstanceId("1");
+		IJobDataSink<BulkExportBinaryFileId> sink = mock(IJobDataSink.class);
+		StepExecutionDetails<BulkExportJobParameters, ExpandedResourcesList> input = createInput(expandedResources, instance, false);
+
+		// test
+		RunOutcome outcome = myFinalStep.run(input, sink);
+
+		// verify
+		assertEquals(4, outcome.getRecordsProcessed());
+		verify(myDaoRegistry, never()).getResourceDao(anyString());
+
+		ArgumentCaptor<BulkExportBinaryFileId> fileIdArgumentCaptor = ArgumentCaptor.forClass(BulkExportBinaryFileId.class);
+		verify(sink).accept(fileIdArgumentCaptor.capture());
+		assertEquals("Binary/123", fileIdArgumentCaptor.getValue().getBinaryId());
+		assertEquals("Patient", fileIdArgumentCaptor.getValue().getResourceType());
+	}
+
 	@Test
 	public void run_withIOException_throws() throws IOException {
 		// setup
@@ -0,0 +1,128 @@
+package ca.uhn.fhir.batch2.jobs.imprt;
+
+import ca.uhn.fhir.batch2.api.JobExecutionFailedException;
+import ca.uhn.fhir.util.ThreadPoolUtil;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.lessThanOrEqualTo;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class BulkImportPipelineTest {
+
+	private ThreadPoolTaskExecutor myExecutor;
+
+	@BeforeEach
+	public void before() {
+		myExecutor = ThreadPoolUtil.newThreadPool(3, 3, "bulk-import-parse-test-", Integer.MAX_VALUE);
+	}
+
+	@AfterEach
+	public void after() {
+		myExecutor.shutdown();
+	}
+
+	@Test
+	public void testConsume() {
+		List<List<String>> written = Collections.synchronizedList(new ArrayList<>());
+		BulkImportPipeline pipeline = new BulkImportPipeline(myExecutor, 3, 4, BulkImportPipelineTest::parse, batch -> written.add(toIds(batch)));
+
+		int count = pipeline.consume(createNdJson(18));
+
+		assertEquals(18, count);
+		assertEquals(5, written.size());
+		List<String> allIds = written.stream().flatMap(List::stream).collect(Collectors.toList());
+		assertEquals(createIds(18), allIds);
+		assertEquals(List.of("16", "17"), written.get(4));
+	}
+
+	@Test
+	public void testConsume_BlankLines() {
+		List<String> written = Collections.synchronizedList(new ArrayList<>());
+		BulkImportPipeline pipeline = new BulkImportPipeline(myExecutor, 2, 2, BulkImportPipelineTest::parse, batch -> written.addAll(toIds(batch)));
+
+		int count = pipeline.consume("\n" + createNdJson(3) + "\n\n");
+
+		assertEquals(3, count);
+		assertEquals(createIds(3), written);
+	}
+
+	@Test
+	public void testConsume_BatchesInFlightAreBounded() {
+		AtomicInteger parsedBatches = new AtomicInteger();
+		AtomicInteger writtenBatches = new AtomicInteger();
+		List<Integer> batchesAheadOfWriter = Collections.synchronizedList(new ArrayList<>());
+		BulkImportPipeline pipeline = new BulkImportPipeline(myExecutor, 2, 1, lines -> {
+			batchesAheadOfWriter.add(parsedBatches.incrementAndGet() - writtenBatches.get());
+			return parse(lines);
+		}, batch -> writtenBatches.incrementAndGet());
+
+		assertEquals(50, pipeline.consume(createNdJson(50)));
+
+		assertEquals(50, batchesAheadOfWriter.size());
+		for (Integer next : batchesAheadOfWriter) {
+			assertThat(next, lessThanOrEqualTo(pipeline.getMaxBatchesInFlight()));
+		}
+	}
+
+	@Test
+	public void testConsume_ParseFailure() {
+		List<String> written = Collections.synchronizedList(new ArrayList<>());
+		BulkImportPipeline pipeline = new BulkImportPipeline(myExecutor, 2, 2, lines -> {
+			if (lines.contains(createNdJsonLine(3))) {
+				throw new JobExecutionFailedException("Failed to parse resource");
+			}
+			return parse(lines);
+		}, batch -> written.addAll(toIds(batch)));
+
+		JobExecutionFailedException e = assertThrows(JobExecutionFailedException.class, () -> pipeline.consume(createNdJson(10)));
+
+		assertEquals("Failed to parse resource", e.getMessage());
+		assertEquals(List.of("0", "1"), written);
+	}
+
+	private static List<IBaseResource> parse(List<String> theLines) {
+		return theLines.stream().map(line -> {
+			Patient patient = new Patient();
+			patient.setId(line.replaceAll("[^0-9]", ""));
+			return patient;
+		}).collect(Collectors.toList());
+	}
+
+	private static List<String> toIds(List<IBaseResource> theResources) {
+		return theResources.stream().map(t -> t.getIdElement().getIdPart()).collect(Collectors.toList());
+	}
+
+	private static List<String> createIds(int theCount) {
+		List<String> retVal = new ArrayList<>();
+		for (int i = 0; i < theCount; i++) {
+			retVal.add(Integer.toString(i));
+		}
+		return retVal;
+	}
+
+	private static String createNdJson(int theCount) {
+		StringBuilder retVal = new StringBuilder();
+		for (int i = 0; i < theCount; i++) {
+			retVal.append(createNdJsonLine(i)).append('\n');
+		}
+		return retVal.toString();
+	}
+
+	private static String createNdJsonLine(int theIndex) {
+		return "{\"resourceType\":\"Patient\",\"id\":\"" + theIndex + "\"}";
+	}
+
+}
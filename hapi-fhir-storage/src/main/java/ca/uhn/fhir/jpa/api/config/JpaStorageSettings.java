@@ -260,6 +260,14 @@ public class JpaStorageSettings extends StorageSettings {
 	 * @since 5.7.0
 	 */
 	private int myInlineResourceTextBelowSize = 0;
+	/**
+	 * @since 6.8.0
+	 */
+	private String myExternallyStoredResourceWriteThroughProviderId;
+	/**
+	 * @since 6.8.0
+	 */
+	private int myExternallyStoredResourceWriteThroughMinimumSize = 0;
 
 	/**
 	 * @since 5.7.0
@@ -316,6 +324,49 @@ public class JpaStorageSettings extends StorageSettings {
 	 */
 	private boolean myNonResourceDbHistoryEnabled = true;
 
+	/**
+	 * Since 6.8.0
+	 */
+	private Integer myMemoryCacheExpireAfterWriteInMinutes;
+
+	/**
+	 * Since 6.8.0
+	 */
+	private Integer myMemoryCacheMaximumSize;
+
+	/**
+	 * Since 6.8.0
+	 */
+	private long myParsedResourceCacheMaximumBytes = 0;
+	/**
+	 * Since 6.8.0
+	 */
+	private long mySearchResultMemoryCacheMaximumBytes = 0;
+	/**
+	 * Since 6.8.0
+	 */
+	private int mySearchResultParsingThreadCount = 0;
+	/**
+	 * Since 6.8.0
+	 */
+	private int myTransactionIndexingThreadCount = 0;
+	/**
+	 * Since 6.8.0
+	 */
+	private boolean myClientAssignedIdNegativeCacheEnabled = false;
+	/**
+	 * Since 6.8.0
+	 */
+	private long myPreExpandedValueSetCodeIndexMaximumBytes = 0;
+	/**
+	 * Since 6.8.0
+	 */
+	private boolean myConceptAncestorIndexEnabled = false;
+	/**
+	 * Since 6.8.0
+	 */
+	private boolean myPreExpandedValueSetStreamingEnabled = false;
+
 	/**
 	 * Constructor
 	 */
@@ -364,6 +415,65 @@ public class JpaStorageSettings extends StorageSettings {
 		myInlineResourceTextBelowSize = theInlineResourceTextBelowSize;
 	}
 
+	/**
+	 * If set, resource bodies are written through to the externally stored resource provider with the
+	 * given ID instead of being stored in the <code>HFJ_RES_VER</code> table, and only the address of
+	 * the body is stored in the database. The provider must be registered with the
+	 * <code>ExternallyStoredResourceServiceRegistry</code> and must support storing resources.
+	 * Resources which are small enough to be {@link #getInlineResourceTextBelowSize() stored inline}
+	 * or smaller than the {@link #getExternallyStoredResourceWriteThroughMinimumSize() minimum size}
+	 * are still stored in the database.
+	 * <p>
+	 * Default is <code>null</code>, meaning that resource bodies are never written through.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public String getExternallyStoredResourceWriteThroughProviderId() {
+		return myExternallyStoredResourceWriteThroughProviderId;
+	}
+
+	/**
+	 * If set, resource bodies are written through to the externally stored resource provider with the
+	 * given ID instead of being stored in the <code>HFJ_RES_VER</code> table, and only the address of
+	 * the body is stored in the database. The provider must be registered with the
+	 * <code>ExternallyStoredResourceServiceRegistry</code> and must support storing resources.
+	 * Resources which are small enough to be {@link #getInlineResourceTextBelowSize() stored inline}
+	 * or smaller than the {@link #getExternallyStoredResourceWriteThroughMinimumSize() minimum size}
+	 * are still stored in the database.
+	 * <p>
+	 * Default is <code>null</code>, meaning that resource bodies are never written through.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setExternallyStoredResourceWriteThroughProviderId(String theExternallyStoredResourceWriteThroughProviderId) {
+		myExternallyStoredResourceWriteThroughProviderId = theExternallyStoredResourceWriteThroughProviderId;
+	}
+
+	/**
+	 * Resources with an encoded length (in characters) below this number are stored in the database even if
+	 * an {@link #getExternallyStoredResourceWriteThroughProviderId() externally stored resource write-through provider}
+	 * is configured. Default is 0.
+	 *
+	 * @since 6.8.0
+	 */
+	public int getExternallyStoredResourceWriteThroughMinimumSize() {
+		return myExternallyStoredResourceWriteThroughMinimumSize;
+	}
+
+	/**
+	 * Resources with an encoded length (in characters) below this number are stored in the database even if
+	 * an {@link #getExternallyStoredResourceWriteThroughProviderId() externally stored resource write-through provider}
+	 * is configured. Default is 0.
+	 *
+	 * @since 6.8.0
+	 */
+	public void setExternallyStoredResourceWriteThroughMinimumSize(int theExternallyStoredResourceWriteThroughMinimumSize) {
+		Validate.isTrue(theExternallyStoredResourceWriteThroughMinimumSize >= 0, "theExternallyStoredResourceWriteThroughMinimumSize must be >= 0");
+		myExternallyStoredResourceWriteThroughMinimumSize = theExternallyStoredResourceWriteThroughMinimumSize;
+	}
+
 	/**
 	 * Sets the tag storage mode for the server. Default is {@link TagStorageModeEnum#VERSIONED}.
 	 *
@@ -954,6 +1064,14 @@ public class JpaStorageSettings extends StorageSettings {
 		return myResourceEncoding;
 	}
 
+	/**
+	 * Sets the encoding used to store new resource versions. The default is {@link ResourceEncodingEnum#JSONC}.
+	 * <p>
+	 * Existing versions keep the encoding they were stored with. When this is set to
+	 * {@link ResourceEncodingEnum#SMILE}, a reindex with <code>optimizeStorage</code> enabled
+	 * converts previously stored JSON versions to Smile.
+	 * </p>
+	 */
 	public void setResourceEncoding(ResourceEncodingEnum theResourceEncoding) {
 		myResourceEncoding = theResourceEncoding;
 	}
@@ -2309,6 +2427,378 @@ public class JpaStorageSettings extends StorageSettings {
 		myNonResourceDbHistoryEnabled = theNonResourceDbHistoryEnabled;
 	}
 
+	/**
+	 * If set, overrides the expiry time for the ID, match URL, tag and history count caches held
+	 * in the {@literal MemoryCacheService}. By default these caches expire entries after 1 minute
+	 * (or 50 minutes in {@link #setMassIngestionMode(boolean) mass ingestion mode}).
+	 * <p>
+	 * Longer expiry times should only be used on a single node, or on a cluster where a
+	 * {@literal IMemoryCacheInvalidationBus} has been configured so that changes made on one node
+	 * are propagated to the caches on the other nodes.
+	 * </p>
+	 * <p>
+	 * Default is <code>null</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public Integer getMemoryCacheExpireAfterWriteInMinutes() {
+		return myMemoryCacheExpireAfterWriteInMinutes;
+	}
+
+	/**
+	 * If set, overrides the expiry time for the ID, match URL, tag and history count caches held
+	 * in the {@literal MemoryCacheService}. By default these caches expire entries after 1 minute
+	 * (or 50 minutes in {@link #setMassIngestionMode(boolean) mass ingestion mode}).
+	 * <p>
+	 * Longer expiry times should only be used on a single node, or on a cluster where a
+	 * {@literal IMemoryCacheInvalidationBus} has been configured so that changes made on one node
+	 * are propagated to the caches on the other nodes.
+	 * </p>
+	 * <p>
+	 * Default is <code>null</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setMemoryCacheExpireAfterWriteInMinutes(Integer theMemoryCacheExpireAfterWriteInMinutes) {
+		myMemoryCacheExpireAfterWriteInMinutes = theMemoryCacheExpireAfterWriteInMinutes;
+	}
+
+	/**
+	 * If set, overrides the maximum number of entries held in each of the ID, match URL, tag and
+	 * history count caches of the {@literal MemoryCacheService}. By default each cache holds up
+	 * to 10000 entries (or 100000 in {@link #setMassIngestionMode(boolean) mass ingestion mode}).
+	 * <p>
+	 * Default is <code>null</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public Integer getMemoryCacheMaximumSize() {
+		return myMemoryCacheMaximumSize;
+	}
+
+	/**
+	 * If set, overrides the maximum number of entries held in each of the ID, match URL, tag and
+	 * history count caches of the {@literal MemoryCacheService}. By default each cache holds up
+	 * to 10000 entries (or 100000 in {@link #setMassIngestionMode(boolean) mass ingestion mode}).
+	 * <p>
+	 * Default is <code>null</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setMemoryCacheMaximumSize(Integer theMemoryCacheMaximumSize) {
+		myMemoryCacheMaximumSize = theMemoryCacheMaximumSize;
+	}
+
+	/**
+	 * If set to a value greater than zero, resources loaded from the database (e.g. when
+	 * fetching search results) are kept in an in-memory cache of parsed resource bodies
+	 * keyed by resource PID and version, so that repeated reads of the same resource version
+	 * do not need to decode and parse the stored body again. The value is the approximate maximum
+	 * amount of heap used by the cache. The size of each cached resource is estimated from the
+	 * length of its decoded (i.e. uncompressed) text, multiplied by a fixed factor of 4 to account
+	 * for the overhead of the parsed object model, so this is a rough estimate rather than a
+	 * measured value.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public long getParsedResourceCacheMaximumBytes() {
+		return myParsedResourceCacheMaximumBytes;
+	}
+
+	/**
+	 * If set to a value greater than zero, resources loaded from the database (e.g. when
+	 * fetching search results) are kept in an in-memory cache of parsed resource bodies
+	 * keyed by resource PID and version, so that repeated reads of the same resource version
+	 * do not need to decode and parse the stored body again. The value is the approximate maximum
+	 * amount of heap used by the cache. The size of each cached resource is estimated from the
+	 * length of its decoded (i.e. uncompressed) text, multiplied by a fixed factor of 4 to account
+	 * for the overhead of the parsed object model, so this is a rough estimate rather than a
+	 * measured value.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setParsedResourceCacheMaximumBytes(long theParsedResourceCacheMaximumBytes) {
+		myParsedResourceCacheMaximumBytes = theParsedResourceCacheMaximumBytes;
+	}
+
+	/**
+	 * If set to a value greater than zero, the resource PIDs matched by paged searches are kept
+	 * in memory on the node which performed the search instead of being written to the
+	 * HFJ_SEARCH_RESULT table. The value is the approximate maximum amount of memory used for
+	 * this purpose. Results expire after {@link #getExpireSearchResultsAfterMillis()}, and
+	 * searches which are too large to be held in memory are still written to the database.
+	 * <p>
+	 * Results held in memory are not visible to other nodes, so in a clustered deployment
+	 * this setting should only be used if paging requests are routed to the node which
+	 * performed the search. Otherwise, requests for later pages will fail as though the
+	 * search had expired.
+	 * </p>
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public long getSearchResultMemoryCacheMaximumBytes() {
+		return mySearchResultMemoryCacheMaximumBytes;
+	}
+
+	/**
+	 * If set to a value greater than zero, the resource PIDs matched by paged searches are kept
+	 * in memory on the node which performed the search instead of being written to the
+	 * HFJ_SEARCH_RESULT table. The value is the approximate maximum amount of memory used for
+	 * this purpose. Results expire after {@link #getExpireSearchResultsAfterMillis()}, and
+	 * searches which are too large to be held in memory are still written to the database.
+	 * <p>
+	 * Results held in memory are not visible to other nodes, so in a clustered deployment
+	 * this setting should only be used if paging requests are routed to the node which
+	 * performed the search. Otherwise, requests for later pages will fail as though the
+	 * search had expired.
+	 * </p>
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setSearchResultMemoryCacheMaximumBytes(long theSearchResultMemoryCacheMaximumBytes) {
+		mySearchResultMemoryCacheMaximumBytes = theSearchResultMemoryCacheMaximumBytes;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the resources loaded for a page of search results
+	 * (including operations such as <code>$everything</code>) are decoded and parsed in parallel by a
+	 * shared pool of this many threads, instead of one at a time on the request thread. This can
+	 * considerably reduce the latency of requests returning large pages. Resource order and
+	 * search mode metadata are not affected.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public int getSearchResultParsingThreadCount() {
+		return mySearchResultParsingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the resources loaded for a page of search results
+	 * (including operations such as <code>$everything</code>) are decoded and parsed in parallel by a
+	 * shared pool of this many threads, instead of one at a time on the request thread. This can
+	 * considerably reduce the latency of requests returning large pages. Resource order and
+	 * search mode metadata are not affected.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setSearchResultParsingThreadCount(int theSearchResultParsingThreadCount) {
+		mySearchResultParsingThreadCount = theSearchResultParsingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the search parameter indexes for resources created
+	 * by a FHIR transaction are extracted in parallel by a shared pool of this many threads, before the
+	 * resources are stored one at a time. Only the CPU bound extraction of non-reference search
+	 * parameters (e.g. strings, tokens, dates and quantities) is moved off the request thread. All
+	 * database access, reference resolution and interceptor invocations still take place on the
+	 * request thread in the usual order, since they all participate in the same database transaction.
+	 * This can considerably reduce the time taken to process large transaction bundles.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public int getTransactionIndexingThreadCount() {
+		return myTransactionIndexingThreadCount;
+	}
+
+	/**
+	 * If set to a value greater than <code>1</code>, the search parameter indexes for resources created
+	 * by a FHIR transaction are extracted in parallel by a shared pool of this many threads, before the
+	 * resources are stored one at a time. Only the CPU bound extraction of non-reference search
+	 * parameters (e.g. strings, tokens, dates and quantities) is moved off the request thread. All
+	 * database access, reference resolution and interceptor invocations still take place on the
+	 * request thread in the usual order, since they all participate in the same database transaction.
+	 * This can considerably reduce the time taken to process large transaction bundles.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setTransactionIndexingThreadCount(int theTransactionIndexingThreadCount) {
+		myTransactionIndexingThreadCount = theTransactionIndexingThreadCount;
+	}
+
+	/**
+	 * If enabled, lookups of client assigned resource IDs which do not exist in the database are
+	 * remembered in the memory cache, so that repeatedly referring to (or reading) the same missing
+	 * ID does not cause a database query every time. Entries are removed as soon as a resource with
+	 * the given ID is created. This setting has no effect if partitioning is enabled.
+	 * <p>
+	 * If several servers share the same database, this setting should only be enabled if their
+	 * memory caches are kept coherent using an {@literal IMemoryCacheInvalidationBus},
+	 * since otherwise a server may not notice a resource created on another server until its
+	 * cache entries expire.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isClientAssignedIdNegativeCacheEnabled() {
+		return myClientAssignedIdNegativeCacheEnabled;
+	}
+
+	/**
+	 * If enabled, lookups of client assigned resource IDs which do not exist in the database are
+	 * remembered in the memory cache, so that repeatedly referring to (or reading) the same missing
+	 * ID does not cause a database query every time. Entries are removed as soon as a resource with
+	 * the given ID is created. This setting has no effect if partitioning is enabled.
+	 * <p>
+	 * If several servers share the same database, this setting should only be enabled if their
+	 * memory caches are kept coherent using an {@literal IMemoryCacheInvalidationBus},
+	 * since otherwise a server may not notice a resource created on another server until its
+	 * cache entries expire.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setClientAssignedIdNegativeCacheEnabled(boolean theClientAssignedIdNegativeCacheEnabled) {
+		myClientAssignedIdNegativeCacheEnabled = theClientAssignedIdNegativeCacheEnabled;
+	}
+
+	/**
+	 * If set to a value greater than <code>0</code>, codes which are validated against a pre-expanded
+	 * ValueSet are looked up in an in-memory copy of the expansion instead of in the database. The
+	 * in-memory copy of each ValueSet is built the first time that a code is validated against its
+	 * current pre-expansion, and all copies together are limited to approximately this many bytes of
+	 * memory. ValueSets which are too large to fit into a quarter of this space are always validated
+	 * against the database.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public long getPreExpandedValueSetCodeIndexMaximumBytes() {
+		return myPreExpandedValueSetCodeIndexMaximumBytes;
+	}
+
+	/**
+	 * If set to a value greater than <code>0</code>, codes which are validated against a pre-expanded
+	 * ValueSet are looked up in an in-memory copy of the expansion instead of in the database. The
+	 * in-memory copy of each ValueSet is built the first time that a code is validated against its
+	 * current pre-expansion, and all copies together are limited to approximately this many bytes of
+	 * memory. ValueSets which are too large to fit into a quarter of this space are always validated
+	 * against the database.
+	 * <p>
+	 * Default is <code>0</code> (disabled)
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setPreExpandedValueSetCodeIndexMaximumBytes(long thePreExpandedValueSetCodeIndexMaximumBytes) {
+		myPreExpandedValueSetCodeIndexMaximumBytes = thePreExpandedValueSetCodeIndexMaximumBytes;
+	}
+
+	/**
+	 * If enabled, every ancestor/descendant pair in the concept hierarchy of newly stored CodeSystem
+	 * versions is stored in a dedicated table. This allows <code>is-a</code> filters in ValueSet
+	 * expansions (when Hibernate Search is not enabled), <code>$subsumes</code> and the lookup of
+	 * codes above or below a given code to be performed using a single indexed database query,
+	 * at the cost of additional storage space. CodeSystem versions which were stored while this
+	 * setting was disabled are not affected, and need to be uploaded again in order to use it.
+	 * The same applies to versions in which a delta upload moved an existing concept while
+	 * deferring storage (see {@link #setDeferIndexingForCodesystemsOfSize(int)}).
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isConceptAncestorIndexEnabled() {
+		return myConceptAncestorIndexEnabled;
+	}
+
+	/**
+	 * If enabled, every ancestor/descendant pair in the concept hierarchy of newly stored CodeSystem
+	 * versions is stored in a dedicated table. This allows <code>is-a</code> filters in ValueSet
+	 * expansions (when Hibernate Search is not enabled), <code>$subsumes</code> and the lookup of
+	 * codes above or below a given code to be performed using a single indexed database query,
+	 * at the cost of additional storage space. CodeSystem versions which were stored while this
+	 * setting was disabled are not affected, and need to be uploaded again in order to use it.
+	 * The same applies to versions in which a delta upload moved an existing concept while
+	 * deferring storage (see {@link #setDeferIndexingForCodesystemsOfSize(int)}).
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setConceptAncestorIndexEnabled(boolean theConceptAncestorIndexEnabled) {
+		myConceptAncestorIndexEnabled = theConceptAncestorIndexEnabled;
+	}
+
+	/**
+	 * If enabled, expanding a ValueSet which has been pre-expanded (see {@link #setPreExpandValueSets(boolean)})
+	 * without a filter and without <code>includeHierarchy</code> does not load the requested concepts up
+	 * front. Instead, the returned expansion loads them from the pre-expansion tables one page at a time as
+	 * it is iterated, which normally happens while the <code>$expand</code> response is being written. This
+	 * keeps memory use flat regardless of the requested <code>count</code>, so large expansions are only
+	 * limited by {@link #setPreExpandValueSetsMaxCount(int)} and not by {@link #setMaximumExpansionSize(int)}.
+	 * <p>
+	 * Note that the concepts are read when the expansion is iterated, so an expansion which is held on to
+	 * reflects the pre-expansion tables at that time.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isPreExpandedValueSetStreamingEnabled() {
+		return myPreExpandedValueSetStreamingEnabled;
+	}
+
+	/**
+	 * If enabled, expanding a ValueSet which has been pre-expanded (see {@link #setPreExpandValueSets(boolean)})
+	 * without a filter and without <code>includeHierarchy</code> does not load the requested concepts up
+	 * front. Instead, the returned expansion loads them from the pre-expansion tables one page at a time as
+	 * it is iterated, which normally happens while the <code>$expand</code> response is being written. This
+	 * keeps memory use flat regardless of the requested <code>count</code>, so large expansions are only
+	 * limited by {@link #setPreExpandValueSetsMaxCount(int)} and not by {@link #setMaximumExpansionSize(int)}.
+	 * <p>
+	 * Note that the concepts are read when the expansion is iterated, so an expansion which is held on to
+	 * reflects the pre-expansion tables at that time.
+	 * </p>
+	 * <p>
+	 * Default is <code>false</code>
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setPreExpandedValueSetStreamingEnabled(boolean thePreExpandedValueSetStreamingEnabled) {
+		myPreExpandedValueSetStreamingEnabled = thePreExpandedValueSetStreamingEnabled;
+	}
+
 	public enum StoreMetaSourceInformationEnum {
 		NONE(false, false),
 		SOURCE_URI(true, false),
@@ -30,6 +30,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.SerializationFeature;
 import com.google.common.base.Charsets;
 import com.google.common.hash.HashingInputStream;
+import com.google.common.util.concurrent.Striped;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.IOUtils;
 import org.apache.commons.io.input.CountingInputStream;
@@ -51,13 +52,27 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
 import java.util.Date;
+import java.util.concurrent.locks.Lock;
 
 public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 	private static final Logger ourLog = LoggerFactory.getLogger(FilesystemBinaryStorageSvcImpl.class);
+	private static final String CONTENT_DIRECTORY = "content";
+	private static final String TEMP_DIRECTORY = "tmp";
 	private final File myBasePath;
 	private final ObjectMapper myJsonSerializer;
+	private final Striped<Lock> myContentLocks = Striped.lock(64);
+	private boolean myContentAddressedStorageEnabled;
 
 	public FilesystemBinaryStorageSvcImpl(String theBasePath) {
 		Validate.notBlank(theBasePath);
@@ -71,6 +86,47 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		createBasePathDirectory();
 	}
 
+	/**
+	 * If enabled (default is <code>false</code>), identical blobs are only stored once. The contents
+	 * of each blob are written to a file named after their SHA-256 hash, and the file for each blob ID
+	 * is created as a hard link to that file. The number of links is used as the reference count, so
+	 * the shared file is deleted when the last blob referring to it is expunged. Blobs stored before
+	 * this setting was enabled remain readable and are expunged as before.
+	 * <p>
+	 * This mode requires a filesystem which supports hard links and reports link counts (i.e. a
+	 * POSIX filesystem), and only coordinates concurrent writers within a single JVM.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public boolean isContentAddressedStorageEnabled() {
+		return myContentAddressedStorageEnabled;
+	}
+
+	/**
+	 * If enabled (default is <code>false</code>), identical blobs are only stored once. The contents
+	 * of each blob are written to a file named after their SHA-256 hash, and the file for each blob ID
+	 * is created as a hard link to that file. The number of links is used as the reference count, so
+	 * the shared file is deleted when the last blob referring to it is expunged. Blobs stored before
+	 * this setting was enabled remain readable and are expunged as before.
+	 * <p>
+	 * This mode requires a filesystem which supports hard links and reports link counts (i.e. a
+	 * POSIX filesystem), and only coordinates concurrent writers within a single JVM.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	public void setContentAddressedStorageEnabled(boolean theContentAddressedStorageEnabled) {
+		if (theContentAddressedStorageEnabled && !FileSystems.getDefault().supportedFileAttributeViews().contains("unix")) {
+			throw new ConfigurationException(Msg.code(2371) + "Content addressed binary storage requires a filesystem supporting hard link counts");
+		}
+		myContentAddressedStorageEnabled = theContentAddressedStorageEnabled;
+		if (theContentAddressedStorageEnabled) {
+			mkdir(new File(myBasePath, CONTENT_DIRECTORY));
+			mkdir(new File(myBasePath, TEMP_DIRECTORY));
+		}
+	}
+
 	private void createBasePathDirectory() {
 		ourLog.info("Starting binary storage service with base path: {}", myBasePath);
 
@@ -96,16 +152,21 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 
 		// Write binary file
 		File storageFilename = getStorageFilename(storagePath, theResourceId, id);
-		ourLog.info("Writing to file: {}", storageFilename.getAbsolutePath());
 		CountingInputStream countingInputStream = createCountingInputStream(theInputStream);
 		HashingInputStream hashingInputStream = createHashingInputStream(countingInputStream);
-		try (FileOutputStream outputStream = new FileOutputStream(storageFilename)) {
-			IOUtils.copy(hashingInputStream, outputStream);
+		StoredDetails details;
+		if (myContentAddressedStorageEnabled) {
+			details = storeContentAddressed(id, theContentType, storageFilename, hashingInputStream, countingInputStream);
+		} else {
+			ourLog.info("Writing to file: {}", storageFilename.getAbsolutePath());
+			try (FileOutputStream outputStream = new FileOutputStream(storageFilename)) {
+				IOUtils.copy(hashingInputStream, outputStream);
+			}
+			details = new StoredDetails(id, countingInputStream.getByteCount(), theContentType, hashingInputStream, new Date());
 		}
 
 		// Write descriptor file
-		long count = countingInputStream.getByteCount();
-		StoredDetails details = new StoredDetails(id, count, theContentType, hashingInputStream, new Date());
+		long count = details.getBytes();
 		File descriptorFilename = getDescriptorFilename(storagePath, theResourceId, id);
 		ourLog.info("Writing to file: {}", descriptorFilename.getAbsolutePath());
 		try (FileWriter writer = new FileWriter(descriptorFilename)) {
@@ -117,6 +178,50 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		return details;
 	}
 
+	/**
+	 * Writes the blob contents to a temporary file, and then either links the blob file to an
+	 * existing file with the same contents, or moves the temporary file into the content
+	 * directory and links the blob file to it
+	 */
+	private StoredDetails storeContentAddressed(String theBlobId, String theContentType, File theStorageFilename, HashingInputStream theHashingInputStream, CountingInputStream theCountingInputStream) throws IOException {
+		Path tempFile = Files.createTempFile(new File(myBasePath, TEMP_DIRECTORY).toPath(), "blob", ".tmp");
+		try {
+			try (OutputStream outputStream = Files.newOutputStream(tempFile)) {
+				IOUtils.copy(theHashingInputStream, outputStream);
+			}
+
+			// Fails with PayloadTooLargeException if the maximum size was exceeded
+			StoredDetails retVal = new StoredDetails(theBlobId, theCountingInputStream.getByteCount(), theContentType, theHashingInputStream, new Date());
+
+			String hash = retVal.getHash();
+			Path contentFile = getContentFilename(hash);
+			Lock lock = myContentLocks.get(hash);
+			lock.lock();
+			try {
+				if (Files.exists(contentFile)) {
+					try {
+						Files.createLink(theStorageFilename.toPath(), contentFile);
+						ourLog.info("Linked blob file {} to existing content {}", theStorageFilename.getAbsolutePath(), hash);
+						return retVal;
+					} catch (NoSuchFileException e) {
+						// The content was deleted by another process in the meantime
+						ourLog.debug("Content {} was removed while linking", hash);
+					}
+				}
+
+				mkdir(contentFile.getParent().toFile());
+				Files.move(tempFile, contentFile, StandardCopyOption.REPLACE_EXISTING);
+				Files.createLink(theStorageFilename.toPath(), contentFile);
+				ourLog.info("Wrote content {} for blob file {}", hash, theStorageFilename.getAbsolutePath());
+				return retVal;
+			} finally {
+				lock.unlock();
+			}
+		} finally {
+			Files.deleteIfExists(tempFile);
+		}
+	}
+
 	@Override
 	public StoredDetails fetchBlobDetails(IIdType theResourceId, String theBlobId) throws IOException {
 		StoredDetails retVal = null;
@@ -124,43 +229,77 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		File storagePath = getStoragePath(theBlobId, false);
 		if (storagePath != null) {
 			File file = getDescriptorFilename(storagePath, theResourceId, theBlobId);
-			if (file.exists()) {
-				try (InputStream inputStream = new FileInputStream(file)) {
-					try (Reader reader = new InputStreamReader(inputStream, Charsets.UTF_8)) {
-						retVal = myJsonSerializer.readValue(reader, StoredDetails.class);
-					}
-				}
-			}
+			retVal = readDescriptor(file);
 		}
 
 		return retVal;
 	}
 
+	@Nullable
+	private StoredDetails readDescriptor(File theDescriptorFile) throws IOException {
+		if (!theDescriptorFile.exists()) {
+			return null;
+		}
+		try (InputStream inputStream = new FileInputStream(theDescriptorFile)) {
+			try (Reader reader = new InputStreamReader(inputStream, Charsets.UTF_8)) {
+				return myJsonSerializer.readValue(reader, StoredDetails.class);
+			}
+		}
+	}
+
+	/**
+	 * Copies the blob file to the given stream using {@link FileChannel#transferTo(long, long, WritableByteChannel)},
+	 * which avoids copying the data through the heap where the target allows it
+	 */
 	@Override
 	public boolean writeBlob(IIdType theResourceId, String theBlobId, OutputStream theOutputStream) throws IOException {
-		InputStream inputStream = getInputStream(theResourceId, theBlobId);
+		File file = getStorageFileIfExists(theResourceId, theBlobId);
+		if (file == null) {
+			return false;
+		}
 
-		if (inputStream != null) {
-			try (inputStream) {
-				IOUtils.copy(inputStream, theOutputStream);
-				theOutputStream.close();
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			WritableByteChannel target;
+			if (theOutputStream instanceof FileOutputStream) {
+				target = ((FileOutputStream) theOutputStream).getChannel();
+			} else {
+				target = Channels.newChannel(theOutputStream);
 			}
+
+			long size = channel.size();
+			long position = 0;
+			while (position < size) {
+				long transferred = channel.transferTo(position, size - position, target);
+				if (transferred <= 0) {
+					break;
+				}
+				position += transferred;
+			}
+			theOutputStream.close();
 		}
 
-		return false;
+		return true;
 	}
 
 	@Nullable
-	private InputStream getInputStream(IIdType theResourceId, String theBlobId) throws FileNotFoundException {
+	private File getStorageFileIfExists(IIdType theResourceId, String theBlobId) {
 		File storagePath = getStoragePath(theBlobId, false);
-		InputStream inputStream = null;
 		if (storagePath != null) {
 			File file = getStorageFilename(storagePath, theResourceId, theBlobId);
 			if (file.exists()) {
-				inputStream = new FileInputStream(file);
+				return file;
 			}
 		}
-		return inputStream;
+		return null;
+	}
+
+	@Nullable
+	private InputStream getInputStream(IIdType theResourceId, String theBlobId) throws FileNotFoundException {
+		File file = getStorageFileIfExists(theResourceId, theBlobId);
+		if (file != null) {
+			return new FileInputStream(file);
+		}
+		return null;
 	}
 
 	@Override
@@ -169,7 +308,18 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		if (storagePath != null) {
 			File storageFile = getStorageFilename(storagePath, theResourceId, theBlobId);
 			if (storageFile.exists()) {
+				StoredDetails details = null;
+				if (myContentAddressedStorageEnabled) {
+					try {
+						details = readDescriptor(getDescriptorFilename(storagePath, theResourceId, theBlobId));
+					} catch (IOException e) {
+						ourLog.warn("Failed to read descriptor for blob {}, shared content will not be released: {}", theBlobId, e.toString());
+					}
+				}
 				delete(storageFile, theBlobId);
+				if (details != null && details.getHash() != null) {
+					releaseContent(details.getHash());
+				}
 			}
 			File descriptorFile = getDescriptorFilename(storagePath, theResourceId, theBlobId);
 			if (descriptorFile.exists()) {
@@ -192,6 +342,43 @@ public class FilesystemBinaryStorageSvcImpl extends BaseBinaryStorageSvcImpl {
 		throw new ResourceNotFoundException(Msg.code(1327) + "Unknown blob ID: " + theBlobId + " for resource ID " + theResourceId);
 	}
 
+	/**
+	 * Deletes the shared content file for the given hash if no blob files link to it anymore
+	 */
+	private void releaseContent(String theHash) {
+		Path contentFile = getContentFilename(theHash);
+		Lock lock = myContentLocks.get(theHash);
+		lock.lock();
+		try {
+			if (Files.exists(contentFile) && getLinkCount(contentFile) <= 1) {
+				ourLog.info("Deleting unreferenced content {}", theHash);
+				Files.delete(contentFile);
+			}
+		} catch (IOException e) {
+			ourLog.warn("Failed to delete content {}: {}", theHash, e.toString());
+		} finally {
+			lock.unlock();
+		}
+	}
+
+	private static int getLinkCount(Path thePath) throws IOException {
+		return (Integer) Files.getAttribute(thePath, "unix:nlink");
+	}
+
+	/**
+	 * Content files are spread over two levels of directories named after the start of the hash
+	 */
+	@Nonnull
+	private Path getContentFilename(String theHash) {
+		Validate.isTrue(theHash.length() > 4 && StringUtils.isAlphanumeric(theHash), "Invalid content hash: %s", theHash);
+		return myBasePath
+			.toPath()
+			.resolve(CONTENT_DIRECTORY)
+			.resolve(theHash.substring(0, 2))
+			.resolve(theHash.substring(2, 4))
+			.resolve(theHash + ".bin");
+	}
+
 	private void delete(File theStorageFile, String theBlobId) {
 		Validate.isTrue(theStorageFile.delete(), "Failed to delete file for blob %s", theBlobId);
 	}
@@ -108,6 +108,7 @@ import org.springframework.transaction.support.TransactionTemplate;
 import javax.annotation.Nonnull;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
@@ -1344,8 +1345,9 @@ public abstract class BaseTransactionProcessor {
 	 * transaction processing
 	 * * There may by auto-versioned references pointing to these unchanged targets
 	 * <p>
-	 * If we're not doing any auto-versioned references, we'll just iterate through all resources in the
-	 * transaction and save them one at a time.
+	 * If we're not doing any auto-versioned references, we'll first resolve the references in all resources
+	 * in the transaction, then give subclasses a chance to prepare the resources for indexing (see
+	 * {@link #preIndexResources(RequestDetails, TransactionDetails, List)}), and then save them one at a time.
 	 * <p>
 	 * However, if we have any auto-versioned references we do this in 2 passes: First the resources from the
 	 * transaction that don't have any auto-versioned references are stored. We do them first since there's
@@ -1361,13 +1363,10 @@ public abstract class BaseTransactionProcessor {
 		FhirTerser terser = myContext.newTerser();
 		theTransactionStopWatch.startTask("Index " + theIdToPersistedOutcome.size() + " resources");
 		IdentityHashMap<DaoMethodOutcome, Set<IBaseReference>> deferredIndexesForAutoVersioning = null;
-		int i = 0;
+		List<DaoMethodOutcome> outcomesToIndexNow = new ArrayList<>();
+		List<IBaseResource> resourcesToPreIndex = new ArrayList<>();
 		for (DaoMethodOutcome nextOutcome : theIdToPersistedOutcome.values()) {
 
-			if (i++ % 250 == 0) {
-				ourLog.debug("Have indexed {} entities out of {} in transaction", i, theIdToPersistedOutcome.values().size());
-			}
-
 			if (nextOutcome.isNop()) {
 				continue;
 			}
@@ -1379,13 +1378,18 @@ public abstract class BaseTransactionProcessor {
 
 			Set<IBaseReference> referencesToAutoVersion = BaseStorageDao.extractReferencesToAutoVersion(myContext, myStorageSettings, nextResource);
 			if (referencesToAutoVersion.isEmpty()) {
-				// no references to autoversion - we can do the resolve and save now
-				resolveReferencesThenSaveAndIndexResource(theRequest, theTransactionDetails,
-					theIdSubstitutions, theIdToPersistedOutcome,
-					entriesToProcess, nonUpdatedEntities,
-					updatedEntities, terser,
-					nextOutcome, nextResource,
-					referencesToAutoVersion); // this is empty
+				// no references to autoversion - we can resolve them now and save once all are resolved
+				resolveReferences(theTransactionDetails, theIdSubstitutions, theIdToPersistedOutcome, terser, nextResource, referencesToAutoVersion); // this is empty
+				outcomesToIndexNow.add(nextOutcome);
+
+				/*
+				 * Resources being updated are passed through the pre-storage interceptors again
+				 * when they are saved below, which may modify them, so only new resources can
+				 * be prepared for indexing ahead of time
+				 */
+				if (!updatedEntities.contains(nextOutcome.getEntity()) && !nonUpdatedEntities.contains(nextOutcome.getId())) {
+					resourcesToPreIndex.add(nextResource);
+				}
 			} else {
 				// we have autoversioned things to defer until later
 				if (deferredIndexesForAutoVersioning == null) {
@@ -1395,6 +1399,20 @@ public abstract class BaseTransactionProcessor {
 			}
 		}
 
+		if (!resourcesToPreIndex.isEmpty()) {
+			preIndexResources(theRequest, theTransactionDetails, resourcesToPreIndex);
+		}
+
+		int i = 0;
+		for (DaoMethodOutcome nextOutcome : outcomesToIndexNow) {
+			if (i++ % 250 == 0) {
+				ourLog.debug("Have indexed {} entities out of {} in transaction", i, theIdToPersistedOutcome.values().size());
+			}
+
+			saveAndIndexResource(theRequest, theTransactionDetails, theIdSubstitutions, entriesToProcess, nonUpdatedEntities,
+				updatedEntities, nextOutcome, nextOutcome.getResource(), Collections.emptySet());
+		}
+
 		// If we have any resources we'll be auto-versioning, index these next
 		if (deferredIndexesForAutoVersioning != null) {
 			for (Map.Entry<DaoMethodOutcome, Set<IBaseReference>> nextEntry : deferredIndexesForAutoVersioning.entrySet()) {
@@ -1419,6 +1437,18 @@ public abstract class BaseTransactionProcessor {
 																			 Set<IBasePersistedResource> updatedEntities, FhirTerser terser,
 																			 DaoMethodOutcome theDaoMethodOutcome, IBaseResource theResource,
 																			 Set<IBaseReference> theReferencesToAutoVersion) {
+		resolveReferences(theTransactionDetails, theIdSubstitutions, theIdToPersistedOutcome, terser, theResource, theReferencesToAutoVersion);
+		saveAndIndexResource(theRequest, theTransactionDetails, theIdSubstitutions, entriesToProcess, nonUpdatedEntities,
+			updatedEntities, theDaoMethodOutcome, theResource, theReferencesToAutoVersion);
+	}
+
+	/**
+	 * Replaces any placeholder IDs and conditional references in the given resource with
+	 * the actual IDs of the resources they refer to
+	 */
+	private void resolveReferences(TransactionDetails theTransactionDetails, IdSubstitutionMap theIdSubstitutions,
+											 Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome, FhirTerser terser,
+											 IBaseResource theResource, Set<IBaseReference> theReferencesToAutoVersion) {
 		// References
 		List<ResourceReferenceInfo> allRefs = terser.getAllResourceReferences(theResource);
 		for (ResourceReferenceInfo nextRef : allRefs) {
@@ -1515,7 +1545,13 @@ public abstract class BaseTransactionProcessor {
 				ourLog.debug(" * Reference [{}] does not exist in bundle", nextUriString);
 			}
 		}
+	}
 
+	private void saveAndIndexResource(RequestDetails theRequest, TransactionDetails theTransactionDetails,
+												 IdSubstitutionMap theIdSubstitutions, EntriesToProcessMap entriesToProcess,
+												 Set<IIdType> nonUpdatedEntities, Set<IBasePersistedResource> updatedEntities,
+												 DaoMethodOutcome theDaoMethodOutcome, IBaseResource theResource,
+												 Set<IBaseReference> theReferencesToAutoVersion) {
 		IPrimitiveType<Date> deletedInstantOrNull = ResourceMetadataKeyEnum.DELETED_AT.get(theResource);
 		Date deletedTimestampOrNull = deletedInstantOrNull != null ? deletedInstantOrNull.getValue() : null;
 
@@ -1614,6 +1650,21 @@ public abstract class BaseTransactionProcessor {
 
 	protected abstract void flushSession(Map<IIdType, DaoMethodOutcome> theIdToPersistedOutcome);
 
+	/**
+	 * Invoked during transaction processing with the resources being created by the transaction,
+	 * once all references within them have been resolved and immediately before they are
+	 * saved and indexed one at a time. Subclasses may override this in order to do some of the
+	 * indexing work for all of these resources up front. The resources must not be modified.
+	 * <p>
+	 * The default implementation does nothing.
+	 * </p>
+	 *
+	 * @since 6.8.0
+	 */
+	protected void preIndexResources(RequestDetails theRequest, TransactionDetails theTransactionDetails, List<IBaseResource> theResources) {
+		// nothing
+	}
+
 	private void validateResourcePresent(IBaseResource theResource, Integer theOrder, String theVerb) {
 		if (theResource == null) {
 			String msg = myContext.getLocalizer().getMessage(BaseTransactionProcessor.class, "missingMandatoryResource", theVerb, theOrder);
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.i18n.Msg;
+import ca.uhn.fhir.parser.DataFormatException;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileGenerator;
+import org.apache.commons.io.output.StringBuilderWriter;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+/**
+ * Converts resources to and from <a href="https://github.com/FasterXML/smile-format-specification">Smile</a>,
+ * a binary encoding of the JSON data model. Repeated property names and short string values are written
+ * once per resource and then referred back to, and no text needs to be tokenized when reading.
+ */
+public class SmileUtil {
+
+	private static final JsonFactory JSON_FACTORY = new JsonFactory();
+	private static final SmileFactory SMILE_FACTORY = SmileFactory
+		.builder()
+		.enable(SmileGenerator.Feature.CHECK_SHARED_STRING_VALUES)
+		.build();
+
+	/**
+	 * Converts an encoded JSON resource to Smile
+	 */
+	public static byte[] fromJson(String theJson) {
+		try {
+			ByteArrayOutputStream os = new ByteArrayOutputStream(theJson.length() / 2);
+			try (JsonParser parser = JSON_FACTORY.createParser(theJson);
+				  JsonGenerator generator = SMILE_FACTORY.createGenerator(os)) {
+				copy(parser, generator);
+			}
+			return os.toByteArray();
+		} catch (IOException e) {
+			throw new DataFormatException(Msg.code(2384) + "Failed to convert contents to Smile", e);
+		}
+	}
+
+	/**
+	 * Converts a Smile encoded resource to JSON
+	 */
+	public static String toJson(byte[] theSmile) {
+		try {
+			StringBuilderWriter writer = new StringBuilderWriter(theSmile.length * 2);
+			try (JsonParser parser = SMILE_FACTORY.createParser(theSmile);
+				  JsonGenerator generator = JSON_FACTORY.createGenerator(writer)) {
+				copy(parser, generator);
+			}
+			return writer.toString();
+		} catch (IOException e) {
+			throw new DataFormatException(Msg.code(2385) + "Failed to convert Smile contents", e);
+		}
+	}
+
+	/**
+	 * Parses a Smile encoded resource directly, without converting it to JSON first
+	 */
+	public static <T extends IBaseResource> T parseResource(ca.uhn.fhir.parser.JsonParser theParser, Class<T> theResourceType, byte[] theSmile) {
+		try (JsonParser parser = SMILE_FACTORY.createParser(theSmile)) {
+			return theParser.parseResource(theResourceType, parser);
+		} catch (IOException e) {
+			throw new DataFormatException(Msg.code(2386) + "Failed to parse Smile contents", e);
+		}
+	}
+
+	private static void copy(JsonParser theParser, JsonGenerator theGenerator) throws IOException {
+		while (theParser.nextToken() != null) {
+			if (theParser.currentToken() == JsonToken.VALUE_NUMBER_FLOAT) {
+				// FHIR decimals keep their precision, so these can't go through a double
+				theGenerator.writeNumber(theParser.getDecimalValue());
+			} else {
+				theGenerator.copyCurrentEvent(theParser);
+			}
+		}
+	}
+
+}
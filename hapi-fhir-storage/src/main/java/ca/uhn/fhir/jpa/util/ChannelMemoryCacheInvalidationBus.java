@@ -0,0 +1,122 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelConsumerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.ChannelProducerSettings;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelFactory;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelProducer;
+import ca.uhn.fhir.jpa.subscription.channel.api.IChannelReceiver;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.messaging.Message;
+import org.springframework.messaging.MessageHandler;
+import org.springframework.messaging.MessagingException;
+
+import javax.annotation.Nonnull;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * {@link IMemoryCacheInvalidationBus} implementation which uses a queue channel created by
+ * an {@link IChannelFactory} to propagate events between the nodes of a cluster.
+ * <p>
+ * Note that every node must receive every event, so the channel implementation
+ * supplied by the {@link IChannelFactory} must have publish/subscribe (topic)
+ * semantics for the channel named {@link #CHANNEL_NAME}.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class ChannelMemoryCacheInvalidationBus implements IMemoryCacheInvalidationBus, MessageHandler {
+
+	public static final String CHANNEL_NAME = "memory-cache-invalidation";
+	private static final Logger ourLog = LoggerFactory.getLogger(ChannelMemoryCacheInvalidationBus.class);
+	private final IChannelFactory myChannelFactory;
+	private final List<Consumer<MemoryCacheInvalidationEvent>> myListeners = new CopyOnWriteArrayList<>();
+	private IChannelProducer myProducer;
+	private IChannelReceiver myReceiver;
+
+	/**
+	 * Constructor
+	 */
+	public ChannelMemoryCacheInvalidationBus(IChannelFactory theChannelFactory) {
+		myChannelFactory = theChannelFactory;
+	}
+
+	@PostConstruct
+	public void start() {
+		if (myProducer == null) {
+			myProducer = myChannelFactory.getOrCreateProducer(CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, new ChannelProducerSettings());
+		}
+		if (myReceiver == null) {
+			ChannelConsumerSettings consumerSettings = new ChannelConsumerSettings();
+			consumerSettings.setConcurrentConsumers(1);
+			myReceiver = myChannelFactory.getOrCreateReceiver(CHANNEL_NAME, MemoryCacheInvalidationJsonMessage.class, consumerSettings);
+			myReceiver.subscribe(this);
+			ourLog.info("Memory cache invalidation bus subscribed to channel {}", myReceiver.getName());
+		}
+	}
+
+	@PreDestroy
+	public void stop() throws Exception {
+		if (myReceiver != null) {
+			myReceiver.unsubscribe(this);
+			myReceiver.destroy();
+			myReceiver = null;
+		}
+	}
+
+	@Override
+	public void publish(MemoryCacheInvalidationEvent theEvent) {
+		if (myProducer == null) {
+			start();
+		}
+		ourLog.trace("Publishing memory cache invalidation: {}", theEvent);
+		myProducer.send(new MemoryCacheInvalidationJsonMessage(theEvent));
+	}
+
+	@Override
+	public void registerListener(Consumer<MemoryCacheInvalidationEvent> theListener) {
+		myListeners.add(theListener);
+	}
+
+	@Override
+	public void unregisterListener(Consumer<MemoryCacheInvalidationEvent> theListener) {
+		myListeners.remove(theListener);
+	}
+
+	@Override
+	public void handleMessage(@Nonnull Message<?> theMessage) throws MessagingException {
+		if (!(theMessage instanceof MemoryCacheInvalidationJsonMessage)) {
+			ourLog.warn("Unexpected message payload type: {}", theMessage);
+			return;
+		}
+
+		MemoryCacheInvalidationEvent event = ((MemoryCacheInvalidationJsonMessage) theMessage).getPayload();
+		for (Consumer<MemoryCacheInvalidationEvent> next : myListeners) {
+			next.accept(event);
+		}
+	}
+
+}
@@ -0,0 +1,57 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import java.util.function.Consumer;
+
+/**
+ * A bus used by {@link MemoryCacheService} to tell other cache instances (typically
+ * the same cache running on other nodes in a cluster) that one of their entries
+ * may now be stale.
+ * <p>
+ * Events are only published once the database transaction that produced them has
+ * committed, so listeners never see changes that are later rolled back. Listeners
+ * are expected to ignore events that they published themselves (see
+ * {@link MemoryCacheInvalidationEvent#getOriginNodeId()}).
+ * </p>
+ *
+ * @see LocalMemoryCacheInvalidationBus
+ * @see ChannelMemoryCacheInvalidationBus
+ * @since 6.8.0
+ */
+public interface IMemoryCacheInvalidationBus {
+
+	/**
+	 * Broadcast an event to all registered listeners
+	 */
+	void publish(MemoryCacheInvalidationEvent theEvent);
+
+	/**
+	 * Register a listener which will be notified of every event published
+	 * to this bus
+	 */
+	void registerListener(Consumer<MemoryCacheInvalidationEvent> theListener);
+
+	/**
+	 * Remove a listener previously registered via {@link #registerListener(Consumer)}
+	 */
+	void unregisterListener(Consumer<MemoryCacheInvalidationEvent> theListener);
+
+}
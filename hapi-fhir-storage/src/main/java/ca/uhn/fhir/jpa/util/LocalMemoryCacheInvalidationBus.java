@@ -0,0 +1,55 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
+
+/**
+ * In-JVM implementation of {@link IMemoryCacheInvalidationBus} which synchronously
+ * delivers events to every registered listener. This is useful when several
+ * {@link MemoryCacheService} instances share a JVM (e.g. multiple application
+ * contexts, or in tests), but it does not provide any cross-node coherence.
+ *
+ * @since 6.8.0
+ */
+public class LocalMemoryCacheInvalidationBus implements IMemoryCacheInvalidationBus {
+
+	private final List<Consumer<MemoryCacheInvalidationEvent>> myListeners = new CopyOnWriteArrayList<>();
+
+	@Override
+	public void publish(MemoryCacheInvalidationEvent theEvent) {
+		for (Consumer<MemoryCacheInvalidationEvent> next : myListeners) {
+			next.accept(theEvent);
+		}
+	}
+
+	@Override
+	public void registerListener(Consumer<MemoryCacheInvalidationEvent> theListener) {
+		myListeners.add(theListener);
+	}
+
+	@Override
+	public void unregisterListener(Consumer<MemoryCacheInvalidationEvent> theListener) {
+		myListeners.remove(theListener);
+	}
+
+}
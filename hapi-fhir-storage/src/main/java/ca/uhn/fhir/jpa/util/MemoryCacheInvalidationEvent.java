@@ -0,0 +1,141 @@
+/*-
+ * #%L
+ * HAPI FHIR Storage api
+ * %%
+ * Copyright (C) 2014 - 2023 Smile CDR, Inc.
+ * %%
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ * #L%
+ */
+package ca.uhn.fhir.jpa.util;
+
+import ca.uhn.fhir.model.api.IModelJson;
+import com.fasterxml.jackson.annotation.JsonProperty;
+import org.apache.commons.lang3.builder.ToStringBuilder;
+import org.apache.commons.lang3.builder.ToStringStyle;
+
+import javax.annotation.Nullable;
+
+/**
+ * Describes a change to a single {@link MemoryCacheService} cache which should be
+ * propagated to the other cache instances listening on an {@link IMemoryCacheInvalidationBus}.
+ * <p>
+ * Cached values are never transmitted, since many of them are JPA entities or other
+ * objects which can not be meaningfully shared between nodes. Receivers always respond
+ * to an event by evicting their local copy, and will re-resolve the value the next time
+ * it is needed.
+ * </p>
+ *
+ * @since 6.8.0
+ */
+public class MemoryCacheInvalidationEvent implements IModelJson {
+
+	@JsonProperty("operation")
+	private OperationEnum myOperation;
+	@JsonProperty("cache")
+	private MemoryCacheService.CacheEnum myCache;
+	@JsonProperty("key")
+	private String myKey;
+	@JsonProperty("originNodeId")
+	private String myOriginNodeId;
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationEvent() {
+		super();
+	}
+
+	/**
+	 * Constructor
+	 */
+	public MemoryCacheInvalidationEvent(OperationEnum theOperation, @Nullable MemoryCacheService.CacheEnum theCache, @Nullable String theKey, String theOriginNodeId) {
+		myOperation = theOperation;
+		myCache = theCache;
+		myKey = theKey;
+		myOriginNodeId = theOriginNodeId;
+	}
+
+	public OperationEnum getOperation() {
+		return myOperation;
+	}
+
+	public void setOperation(OperationEnum theOperation) {
+		myOperation = theOperation;
+	}
+
+	/**
+	 * Returns the affected cache, or <code>null</code> if the event applies to all caches
+	 * (i.e. the operation is {@link OperationEnum#EVICT_ALL})
+	 */
+	@Nullable
+	public MemoryCacheService.CacheEnum getCache() {
+		return myCache;
+	}
+
+	public void setCache(MemoryCacheService.CacheEnum theCache) {
+		myCache = theCache;
+	}
+
+	/**
+	 * Returns the string form of the affected key, or <code>null</code> if the operation
+	 * is not {@link OperationEnum#EVICT}. If the key is missing or can't be converted back,
+	 * receivers invalidate the whole cache.
+	 */
+	@Nullable
+	public String getKey() {
+		return myKey;
+	}
+
+	public void setKey(String theKey) {
+		myKey = theKey;
+	}
+
+	public String getOriginNodeId() {
+		return myOriginNodeId;
+	}
+
+	public void setOriginNodeId(String theOriginNodeId) {
+		myOriginNodeId = theOriginNodeId;
+	}
+
+	@Override
+	public String toString() {
+		return new ToStringBuilder(this, ToStringStyle.SHORT_PREFIX_STYLE)
+			.append("operation", myOperation)
+			.append("cache", myCache)
+			.append("key", myKey)
+			.append("originNodeId", myOriginNodeId)
+			.toString();
+	}
+
+	public enum OperationEnum {
+
+		/**
+		 * A value was explicitly removed from the cache by the originating node
+		 */
+		EVICT,
+
+		/**
+		 * Every value was removed from the cache by the originating node
+		 */
+		INVALIDATE,
+
+		/**
+		 * All caches were cleared by the originating node
+		 */
+		EVICT_ALL
+
+	}
+
+}
@@ -26,13 +26,20 @@ import ca.uhn.fhir.sl.cache.Cache;
 import ca.uhn.fhir.sl.cache.CacheFactory;
 import org.apache.commons.lang3.builder.EqualsBuilder;
 import org.apache.commons.lang3.builder.HashCodeBuilder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.transaction.support.TransactionSynchronization;
 import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import java.util.Collection;
 import java.util.EnumMap;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.Consumer;
 import java.util.function.Function;
 
 import static java.util.concurrent.TimeUnit.MINUTES;
@@ -44,12 +51,29 @@ import static org.apache.commons.lang3.StringUtils.isNotBlank;
  * <p>
  * The API is super simplistic, and caches are all 1-minute, max 10000 entries for starters. We could definitely add nuance to this,
  * which will be much easier now that this is being centralized. Some logging/monitoring would be good too.
+ * <p>
+ * If an {@link IMemoryCacheInvalidationBus} is supplied via {@link #setInvalidationBus(IMemoryCacheInvalidationBus)},
+ * evictions and invalidations are broadcast to the other cache instances listening on that bus, and
+ * events received from other instances cause the corresponding local entries to be evicted.
+ * This keeps the caches of a multi-node cluster coherent, which in turn makes it safe to use
+ * longer expiry times (see {@link JpaStorageSettings#setMemoryCacheExpireAfterWriteInMinutes(Integer)}).
+ * Puts are not broadcast, since they only record something which is already in the database
+ * and can't make the copy held by another node any more stale than it was. Evictions of
+ * individual keys are only broadcast for caches with {@link CacheEnum#isKeyBroadcast() broadcastable keys}.
+ * </p>
  */
 // TODO: JA2 extract an interface for this class and use it everywhere
 public class MemoryCacheService {
 
+	private static final Logger ourLog = LoggerFactory.getLogger(MemoryCacheService.class);
 	private final JpaStorageSettings myStorageSettings;
+	private static final int EVICTION_COUNTER_STRIPES = 256;
 	private final EnumMap<CacheEnum, Cache<?, ?>> myCaches = new EnumMap<>(CacheEnum.class);
+	private final EnumMap<CacheEnum, AtomicLongArray> myEvictionCounters = new EnumMap<>(CacheEnum.class);
+	private final String myNodeId = UUID.randomUUID().toString();
+	private final Consumer<MemoryCacheInvalidationEvent> myInvalidationListener = this::handleInvalidationEvent;
+	private final String myPendingInvalidationsResourceKey = MemoryCacheService.class.getName() + "_PENDING_INVALIDATIONS_" + myNodeId;
+	private IMemoryCacheInvalidationBus myInvalidationBus;
 
 	public MemoryCacheService(JpaStorageSettings theStorageSettings) {
 		myStorageSettings = theStorageSettings;
@@ -76,6 +100,7 @@ public class MemoryCacheService {
 				case HISTORY_COUNT:
 				case TAG_DEFINITION:
 				case RESOURCE_CONDITIONAL_CREATE_VERSION:
+				case FORCED_ID_NOT_FOUND:
 				default:
 					timeoutSeconds = SECONDS.convert(1, MINUTES);
 					maximumSize = 10000;
@@ -83,15 +108,44 @@ public class MemoryCacheService {
 						timeoutSeconds = SECONDS.convert(50, MINUTES);
 						maximumSize = 100000;
 					}
+					if (myStorageSettings.getMemoryCacheExpireAfterWriteInMinutes() != null) {
+						timeoutSeconds = SECONDS.convert(myStorageSettings.getMemoryCacheExpireAfterWriteInMinutes(), MINUTES);
+					}
+					if (myStorageSettings.getMemoryCacheMaximumSize() != null) {
+						maximumSize = myStorageSettings.getMemoryCacheMaximumSize();
+					}
 					break;
 			}
 
 			Cache<Object, Object> nextCache = CacheFactory.build(SECONDS.toMillis(timeoutSeconds), maximumSize);
 
 			myCaches.put(next, nextCache);
+			myEvictionCounters.put(next, new AtomicLongArray(EVICTION_COUNTER_STRIPES));
 		}
 	}
 
+	/**
+	 * Supplies a bus which will be used to propagate evictions to (and receive
+	 * them from) other cache instances. May be <code>null</code>, in which case this
+	 * cache is purely local.
+	 */
+	public void setInvalidationBus(@Nullable IMemoryCacheInvalidationBus theInvalidationBus) {
+		if (myInvalidationBus != null) {
+			myInvalidationBus.unregisterListener(myInvalidationListener);
+		}
+		myInvalidationBus = theInvalidationBus;
+		if (myInvalidationBus != null) {
+			myInvalidationBus.registerListener(myInvalidationListener);
+		}
+	}
+
+	/**
+	 * Returns a unique identifier for this cache instance, used to recognize (and ignore)
+	 * invalidation events that it published itself
+	 */
+	public String getNodeId() {
+		return myNodeId;
+	}
 
 	public <K, T> T get(CacheEnum theCache, K theKey, Function<K, T> theSupplier) {
 		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
@@ -161,6 +215,136 @@ public class MemoryCacheService {
 		}
 	}
 
+	/**
+	 * Returns a counter which changes every time the given key (or any other key which
+	 * happens to share the same stripe) is evicted from the given cache, locally or
+	 * because of an event received from the {@link IMemoryCacheInvalidationBus invalidation bus}.
+	 * Callers which load a value from the database and only put it into the cache later
+	 * should read this counter before loading, and pass it to
+	 * {@link #putUnlessEvicted(CacheEnum, Object, Object, long)}.
+	 */
+	public <K> long getEvictionCounter(CacheEnum theCache, K theKey) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
+		return myEvictionCounters.get(theCache).get(toEvictionCounterStripe(theKey));
+	}
+
+	/**
+	 * Puts an entry in the local cache, unless the key has been evicted since
+	 * <code>theEvictionCounter</code> was obtained from {@link #getEvictionCounter(CacheEnum, Object)}.
+	 * This prevents a value which was loaded before a concurrent eviction from being
+	 * cached after it.
+	 */
+	public <K, V> void putUnlessEvicted(CacheEnum theCache, K theKey, V theValue, long theEvictionCounter) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
+		if (getEvictionCounter(theCache, theKey) != theEvictionCounter) {
+			return;
+		}
+		doPut(theCache, theKey, theValue);
+
+		// Evictions increment the counter before invalidating, so if one raced with the
+		// put above we will see it here and undo the put ourselves
+		if (getEvictionCounter(theCache, theKey) != theEvictionCounter) {
+			doEvict(theCache, theKey);
+		}
+	}
+
+	/**
+	 * Removes an entry from the cache, and notifies any other cache instances
+	 * sharing the {@link IMemoryCacheInvalidationBus invalidation bus} to do the same
+	 * if the cache {@link CacheEnum#isKeyBroadcast() broadcasts its keys}. Other instances
+	 * are notified immediately, so if the entry is being evicted because of a change made
+	 * in the current database transaction, use {@link #evictAfterCommit(CacheEnum, Object)}.
+	 */
+	public <K> void evict(CacheEnum theCache, K theKey) {
+		assert theCache.getKeyType().isAssignableFrom(theKey.getClass());
+		doEvict(theCache, theKey);
+		if (theCache.isKeyBroadcast()) {
+			publishInvalidation(MemoryCacheInvalidationEvent.OperationEnum.EVICT, theCache, theCache.keyToString(theKey));
+		}
+	}
+
+	protected <K> void doEvict(CacheEnum theCache, K theKey) {
+		myEvictionCounters.get(theCache).incrementAndGet(toEvictionCounterStripe(theKey));
+		getCache(theCache).invalidate(theKey);
+	}
+
+	/**
+	 * This method registers a transaction synchronization that evicts an entry from the
+	 * cache if and when the current database transaction successfully commits. If there
+	 * is no active transaction, the entry is evicted immediately.
+	 *
+	 * @see #evict(CacheEnum, Object)
+	 */
+	public <K> void evictAfterCommit(CacheEnum theCache, K theKey) {
+		runAfterCommit(() -> evict(theCache, theKey));
+	}
+
+	/**
+	 * Removes every entry from the given cache, and notifies any other cache instances
+	 * sharing the {@link IMemoryCacheInvalidationBus invalidation bus} to do the same.
+	 * Other instances are notified immediately, so if the cache is being invalidated because
+	 * of a change made in the current database transaction, use {@link #invalidateAfterCommit(CacheEnum)}.
+	 */
+	public void invalidate(CacheEnum theCache) {
+		doInvalidateAll(theCache);
+		publishInvalidation(MemoryCacheInvalidationEvent.OperationEnum.INVALIDATE, theCache, null);
+	}
+
+	/**
+	 * This method registers a transaction synchronization that removes every entry from
+	 * the given cache if and when the current database transaction successfully commits.
+	 * If there is no active transaction, the cache is invalidated immediately. Each cache
+	 * is only invalidated (and broadcast) once per transaction, no matter how many times
+	 * this is called.
+	 *
+	 * @see #invalidate(CacheEnum)
+	 */
+	public void invalidateAfterCommit(CacheEnum theCache) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			getOrCreatePendingInvalidations().myCaches.add(theCache);
+		} else {
+			invalidate(theCache);
+		}
+	}
+
+	/**
+	 * This method registers a transaction synchronization that removes every entry from
+	 * every cache if and when the current database transaction successfully commits.
+	 * If there is no active transaction, the caches are invalidated immediately.
+	 *
+	 * @see #invalidateAllCaches()
+	 */
+	public void invalidateAllCachesAfterCommit() {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			getOrCreatePendingInvalidations().myCaches.addAll(EnumSet.allOf(CacheEnum.class));
+		} else {
+			invalidateAllCaches();
+		}
+	}
+
+	private PendingInvalidations getOrCreatePendingInvalidations() {
+		PendingInvalidations retVal = (PendingInvalidations) TransactionSynchronizationManager.getResource(myPendingInvalidationsResourceKey);
+		if (retVal == null) {
+			retVal = new PendingInvalidations();
+			TransactionSynchronizationManager.bindResource(myPendingInvalidationsResourceKey, retVal);
+			TransactionSynchronizationManager.registerSynchronization(retVal);
+		}
+		return retVal;
+	}
+
+	private void runAfterCommit(Runnable theRunnable) {
+		if (TransactionSynchronizationManager.isSynchronizationActive()) {
+			TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+				@Override
+				public void afterCommit() {
+					theRunnable.run();
+				}
+			});
+		} else {
+			theRunnable.run();
+		}
+	}
+
 	@SuppressWarnings("unchecked")
 	public <K, V> Map<K, V> getAllPresent(CacheEnum theCache, Collection<K> theKeys) {
 		return doGetAllPresent(theCache, theKeys);
@@ -171,8 +355,61 @@ public class MemoryCacheService {
 		return (Map<K, V>) getCache(theCache).getAllPresent(theKeys);
 	}
 
+	/**
+	 * Removes every entry from every cache, and notifies any other cache instances
+	 * sharing the {@link IMemoryCacheInvalidationBus invalidation bus} to do the same.
+	 * Other instances are notified immediately, so this should be called once any
+	 * database transaction responsible for the change has committed.
+	 */
 	public void invalidateAllCaches() {
-		myCaches.values().forEach(Cache::invalidateAll);
+		doInvalidateAll();
+		publishInvalidation(MemoryCacheInvalidationEvent.OperationEnum.EVICT_ALL, null, null);
+	}
+
+	private void publishInvalidation(MemoryCacheInvalidationEvent.OperationEnum theOperation, @Nullable CacheEnum theCache, @Nullable String theKey) {
+		if (myInvalidationBus == null) {
+			return;
+		}
+		myInvalidationBus.publish(new MemoryCacheInvalidationEvent(theOperation, theCache, theKey, myNodeId));
+	}
+
+	private void handleInvalidationEvent(MemoryCacheInvalidationEvent theEvent) {
+		if (myNodeId.equals(theEvent.getOriginNodeId())) {
+			return;
+		}
+
+		ourLog.trace("Received memory cache invalidation: {}", theEvent);
+
+		CacheEnum cache = theEvent.getCache();
+		if (theEvent.getOperation() == MemoryCacheInvalidationEvent.OperationEnum.EVICT_ALL || cache == null) {
+			doInvalidateAll();
+			return;
+		}
+
+		Object key = cache.keyFromString(theEvent.getKey());
+		if (theEvent.getOperation() == MemoryCacheInvalidationEvent.OperationEnum.EVICT && key != null) {
+			doEvict(cache, key);
+		} else {
+			doInvalidateAll(cache);
+		}
+	}
+
+	private void doInvalidateAll() {
+		for (CacheEnum next : CacheEnum.values()) {
+			doInvalidateAll(next);
+		}
+	}
+
+	private void doInvalidateAll(CacheEnum theCache) {
+		AtomicLongArray counters = myEvictionCounters.get(theCache);
+		for (int i = 0; i < counters.length(); i++) {
+			counters.incrementAndGet(i);
+		}
+		getCache(theCache).invalidateAll();
+	}
+
+	private static int toEvictionCounterStripe(Object theKey) {
+		return theKey.hashCode() & (EVICTION_COUNTER_STRIPES - 1);
 	}
 
 	private <K, T> Cache<K, T> getCache(CacheEnum theCache) {
@@ -183,10 +420,53 @@ public class MemoryCacheService {
 		return getCache(theCache).estimatedSize();
 	}
 
+	/**
+	 * Collects the caches to invalidate once the current database transaction commits.
+	 * This is bound to the transaction (and unbound while it is suspended) the same way
+	 * that Spring binds other transactional resources.
+	 */
+	private class PendingInvalidations implements TransactionSynchronization {
+
+		private final EnumSet<CacheEnum> myCaches = EnumSet.noneOf(CacheEnum.class);
+
+		@Override
+		public void suspend() {
+			TransactionSynchronizationManager.unbindResourceIfPossible(myPendingInvalidationsResourceKey);
+		}
+
+		@Override
+		public void resume() {
+			TransactionSynchronizationManager.bindResource(myPendingInvalidationsResourceKey, this);
+		}
+
+		@Override
+		public void afterCommit() {
+			if (myCaches.size() == CacheEnum.values().length) {
+				invalidateAllCaches();
+			} else {
+				myCaches.forEach(MemoryCacheService.this::invalidate);
+			}
+		}
+
+		@Override
+		public void afterCompletion(int theStatus) {
+			TransactionSynchronizationManager.unbindResourceIfPossible(myPendingInvalidationsResourceKey);
+		}
+
+	}
+
 	public enum CacheEnum {
 
 		TAG_DEFINITION(TagDefinitionCacheKey.class),
+		/**
+		 * Only populated if deletes are disabled, so entries can only go stale through
+		 * an expunge, which invalidates all caches.
+		 */
 		RESOURCE_LOOKUP(String.class),
+		/**
+		 * Forced IDs can't change and survive a (non-expunging) delete, so entries can only
+		 * go stale through an expunge, which invalidates all caches.
+		 */
 		FORCED_ID_TO_PID(String.class),
 		/**
 		 * Key type: {@literal Long}
@@ -194,10 +474,23 @@ public class MemoryCacheService {
 		 */
 		PID_TO_FORCED_ID(Long.class),
 		CONCEPT_TRANSLATION(TranslationQuery.class),
+		/**
+		 * Invalidated whenever a resource is deleted, since there is no way of
+		 * knowing which of the cached URLs matched it.
+		 */
 		MATCH_URL(String.class),
 		CONCEPT_TRANSLATION_REVERSE(TranslationQuery.class),
 		RESOURCE_CONDITIONAL_CREATE_VERSION(Long.class),
-		HISTORY_COUNT(HistoryCountKey.class);
+		HISTORY_COUNT(HistoryCountKey.class),
+		/**
+		 * Records client assigned IDs which are known not to exist, so that repeated
+		 * lookups of them don't need to hit the database. Only used when
+		 * {@link JpaStorageSettings#isClientAssignedIdNegativeCacheEnabled()} is set.
+		 * <p>
+		 * Key type: {@literal String} (resource type + "/" + ID)
+		 * Value type: {@literal Boolean}
+		 */
+		FORCED_ID_NOT_FOUND(String.class);
 
 		public Class<?> getKeyType() {
 			return myKeyType;
@@ -208,6 +501,44 @@ public class MemoryCacheService {
 		CacheEnum(Class<?> theKeyType) {
 			myKeyType = theKeyType;
 		}
+
+		/**
+		 * Returns <code>true</code> if evictions of individual keys of this cache are sent to other
+		 * cache instances over the {@link IMemoryCacheInvalidationBus invalidation bus}. This is only
+		 * the case for caches keyed by a {@literal String} or {@literal Long}. The others are keyed by
+		 * composite objects, and hold either entries which never change once written (tag definitions)
+		 * or short-lived derived values (concept translations, history counts), so they are left to
+		 * expire on each node. Invalidating one of these caches as a whole is still broadcast.
+		 */
+		public boolean isKeyBroadcast() {
+			return myKeyType.equals(String.class) || myKeyType.equals(Long.class);
+		}
+
+		/**
+		 * Converts a key into a form which can be transmitted in a {@link MemoryCacheInvalidationEvent}.
+		 * Only valid for caches which {@link #isKeyBroadcast() broadcast their keys}.
+		 */
+		String keyToString(Object theKey) {
+			assert isKeyBroadcast();
+			return theKey.toString();
+		}
+
+		/**
+		 * Inverse of {@link #keyToString(Object)}
+		 */
+		@Nullable
+		Object keyFromString(@Nullable String theKey) {
+			if (theKey == null) {
+				return null;
+			}
+			if (myKeyType.equals(String.class)) {
+				return theKey;
+			}
+			if (myKeyType.equals(Long.class)) {
+				return Long.parseLong(theKey);
+			}
+			return null;
+		}
 	}
 
 
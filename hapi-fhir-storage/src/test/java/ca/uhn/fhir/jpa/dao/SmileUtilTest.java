@@ -0,0 +1,62 @@
+package ca.uhn.fhir.jpa.dao;
+
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.JsonParser;
+import org.hl7.fhir.r4.model.DecimalType;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Quantity;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+import static org.hamcrest.MatcherAssert.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.hamcrest.Matchers.lessThan;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+public class SmileUtilTest {
+
+	private static final FhirContext ourCtx = FhirContext.forR4Cached();
+
+	@Test
+	public void testRoundTrip() {
+		String json = ourCtx.newJsonParser().encodeResourceToString(createObservation());
+
+		byte[] smile = SmileUtil.fromJson(json);
+		assertThat(smile.length, lessThan(json.length()));
+		assertEquals(json, SmileUtil.toJson(smile));
+	}
+
+	@Test
+	public void testParseResource() {
+		String json = ourCtx.newJsonParser().encodeResourceToString(createObservation());
+		byte[] smile = SmileUtil.fromJson(json);
+
+		Observation parsed = SmileUtil.parseResource((JsonParser) ourCtx.newJsonParser(), Observation.class, smile);
+
+		assertEquals("1.500", parsed.getValueQuantity().getValueElement().getValueAsString());
+		assertEquals("0.000000000000000000000001", parsed.getComponentFirstRep().getValueQuantity().getValueElement().getValueAsString());
+		Observation parsedFromJson = ourCtx.newJsonParser().parseResource(Observation.class, json);
+		assertEquals(ourCtx.newJsonParser().encodeResourceToString(parsedFromJson), ourCtx.newJsonParser().encodeResourceToString(parsed));
+	}
+
+	@Test
+	public void testInvalidContent() {
+		DataFormatException e = assertThrows(DataFormatException.class, () -> SmileUtil.toJson(new byte[]{1, 2, 3}));
+		assertThat(e.getMessage(), containsString("HAPI-2385"));
+	}
+
+	private static Observation createObservation() {
+		Observation obs = new Observation();
+		obs.setId("Observation/1");
+		obs.setStatus(Observation.ObservationStatus.FINAL);
+		obs.getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5").setDisplay("Foo");
+		obs.setValue(new Quantity().setValueElement(new DecimalType(new BigDecimal("1.500"))).setUnit("mg"));
+		obs.addComponent().getCode().addCoding().setSystem("http://loinc.org").setCode("1234-5");
+		obs.getComponentFirstRep().setValue(new Quantity().setValueElement(new DecimalType(new BigDecimal("0.000000000000000000000001"))));
+		return obs;
+	}
+
+}
@@ -54,7 +54,9 @@ import org.junit.jupiter.api.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.HashSet;
@@ -73,6 +75,7 @@ import static org.hamcrest.Matchers.is;
 import static org.hamcrest.Matchers.notNullValue;
 import static org.hamcrest.Matchers.stringContainsInOrder;
 import static org.hamcrest.core.IsNot.not;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
@@ -102,6 +105,38 @@ public class JsonParserR4Test extends BaseTest {
 		ourCtx.getParserOptions().setAutoContainReferenceTargetsWithNoId(true);
 	}
 
+	@Test
+	public void testEncodeResourceToOutputStream() throws IOException {
+		Patient p = new Patient();
+		p.setId("123");
+		p.addName().setFamily("Müller").addGiven("Zoë");
+		p.addExtension("http://foo", new StringType("日本語"));
+
+		IParser parser = ourCtx.newJsonParser().setPrettyPrint(true);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		parser.encodeResourceToOutputStream(p, bos);
+		bos.write('\n');
+		parser.encodeResourceToOutputStream(p, bos);
+
+		String expected = parser.encodeResourceToString(p);
+		assertEquals(expected + "\n" + expected, new String(bos.toByteArray(), StandardCharsets.UTF_8));
+	}
+
+	@Test
+	public void testEncodeResourceToOutputStreamWithSupplementaryCharacters() throws IOException {
+		Patient p = new Patient();
+		p.addName().setFamily("Smile \uD83D\uDE00 \"quoted\"").addGiven("\uD83D\uDE00\nsecond line");
+
+		IParser parser = ourCtx.newJsonParser().setPrettyPrint(true);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		parser.encodeResourceToOutputStream(p, bos);
+
+		// Characters outside the BMP are written as raw UTF-8, the same as when encoding to a String
+		byte[] expected = parser.encodeResourceToString(p).getBytes(StandardCharsets.UTF_8);
+		assertArrayEquals(expected, bos.toByteArray());
+		assertEquals("Smile \uD83D\uDE00 \"quoted\"", parser.parseResource(Patient.class, new String(bos.toByteArray(), StandardCharsets.UTF_8)).getNameFirstRep().getFamily());
+	}
+
 	@Test
 	public void testNonDomainResourcesHaveIdResourceTypeParsed() {
 		//Test a non-domain resource
@@ -0,0 +1,83 @@
+package ca.uhn.fhir.parser;
+
+import ca.uhn.fhir.context.FhirContext;
+import org.hl7.fhir.instance.model.api.IBaseResource;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class JsonStreamReaderR4Test {
+
+	private static final FhirContext ourStreamingCtx = FhirContext.forR4();
+	private static final FhirContext ourTreeCtx = FhirContext.forR4();
+
+	static {
+		ourStreamingCtx.getParserOptions().setUseStreamingJsonParser(true);
+		ourTreeCtx.getParserOptions().setUseStreamingJsonParser(false);
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		// Alternate before, directly after, and after another complex property
+		"{'resourceType':'Patient','_birthDate':{'id':'bd'},'birthDate':'2000-01-01','active':true}",
+		"{'resourceType':'Patient','birthDate':'2000-01-01','_birthDate':{'extension':[{'url':'http://foo','valueString':'bar'}]}}",
+		"{'resourceType':'Patient','name':[{'given':['A','B'],'family':'F','_given':[null,{'id':'g2'}]}],'_active':{'id':'a'},'active':false}",
+		"{'resourceType':'Patient','birthDate':'2000-01-01','name':[{'family':'F'}],'_birthDate':{'id':'bd'}}",
+		// Alternate without a value, and null values
+		"{'resourceType':'Patient','_gender':{'extension':[{'url':'http://foo','valueCode':'x'}]},'name':[{'given':[null,'B'],'_given':[{'id':'g1'},null]}]}",
+		// Extensions and modifier extensions
+		"{'resourceType':'Patient','extension':[{'url':'http://foo','valueString':'bar','_valueString':{'id':'v'}}],'modifierExtension':[{'url':'http://bar','valueBoolean':true}],'id':'123'}",
+		// Resource type which is not the first property
+		"{'id':'123','resourceType':'Patient','active':true,'_active':{'id':'a'}}",
+		"{'resourceType':'Patient','contained':[{'id':'o1','status':'final','resourceType':'Observation'},{'resourceType':'Practitioner','id':'p1','active':true}],'generalPractitioner':[{'reference':'#p1'}]}",
+		"{'resourceType':'Bundle','type':'collection','entry':[{'fullUrl':'http://foo/Patient/1','resource':{'resourceType':'Patient','id':'1','meta':{'versionId':'2'},'active':true}},{'resource':{'id':'2','resourceType':'Patient'}}]}"
+	})
+	public void testSameResultAsTreeParser(String theInput) {
+		String input = theInput.replace('\'', '"');
+
+		IBaseResource streaming = ourStreamingCtx.newJsonParser().parseResource(input);
+		IBaseResource tree = ourTreeCtx.newJsonParser().parseResource(input);
+
+		String expected = ourTreeCtx.newJsonParser().encodeResourceToString(tree);
+		String actual = ourTreeCtx.newJsonParser().encodeResourceToString(streaming);
+		assertEquals(expected, actual);
+	}
+
+	@Test
+	public void testAlternateAfterValueIsApplied() {
+		String input = "{'resourceType':'Observation','status':'final','code':{'text':'foo'},'_status':{'id':'s'}}".replace('\'', '"');
+
+		Observation obs = ourStreamingCtx.newJsonParser().parseResource(Observation.class, input);
+
+		assertEquals("final", obs.getStatusElement().getValueAsString());
+		assertEquals("s", obs.getStatusElement().getId());
+		assertEquals("foo", obs.getCode().getText());
+	}
+
+	@ParameterizedTest
+	@ValueSource(strings = {
+		"{'resourceType':'Patient','active':true} {",
+		"{'resourceType':'Patient','active':true",
+		"{'active':true}",
+		"{'resourceType':'Patient','id':['123']}",
+		"{'resourceType':'Patient','_active':'foo'}",
+		"{'resourceType':'Patient','contained':[{'id':'123'}]}"
+	})
+	public void testSameErrorAsTreeParser(String theInput) {
+		String input = theInput.replace('\'', '"');
+		IParser streamingParser = ourStreamingCtx.newJsonParser().setParserErrorHandler(new StrictErrorHandler());
+		IParser treeParser = ourTreeCtx.newJsonParser().setParserErrorHandler(new StrictErrorHandler());
+
+		DataFormatException expected = assertThrows(DataFormatException.class, () -> treeParser.parseResource(Patient.class, input));
+		DataFormatException actual = assertThrows(DataFormatException.class, () -> streamingParser.parseResource(Patient.class, input));
+		assertEquals(expected.getMessage(), actual.getMessage());
+		assertTrue(actual.getMessage().startsWith("HAPI-"), actual.getMessage());
+	}
+
+}
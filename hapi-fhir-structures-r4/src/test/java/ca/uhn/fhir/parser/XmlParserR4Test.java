@@ -7,6 +7,7 @@ import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
 import java.net.URL;
 
@@ -54,6 +55,18 @@ public class XmlParserR4Test extends BaseTest {
 	}
 
 
+	@Test
+	public void testEncodeResourceToOutputStream() throws IOException {
+		Patient p = new Patient();
+		p.addName().setFamily("Müller").addGiven("Zoë");
+
+		IParser parser = ourCtx.newXmlParser();
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		parser.encodeResourceToOutputStream(p, bos);
+
+		assertEquals(parser.encodeResourceToString(p), new String(bos.toByteArray(), Charsets.UTF_8));
+	}
+
 	/**
 	 * See #3890
 	 */
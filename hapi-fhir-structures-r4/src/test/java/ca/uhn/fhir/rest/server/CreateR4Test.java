@@ -18,6 +18,7 @@ import org.apache.http.HttpResponse;
 import org.apache.http.client.methods.CloseableHttpResponse;
 import org.apache.http.client.methods.HttpGet;
 import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ByteArrayEntity;
 import org.apache.http.entity.ContentType;
 import org.apache.http.entity.StringEntity;
 import org.apache.http.impl.client.CloseableHttpClient;
@@ -38,10 +39,12 @@ import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
+import java.io.ByteArrayOutputStream;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
 
 import static org.hamcrest.MatcherAssert.assertThat;
 import static org.hamcrest.Matchers.containsString;
@@ -63,6 +66,7 @@ public class CreateR4Test {
 	@AfterEach
 	public void after() {
 		ourServlet.setDefaultPreferReturn(RestfulServer.DEFAULT_PREFER_RETURN);
+		ourServlet.setStreamingRequestContents(false);
 	}
 
 	@BeforeEach
@@ -318,6 +322,31 @@ public class CreateR4Test {
 
 	}
 
+	@Test
+	public void testCreateWithStreamingRequestContentsAndGzip() throws Exception {
+		ourServlet.setStreamingRequestContents(true);
+
+		Patient p = new Patient();
+		p.setActive(true);
+		p.addName().setFamily("STREAMED");
+		String body = ourCtx.newJsonParser().encodeResourceToString(p);
+		ByteArrayOutputStream bos = new ByteArrayOutputStream();
+		try (GZIPOutputStream gos = new GZIPOutputStream(bos)) {
+			gos.write(body.getBytes(StandardCharsets.UTF_8));
+		}
+
+		HttpPost httpPost = new HttpPost("http://localhost:" + ourPort + "/Patient");
+		httpPost.setEntity(new ByteArrayEntity(bos.toByteArray(), ContentType.parse("application/fhir+json; charset=utf-8")));
+		httpPost.addHeader(Constants.HEADER_CONTENT_ENCODING, "gzip");
+		try (CloseableHttpResponse status = ourClient.execute(httpPost)) {
+			String responseContent = IOUtils.toString(status.getEntity().getContent(), StandardCharsets.UTF_8);
+			ourLog.info("Response was:\n{}", responseContent);
+
+			assertEquals(201, status.getStatusLine().getStatusCode());
+			assertThat(responseContent, containsString("STREAMED"));
+		}
+	}
+
 	@Test
 	public void testSearch() throws Exception {
 
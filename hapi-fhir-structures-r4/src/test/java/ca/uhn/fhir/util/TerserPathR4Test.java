@@ -0,0 +1,150 @@
+package ca.uhn.fhir.util;
+
+import ca.uhn.fhir.context.BaseRuntimeElementCompositeDefinition;
+import ca.uhn.fhir.context.FhirContext;
+import ca.uhn.fhir.parser.DataFormatException;
+import ca.uhn.fhir.parser.ExtendedPatient;
+import org.hl7.fhir.instance.model.api.IBase;
+import org.hl7.fhir.instance.model.api.IBaseExtension;
+import org.hl7.fhir.instance.model.api.IPrimitiveType;
+import org.hl7.fhir.r4.model.BooleanType;
+import org.hl7.fhir.r4.model.CodeType;
+import org.hl7.fhir.r4.model.Extension;
+import org.hl7.fhir.r4.model.HumanName;
+import org.hl7.fhir.r4.model.Observation;
+import org.hl7.fhir.r4.model.Patient;
+import org.hl7.fhir.r4.model.Quantity;
+import org.hl7.fhir.r4.model.StringType;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.apache.commons.lang3.StringUtils.defaultString;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class TerserPathR4Test {
+
+	private final FhirContext myCtx = FhirContext.forR4Cached();
+
+	@ParameterizedTest
+	@CsvSource(delimiter = ';', value = {
+		"Patient.name.family;                                      Simpson|Simpson",
+		"name.given;                                               Homer|Jay|Max",
+		"Patient.name;                                             HumanName|HumanName",
+		"Patient.identifier.value;                                 1|2",
+		"Patient.extension('http://foo').valueString;              foo|foo2",
+		"Patient.extension('http://foo').extension('http://bar'); Extension[http://bar]",
+		"Patient.name.given.extension('http://baz');               Extension[http://baz]",
+		"Patient.deceased[x];                                      false",
+		"Patient.deceasedBoolean;                                  false",
+		"Patient.deceasedDateTime;                                 ",
+		"Observation.name;                                         "
+	})
+	public void testGetValues(String thePath, String theExpected) {
+		Patient patient = newPatient();
+		String expected = defaultString(theExpected);
+
+		TerserPath path = TerserPath.compile(myCtx, Patient.class, thePath);
+
+		assertEquals(thePath, path.getPath());
+		assertEquals(expected, toString(path.getValues(patient)));
+		assertEquals(expected, toString(myCtx.newTerser().getValues(patient, thePath)));
+		assertEquals(toString(myCtx.newTerser().getValues(patient, thePath, IPrimitiveType.class)), toString(path.getValues(patient, IPrimitiveType.class)));
+	}
+
+	@Test
+	public void testGetValuesChoiceTypes() {
+		Observation obs = new Observation();
+		obs.setValue(new Quantity(123L));
+
+		assertEquals(0, TerserPath.compile(myCtx, Observation.class, "Observation.valueString").getValues(obs).size());
+		assertEquals(1, TerserPath.compile(myCtx, Observation.class, "Observation.valueQuantity").getValues(obs).size());
+		assertEquals(1, TerserPath.compile(myCtx, Observation.class, "Observation.valueQuantity.value").getValues(obs).size());
+		assertEquals(1, TerserPath.compile(myCtx, Observation.class, "Observation.value[x]").getValues(obs, Quantity.class).size());
+	}
+
+	@Test
+	public void testGetSingleValueOrNull() {
+		Patient patient = newPatient();
+		TerserPath path = TerserPath.compile(myCtx, Patient.class, "Patient.name.given");
+
+		assertEquals("Homer", path.getSingleValueOrNull(patient, StringType.class).getValue());
+		assertNull(path.getSingleValueOrNull(new Patient(), StringType.class));
+	}
+
+	@Test
+	public void testUnknownChildIsOnlyReportedWhenReached() {
+		TerserPath path = TerserPath.compile(myCtx, Patient.class, "Patient.name.foo");
+
+		assertTrue(path.getValues(new Patient()).isEmpty());
+		DataFormatException e = assertThrows(DataFormatException.class, () -> path.getValues(newPatient()));
+		assertTrue(e.getMessage().startsWith("HAPI-1700: Unknown child name 'foo' in element HumanName"), e.getMessage());
+	}
+
+	@Test
+	public void testWrongElementType() {
+		TerserPath path = TerserPath.compile(myCtx, Patient.class, "Patient.name");
+
+		IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> path.getValues(new Observation()));
+		assertEquals("HAPI-2381: Path Patient.name was compiled for Patient and can not be applied to org.hl7.fhir.r4.model.Observation", e.getMessage());
+
+		e = assertThrows(IllegalArgumentException.class, () -> TerserPath.compile(myCtx, StringType.class, "value"));
+		assertEquals("HAPI-2382: Type is not a composite type: org.hl7.fhir.r4.model.StringType", e.getMessage());
+	}
+
+	@Test
+	public void testCustomResourceSubclass() {
+		TerserPath path = TerserPath.compile(myCtx, Patient.class, "Patient.name.family");
+
+		ExtendedPatient patient = new ExtendedPatient();
+		patient.addName().setFamily("Simpson");
+		patient.setEyeColour(new CodeType("blue"));
+
+		assertEquals("Simpson", toString(path.getValues(patient)));
+	}
+
+	@Test
+	public void testDefinitionCachesCompiledPaths() {
+		BaseRuntimeElementCompositeDefinition<?> def = myCtx.getResourceDefinition("Patient");
+
+		TerserPath path = def.getTerserPath("Patient.name.family");
+		assertSame(path, def.getTerserPath("Patient.name.family"));
+		assertSame(def, path.getDefinition());
+	}
+
+	private static String toString(List<? extends IBase> theValues) {
+		return theValues.stream().map(t -> {
+			if (t instanceof IPrimitiveType) {
+				return ((IPrimitiveType<?>) t).getValueAsString();
+			} else if (t instanceof IBaseExtension) {
+				return "Extension[" + ((IBaseExtension<?, ?>) t).getUrl() + "]";
+			}
+			return t.fhirType();
+		}).collect(Collectors.joining("|"));
+	}
+
+	private static Patient newPatient() {
+		Patient patient = new Patient();
+		patient.addIdentifier().setSystem("http://foo").setValue("1");
+		patient.addIdentifier().setSystem("http://foo");
+		patient.addIdentifier().setSystem("http://foo").setValue("2");
+		HumanName name = patient.addName().setFamily("Simpson").addGiven("Homer").addGiven("Jay");
+		name.getGiven().get(1).addExtension("http://baz", new StringType("ext"));
+		patient.addName().setFamily("Simpson").addGiven("Max");
+		patient.setDeceased(new BooleanType(false));
+		Extension ext = patient.addExtension().setUrl("http://foo").setValue(new StringType("foo"));
+		ext.addExtension("http://bar", new StringType("bar"));
+		patient.addExtension("http://other", new StringType("other"));
+		patient.addExtension("http://foo", new StringType("foo2"));
+		return patient;
+	}
+
+}